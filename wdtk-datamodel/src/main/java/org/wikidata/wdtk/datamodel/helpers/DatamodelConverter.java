@@ -25,7 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
+import java.util.function.UnaryOperator;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +71,13 @@ import org.wikidata.wdtk.datamodel.interfaces.ValueVisitor;
  * immutable and do not need to be copied. The use of this class is to convert
  * data objects to a specific implementation, as might be needed for some
  * specialized purpose (e.g., for JSON export).
+ * <p>
+ * In structural sharing mode, objects that already belong to the
+ * implementation of the target factory (see
+ * {@link DataObjectFactory#isOwnObject(Object)}) are reused instead of being
+ * copied. Containers such as statements are only re-created if some of their
+ * parts had to be copied, so that converting documents of the target
+ * implementation creates hardly any new objects.
  *
  * @author Markus Kroetzsch
  *
@@ -86,6 +93,11 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 */
 	private final DataObjectFactory dataObjectFactory;
 
+	/**
+	 * True if objects of the target implementation should be reused.
+	 */
+	private boolean structuralSharing = false;
+
 	/**
 	 * Constructor.
 	 *
@@ -96,6 +108,37 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 		this.dataObjectFactory = dataObjectFactory;
 	}
 
+	/**
+	 * Sets whether objects that belong to the implementation of the target
+	 * factory are reused rather than copied. This is off by default, so that
+	 * all copies are new objects.
+	 *
+	 * @param structuralSharing
+	 *            true if unchanged objects should be shared
+	 */
+	public void setStructuralSharing(boolean structuralSharing) {
+		this.structuralSharing = structuralSharing;
+	}
+
+	/**
+	 * Returns true if objects that belong to the implementation of the target
+	 * factory are reused rather than copied.
+	 *
+	 * @return true if unchanged objects are shared
+	 * @see #setStructuralSharing(boolean)
+	 */
+	public boolean isStructuralSharing() {
+		return this.structuralSharing;
+	}
+
+	/**
+	 * Returns true if the given object can be used instead of a copy.
+	 */
+	private boolean canShare(Object object) {
+		return this.structuralSharing
+				&& this.dataObjectFactory.isOwnObject(object);
+	}
+
 	/**
 	 * Copies an {@link ItemIdValue}.
 	 *
@@ -104,6 +147,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public ItemIdValue copy(ItemIdValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getItemIdValue(object.getId(), object.getSiteIri());
 	}
 
@@ -115,6 +161,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public PropertyIdValue copy(PropertyIdValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getPropertyIdValue(object.getId(), object.getSiteIri());
 	}
 
@@ -126,6 +175,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public LexemeIdValue copy(LexemeIdValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getLexemeIdValue(object.getId(), object.getSiteIri());
 	}
 	
@@ -137,6 +189,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public FormIdValue copy(FormIdValue object) {
+        if (canShare(object)) {
+            return object;
+        }
         return dataObjectFactory.getFormIdValue(object.getId(), object.getSiteIri());
     }
     
@@ -148,6 +203,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public SenseIdValue copy(SenseIdValue object) {
+        if (canShare(object)) {
+            return object;
+        }
         return dataObjectFactory.getSenseIdValue(object.getId(), object.getSiteIri());
     }
     
@@ -159,6 +217,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public MediaInfoIdValue copy(MediaInfoIdValue object) {
+        if (canShare(object)) {
+            return object;
+        }
         return dataObjectFactory.getMediaInfoIdValue(object.getId(), object.getSiteIri());
     }
 
@@ -170,6 +231,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public DatatypeIdValue copy(DatatypeIdValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getDatatypeIdValueFromJsonId(object.getJsonString());
 	}
 
@@ -181,6 +245,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public TimeValue copy(TimeValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getTimeValue(object.getYear(),
 				object.getMonth(), object.getDay(), object.getHour(),
 				object.getMinute(), object.getSecond(), object.getPrecision(),
@@ -196,6 +263,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public GlobeCoordinatesValue copy(GlobeCoordinatesValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getGlobeCoordinatesValue(
 				object.getLatitude(), object.getLongitude(),
 				object.getPrecision(), object.getGlobe());
@@ -209,6 +279,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public StringValue copy(StringValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getStringValue(object.getString());
 	}
 
@@ -219,6 +292,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public MonolingualTextValue copy(MonolingualTextValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getMonolingualTextValue(object.getText(), object.getLanguageCode());
 	}
 
@@ -230,6 +306,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public QuantityValue copy(QuantityValue object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getQuantityValue(
 				object.getNumericValue(), object.getLowerBound(),
 				object.getUpperBound(), object.getUnitItemId());
@@ -275,7 +354,15 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public ValueSnak copy(ValueSnak object) {
-		return dataObjectFactory.getValueSnak(copy(object.getPropertyId()), copyValue(object.getValue()));
+		PropertyIdValue propertyId = object.getPropertyId();
+		Value value = object.getValue();
+		PropertyIdValue propertyIdCopy = copy(propertyId);
+		Value valueCopy = copyValue(value);
+		if (propertyIdCopy == propertyId && valueCopy == value
+				&& canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getValueSnak(propertyIdCopy, valueCopy);
 	}
 
 	/**
@@ -286,7 +373,12 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public SomeValueSnak copy(SomeValueSnak object) {
-		return dataObjectFactory.getSomeValueSnak(copy(object.getPropertyId()));
+		PropertyIdValue propertyId = object.getPropertyId();
+		PropertyIdValue propertyIdCopy = copy(propertyId);
+		if (propertyIdCopy == propertyId && canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getSomeValueSnak(propertyIdCopy);
 	}
 
 	/**
@@ -297,7 +389,12 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public NoValueSnak copy(NoValueSnak object) {
-		return dataObjectFactory.getNoValueSnak(copy(object.getPropertyId()));
+		PropertyIdValue propertyId = object.getPropertyId();
+		PropertyIdValue propertyIdCopy = copy(propertyId);
+		if (propertyIdCopy == propertyId && canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getNoValueSnak(propertyIdCopy);
 	}
 
 	/**
@@ -308,11 +405,12 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public SnakGroup copy(SnakGroup object) {
-		List<Snak> snaks = new ArrayList<>(object.size());
-		for (Snak snak : object) {
-			snaks.add(copy(snak));
+		List<Snak> snaks = object.getSnaks();
+		List<Snak> snaksCopy = copyList(snaks, this::copy);
+		if (snaksCopy == snaks && canShare(object)) {
+			return object;
 		}
-		return dataObjectFactory.getSnakGroup(snaks);
+		return dataObjectFactory.getSnakGroup(unsharedList(snaks, snaksCopy));
 	}
 
 	/**
@@ -323,10 +421,18 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public Claim copy(Claim object) {
-		return dataObjectFactory.getClaim(
-				(EntityIdValue) visit(object.getSubject()),
-				copy(object.getMainSnak()),
-				copy(object.getQualifiers()));
+		EntityIdValue subject = object.getSubject();
+		Snak mainSnak = object.getMainSnak();
+		List<SnakGroup> qualifiers = object.getQualifiers();
+		EntityIdValue subjectCopy = (EntityIdValue) visit(subject);
+		Snak mainSnakCopy = copy(mainSnak);
+		List<SnakGroup> qualifiersCopy = copy(qualifiers);
+		if (subjectCopy == subject && mainSnakCopy == mainSnak
+				&& qualifiersCopy == qualifiers && canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getClaim(subjectCopy, mainSnakCopy,
+				unsharedList(qualifiers, qualifiersCopy));
 	}
 
 	/**
@@ -337,7 +443,13 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public Reference copy(Reference object) {
-		return dataObjectFactory.getReference(copy(object.getSnakGroups()));
+		List<SnakGroup> snakGroups = object.getSnakGroups();
+		List<SnakGroup> snakGroupsCopy = copy(snakGroups);
+		if (snakGroupsCopy == snakGroups && canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getReference(unsharedList(snakGroups,
+				snakGroupsCopy));
 	}
 
 	/**
@@ -348,11 +460,22 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public Statement copy(Statement object) {
-		return dataObjectFactory.getStatement(
-				(EntityIdValue) visit(object.getSubject()),
-				copy(object.getMainSnak()),
-				copy(object.getQualifiers()),
-				copyReferences(object.getReferences()),
+		EntityIdValue subject = object.getSubject();
+		Snak mainSnak = object.getMainSnak();
+		List<SnakGroup> qualifiers = object.getQualifiers();
+		List<Reference> references = object.getReferences();
+		EntityIdValue subjectCopy = (EntityIdValue) visit(subject);
+		Snak mainSnakCopy = copy(mainSnak);
+		List<SnakGroup> qualifiersCopy = copy(qualifiers);
+		List<Reference> referencesCopy = copyReferences(references);
+		if (subjectCopy == subject && mainSnakCopy == mainSnak
+				&& qualifiersCopy == qualifiers && referencesCopy == references
+				&& canShare(object)) {
+			return object;
+		}
+		return dataObjectFactory.getStatement(subjectCopy, mainSnakCopy,
+				unsharedList(qualifiers, qualifiersCopy),
+				unsharedList(references, referencesCopy),
 				object.getRank(), object.getStatementId());
 	}
 
@@ -363,11 +486,13 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public StatementGroup copy(StatementGroup object) {
-		List<Statement> statements = new ArrayList<>(object.getStatements().size());
-		for (Statement statement : object.getStatements()) {
-			statements.add(copy(statement));
+		List<Statement> statements = object.getStatements();
+		List<Statement> statementsCopy = copyList(statements, this::copy);
+		if (statementsCopy == statements && canShare(object)) {
+			return object;
 		}
-		return dataObjectFactory.getStatementGroup(statements);
+		return dataObjectFactory.getStatementGroup(unsharedList(statements,
+				statementsCopy));
 	}
 
 	/**
@@ -378,6 +503,9 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public SiteLink copy(SiteLink object) {
+		if (canShare(object)) {
+			return object;
+		}
 		return dataObjectFactory.getSiteLink(object.getPageTitle(),
 				object.getSiteKey(), object.getBadges());
 	}
@@ -390,12 +518,22 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public PropertyDocument copy(PropertyDocument object) {
+		List<StatementGroup> statementGroups = object.getStatementGroups();
+		List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+		if (canShare(object) && statementGroupsCopy == statementGroups
+				&& isShared(object.getEntityId(), this::copy)
+				&& isSharedTerms(object.getLabels().values())
+				&& isSharedTerms(object.getDescriptions().values())
+				&& isSharedAliases(object.getAliases())
+				&& isShared(object.getDatatype(), this::copy)) {
+			return object;
+		}
 		return dataObjectFactory.getPropertyDocument(
 				copy(object.getEntityId()),
 				copyMonoLingualTextValues(object.getLabels().values()),
 				copyMonoLingualTextValues(object.getDescriptions().values()),
 				copyAliasMap(object.getAliases()),
-				copyStatementGroups(object.getStatementGroups()),
+				unsharedList(statementGroups, statementGroupsCopy),
 				copy(object.getDatatype()),
 				object.getRevisionId());
 	}
@@ -408,12 +546,22 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public ItemDocument copy(ItemDocument object) {
+		List<StatementGroup> statementGroups = object.getStatementGroups();
+		List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+		if (canShare(object) && statementGroupsCopy == statementGroups
+				&& isShared(object.getEntityId(), this::copy)
+				&& isSharedTerms(object.getLabels().values())
+				&& isSharedTerms(object.getDescriptions().values())
+				&& isSharedAliases(object.getAliases())
+				&& areShared(object.getSiteLinks().values(), this::copy)) {
+			return object;
+		}
 		return dataObjectFactory.getItemDocument(
 				copy(object.getEntityId()),
 				copyMonoLingualTextValues(object.getLabels().values()),
 				copyMonoLingualTextValues(object.getDescriptions().values()),
 				copyAliasMap(object.getAliases()),
-				copyStatementGroups(object.getStatementGroups()),
+				unsharedList(statementGroups, statementGroupsCopy),
 				copySiteLinks(object.getSiteLinks()),
 				object.getRevisionId());
 	}
@@ -426,10 +574,17 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return copied object
 	 */
 	public MediaInfoDocument copy(MediaInfoDocument object) {
+	    List<StatementGroup> statementGroups = object.getStatementGroups();
+	    List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+	    if (canShare(object) && statementGroupsCopy == statementGroups
+	            && isShared(object.getEntityId(), this::copy)
+	            && isSharedTerms(object.getLabels().values())) {
+	        return object;
+	    }
 	    return dataObjectFactory.getMediaInfoDocument(
 	            copy(object.getEntityId()),
 	            copyMonoLingualTextValues(object.getLabels().values()),
-	            copyStatementGroups(object.getStatementGroups()),
+	            unsharedList(statementGroups, statementGroupsCopy),
 	            object.getRevisionId());
 	}
 	
@@ -441,14 +596,28 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public LexemeDocument copy(LexemeDocument object) {
+        List<StatementGroup> statementGroups = object.getStatementGroups();
+        List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+        List<FormDocument> forms = object.getForms();
+        List<FormDocument> formsCopy = copyList(forms, this::copy);
+        List<SenseDocument> senses = object.getSenses();
+        List<SenseDocument> sensesCopy = copyList(senses, this::copy);
+        if (canShare(object) && statementGroupsCopy == statementGroups
+                && formsCopy == forms && sensesCopy == senses
+                && isShared(object.getEntityId(), this::copy)
+                && isShared(object.getLexicalCategory(), this::copy)
+                && isShared(object.getLanguage(), this::copy)
+                && isSharedTerms(object.getLemmas().values())) {
+            return object;
+        }
         return dataObjectFactory.getLexemeDocument(
                 copy(object.getEntityId()),
                 copy(object.getLexicalCategory()),
                 copy(object.getLanguage()),
                 copyMonoLingualTextValues(object.getLemmas().values()),
-                copyStatementGroups(object.getStatementGroups()),
-                copyFormDocuments(object.getForms()),
-                copySenseDocuments(object.getSenses()),
+                unsharedList(statementGroups, statementGroupsCopy),
+                unsharedList(forms, formsCopy),
+                unsharedList(senses, sensesCopy),
                 object.getRevisionId());
     }
     
@@ -460,11 +629,21 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public FormDocument copy(FormDocument object) {
+        List<StatementGroup> statementGroups = object.getStatementGroups();
+        List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+        List<ItemIdValue> features = object.getGrammaticalFeatures();
+        List<ItemIdValue> featuresCopy = copyList(features, this::copy);
+        if (canShare(object) && statementGroupsCopy == statementGroups
+                && featuresCopy == features
+                && isShared(object.getEntityId(), this::copy)
+                && isSharedTerms(object.getRepresentations().values())) {
+            return object;
+        }
         return dataObjectFactory.getFormDocument(
                 copy(object.getEntityId()),
                 copyMonoLingualTextValues(object.getRepresentations().values()),
-                copyItemIds(object.getGrammaticalFeatures()),
-                copyStatementGroups(object.getStatementGroups()),
+                unsharedList(features, featuresCopy),
+                unsharedList(statementGroups, statementGroupsCopy),
                 object.getRevisionId());
     }
     
@@ -477,10 +656,17 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
      * @return copied object
      */
     public SenseDocument copy(SenseDocument object) {
+        List<StatementGroup> statementGroups = object.getStatementGroups();
+        List<StatementGroup> statementGroupsCopy = copyStatementGroups(statementGroups);
+        if (canShare(object) && statementGroupsCopy == statementGroups
+                && isShared(object.getEntityId(), this::copy)
+                && isSharedTerms(object.getGlosses().values())) {
+            return object;
+        }
         return dataObjectFactory.getSenseDocument(
                 copy(object.getEntityId()),
                 copyMonoLingualTextValues(object.getGlosses().values()),
-                copyStatementGroups(object.getStatementGroups()),
+                unsharedList(statementGroups, statementGroupsCopy),
                 object.getRevisionId());
     }
     
@@ -603,11 +789,7 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return the copied object
 	 */
 	private List<SnakGroup> copy(List<SnakGroup> snakGroups) {
-		List<SnakGroup> result = new ArrayList<>(snakGroups.size());
-		for (SnakGroup snakGroup : snakGroups) {
-			result.add(copy(snakGroup));
-		}
-		return result;
+		return copyList(snakGroups, this::copy);
 	}
 
 	/**
@@ -618,12 +800,7 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return the copied object
 	 */
 	private List<Reference> copyReferences(List<Reference> references) {
-		List<Reference> result = new ArrayList<>(references.size());
-		for (Reference reference : references) {
-			result.add(dataObjectFactory
-					.getReference(copy(reference.getSnakGroups())));
-		}
-		return result;
+		return copyList(references, this::copy);
 	}
 
 	/**
@@ -634,11 +811,85 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 	 * @return the copied object
 	 */
 	private List<StatementGroup> copyStatementGroups(List<StatementGroup> statementGroups) {
-		List<StatementGroup> result = new ArrayList<>(statementGroups.size());
-		for (StatementGroup statementGroup : statementGroups) {
-			result.add(copy(statementGroup));
+		return copyList(statementGroups, this::copy);
+	}
+
+	/**
+	 * Copies the elements of a list. In structural sharing mode, the given
+	 * list is returned if none of its elements had to be copied.
+	 *
+	 * @param list
+	 *            the list to copy
+	 * @param copier
+	 *            function that copies one element
+	 * @return the copied list
+	 */
+	private <T> List<T> copyList(List<T> list, UnaryOperator<T> copier) {
+		if (!this.structuralSharing) {
+			List<T> result = new ArrayList<>(list.size());
+			for (T element : list) {
+				result.add(copier.apply(element));
+			}
+			return result;
 		}
-		return result;
+		List<T> result = null;
+		for (int i = 0; i < list.size(); i++) {
+			T element = list.get(i);
+			T copy = copier.apply(element);
+			if (result == null && copy != element) {
+				result = new ArrayList<>(list.size());
+				result.addAll(list.subList(0, i));
+			}
+			if (result != null) {
+				result.add(copy);
+			}
+		}
+		return result == null ? list : result;
+	}
+
+	/**
+	 * Returns the copy of a list, as made by
+	 * {@link #copyList(List, UnaryOperator)}, in a form that can be passed
+	 * to the factory. If none of the elements had to be copied, the copy is
+	 * the original list, which may belong to another implementation and be
+	 * mutable; it is only kept by an object that is shared as a whole, and
+	 * otherwise copied into a new list.
+	 */
+	private static <T> List<T> unsharedList(List<T> original, List<T> copy) {
+		return copy == original ? new ArrayList<>(original) : copy;
+	}
+
+	/**
+	 * Returns true if the given object is not changed by copying, as it
+	 * happens in structural sharing mode.
+	 */
+	private <T> boolean isShared(T object, UnaryOperator<T> copier) {
+		return copier.apply(object) == object;
+	}
+
+	/**
+	 * Returns true if none of the given objects is changed by copying.
+	 */
+	private <T> boolean areShared(Collection<T> objects, UnaryOperator<T> copier) {
+		for (T object : objects) {
+			if (copier.apply(object) != object) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isSharedTerms(Collection<MonolingualTextValue> terms) {
+		return areShared(terms, this::copy);
+	}
+
+	private boolean isSharedAliases(Map<String, List<MonolingualTextValue>> aliases) {
+		for (List<MonolingualTextValue> languageAliases : aliases.values()) {
+			if (!isSharedTerms(languageAliases)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -670,42 +921,5 @@ public class DatamodelConverter implements SnakVisitor<Snak>,
 		}
 		return result;
 	}
-	
-	/**
-	 * Copies a list of item ids.
-	 * 
-	 * @param ids
-	 * @return
-	 */
-    private List<ItemIdValue> copyItemIds(List<ItemIdValue> ids) {
-        return ids.stream()
-                .map(id -> copy(id))
-                .collect(Collectors.toList());
-    }
-    
-    /**
-     * Copies a list of sense documents.
-     * 
-     * @param senses
-     * @return
-     */
-    private List<SenseDocument> copySenseDocuments(List<SenseDocument> senses) {
-        return senses.stream()
-                .map(sense -> copy(sense))
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Copies a list of form documents.
-     * 
-     * @param forms
-     * @return
-     */
-    private List<FormDocument> copyFormDocuments(List<FormDocument> forms) {
-        return forms.stream()
-                .map(form -> copy(form))
-                .collect(Collectors.toList());
-    }
-
 
 }
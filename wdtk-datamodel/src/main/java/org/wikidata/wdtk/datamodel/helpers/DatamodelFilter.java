@@ -27,6 +27,10 @@ import java.util.*;
 /**
  * This is a utility class that allows to filter {@link EntityDocument}
  * using the data declared in a {@link DocumentDataFilter}.
+ * <p>
+ * Documents that belong to the implementation of the given factory (see
+ * {@link DataObjectFactory#isOwnObject(Object)}) are returned unchanged if
+ * the filter does not remove any of their data.
  */
 public class DatamodelFilter {
 
@@ -40,6 +44,14 @@ public class DatamodelFilter {
 	}
 
 	public ItemDocument filter(ItemDocument item) {
+		if (dataObjectFactory.isOwnObject(item)
+				&& keepsTerms(item.getLabels().values())
+				&& keepsTerms(item.getDescriptions().values())
+				&& keepsAliases(item.getAliases())
+				&& keepsStatementGroups(item.getStatementGroups())
+				&& keepsSiteLinks(item.getSiteLinks())) {
+			return item;
+		}
 		return dataObjectFactory.getItemDocument(
 				item.getEntityId(),
 				filterMonoLingualTextValues(item.getLabels().values()),
@@ -52,6 +64,13 @@ public class DatamodelFilter {
 	}
 
 	public PropertyDocument filter(PropertyDocument property) {
+		if (dataObjectFactory.isOwnObject(property)
+				&& keepsTerms(property.getLabels().values())
+				&& keepsTerms(property.getDescriptions().values())
+				&& keepsAliases(property.getAliases())
+				&& keepsStatementGroups(property.getStatementGroups())) {
+			return property;
+		}
 		return dataObjectFactory.getPropertyDocument(
 				property.getEntityId(),
 				filterMonoLingualTextValues(property.getLabels().values()),
@@ -64,6 +83,11 @@ public class DatamodelFilter {
 	}
 
 	public MediaInfoDocument filter(MediaInfoDocument mediaInfo) {
+		if (dataObjectFactory.isOwnObject(mediaInfo)
+				&& keepsTerms(mediaInfo.getLabels().values())
+				&& keepsStatementGroups(mediaInfo.getStatementGroups())) {
+			return mediaInfo;
+		}
 		return dataObjectFactory.getMediaInfoDocument(
 				mediaInfo.getEntityId(),
 				filterMonoLingualTextValues(mediaInfo.getLabels().values()),
@@ -73,6 +97,13 @@ public class DatamodelFilter {
 	}
 
 	public LexemeDocument filter(LexemeDocument lexeme) {
+		if (dataObjectFactory.isOwnObject(lexeme)
+				&& keepsTerms(lexeme.getLemmas().values())
+				&& keepsStatementGroups(lexeme.getStatementGroups())
+				&& keepsForms(lexeme.getForms())
+				&& keepsSenses(lexeme.getSenses())) {
+			return lexeme;
+		}
 		return dataObjectFactory.getLexemeDocument(
 				lexeme.getEntityId(),
 				lexeme.getLexicalCategory(),
@@ -86,6 +117,11 @@ public class DatamodelFilter {
 	}
 
 	public FormDocument filter(FormDocument form) {
+		if (dataObjectFactory.isOwnObject(form)
+				&& keepsTerms(form.getRepresentations().values())
+				&& keepsStatementGroups(form.getStatementGroups())) {
+			return form;
+		}
 		return dataObjectFactory.getFormDocument(
 				form.getEntityId(),
 				filterMonoLingualTextValues(form.getRepresentations().values()),
@@ -96,6 +132,11 @@ public class DatamodelFilter {
 	}
 
 	public SenseDocument filter(SenseDocument sense) {
+		if (dataObjectFactory.isOwnObject(sense)
+				&& keepsTerms(sense.getGlosses().values())
+				&& keepsStatementGroups(sense.getStatementGroups())) {
+			return sense;
+		}
 		return dataObjectFactory.getSenseDocument(
 				sense.getEntityId(),
 				filterMonoLingualTextValues(sense.getGlosses().values()),
@@ -120,6 +161,58 @@ public class DatamodelFilter {
 		return filtered;
 	}
 
+	private boolean keepsTerms(Collection<MonolingualTextValue> values) {
+		if (filter.getLanguageFilter() == null) {
+			return true;
+		}
+		for (MonolingualTextValue value : values) {
+			if (!filter.getLanguageFilter().contains(value.getLanguageCode())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean keepsAliases(Map<String, List<MonolingualTextValue>> aliases) {
+		return filter.getLanguageFilter() == null
+				|| filter.getLanguageFilter().containsAll(aliases.keySet());
+	}
+
+	private boolean keepsStatementGroups(List<StatementGroup> statementGroups) {
+		if (filter.getPropertyFilter() == null) {
+			return true;
+		}
+		for (StatementGroup statementGroup : statementGroups) {
+			if (!filter.getPropertyFilter().contains(statementGroup.getProperty())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean keepsSiteLinks(Map<String, SiteLink> siteLinks) {
+		return filter.getSiteLinkFilter() == null
+				|| filter.getSiteLinkFilter().containsAll(siteLinks.keySet());
+	}
+
+	private boolean keepsForms(List<FormDocument> forms) {
+		for (FormDocument form : forms) {
+			if (filter(form) != form) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean keepsSenses(List<SenseDocument> senses) {
+		for (SenseDocument sense : senses) {
+			if (filter(sense) != sense) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private <T> List<T> flatten(Collection<List<T>> values) {
 		List<T> flattened = new ArrayList<>();
 		for(Collection<T> part : values) {
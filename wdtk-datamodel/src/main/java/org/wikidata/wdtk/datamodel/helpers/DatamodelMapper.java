@@ -19,6 +19,9 @@
  */
 package org.wikidata.wdtk.datamodel.helpers;
 
+import org.wikidata.wdtk.datamodel.implementation.StreamingDeserializerModule;
+import org.wikidata.wdtk.datamodel.implementation.StreamingSerializerModule;
+
 import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -52,5 +55,13 @@ public class DatamodelMapper extends ObjectMapper {
 		 * Support for Optional properties.
 		 */
 		registerModule(new Jdk8Module());
+		/*
+		 * Streaming deserializers for statements, snaks and values.
+		 */
+		registerModule(new StreamingDeserializerModule());
+		/*
+		 * Streaming serializers for statements, snaks and values.
+		 */
+		registerModule(new StreamingSerializerModule());
 	}
 }
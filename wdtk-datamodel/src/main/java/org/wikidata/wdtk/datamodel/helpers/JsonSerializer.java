@@ -26,6 +26,7 @@ import java.nio.charset.StandardCharsets;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.implementation.StreamingSerializerModule;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.EntityUpdate;
@@ -77,6 +78,10 @@ public class JsonSerializer implements EntityDocumentDumpProcessor {
 		 * Support for Optional properties.
 		 */
 		mapper.registerModule(new Jdk8Module());
+		/*
+		 * Streaming serializers for statements, snaks and values.
+		 */
+		mapper.registerModule(new StreamingSerializerModule());
 	}
 
 	/**
@@ -39,6 +39,11 @@ public class ClaimImpl implements Claim {
 
 	private final Statement statement;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor to create a claim. This internally creates
 	 * a new statement, so if you want to create a statement later
@@ -96,11 +101,23 @@ public class ClaimImpl implements Claim {
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof ClaimImpl) {
+			int otherHashCode = ((ClaimImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsClaim(this, obj);
 	}
 
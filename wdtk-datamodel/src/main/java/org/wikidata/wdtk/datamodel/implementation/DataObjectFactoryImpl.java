@@ -422,4 +422,14 @@ public class DataObjectFactoryImpl implements DataObjectFactory {
 		return new PropertyUpdateImpl(entityId, revisionId, labels, descriptions, aliases, statements);
 	}
 
+	/**
+	 * Objects of all classes of this package are immutable and can be
+	 * shared.
+	 */
+	@Override
+	public boolean isOwnObject(Object object) {
+		return object != null && object.getClass().getPackage() == DataObjectFactoryImpl.class
+				.getPackage();
+	}
+
 }
@@ -43,6 +43,11 @@ public class FormDocumentImpl extends StatementDocumentImpl implements FormDocum
 
 	private final Map<String,MonolingualTextValue> representations;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -168,11 +173,23 @@ public class FormDocumentImpl extends StatementDocumentImpl implements FormDocum
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof FormDocumentImpl) {
+			int otherHashCode = ((FormDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsFormDocument(this, obj);
 	}
 
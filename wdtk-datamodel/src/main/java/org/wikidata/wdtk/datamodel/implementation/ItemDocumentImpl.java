@@ -58,6 +58,11 @@ public class ItemDocumentImpl extends TermedStatementDocumentImpl
 	 */
 	@JsonDeserialize(contentAs=SiteLinkImpl.class)
 	private final Map<String, SiteLink> sitelinks;
+
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
 	
 	/**
 	 * Constructor.
@@ -152,11 +157,23 @@ public class ItemDocumentImpl extends TermedStatementDocumentImpl
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof ItemDocumentImpl) {
+			int otherHashCode = ((ItemDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsItemDocument(this, obj);
 	}
 
@@ -43,6 +43,11 @@ abstract class LabeledStatementDocumentImpl extends StatementDocumentImpl implem
 
 	protected final Map<String, MonolingualTextValue> labels;
 
+	/**
+	 * Unmodifiable view of {@link #labels}, created when first needed.
+	 */
+	private Map<String, MonolingualTextValue> labelsView;
+
 	/**
 	 * Constructor.
 	 *
@@ -100,7 +105,17 @@ abstract class LabeledStatementDocumentImpl extends StatementDocumentImpl implem
 	@JsonProperty("labels")
 	@Override
 	public Map<String, MonolingualTextValue> getLabels() {
-		return Collections.unmodifiableMap(this.labels);
+		Map<String, MonolingualTextValue> result = this.labelsView;
+		if (result == null) {
+			result = Collections.unmodifiableMap(this.labels);
+			this.labelsView = result;
+		}
+		return result;
+	}
+
+	@Override
+	public MonolingualTextValue getLabel(String languageCode) {
+		return this.labels.get(languageCode);
 	}
 
 	protected static Map<String, MonolingualTextValue> constructTermMap(List<MonolingualTextValue> terms) {
@@ -117,9 +132,7 @@ abstract class LabeledStatementDocumentImpl extends StatementDocumentImpl implem
 
 	protected static Map<String, MonolingualTextValue> withTerm(
 			Map<String, MonolingualTextValue> values, MonolingualTextValue value) {
-		Map<String, MonolingualTextValue> newValues = new HashMap<>(values);
-		newValues.put(value.getLanguageCode(), toTerm(value));
-		return newValues;
+		return PersistentMap.from(values).plus(value.getLanguageCode(), toTerm(value));
 	}
 
 	/**
@@ -56,6 +56,11 @@ public class LexemeDocumentImpl extends StatementDocumentImpl implements LexemeD
 
 	private int nextSenseId;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -257,11 +262,23 @@ public class LexemeDocumentImpl extends StatementDocumentImpl implements LexemeD
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof LexemeDocumentImpl) {
+			int otherHashCode = ((LexemeDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsLexemeDocument(this, obj);
 	}
 
@@ -41,6 +41,11 @@ import java.util.*;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class MediaInfoDocumentImpl extends LabeledStatementDocumentImpl implements MediaInfoDocument {
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -101,11 +106,23 @@ public class MediaInfoDocumentImpl extends LabeledStatementDocumentImpl implemen
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof MediaInfoDocumentImpl) {
+			int otherHashCode = ((MediaInfoDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsMediaInfoDocument(this, obj);
 	}
 
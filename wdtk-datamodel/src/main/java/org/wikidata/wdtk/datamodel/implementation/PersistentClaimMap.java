@@ -0,0 +1,201 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+
+/**
+ * Immutable map from property ids to the statements of a document, as used
+ * for the "claims" of {@link StatementDocumentImpl}. The groups are kept in
+ * a {@link PersistentMap} of {@link PersistentStatementList} objects. In
+ * addition, the map keeps a persistent index from statement ids to the
+ * property ids of their groups, so that
+ * {@link #withStatement(Statement)} and {@link #withoutStatements(Set)}
+ * take logarithmic time per statement and share all other data with the
+ * original map.
+ * <p>
+ * The index is built when statements are first removed. If a statement id
+ * occurs in more than one group, there is no index and all groups are
+ * searched instead.
+ */
+final class PersistentClaimMap extends AbstractMap<String, List<Statement>> {
+
+	private final PersistentMap<String, List<Statement>> groups;
+
+	/**
+	 * Property ids of the statements with non-empty ids, or null if the
+	 * index has not been built yet.
+	 */
+	private final PersistentMap<String, String> statementProperties;
+
+	private PersistentClaimMap(PersistentMap<String, List<Statement>> groups,
+			PersistentMap<String, String> statementProperties) {
+		this.groups = groups;
+		this.statementProperties = statementProperties;
+	}
+
+	/**
+	 * Returns a map with the given statement groups. If the given map is a
+	 * persistent claim map already, it is returned as is.
+	 *
+	 * @param claims
+	 *            map from property ids to statements
+	 * @return map with the statement groups
+	 */
+	static PersistentClaimMap from(Map<String, List<Statement>> claims) {
+		if (claims instanceof PersistentClaimMap) {
+			return (PersistentClaimMap) claims;
+		}
+		return new PersistentClaimMap(PersistentMap.from(claims), null);
+	}
+
+	@Override
+	public int size() {
+		return this.groups.size();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.groups.containsKey(key);
+	}
+
+	@Override
+	public List<Statement> get(Object key) {
+		return this.groups.get(key);
+	}
+
+	@Override
+	public Set<Map.Entry<String, List<Statement>>> entrySet() {
+		return this.groups.entrySet();
+	}
+
+	/**
+	 * Returns a map where the given statement is added to the group of its
+	 * property. If the statement id is not empty and matches that of an
+	 * existing statement of this group, this statement is replaced.
+	 *
+	 * @param statement
+	 *            the new statement
+	 * @return the changed map
+	 */
+	PersistentClaimMap withStatement(Statement statement) {
+		String propertyId = statement.getMainSnak().getPropertyId().getId();
+		List<Statement> group = this.groups.get(propertyId);
+		if (group == null) {
+			group = Collections.emptyList();
+		}
+		PersistentMap<String, String> newIndex = this.statementProperties;
+		String statementId = statement.getStatementId();
+		if (newIndex != null && !statementId.isEmpty()) {
+			String oldPropertyId = newIndex.get(statementId);
+			if (oldPropertyId == null) {
+				newIndex = newIndex.plus(statementId, propertyId);
+			} else if (!oldPropertyId.equals(propertyId)) {
+				// the id now occurs in two groups
+				newIndex = null;
+			}
+		}
+		return new PersistentClaimMap(this.groups.plus(propertyId,
+				PersistentStatementList.from(group).withStatement(statement)),
+				newIndex);
+	}
+
+	/**
+	 * Returns a map without the statements whose ids are in the given set.
+	 * Groups that become empty are removed.
+	 *
+	 * @param statementIds
+	 *            the ids of the statements to remove
+	 * @return the changed map
+	 */
+	PersistentClaimMap withoutStatements(Set<String> statementIds) {
+		PersistentMap<String, String> index = this.statementProperties;
+		if (index == null) {
+			index = buildIndex();
+		}
+		if (index == null || statementIds.contains("")) {
+			return withoutStatementsSearching(statementIds);
+		}
+		PersistentMap<String, List<Statement>> newGroups = this.groups;
+		for (String statementId : statementIds) {
+			String propertyId = index.get(statementId);
+			if (propertyId == null) {
+				continue;
+			}
+			PersistentStatementList group = PersistentStatementList.from(
+					newGroups.get(propertyId)).withoutStatement(statementId);
+			newGroups = group.isEmpty() ? newGroups.minus(propertyId)
+					: newGroups.plus(propertyId, group);
+			index = index.minus(statementId);
+		}
+		return new PersistentClaimMap(newGroups, index);
+	}
+
+	/**
+	 * Removes statements by searching all groups.
+	 */
+	private PersistentClaimMap withoutStatementsSearching(
+			Set<String> statementIds) {
+		PersistentMap<String, List<Statement>> newGroups = this.groups;
+		for (Map.Entry<String, List<Statement>> entry : this.groups.entrySet()) {
+			PersistentStatementList group = PersistentStatementList.from(
+					entry.getValue()).withoutStatements(statementIds);
+			if (group.isEmpty()) {
+				newGroups = newGroups.minus(entry.getKey());
+			} else if (group != entry.getValue()) {
+				newGroups = newGroups.plus(entry.getKey(), group);
+			}
+		}
+		return new PersistentClaimMap(newGroups, null);
+	}
+
+	/**
+	 * Creates the index from statement ids to property ids.
+	 *
+	 * @return the index, or null if some statement id occurs in more than
+	 *         one group
+	 */
+	private PersistentMap<String, String> buildIndex() {
+		PersistentMap<String, String> index = PersistentMap.empty();
+		for (Map.Entry<String, List<Statement>> entry : this.groups.entrySet()) {
+			for (Statement statement : entry.getValue()) {
+				String statementId = statement.getStatementId();
+				if (statementId.isEmpty()) {
+					continue;
+				}
+				String propertyId = index.get(statementId);
+				if (propertyId == null) {
+					index = index.plus(statementId, entry.getKey());
+				} else if (!propertyId.equals(entry.getKey())) {
+					return null;
+				}
+			}
+		}
+		return index;
+	}
+
+}
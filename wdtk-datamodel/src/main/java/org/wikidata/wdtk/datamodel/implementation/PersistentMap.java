@@ -0,0 +1,465 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Immutable map that supports adding and removing entries without copying
+ * the whole map. The entries are stored in a hash array mapped trie (HAMT):
+ * each node uses five bits of the hash code of a key to select one of up to
+ * 32 children, and stores only the children that exist, as indicated by a
+ * bitmap. {@link #plus(Object, Object)} and {@link #minus(Object)} copy only
+ * the nodes on the path to the changed entry.
+ * <p>
+ * The map iterates over its entries in insertion order, like
+ * {@link java.util.LinkedHashMap}; replacing the value of a key keeps its
+ * position. The order is kept in a {@link PersistentVector}, where removed
+ * entries leave gaps until the vector is compacted.
+ * <p>
+ * Null keys and values are not supported. The modification methods of
+ * {@link Map} throw an {@link UnsupportedOperationException}.
+ *
+ * @param <K>
+ *            type of the keys
+ * @param <V>
+ *            type of the values
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<>(
+			null, PersistentVector.empty(), 0);
+
+	/**
+	 * Entry of the map, which also knows its position in the iteration
+	 * order.
+	 */
+	static final class Leaf<K, V> implements Map.Entry<K, V> {
+
+		final K key;
+		final V value;
+		final int hash;
+		final int position;
+
+		Leaf(K key, V value, int hash, int position) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+			this.position = position;
+		}
+
+		@Override
+		public K getKey() {
+			return this.key;
+		}
+
+		@Override
+		public V getValue() {
+			return this.value;
+		}
+
+		@Override
+		public V setValue(V value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+			return this.key.equals(other.getKey())
+					&& this.value.equals(other.getValue());
+		}
+
+		@Override
+		public int hashCode() {
+			return this.key.hashCode() ^ this.value.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + this.value;
+		}
+	}
+
+	/**
+	 * Inner node of the trie. Its slots hold {@link Leaf} or {@link Node}
+	 * objects, ordered by the hash bits that select them. Nodes below the
+	 * last level of hash bits have a bitmap of 0 and hold leaves with equal
+	 * hash codes.
+	 */
+	static final class Node {
+
+		final int bitmap;
+		final Object[] slots;
+
+		Node(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+	}
+
+	private final Node root;
+
+	/**
+	 * Leaves in insertion order, with null for removed entries.
+	 */
+	private final PersistentVector<Leaf<K, V>> leaves;
+
+	private final int size;
+
+	private Set<Map.Entry<K, V>> entrySet;
+
+	private PersistentMap(Node root, PersistentVector<Leaf<K, V>> leaves,
+			int size) {
+		this.root = root;
+		this.leaves = leaves;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the empty map.
+	 *
+	 * @return empty map
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentMap<K, V> empty() {
+		return (PersistentMap<K, V>) EMPTY;
+	}
+
+	/**
+	 * Returns a map with the entries of the given map, in the iteration
+	 * order of the given map. If the given map is a persistent map already,
+	 * it is returned as is.
+	 *
+	 * @param map
+	 *            the entries
+	 * @return map with the entries
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> map) {
+		if (map instanceof PersistentMap) {
+			return (PersistentMap<K, V>) map;
+		}
+		PersistentMap<K, V> result = empty();
+		for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			result = result.plus(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key != null && find(key) != null;
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		Leaf<K, V> leaf = find(key);
+		return leaf == null ? null : leaf.value;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	/**
+	 * Returns a map where the given key has the given value. A new key is
+	 * added at the end of the iteration order.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return the changed map
+	 */
+	PersistentMap<K, V> plus(K key, V value) {
+		Validate.notNull(key, "Keys must not be null");
+		Validate.notNull(value, "Values must not be null");
+		int hash = hash(key);
+		Leaf<K, V> old = find(key, hash);
+		if (old != null) {
+			if (old.value == value) {
+				return this;
+			}
+			Leaf<K, V> leaf = new Leaf<>(key, value, hash, old.position);
+			return new PersistentMap<>(put(this.root, leaf, 0),
+					this.leaves.with(old.position, leaf), this.size);
+		}
+		Leaf<K, V> leaf = new Leaf<>(key, value, hash, this.leaves.size());
+		return new PersistentMap<>(put(this.root, leaf, 0),
+				this.leaves.plus(leaf), this.size + 1);
+	}
+
+	/**
+	 * Returns a map without the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the changed map
+	 */
+	PersistentMap<K, V> minus(Object key) {
+		if (key == null) {
+			return this;
+		}
+		int hash = hash(key);
+		Leaf<K, V> old = find(key, hash);
+		if (old == null) {
+			return this;
+		}
+		if (this.size == 1) {
+			return empty();
+		}
+		Node newRoot = (Node) remove(this.root, key, hash, 0);
+		PersistentVector<Leaf<K, V>> newLeaves = this.leaves.with(
+				old.position, null);
+		if (newLeaves.size() > 2 * (this.size - 1) + 8) {
+			return compact(newLeaves);
+		}
+		return new PersistentMap<>(newRoot, newLeaves, this.size - 1);
+	}
+
+	private Leaf<K, V> find(Object key) {
+		return find(key, hash(key));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Leaf<K, V> find(Object key, int hash) {
+		Node node = this.root;
+		int shift = 0;
+		while (node != null) {
+			if (node.bitmap == 0) {
+				for (Object slot : node.slots) {
+					if (((Leaf<K, V>) slot).key.equals(key)) {
+						return (Leaf<K, V>) slot;
+					}
+				}
+				return null;
+			}
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((node.bitmap & bit) == 0) {
+				return null;
+			}
+			Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+			if (slot instanceof Leaf) {
+				Leaf<K, V> leaf = (Leaf<K, V>) slot;
+				return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+			}
+			node = (Node) slot;
+			shift += BITS;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a copy of the given node that contains the given leaf,
+	 * replacing the leaf with the same key if there is one.
+	 */
+	private static Node put(Node node, Leaf<?, ?> leaf, int shift) {
+		if (node == null) {
+			return new Node(1 << (leaf.hash & MASK), new Object[] { leaf });
+		}
+		if (node.bitmap == 0) {
+			for (int i = 0; i < node.slots.length; i++) {
+				if (((Leaf<?, ?>) node.slots[i]).key.equals(leaf.key)) {
+					return new Node(0, replace(node.slots, i, leaf));
+				}
+			}
+			return new Node(0, insert(node.slots, node.slots.length, leaf));
+		}
+		int bit = 1 << ((leaf.hash >>> shift) & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		if ((node.bitmap & bit) == 0) {
+			return new Node(node.bitmap | bit, insert(node.slots, index, leaf));
+		}
+		Object slot = node.slots[index];
+		Object newSlot;
+		if (slot instanceof Node) {
+			newSlot = put((Node) slot, leaf, shift + BITS);
+		} else if (((Leaf<?, ?>) slot).key.equals(leaf.key)) {
+			newSlot = leaf;
+		} else {
+			newSlot = merge((Leaf<?, ?>) slot, leaf, shift + BITS);
+		}
+		return new Node(node.bitmap, replace(node.slots, index, newSlot));
+	}
+
+	/**
+	 * Creates a node for two leaves whose hash bits before the given shift
+	 * are equal.
+	 */
+	private static Node merge(Leaf<?, ?> leaf1, Leaf<?, ?> leaf2, int shift) {
+		if (shift >= Integer.SIZE) {
+			return new Node(0, new Object[] { leaf1, leaf2 });
+		}
+		int index1 = (leaf1.hash >>> shift) & MASK;
+		int index2 = (leaf2.hash >>> shift) & MASK;
+		if (index1 == index2) {
+			return new Node(1 << index1,
+					new Object[] { merge(leaf1, leaf2, shift + BITS) });
+		}
+		return new Node((1 << index1) | (1 << index2),
+				index1 < index2 ? new Object[] { leaf1, leaf2 }
+						: new Object[] { leaf2, leaf1 });
+	}
+
+	/**
+	 * Returns a copy of the given node without the leaf of the given key,
+	 * which must be in the node. The result is null if the node becomes
+	 * empty, and a leaf if it only contains this leaf.
+	 */
+	private static Object remove(Node node, Object key, int hash, int shift) {
+		if (node.bitmap == 0) {
+			for (int i = 0; i < node.slots.length; i++) {
+				if (((Leaf<?, ?>) node.slots[i]).key.equals(key)) {
+					return node.slots.length == 2 ? node.slots[1 - i]
+							: new Node(0, delete(node.slots, i));
+				}
+			}
+			return node;
+		}
+		int bit = 1 << ((hash >>> shift) & MASK);
+		int index = Integer.bitCount(node.bitmap & (bit - 1));
+		Object slot = node.slots[index];
+		Object newSlot = slot instanceof Node ? remove((Node) slot, key, hash,
+				shift + BITS) : null;
+		if (newSlot != null) {
+			if (newSlot instanceof Leaf && node.slots.length == 1 && shift > 0) {
+				return newSlot;
+			}
+			return new Node(node.bitmap, replace(node.slots, index, newSlot));
+		}
+		if (node.slots.length == 1) {
+			return null;
+		}
+		if (node.slots.length == 2 && shift > 0
+				&& node.slots[1 - index] instanceof Leaf) {
+			return node.slots[1 - index];
+		}
+		return new Node(node.bitmap & ~bit, delete(node.slots, index));
+	}
+
+	/**
+	 * Creates a map whose order vector has no gaps.
+	 */
+	private static <K, V> PersistentMap<K, V> compact(
+			PersistentVector<Leaf<K, V>> leaves) {
+		PersistentMap<K, V> result = empty();
+		for (Leaf<K, V> leaf : leaves) {
+			if (leaf != null) {
+				result = result.plus(leaf.key, leaf.value);
+			}
+		}
+		return result;
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static Object[] insert(Object[] slots, int index, Object slot) {
+		Object[] result = new Object[slots.length + 1];
+		System.arraycopy(slots, 0, result, 0, index);
+		result[index] = slot;
+		System.arraycopy(slots, index, result, index + 1, slots.length - index);
+		return result;
+	}
+
+	private static Object[] replace(Object[] slots, int index, Object slot) {
+		Object[] result = slots.clone();
+		result[index] = slot;
+		return result;
+	}
+
+	private static Object[] delete(Object[] slots, int index) {
+		Object[] result = new Object[slots.length - 1];
+		System.arraycopy(slots, 0, result, 0, index);
+		System.arraycopy(slots, index + 1, result, index, result.length - index);
+		return result;
+	}
+
+	/**
+	 * Entries of the map in insertion order.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public int size() {
+			return PersistentMap.this.size;
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new Iterator<Map.Entry<K, V>>() {
+
+				int next = advance(0);
+
+				@Override
+				public boolean hasNext() {
+					return this.next < leaves.size();
+				}
+
+				@Override
+				public Map.Entry<K, V> next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					Leaf<K, V> leaf = leaves.get(this.next);
+					this.next = advance(this.next + 1);
+					return leaf;
+				}
+
+				private int advance(int position) {
+					while (position < leaves.size() && leaves.get(position) == null) {
+						position++;
+					}
+					return position;
+				}
+			};
+		}
+	}
+
+}
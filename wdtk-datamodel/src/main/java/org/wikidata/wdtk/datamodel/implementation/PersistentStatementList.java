@@ -0,0 +1,231 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+
+/**
+ * Immutable list of the statements of one statement group, which finds
+ * statements by their id without searching the list. It combines a
+ * {@link PersistentVector} of the statements with a {@link PersistentMap}
+ * from statement ids to positions, so that
+ * {@link #withStatement(Statement)} and {@link #withoutStatement(String)}
+ * take logarithmic time.
+ * <p>
+ * Removed statements leave gaps in the vector, like the entries of a
+ * {@link PersistentMap}, until the vector is compacted. The positions of the
+ * remaining statements are computed when the list is first accessed by
+ * index.
+ */
+final class PersistentStatementList extends AbstractList<Statement>
+		implements RandomAccess {
+
+	/**
+	 * The statements, with null for removed statements.
+	 */
+	private final PersistentVector<Statement> statements;
+
+	/**
+	 * Positions of the statements with non-empty ids, or null if some id
+	 * occurs more than once. Statements are then found by searching the
+	 * list.
+	 */
+	private final PersistentMap<String, Integer> positions;
+
+	/**
+	 * Number of statements, not counting removed ones.
+	 */
+	private final int size;
+
+	/**
+	 * Positions of the statements in {@link #statements} if there are gaps.
+	 * This member is initialized when the list is first accessed by index.
+	 */
+	private int[] livePositions;
+
+	private PersistentStatementList(PersistentVector<Statement> statements,
+			PersistentMap<String, Integer> positions, int size) {
+		this.statements = statements;
+		this.positions = positions;
+		this.size = size;
+	}
+
+	/**
+	 * Returns a list with the given statements. If the given list is a
+	 * persistent statement list already, it is returned as is.
+	 *
+	 * @param statements
+	 *            the statements
+	 * @return list with the statements
+	 */
+	static PersistentStatementList from(List<Statement> statements) {
+		if (statements instanceof PersistentStatementList) {
+			return (PersistentStatementList) statements;
+		}
+		return build(statements);
+	}
+
+	/**
+	 * Creates a list without gaps for the given statements.
+	 */
+	private static PersistentStatementList build(List<Statement> statements) {
+		PersistentVector<Statement> vector = PersistentVector.empty();
+		PersistentMap<String, Integer> positions = PersistentMap.empty();
+		for (Statement statement : statements) {
+			String statementId = statement.getStatementId();
+			if (positions != null && !statementId.isEmpty()) {
+				if (positions.containsKey(statementId)) {
+					positions = null;
+				} else {
+					positions = positions.plus(statementId, vector.size());
+				}
+			}
+			vector = vector.plus(statement);
+		}
+		return new PersistentStatementList(vector, positions, vector.size());
+	}
+
+	@Override
+	public Statement get(int index) {
+		if (this.size == this.statements.size()) {
+			return this.statements.get(index);
+		}
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of bounds for length " + this.size);
+		}
+		int[] live = this.livePositions;
+		if (live == null) {
+			live = new int[this.size];
+			int next = 0;
+			for (int i = 0; i < this.statements.size(); i++) {
+				if (this.statements.get(i) != null) {
+					live[next++] = i;
+				}
+			}
+			this.livePositions = live;
+		}
+		return this.statements.get(live[index]);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a list where the statements with the same non-empty id as the
+	 * given statement are replaced by it. If there is no such statement,
+	 * the given statement is added at the end.
+	 *
+	 * @param statement
+	 *            the new statement
+	 * @return the changed list
+	 */
+	PersistentStatementList withStatement(Statement statement) {
+		String statementId = statement.getStatementId();
+		if (statementId.isEmpty()) {
+			return new PersistentStatementList(
+					this.statements.plus(statement), this.positions,
+					this.size + 1);
+		}
+		if (this.positions == null) {
+			PersistentVector<Statement> newStatements = this.statements;
+			for (int i = 0; i < newStatements.size(); i++) {
+				Statement old = newStatements.get(i);
+				if (old != null && statementId.equals(old.getStatementId())) {
+					newStatements = newStatements.with(i, statement);
+				}
+			}
+			if (newStatements == this.statements) {
+				return new PersistentStatementList(
+						newStatements.plus(statement), null, this.size + 1);
+			}
+			return new PersistentStatementList(newStatements, null, this.size);
+		}
+		Integer position = this.positions.get(statementId);
+		if (position != null) {
+			return new PersistentStatementList(
+					this.statements.with(position, statement), this.positions,
+					this.size);
+		}
+		return new PersistentStatementList(this.statements.plus(statement),
+				this.positions.plus(statementId, this.statements.size()),
+				this.size + 1);
+	}
+
+	/**
+	 * Returns a list without the statements with the given id. If the id is
+	 * unique in the list, this takes logarithmic time; otherwise the list is
+	 * searched.
+	 *
+	 * @param statementId
+	 *            the id of the statements to remove
+	 * @return the changed list
+	 */
+	PersistentStatementList withoutStatement(String statementId) {
+		if (this.positions == null || statementId.isEmpty()) {
+			return withoutStatements(Collections.singleton(statementId));
+		}
+		Integer position = this.positions.get(statementId);
+		if (position == null) {
+			return this;
+		}
+		PersistentVector<Statement> newStatements = this.statements.with(
+				position, null);
+		PersistentStatementList result = new PersistentStatementList(
+				newStatements, this.positions.minus(statementId),
+				this.size - 1);
+		if (newStatements.size() > 2 * result.size + 8) {
+			return build(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a list without the statements whose ids are in the given set.
+	 * This searches the whole list.
+	 *
+	 * @param statementIds
+	 *            the ids of the statements to remove
+	 * @return the changed list, or this list if no statement was removed
+	 */
+	PersistentStatementList withoutStatements(Set<String> statementIds) {
+		List<Statement> remaining = new ArrayList<>(this.size);
+		for (Statement statement : this) {
+			if (!statementIds.contains(statement.getStatementId())) {
+				remaining.add(statement);
+			}
+		}
+		if (remaining.size() == this.size) {
+			return this;
+		}
+		return build(remaining);
+	}
+
+}
@@ -0,0 +1,223 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list that supports appending and replacing elements without
+ * copying the whole list. The elements are stored in a tree of arrays with
+ * 32 children per node, plus a "tail" array for the last elements, so that
+ * {@link #plus(Object)} and {@link #with(int, Object)} copy only
+ * O(log<sub>32</sub> n) small arrays and share everything else with the
+ * original list.
+ * <p>
+ * The modification methods of {@link java.util.List} throw an
+ * {@link UnsupportedOperationException}, so objects of this class can be
+ * handed out directly by immutable documents.
+ *
+ * @param <E>
+ *            type of the elements
+ */
+final class PersistentVector<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	private static final PersistentVector<Object> EMPTY = new PersistentVector<>(
+			0, BITS, new Object[WIDTH], new Object[0]);
+
+	private final int size;
+
+	/**
+	 * Number of bits of an index that are used below the root.
+	 */
+	private final int shift;
+
+	private final Object[] root;
+
+	private final Object[] tail;
+
+	private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns the empty vector.
+	 *
+	 * @return empty vector
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PersistentVector<E> empty() {
+		return (PersistentVector<E>) EMPTY;
+	}
+
+	/**
+	 * Returns a vector with the elements of the given collection. If the
+	 * collection is a vector already, it is returned as is.
+	 *
+	 * @param elements
+	 *            the elements
+	 * @return vector with the elements
+	 */
+	@SuppressWarnings("unchecked")
+	static <E> PersistentVector<E> from(Collection<? extends E> elements) {
+		if (elements instanceof PersistentVector) {
+			return (PersistentVector<E>) elements;
+		}
+		PersistentVector<E> result = empty();
+		for (E element : elements) {
+			result = result.plus(element);
+		}
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of bounds for length " + this.size);
+		}
+		return (E) getArray(index)[index & MASK];
+	}
+
+	/**
+	 * Returns a vector with the given element added at the end.
+	 *
+	 * @param element
+	 *            the new element
+	 * @return the extended vector
+	 */
+	PersistentVector<E> plus(E element) {
+		if (this.size - getTailOffset() < WIDTH) {
+			Object[] newTail = new Object[this.tail.length + 1];
+			System.arraycopy(this.tail, 0, newTail, 0, this.tail.length);
+			newTail[this.tail.length] = element;
+			return new PersistentVector<>(this.size + 1, this.shift, this.root,
+					newTail);
+		}
+		// the tail is full and becomes a leaf of the tree
+		Object[] newRoot;
+		int newShift = this.shift;
+		if ((this.size >>> BITS) > (1 << this.shift)) {
+			newRoot = new Object[WIDTH];
+			newRoot[0] = this.root;
+			newRoot[1] = newPath(this.shift, this.tail);
+			newShift += BITS;
+		} else {
+			newRoot = pushTail(this.shift, this.root, this.tail);
+		}
+		return new PersistentVector<>(this.size + 1, newShift, newRoot,
+				new Object[] { element });
+	}
+
+	/**
+	 * Returns a vector where the element at the given position is replaced
+	 * by the given element.
+	 *
+	 * @param index
+	 *            position of the element to replace
+	 * @param element
+	 *            the new element
+	 * @return the changed vector
+	 */
+	PersistentVector<E> with(int index, E element) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of bounds for length " + this.size);
+		}
+		if (index >= getTailOffset()) {
+			Object[] newTail = this.tail.clone();
+			newTail[index & MASK] = element;
+			return new PersistentVector<>(this.size, this.shift, this.root,
+					newTail);
+		}
+		return new PersistentVector<>(this.size, this.shift,
+				with(this.shift, this.root, index, element), this.tail);
+	}
+
+	/**
+	 * Returns the index of the first element of the tail.
+	 */
+	private int getTailOffset() {
+		return this.size < WIDTH ? 0 : ((this.size - 1) >>> BITS) << BITS;
+	}
+
+	private Object[] getArray(int index) {
+		if (index >= getTailOffset()) {
+			return this.tail;
+		}
+		Object[] node = this.root;
+		for (int level = this.shift; level > 0; level -= BITS) {
+			node = (Object[]) node[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+		int child = ((this.size - 1) >>> level) & MASK;
+		Object[] result = parent.clone();
+		if (level == BITS) {
+			result[child] = tailNode;
+		} else if (parent[child] != null) {
+			result[child] = pushTail(level - BITS, (Object[]) parent[child],
+					tailNode);
+		} else {
+			result[child] = newPath(level - BITS, tailNode);
+		}
+		return result;
+	}
+
+	private static Object[] newPath(int level, Object[] node) {
+		if (level == 0) {
+			return node;
+		}
+		Object[] result = new Object[WIDTH];
+		result[0] = newPath(level - BITS, node);
+		return result;
+	}
+
+	private static Object[] with(int level, Object[] node, int index,
+			Object element) {
+		Object[] result = node.clone();
+		if (level == 0) {
+			result[index & MASK] = element;
+		} else {
+			int child = (index >>> level) & MASK;
+			result[child] = with(level - BITS, (Object[]) node[child], index,
+					element);
+		}
+		return result;
+	}
+
+}
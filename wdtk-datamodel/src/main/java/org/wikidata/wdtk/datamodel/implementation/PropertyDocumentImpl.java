@@ -59,6 +59,11 @@ public class PropertyDocumentImpl extends TermedStatementDocumentImpl
 	 * it directly to JSON as a field.
 	 */
 	private final DatatypeIdImpl datatype;
+
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
 	
 	/**
 	 * Constructor for instances that are built manually, rather than from JSON.
@@ -153,11 +158,23 @@ public class PropertyDocumentImpl extends TermedStatementDocumentImpl
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof PropertyDocumentImpl) {
+			int otherHashCode = ((PropertyDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsPropertyDocument(this, obj);
 	}
 
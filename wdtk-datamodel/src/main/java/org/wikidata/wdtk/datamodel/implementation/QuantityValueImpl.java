@@ -31,6 +31,7 @@ import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
 import org.wikidata.wdtk.datamodel.interfaces.ValueVisitor;
 
 import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Jackson implementation of {@link QuantityValue}.
@@ -44,11 +45,51 @@ import java.math.BigDecimal;
 public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 
 	/**
-	 * Inner helper object to store the actual data. Used to get the nested JSON
-	 * structure that is required here.
+	 * Largest number of distinct units that are shared by
+	 * {@link #internUnit(String)}.
 	 */
-	private final JacksonInnerQuantity value;
-	
+	private static final int MAX_INTERNED_UNITS = 10000;
+
+	private static final ConcurrentHashMap<String, ItemIdValue> UNITS = new ConcurrentHashMap<>();
+
+	private static final double[] DOUBLE_POWERS_OF_TEN = { 1e0, 1e1, 1e2,
+			1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+			1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final long[] LONG_POWERS_OF_TEN = { 1L, 10L, 100L, 1000L,
+			10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+			10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+			100000000000000L, 1000000000000000L, 10000000000000000L,
+			100000000000000000L, 1000000000000000000L };
+
+	/**
+	 * Flag in {@link #scales} that is set if the quantity has bounds.
+	 */
+	private static final int HAS_BOUNDS = 1 << 24;
+
+	/**
+	 * Unscaled values of the amount and the bounds, which are used unless
+	 * {@link #decimals} is set. Most quantities in Wikidata have few digits,
+	 * so that this avoids keeping three {@link BigDecimal} objects per value.
+	 */
+	private final long amount;
+	private final long lowerBound;
+	private final long upperBound;
+
+	/**
+	 * Scales of the amount, the lower bound and the upper bound, one byte
+	 * each from the lowest byte, and the {@link #HAS_BOUNDS} flag.
+	 */
+	private final int scales;
+
+	/**
+	 * The amount, lower bound and upper bound, if one of them does not fit
+	 * into an unscaled long with a scale of one byte, and null otherwise.
+	 */
+	private final BigDecimal[] decimals;
+
+	private final ItemIdValue unit;
+
 	/**
      * Constructor.
      *
@@ -70,8 +111,31 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
             BigDecimal upperBound,
             ItemIdValue unit) {
         super(JSON_VALUE_TYPE_QUANTITY);
-        this.value = new JacksonInnerQuantity(numericValue, lowerBound,
-                upperBound, unit);
+        JacksonInnerQuantity.checkBounds(numericValue, lowerBound, upperBound);
+        boolean hasBounds = lowerBound != null;
+        if (isCompact(numericValue)
+                && (!hasBounds || (isCompact(lowerBound) && isCompact(upperBound)))) {
+            this.amount = numericValue.unscaledValue().longValue();
+            int scales = numericValue.scale() & 0xFF;
+            if (hasBounds) {
+                this.lowerBound = lowerBound.unscaledValue().longValue();
+                this.upperBound = upperBound.unscaledValue().longValue();
+                scales |= (lowerBound.scale() & 0xFF) << 8
+                        | (upperBound.scale() & 0xFF) << 16 | HAS_BOUNDS;
+            } else {
+                this.lowerBound = 0;
+                this.upperBound = 0;
+            }
+            this.scales = scales;
+            this.decimals = null;
+        } else {
+            this.amount = 0;
+            this.lowerBound = 0;
+            this.upperBound = 0;
+            this.scales = hasBounds ? HAS_BOUNDS : 0;
+            this.decimals = new BigDecimal[] { numericValue, lowerBound, upperBound };
+        }
+        this.unit = unit;
     }
 	
 	/**
@@ -96,9 +160,8 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 			BigDecimal lowerBound,
 			BigDecimal upperBound,
 			String unit) {
-		super(JSON_VALUE_TYPE_QUANTITY);
-		this.value = new JacksonInnerQuantity(numericValue, lowerBound,
-				upperBound, "1".equals(unit) ? null : ItemIdValueImpl.fromIri(unit));
+		this(numericValue, lowerBound, upperBound,
+				"1".equals(unit) ? null : internUnit(unit));
 	}
 
 	/**
@@ -107,8 +170,8 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 	@JsonCreator
 	QuantityValueImpl(
 			@JsonProperty("value") JacksonInnerQuantity value) {
-		super(JSON_VALUE_TYPE_QUANTITY);
-		this.value = value;
+		this(value.getAmount(), value.getLowerBound(), value.getUpperBound(),
+				value.getUnitItemId());
 	}
 
 	/**
@@ -118,37 +181,105 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 	 * @return the inner quantity value
 	 */
 	public JacksonInnerQuantity getValue() {
-		return this.value;
+		return new JacksonInnerQuantity(getNumericValue(), getLowerBound(),
+				getUpperBound(), this.unit);
 	}
 
 	@JsonIgnore
 	@Override
 	public BigDecimal getNumericValue() {
-		return this.value.getAmount();
+		if (this.decimals != null) {
+			return this.decimals[0];
+		}
+		return BigDecimal.valueOf(this.amount, (byte) this.scales);
 	}
 
 	@JsonIgnore
 	@Override
 	public BigDecimal getLowerBound() {
-		return this.value.getLowerBound();
+		if (this.decimals != null) {
+			return this.decimals[1];
+		}
+		return hasBounds() ? BigDecimal.valueOf(this.lowerBound,
+				(byte) (this.scales >>> 8)) : null;
 	}
 
 	@JsonIgnore
 	@Override
 	public BigDecimal getUpperBound() {
-		return this.value.getUpperBound();
+		if (this.decimals != null) {
+			return this.decimals[2];
+		}
+		return hasBounds() ? BigDecimal.valueOf(this.upperBound,
+				(byte) (this.scales >>> 16)) : null;
 	}
 
 	@JsonIgnore
 	@Override
 	public String getUnit() {
-		return this.value.getUnit();
+		return this.unit == null ? "1" : this.unit.getIri();
 	}
 
 	@JsonIgnore
 	@Override
 	public ItemIdValue getUnitItemId() {
-		return this.value.getUnitItemId();
+		return this.unit;
+	}
+
+	/**
+	 * Returns the numeric value as a double. For the usual values with at
+	 * most 15 significant digits this is computed from the unscaled long
+	 * without creating a {@link BigDecimal}; the result is the same as that
+	 * of {@code getNumericValue().doubleValue()}.
+	 *
+	 * @return the closest double to the numeric value
+	 */
+	@JsonIgnore
+	public double getNumericValueAsDouble() {
+		if (this.decimals == null && Math.abs(this.amount) < (1L << 53)) {
+			int scale = (byte) this.scales;
+			if (scale >= 0 && scale < DOUBLE_POWERS_OF_TEN.length) {
+				return this.amount / DOUBLE_POWERS_OF_TEN[scale];
+			} else if (scale < 0 && -scale < DOUBLE_POWERS_OF_TEN.length) {
+				return this.amount * DOUBLE_POWERS_OF_TEN[-scale];
+			}
+		}
+		return getNumericValue().doubleValue();
+	}
+
+	/**
+	 * Compares the numeric values of this quantity and the given quantity,
+	 * ignoring scale, bounds and units, like {@link BigDecimal#compareTo}.
+	 * Values of this class are compared on their unscaled longs where
+	 * possible.
+	 *
+	 * @param other
+	 *            the quantity to compare with
+	 * @return a negative number, zero or a positive number if the numeric
+	 *         value of this quantity is less than, equal to, or greater than
+	 *         that of the other quantity
+	 */
+	public int compareNumericValueTo(QuantityValue other) {
+		if (this.decimals == null && other instanceof QuantityValueImpl
+				&& ((QuantityValueImpl) other).decimals == null) {
+			QuantityValueImpl otherImpl = (QuantityValueImpl) other;
+			int scale = (byte) this.scales;
+			int otherScale = (byte) otherImpl.scales;
+			if (scale == otherScale) {
+				return Long.compare(this.amount, otherImpl.amount);
+			} else if (scale < otherScale) {
+				long rescaled = rescale(this.amount, otherScale - scale);
+				if (rescaled != Long.MIN_VALUE) {
+					return Long.compare(rescaled, otherImpl.amount);
+				}
+			} else {
+				long rescaled = rescale(otherImpl.amount, scale - otherScale);
+				if (rescaled != Long.MIN_VALUE) {
+					return Long.compare(this.amount, rescaled);
+				}
+			}
+		}
+		return getNumericValue().compareTo(other.getNumericValue());
 	}
 
 	@Override
@@ -171,6 +302,53 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 		return ToString.toString(this);
 	}
 
+	private boolean hasBounds() {
+		return (this.scales & HAS_BOUNDS) != 0;
+	}
+
+	/**
+	 * Returns true if the given number can be stored as an unscaled long
+	 * with a scale of one byte.
+	 */
+	private static boolean isCompact(BigDecimal value) {
+		return value.scale() >= Byte.MIN_VALUE
+				&& value.scale() <= Byte.MAX_VALUE
+				&& value.unscaledValue().bitLength() < 64;
+	}
+
+	/**
+	 * Multiplies the given unscaled value by a power of ten, or returns
+	 * {@link Long#MIN_VALUE} if the result does not fit into a long.
+	 */
+	private static long rescale(long unscaledValue, int digits) {
+		if (digits >= LONG_POWERS_OF_TEN.length) {
+			return Long.MIN_VALUE;
+		}
+		long factor = LONG_POWERS_OF_TEN[digits];
+		long result = unscaledValue * factor;
+		if (Math.multiplyHigh(unscaledValue, factor) != (result >> 63)
+				|| result == Long.MIN_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the unit with the given IRI. Up to {@link #MAX_INTERNED_UNITS}
+	 * units are shared by all quantities, so that the many quantities with
+	 * the same few units do not each keep their own id object.
+	 */
+	static ItemIdValue internUnit(String iri) {
+		ItemIdValue unit = UNITS.get(iri);
+		if (unit == null) {
+			unit = ItemIdValueImpl.fromIri(iri);
+			if (UNITS.size() < MAX_INTERNED_UNITS) {
+				UNITS.putIfAbsent(iri, unit);
+			}
+		}
+		return unit;
+	}
+
 	/**
 	 * Helper object that represents the JSON object structure of the value.
 	 */
@@ -207,7 +385,7 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
         protected static ItemIdValue parseUnit(String unit) {
 		    Validate.notNull(unit, "Unit cannot be null");
             Validate.notEmpty(unit, "Unit cannot be empty. Use \"1\" for unit-less quantities.");
-            return "1".equals(unit) ? null : ItemIdValueImpl.fromIri(unit);
+            return "1".equals(unit) ? null : internUnit(unit);
         }
 		
         JacksonInnerQuantity(
@@ -215,6 +393,21 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
                 BigDecimal lowerBound,
                 BigDecimal upperBound,
                 ItemIdValue unit) {
+            checkBounds(amount, lowerBound, upperBound);
+            this.amount = amount;
+            this.upperBound = upperBound;
+            this.lowerBound = lowerBound;
+            this.unit = unit;
+        }
+
+        /**
+         * Checks that the amount is given and lies between the bounds, which
+         * must be both given or both null.
+         */
+        static void checkBounds(
+                BigDecimal amount,
+                BigDecimal lowerBound,
+                BigDecimal upperBound) {
             Validate.notNull(amount, "Numeric value cannot be null");
 
             if(lowerBound != null || upperBound != null) {
@@ -230,10 +423,6 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
                             "Upper bound cannot be strictly smaller than numeric value");
                 }
             }
-            this.amount = amount;
-            this.upperBound = upperBound;
-            this.lowerBound = lowerBound;
-            this.unit = unit;
         }
 
 		/**
@@ -310,7 +499,7 @@ public class QuantityValueImpl extends ValueImpl implements QuantityValue {
 		/**
 		 * Formats the string output with a leading signum as JSON expects it.
 		 */
-		private String bigDecimalToSignedString(BigDecimal value) {
+		static String bigDecimalToSignedString(BigDecimal value) {
 			if (value.signum() < 0) {
 				return value.toString();
 			} else {
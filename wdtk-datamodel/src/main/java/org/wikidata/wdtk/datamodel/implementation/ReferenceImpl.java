@@ -59,6 +59,11 @@ public class ReferenceImpl implements Reference {
 	 * The wikidata hash of this reference. null if we don't have knowledge about the hash.
 	 */
 	private final String hash;
+
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
 	
 	/**
 	 * Constructor.
@@ -97,6 +102,26 @@ public class ReferenceImpl implements Reference {
 		this.hash = hash;
 	}
 
+	/**
+	 * Constructor for deserialization with
+	 * {@link StreamingDeserializerModule}, which uses the given map without
+	 * copying it.
+	 */
+	private ReferenceImpl(String hash, Map<String, List<Snak>> snaks,
+			List<String> propertyOrder) {
+		this.snaks = snaks;
+		this.propertyOrder = propertyOrder;
+		this.hash = hash;
+	}
+
+	/**
+	 * Creates a reference from the map of snaks as found in JSON.
+	 */
+	static ReferenceImpl fromJsonSnaks(Map<String, List<Snak>> snaks,
+			List<String> propertyOrder, String hash) {
+		return new ReferenceImpl(hash, snaks, propertyOrder);
+	}
+
 	@JsonIgnore
 	@Override
 	public List<SnakGroup> getSnakGroups() {
@@ -143,11 +168,23 @@ public class ReferenceImpl implements Reference {
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof ReferenceImpl) {
+			int otherHashCode = ((ReferenceImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsReference(this, obj);
 	}
 
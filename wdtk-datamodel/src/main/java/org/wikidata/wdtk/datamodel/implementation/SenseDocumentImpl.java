@@ -41,6 +41,11 @@ public class SenseDocumentImpl extends StatementDocumentImpl implements SenseDoc
 
 	private final Map<String,MonolingualTextValue> glosses;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -129,11 +134,23 @@ public class SenseDocumentImpl extends StatementDocumentImpl implements SenseDoc
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof SenseDocumentImpl) {
+			int otherHashCode = ((SenseDocumentImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsSenseDocument(this, obj);
 	}
 
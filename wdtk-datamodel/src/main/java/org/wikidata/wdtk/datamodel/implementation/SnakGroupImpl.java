@@ -41,6 +41,11 @@ public class SnakGroupImpl extends AbstractList<Snak> implements SnakGroup {
 
 	private final List<Snak> snaks;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -114,11 +119,23 @@ public class SnakGroupImpl extends AbstractList<Snak> implements SnakGroup {
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof SnakGroupImpl) {
+			int otherHashCode = ((SnakGroupImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsSnakGroup(this, obj);
 	}
 
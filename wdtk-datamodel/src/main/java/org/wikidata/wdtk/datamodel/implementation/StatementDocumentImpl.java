@@ -25,6 +25,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.lang3.Validate;
 import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.Statement;
 import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
 import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
@@ -56,6 +57,12 @@ abstract class StatementDocumentImpl extends EntityDocumentImpl implements State
 	 */
 	private List<StatementGroup> statementGroups;
 
+	/**
+	 * The objects of {@link #statementGroups}, indexed by property id. This
+	 * member is initialized together with {@link #statementGroups}.
+	 */
+	private Map<String, StatementGroup> statementGroupIndex;
+
 	/**
 	 * Constructor.
 	 *
@@ -126,27 +133,57 @@ abstract class StatementDocumentImpl extends EntityDocumentImpl implements State
 	@Override
 	public List<StatementGroup> getStatementGroups() {
 		if (this.statementGroups == null) {
-			this.statementGroups = new ArrayList<>(this.claims.size());
-			for (List<Statement> statements : this.claims.values()) {
-				this.statementGroups
-						.add(new StatementGroupImpl(statements));
-			}
+			initStatementGroups();
 		}
 		return this.statementGroups;
 	}
-	
+
 	/**
-	 * Find a statement group by its property id, without checking for 
+	 * Find a statement group by its property id, without checking for
 	 * equality with the site IRI. More efficient implementation than
-	 * the default one.
+	 * the default one, since the groups are indexed by property id.
 	 */
+	@Override
 	public StatementGroup findStatementGroup(String propertyIdValue) {
-		if (this.claims.containsKey(propertyIdValue)) {
-			return new StatementGroupImpl(this.claims.get(propertyIdValue));
+		Map<String, StatementGroup> index = this.statementGroupIndex;
+		if (index == null) {
+			index = initStatementGroups();
+		}
+		return index.get(propertyIdValue);
+	}
+
+	/**
+	 * Find a statement group by its property. More efficient implementation
+	 * than the default one, since the groups are indexed by property id.
+	 */
+	@Override
+	public StatementGroup findStatementGroup(PropertyIdValue propertyIdValue) {
+		StatementGroup statementGroup = findStatementGroup(propertyIdValue.getId());
+		if (statementGroup != null
+				&& propertyIdValue.equals(statementGroup.getProperty())) {
+			return statementGroup;
 		}
 		return null;
 	}
 
+	/**
+	 * Creates the statement groups and their index.
+	 *
+	 * @return the index
+	 */
+	private Map<String, StatementGroup> initStatementGroups() {
+		List<StatementGroup> groups = new ArrayList<>(this.claims.size());
+		Map<String, StatementGroup> index = new HashMap<>();
+		for (Entry<String, List<Statement>> entry : this.claims.entrySet()) {
+			StatementGroup group = new StatementGroupImpl(entry.getValue());
+			groups.add(group);
+			index.put(entry.getKey(), group);
+		}
+		this.statementGroups = groups;
+		this.statementGroupIndex = index;
+		return index;
+	}
+
 	/**
 	 * Returns the "claims". Only used by Jackson.
 	 * <p>
@@ -171,56 +208,29 @@ abstract class StatementDocumentImpl extends EntityDocumentImpl implements State
 	 * Adds a Statement to a given collection of statement groups.
 	 * If the statement id is not null and matches that of an existing statement,
 	 * this statement will be replaced.
+	 * <p>
+	 * The result is a {@link PersistentClaimMap}, which shares all unchanged
+	 * data with the given map, so that adding many statements one after the
+	 * other does not copy the whole document each time.
 	 * 
 	 * @param statement
 	 * @param claims
 	 * @return
 	 */
 	protected static Map<String, List<Statement>> addStatementToGroups(Statement statement, Map<String, List<Statement>> claims) {
-		Map<String, List<Statement>> newGroups = new HashMap<>(claims);
-		String pid = statement.getMainSnak().getPropertyId().getId();
-		if(newGroups.containsKey(pid)) {
-			List<Statement> newGroup = new ArrayList<>(newGroups.get(pid).size());
-			boolean statementReplaced = false;
-			for(Statement existingStatement : newGroups.get(pid)) {
-				if(existingStatement.getStatementId().equals(statement.getStatementId()) &&
-						!existingStatement.getStatementId().isEmpty()) {
-					statementReplaced = true;
-					newGroup.add(statement);
-				} else {
-					newGroup.add(existingStatement);
-				}
-			}
-			if(!statementReplaced) {
-				newGroup.add(statement);
-			}
-			newGroups.put(pid, newGroup);
-		} else {
-			newGroups.put(pid, Collections.singletonList(statement));
-		}
-		return newGroups;
+		return PersistentClaimMap.from(claims).withStatement(statement);
 	}
 	
 	/**
-	 * Removes statement ids from a collection of statement groups.
+	 * Removes statement ids from a collection of statement groups. The
+	 * statements are found with the index of a {@link PersistentClaimMap},
+	 * which is built on the first removal, and only the groups that contain
+	 * one of the statements are changed.
 	 * @param statementIds
 	 * @param claims
 	 * @return
 	 */
 	protected static Map<String, List<Statement>> removeStatements(Set<String> statementIds, Map<String, List<Statement>> claims) {
-		Map<String, List<Statement>> newClaims = new HashMap<>(claims.size());
-		for(Entry<String, List<Statement>> entry : claims.entrySet()) {
-			List<Statement> filteredStatements = new ArrayList<>();
-			for(Statement s : entry.getValue()) {
-				if(!statementIds.contains(s.getStatementId())) {
-					filteredStatements.add(s);
-				}
-			}
-			if(!filteredStatements.isEmpty()) {
-				newClaims.put(entry.getKey(),
-					filteredStatements);
-			}
-		}
-		return newClaims;
+		return PersistentClaimMap.from(claims).withoutStatements(statementIds);
 	}
 }
@@ -38,6 +38,11 @@ public class StatementGroupImpl extends AbstractList<Statement> implements State
 
 	private final List<Statement> statements;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 *
@@ -115,11 +120,23 @@ public class StatementGroupImpl extends AbstractList<Statement> implements State
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof StatementGroupImpl) {
+			int otherHashCode = ((StatementGroupImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsStatementGroup(this, obj);
 	}
 
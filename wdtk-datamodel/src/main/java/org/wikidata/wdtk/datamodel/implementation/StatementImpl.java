@@ -74,6 +74,11 @@ public class StatementImpl implements Statement {
 
 	private List<SnakGroup> qualifiersGroups;
 
+	/**
+	 * Hash code, computed when first needed; 0 if not computed yet.
+	 */
+	private int hashCode;
+
 	/**
 	 * Constructor.
 	 * <p>
@@ -254,11 +259,23 @@ public class StatementImpl implements Statement {
 	
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		int result = this.hashCode;
+		if (result == 0) {
+			result = Hash.hashCode(this);
+			this.hashCode = result;
+		}
+		return result;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof StatementImpl) {
+			int otherHashCode = ((StatementImpl) obj).hashCode;
+			if (this.hashCode != 0 && otherHashCode != 0
+					&& this.hashCode != otherHashCode) {
+				return false;
+			}
+		}
 		return Equality.equalsStatement(this, obj);
 	}
 
@@ -286,7 +303,7 @@ public class StatementImpl implements Statement {
 
 		private final List<String> qualifiersOrder;
 
-		private PreStatement(
+		PreStatement(
 				String statementId,
 				StatementRank rank,
 				Snak mainsnak,
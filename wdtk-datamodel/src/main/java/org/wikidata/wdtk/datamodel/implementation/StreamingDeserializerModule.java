@@ -0,0 +1,714 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Jackson module with hand-written deserializers for the objects that make
+ * up most of an entity document: statements, references, snaks, values and
+ * terms. They read the JSON tokens in one pass and create the final objects
+ * directly, instead of building a {@link JsonNode} tree for every value as
+ * {@link ValueImpl} does, or buffering every snak until its type is known.
+ * <p>
+ * The result is the same as with the annotation-based deserialization.
+ * Values of unknown types, and entity ids of unknown entity types, are
+ * handed over to the annotation-based deserializers. The module is
+ * registered by {@link org.wikidata.wdtk.datamodel.helpers.DatamodelMapper},
+ * whose injected site IRI is used for all entity ids.
+ */
+public class StreamingDeserializerModule extends SimpleModule {
+
+	private static final long serialVersionUID = -5096413318398214425L;
+
+	private static final String SITE_IRI = "siteIri";
+
+	/**
+	 * Constructs the module.
+	 */
+	public StreamingDeserializerModule() {
+		super("WdtkStreamingDeserializers");
+		addDeserializer(StatementImpl.PreStatement.class,
+				new PreStatementDeserializer());
+		addDeserializer(ReferenceImpl.class, new ReferenceDeserializer());
+		addDeserializer(SnakImpl.class, new SnakDeserializer());
+		addDeserializer(TermImpl.class, new TermDeserializer());
+	}
+
+	/**
+	 * Deserializer for statements of entity documents.
+	 */
+	static class PreStatementDeserializer extends
+			StdDeserializer<StatementImpl.PreStatement> {
+
+		private static final long serialVersionUID = 4410387009286963627L;
+
+		PreStatementDeserializer() {
+			super(StatementImpl.PreStatement.class);
+		}
+
+		@Override
+		public StatementImpl.PreStatement deserialize(JsonParser p,
+				DeserializationContext ctxt) throws IOException {
+			return readPreStatement(p, ctxt, getSiteIri(ctxt));
+		}
+	}
+
+	/**
+	 * Deserializer for references.
+	 */
+	static class ReferenceDeserializer extends StdDeserializer<ReferenceImpl> {
+
+		private static final long serialVersionUID = 8916305470437101539L;
+
+		ReferenceDeserializer() {
+			super(ReferenceImpl.class);
+		}
+
+		@Override
+		public ReferenceImpl deserialize(JsonParser p,
+				DeserializationContext ctxt) throws IOException {
+			return readReference(p, ctxt, getSiteIri(ctxt));
+		}
+	}
+
+	/**
+	 * Deserializer for snaks. It finds the type of the snak itself, so the
+	 * type information of {@link SnakImpl} is not used.
+	 */
+	static class SnakDeserializer extends StdDeserializer<SnakImpl> {
+
+		private static final long serialVersionUID = -2373640580466410226L;
+
+		SnakDeserializer() {
+			super(SnakImpl.class);
+		}
+
+		@Override
+		public SnakImpl deserialize(JsonParser p, DeserializationContext ctxt)
+				throws IOException {
+			return readSnak(p, ctxt, getSiteIri(ctxt));
+		}
+
+		@Override
+		public Object deserializeWithType(JsonParser p,
+				DeserializationContext ctxt, TypeDeserializer typeDeserializer)
+				throws IOException {
+			return deserialize(p, ctxt);
+		}
+	}
+
+	/**
+	 * Deserializer for labels, descriptions and aliases.
+	 */
+	static class TermDeserializer extends StdDeserializer<TermImpl> {
+
+		private static final long serialVersionUID = -4400311424622286380L;
+
+		TermDeserializer() {
+			super(TermImpl.class);
+		}
+
+		@Override
+		public TermImpl deserialize(JsonParser p, DeserializationContext ctxt)
+				throws IOException {
+			startObject(p, ctxt, TermImpl.class);
+			String language = null;
+			String text = null;
+			for (String field = p.nextFieldName(); field != null; field = p
+					.nextFieldName()) {
+				p.nextToken();
+				switch (field) {
+				case "language":
+					language = readString(p);
+					break;
+				case "value":
+					text = readString(p);
+					break;
+				default:
+					p.skipChildren();
+				}
+			}
+			try {
+				return new TermImpl(language, text);
+			} catch (IllegalArgumentException | NullPointerException e) {
+				throw ctxt.instantiationException(TermImpl.class, e);
+			}
+		}
+	}
+
+	static StatementImpl.PreStatement readPreStatement(JsonParser p,
+			DeserializationContext ctxt, String siteIri) throws IOException {
+		startObject(p, ctxt, StatementImpl.PreStatement.class);
+		String id = null;
+		StatementRank rank = null;
+		Snak mainSnak = null;
+		Map<String, List<Snak>> qualifiers = null;
+		List<String> qualifiersOrder = null;
+		List<Reference> references = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			JsonToken token = p.nextToken();
+			switch (field) {
+			case "id":
+				id = readString(p);
+				break;
+			case "rank":
+				if (token != JsonToken.VALUE_NULL) {
+					try {
+						rank = StatementRank.valueOf(p.getText().toUpperCase());
+					} catch (IllegalArgumentException e) {
+						throw ctxt.weirdStringException(p.getText(),
+								StatementRank.class, "unknown statement rank");
+					}
+				}
+				break;
+			case "mainsnak":
+				mainSnak = token == JsonToken.VALUE_NULL ? null : readSnak(p,
+						ctxt, siteIri);
+				break;
+			case "qualifiers":
+				qualifiers = readSnakMap(p, ctxt, siteIri);
+				break;
+			case "qualifiers-order":
+				qualifiersOrder = readStringList(p, ctxt);
+				break;
+			case "references":
+				if (startArray(p, ctxt)) {
+					references = new ArrayList<>();
+					while (p.nextToken() != JsonToken.END_ARRAY) {
+						references.add(readReference(p, ctxt, siteIri));
+					}
+				}
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (qualifiers == null) {
+			qualifiers = new HashMap<>(0);
+		}
+		return new StatementImpl.PreStatement(id, rank, mainSnak, qualifiers,
+				qualifiersOrder, references);
+	}
+
+	static ReferenceImpl readReference(JsonParser p,
+			DeserializationContext ctxt, String siteIri) throws IOException {
+		startObject(p, ctxt, ReferenceImpl.class);
+		Map<String, List<Snak>> snaks = null;
+		List<String> propertyOrder = null;
+		String hash = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "snaks":
+				snaks = readSnakMap(p, ctxt, siteIri);
+				break;
+			case "snaks-order":
+				propertyOrder = readStringList(p, ctxt);
+				break;
+			case "hash":
+				hash = readString(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (snaks == null) {
+			throw ctxt.instantiationException(ReferenceImpl.class,
+					"A reference must have snaks");
+		}
+		return ReferenceImpl.fromJsonSnaks(snaks, propertyOrder, hash);
+	}
+
+	/**
+	 * Reads an object that maps property ids to lists of snaks. Returns null
+	 * for JSON null and an empty map for an empty array, which is how empty
+	 * objects used to be serialized.
+	 */
+	static Map<String, List<Snak>> readSnakMap(JsonParser p,
+			DeserializationContext ctxt, String siteIri) throws IOException {
+		JsonToken token = p.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token == JsonToken.START_ARRAY) {
+			if (p.nextToken() != JsonToken.END_ARRAY) {
+				throw ctxt.wrongTokenException(p, Map.class,
+						JsonToken.END_ARRAY, "expected an object of snaks");
+			}
+			return new HashMap<>(0);
+		}
+		startObject(p, ctxt, Map.class);
+		Map<String, List<Snak>> result = new HashMap<>();
+		for (String property = p.nextFieldName(); property != null; property = p
+				.nextFieldName()) {
+			p.nextToken();
+			List<Snak> snaks = new ArrayList<>();
+			if (startArray(p, ctxt)) {
+				while (p.nextToken() != JsonToken.END_ARRAY) {
+					snaks.add(readSnak(p, ctxt, siteIri));
+				}
+			}
+			result.put(property, snaks);
+		}
+		return result;
+	}
+
+	static SnakImpl readSnak(JsonParser p, DeserializationContext ctxt,
+			String siteIri) throws IOException {
+		startObject(p, ctxt, SnakImpl.class);
+		String snakType = null;
+		String property = null;
+		String datatype = null;
+		ValueImpl value = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			JsonToken token = p.nextToken();
+			switch (field) {
+			case "snaktype":
+				snakType = readString(p);
+				break;
+			case "property":
+				property = readString(p);
+				break;
+			case "datatype":
+				datatype = readString(p);
+				break;
+			case "datavalue":
+				value = token == JsonToken.VALUE_NULL ? null : readValue(p,
+						ctxt, siteIri);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		if (snakType == null) {
+			throw ctxt.missingTypeIdException(ctxt.constructType(SnakImpl.class),
+					"missing property 'snaktype'");
+		}
+		try {
+			switch (snakType) {
+			case SnakImpl.JSON_SNAK_TYPE_VALUE:
+				return new ValueSnakImpl(property, datatype, value, siteIri);
+			case SnakImpl.JSON_SNAK_TYPE_SOMEVALUE:
+				return new SomeValueSnakImpl(property, siteIri);
+			case SnakImpl.JSON_SNAK_TYPE_NOVALUE:
+				return new NoValueSnakImpl(property, siteIri);
+			default:
+				throw ctxt.invalidTypeIdException(
+						ctxt.constructType(SnakImpl.class), snakType,
+						"unknown snak type");
+			}
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw ctxt.instantiationException(SnakImpl.class, e);
+		}
+	}
+
+	/**
+	 * Reads a value. Its "type" usually comes after its "value" in JSON. The
+	 * value is then buffered, unless it is a plain string.
+	 */
+	static ValueImpl readValue(JsonParser p, DeserializationContext ctxt,
+			String siteIri) throws IOException {
+		startObject(p, ctxt, ValueImpl.class);
+		String type = null;
+		ValueImpl result = null;
+		String bufferedString = null;
+		TokenBuffer bufferedValue = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			JsonToken token = p.nextToken();
+			if ("type".equals(field)) {
+				type = readString(p);
+			} else if ("value".equals(field)) {
+				if (type != null) {
+					result = readTypedValue(type, p, ctxt, siteIri);
+				} else if (token == JsonToken.VALUE_STRING) {
+					bufferedString = p.getText();
+				} else {
+					bufferedValue = ctxt.bufferAsCopyOfValue(p);
+				}
+			} else {
+				p.skipChildren();
+			}
+		}
+		if (result != null) {
+			return result;
+		}
+		if (type == null) {
+			throw ctxt.instantiationException(ValueImpl.class,
+					"A value must have a type");
+		}
+		if (bufferedString != null) {
+			if (ValueImpl.JSON_VALUE_TYPE_STRING.equals(type)) {
+				return new StringValueImpl(bufferedString);
+			}
+			return readUnsupportedValue(type,
+					JsonNodeFactory.instance.textNode(bufferedString), ctxt);
+		}
+		if (bufferedValue == null) {
+			return readUnsupportedValue(type, null, ctxt);
+		}
+		try (JsonParser bufferParser = bufferedValue.asParser(p.getCodec())) {
+			bufferParser.nextToken();
+			return readTypedValue(type, bufferParser, ctxt, siteIri);
+		}
+	}
+
+	/**
+	 * Reads the JSON "value" of a value of the given type. The parser is at
+	 * the first token of the value.
+	 */
+	static ValueImpl readTypedValue(String type, JsonParser p,
+			DeserializationContext ctxt, String siteIri) throws IOException {
+		try {
+			switch (type) {
+			case ValueImpl.JSON_VALUE_TYPE_STRING:
+				return new StringValueImpl(readString(p));
+			case ValueImpl.JSON_VALUE_TYPE_ENTITY_ID:
+				return readEntityIdValue(p, ctxt, siteIri);
+			case ValueImpl.JSON_VALUE_TYPE_TIME:
+				return readTimeValue(p, ctxt);
+			case ValueImpl.JSON_VALUE_TYPE_QUANTITY:
+				return readQuantityValue(p, ctxt);
+			case ValueImpl.JSON_VALUE_TYPE_GLOBE_COORDINATES:
+				return readGlobeCoordinatesValue(p, ctxt);
+			case ValueImpl.JSON_VALUE_TYPE_MONOLINGUAL_TEXT:
+				return readMonolingualTextValue(p, ctxt);
+			default:
+				return readUnsupportedValue(type, ctxt.readTree(p), ctxt);
+			}
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw ctxt.instantiationException(ValueImpl.class, e);
+		}
+	}
+
+	private static ValueImpl readEntityIdValue(JsonParser p,
+			DeserializationContext ctxt, String siteIri) throws IOException {
+		startObject(p, ctxt, EntityIdValueImpl.class);
+		String id = null;
+		String entityType = null;
+		Integer numericId = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "id":
+				id = readString(p);
+				break;
+			case "entity-type":
+				entityType = readString(p);
+				break;
+			case "numeric-id":
+				numericId = p.getValueAsInt();
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+
+		String valueType = entityType;
+		if (valueType == null) {
+			if (id == null) {
+				throw ctxt.instantiationException(EntityIdValueImpl.class,
+						"Unexpected entity id serialization");
+			}
+			try {
+				valueType = EntityIdValueImpl.guessEntityTypeFromId(id, true);
+			} catch (IllegalArgumentException e) {
+				valueType = null;
+			}
+		}
+		if (valueType != null) {
+			switch (valueType) {
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_ITEM:
+				return new ItemIdValueImpl(newInnerEntityId(id, numericId,
+						entityType), siteIri);
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_PROPERTY:
+				return new PropertyIdValueImpl(newInnerEntityId(id,
+						numericId, entityType), siteIri);
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_LEXEME:
+				return new LexemeIdValueImpl(newInnerEntityId(id, numericId,
+						entityType), siteIri);
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_MEDIA_INFO:
+				return new MediaInfoIdValueImpl(newInnerEntityId(id,
+						numericId, entityType), siteIri);
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_FORM:
+				return new FormIdValueImpl(id, siteIri);
+			case EntityIdValueImpl.JSON_ENTITY_TYPE_SENSE:
+				return new SenseIdValueImpl(id, siteIri);
+			default:
+			}
+		}
+
+		ObjectNode value = JsonNodeFactory.instance.objectNode();
+		if (entityType != null) {
+			value.put("entity-type", entityType);
+		}
+		if (numericId != null) {
+			value.put("numeric-id", numericId);
+		}
+		if (id != null) {
+			value.put("id", id);
+		}
+		return readUnsupportedValue(ValueImpl.JSON_VALUE_TYPE_ENTITY_ID,
+				value, ctxt);
+	}
+
+	private static EntityIdValueImpl.JacksonInnerEntityId newInnerEntityId(
+			String id, Integer numericId, String entityType) {
+		return new EntityIdValueImpl.JacksonInnerEntityId(id,
+				numericId == null ? 0 : numericId, entityType);
+	}
+
+	private static ValueImpl readTimeValue(JsonParser p,
+			DeserializationContext ctxt) throws IOException {
+		startObject(p, ctxt, TimeValueImpl.class);
+		String time = null;
+		int timezone = 0;
+		int before = 0;
+		int after = 0;
+		int precision = 0;
+		String calendarModel = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "time":
+				time = readString(p);
+				break;
+			case "timezone":
+				timezone = p.getValueAsInt();
+				break;
+			case "before":
+				before = p.getValueAsInt();
+				break;
+			case "after":
+				after = p.getValueAsInt();
+				break;
+			case "precision":
+				precision = p.getValueAsInt();
+				break;
+			case "calendarmodel":
+				calendarModel = readString(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		return new TimeValueImpl(new TimeValueImpl.JacksonInnerTime(time,
+				timezone, before, after, precision, calendarModel));
+	}
+
+	private static ValueImpl readQuantityValue(JsonParser p,
+			DeserializationContext ctxt) throws IOException {
+		startObject(p, ctxt, QuantityValueImpl.class);
+		BigDecimal amount = null;
+		BigDecimal lowerBound = null;
+		BigDecimal upperBound = null;
+		String unit = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "amount":
+				amount = readDecimal(p);
+				break;
+			case "lowerBound":
+				lowerBound = readDecimal(p);
+				break;
+			case "upperBound":
+				upperBound = readDecimal(p);
+				break;
+			case "unit":
+				unit = readString(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		return new QuantityValueImpl(new QuantityValueImpl.JacksonInnerQuantity(
+				amount, lowerBound, upperBound, unit));
+	}
+
+	private static ValueImpl readGlobeCoordinatesValue(JsonParser p,
+			DeserializationContext ctxt) throws IOException {
+		startObject(p, ctxt, GlobeCoordinatesValueImpl.class);
+		double latitude = 0;
+		double longitude = 0;
+		double precision = 0;
+		String globe = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "latitude":
+				latitude = p.getValueAsDouble();
+				break;
+			case "longitude":
+				longitude = p.getValueAsDouble();
+				break;
+			case "precision":
+				precision = p.getValueAsDouble();
+				break;
+			case "globe":
+				globe = readString(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		return new GlobeCoordinatesValueImpl(
+				new GlobeCoordinatesValueImpl.JacksonInnerGlobeCoordinates(
+						latitude, longitude, precision, globe));
+	}
+
+	private static ValueImpl readMonolingualTextValue(JsonParser p,
+			DeserializationContext ctxt) throws IOException {
+		startObject(p, ctxt, MonolingualTextValueImpl.class);
+		String language = null;
+		String text = null;
+		for (String field = p.nextFieldName(); field != null; field = p
+				.nextFieldName()) {
+			p.nextToken();
+			switch (field) {
+			case "language":
+				language = readString(p);
+				break;
+			case "text":
+				text = readString(p);
+				break;
+			default:
+				p.skipChildren();
+			}
+		}
+		return new MonolingualTextValueImpl(
+				new MonolingualTextValueImpl.JacksonInnerMonolingualText(
+						language, text));
+	}
+
+	/**
+	 * Passes values that are not supported by this module to the
+	 * annotation-based deserializer of {@link ValueImpl}.
+	 */
+	private static ValueImpl readUnsupportedValue(String type, JsonNode value,
+			DeserializationContext ctxt) throws IOException {
+		ObjectNode node = JsonNodeFactory.instance.objectNode();
+		node.put("type", type);
+		if (value != null) {
+			node.set("value", value);
+		}
+		return ctxt.readTreeAsValue(node, ValueImpl.class);
+	}
+
+	private static List<String> readStringList(JsonParser p,
+			DeserializationContext ctxt) throws IOException {
+		if (!startArray(p, ctxt)) {
+			return null;
+		}
+		List<String> result = new ArrayList<>();
+		while (p.nextToken() != JsonToken.END_ARRAY) {
+			result.add(readString(p));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the current string, or null for JSON null. Other scalars are
+	 * returned as text, as Jackson does for string properties.
+	 */
+	private static String readString(JsonParser p) throws IOException {
+		JsonToken token = p.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+			p.skipChildren();
+			return null;
+		}
+		return p.getText();
+	}
+
+	private static BigDecimal readDecimal(JsonParser p) throws IOException {
+		switch (p.currentToken()) {
+		case VALUE_NULL:
+			return null;
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return p.getDecimalValue();
+		default:
+			return new BigDecimal(p.getText().trim());
+		}
+	}
+
+	private static void startObject(JsonParser p, DeserializationContext ctxt,
+			Class<?> type) throws IOException {
+		if (p.currentToken() != JsonToken.START_OBJECT) {
+			ctxt.reportWrongTokenException(type, JsonToken.START_OBJECT,
+					"expected a JSON object");
+		}
+	}
+
+	/**
+	 * Checks that the parser is at the start of an array. Returns false for
+	 * JSON null.
+	 */
+	private static boolean startArray(JsonParser p, DeserializationContext ctxt)
+			throws IOException {
+		JsonToken token = p.currentToken();
+		if (token == JsonToken.VALUE_NULL) {
+			return false;
+		}
+		if (token != JsonToken.START_ARRAY) {
+			ctxt.reportWrongTokenException(List.class, JsonToken.START_ARRAY,
+					"expected a JSON array");
+		}
+		return true;
+	}
+
+	private static String getSiteIri(DeserializationContext ctxt)
+			throws IOException {
+		return (String) ctxt.findInjectableValue(SITE_IRI, null, null);
+	}
+
+}
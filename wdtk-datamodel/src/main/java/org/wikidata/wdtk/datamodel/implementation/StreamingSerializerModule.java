@@ -0,0 +1,502 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Jackson module with hand-written serializers for the objects that make up
+ * most of an entity document: statements, references, snaks, values, terms
+ * and site links. They write the JSON tokens directly, instead of going
+ * through the bean properties of the annotated classes and the inner helper
+ * objects that most values create for Jackson.
+ * <p>
+ * The output is byte for byte the same as with the annotation-based
+ * serialization, including the order of the fields. The serializers are
+ * only used for the exact classes of this package, since subclasses may
+ * add or reorder properties. The documents themselves are still written by
+ * the bean serializers, which find these serializers for their contents.
+ * The module is registered by
+ * {@link org.wikidata.wdtk.datamodel.helpers.DatamodelMapper} and by
+ * {@link org.wikidata.wdtk.datamodel.helpers.JsonSerializer}.
+ */
+public class StreamingSerializerModule extends SimpleModule {
+
+	private static final long serialVersionUID = 2957516064738716410L;
+
+	/**
+	 * JSON names of the statement ranks, indexed by their ordinal.
+	 */
+	private static final String[] RANK_NAMES = new String[StatementRank
+			.values().length];
+	static {
+		for (StatementRank rank : StatementRank.values()) {
+			RANK_NAMES[rank.ordinal()] = rank.name().toLowerCase();
+		}
+	}
+
+	/**
+	 * Constructs the module.
+	 */
+	public StreamingSerializerModule() {
+		super("WdtkStreamingSerializers");
+	}
+
+	@Override
+	public void setupModule(SetupContext context) {
+		super.setupModule(context);
+		context.addSerializers(new ExactClassSerializers());
+	}
+
+	/**
+	 * Finds the serializers of this module for the classes they were written
+	 * for, but not for their subclasses.
+	 */
+	static class ExactClassSerializers extends Serializers.Base {
+
+		private final Map<Class<?>, JsonSerializer<?>> serializers = new HashMap<>();
+
+		ExactClassSerializers() {
+			this.serializers.put(StatementImpl.class, new StatementSerializer());
+			this.serializers.put(ReferenceImpl.class, new ReferenceSerializer());
+			this.serializers.put(ValueSnakImpl.class, new SnakSerializer<>(
+					ValueSnakImpl.class));
+			this.serializers.put(SomeValueSnakImpl.class, new SnakSerializer<>(
+					SomeValueSnakImpl.class));
+			this.serializers.put(NoValueSnakImpl.class, new SnakSerializer<>(
+					NoValueSnakImpl.class));
+			for (Class<? extends ValueImpl> valueClass : ValueSerializer.VALUE_CLASSES) {
+				this.serializers.put(valueClass, new ValueSerializer<>(valueClass));
+			}
+			this.serializers.put(TermImpl.class, new TermSerializer());
+			this.serializers.put(SiteLinkImpl.class, new SiteLinkSerializer());
+		}
+
+		@Override
+		public JsonSerializer<?> findSerializer(SerializationConfig config,
+				JavaType type, BeanDescription beanDesc) {
+			return this.serializers.get(type.getRawClass());
+		}
+	}
+
+	/**
+	 * Base class of the serializers of this module, which all write JSON
+	 * objects. Type information, such as the "snaktype" of
+	 * {@link SnakImpl}, is written as the first field of the object.
+	 *
+	 * @param <T>
+	 *            the serialized class
+	 */
+	static abstract class ObjectSerializer<T> extends StdSerializer<T> {
+
+		private static final long serialVersionUID = -2125470404883458911L;
+
+		ObjectSerializer(Class<T> type) {
+			super(type);
+		}
+
+		@Override
+		public void serialize(T value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException {
+			gen.writeStartObject(value);
+			writeFields(value, gen, provider);
+			gen.writeEndObject();
+		}
+
+		@Override
+		public void serializeWithType(T value, JsonGenerator gen,
+				SerializerProvider provider, TypeSerializer typeSer)
+				throws IOException {
+			WritableTypeId typeId = typeSer.writeTypePrefix(gen,
+					typeSer.typeId(value, JsonToken.START_OBJECT));
+			writeFields(value, gen, provider);
+			typeSer.writeTypeSuffix(gen, typeId);
+		}
+
+		/**
+		 * Writes the fields of the given object, without the enclosing
+		 * braces.
+		 */
+		abstract void writeFields(T value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException;
+	}
+
+	/**
+	 * Serializer for statements.
+	 */
+	static class StatementSerializer extends ObjectSerializer<StatementImpl> {
+
+		private static final long serialVersionUID = 6262916426402530911L;
+
+		StatementSerializer() {
+			super(StatementImpl.class);
+		}
+
+		@Override
+		void writeFields(StatementImpl value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException {
+			writeStatementFields(value, gen, provider);
+		}
+	}
+
+	/**
+	 * Serializer for references.
+	 */
+	static class ReferenceSerializer extends ObjectSerializer<ReferenceImpl> {
+
+		private static final long serialVersionUID = -4452431716232930096L;
+
+		ReferenceSerializer() {
+			super(ReferenceImpl.class);
+		}
+
+		@Override
+		void writeFields(ReferenceImpl value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException {
+			writeReferenceFields(value, gen, provider);
+		}
+	}
+
+	/**
+	 * Serializer for the three kinds of snaks.
+	 *
+	 * @param <T>
+	 *            the snak class
+	 */
+	static class SnakSerializer<T extends SnakImpl> extends ObjectSerializer<T> {
+
+		private static final long serialVersionUID = 3493108546350950180L;
+
+		SnakSerializer(Class<T> type) {
+			super(type);
+		}
+
+		@Override
+		void writeFields(T value, JsonGenerator gen, SerializerProvider provider)
+				throws IOException {
+			writeSnakFields(value, gen, provider);
+		}
+	}
+
+	/**
+	 * Serializer for the values with a fast path in
+	 * {@link StreamingSerializerModule#writeValue(Value, JsonGenerator, SerializerProvider)}.
+	 *
+	 * @param <T>
+	 *            the value class
+	 */
+	static class ValueSerializer<T extends ValueImpl> extends ObjectSerializer<T> {
+
+		private static final long serialVersionUID = -5981262460934599406L;
+
+		static final Set<Class<? extends ValueImpl>> VALUE_CLASSES = Set.of(
+				ItemIdValueImpl.class, PropertyIdValueImpl.class,
+				LexemeIdValueImpl.class, MediaInfoIdValueImpl.class,
+				FormIdValueImpl.class, SenseIdValueImpl.class,
+				StringValueImpl.class, TimeValueImpl.class,
+				QuantityValueImpl.class, GlobeCoordinatesValueImpl.class,
+				MonolingualTextValueImpl.class);
+
+		ValueSerializer(Class<T> type) {
+			super(type);
+		}
+
+		@Override
+		void writeFields(T value, JsonGenerator gen, SerializerProvider provider)
+				throws IOException {
+			writeValueFields(value, gen);
+		}
+	}
+
+	/**
+	 * Serializer for labels, descriptions and aliases.
+	 */
+	static class TermSerializer extends ObjectSerializer<TermImpl> {
+
+		private static final long serialVersionUID = -1011373012969064466L;
+
+		TermSerializer() {
+			super(TermImpl.class);
+		}
+
+		@Override
+		void writeFields(TermImpl value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException {
+			gen.writeStringField("language", value.getLanguageCode());
+			gen.writeStringField("value", value.getText());
+		}
+	}
+
+	/**
+	 * Serializer for site links.
+	 */
+	static class SiteLinkSerializer extends ObjectSerializer<SiteLinkImpl> {
+
+		private static final long serialVersionUID = 5624727402342137917L;
+
+		SiteLinkSerializer() {
+			super(SiteLinkImpl.class);
+		}
+
+		@Override
+		void writeFields(SiteLinkImpl value, JsonGenerator gen,
+				SerializerProvider provider) throws IOException {
+			gen.writeStringField("title", value.getPageTitle());
+			gen.writeStringField("site", value.getSiteKey());
+			gen.writeArrayFieldStart("badges");
+			for (ItemIdValue badge : value.getBadges()) {
+				gen.writeString(badge.getId());
+			}
+			gen.writeEndArray();
+		}
+	}
+
+	/**
+	 * Writes the fields of a statement. Empty fields are left out, as
+	 * required by the {@link com.fasterxml.jackson.annotation.JsonInclude}
+	 * annotation of {@link StatementImpl}, and the qualifiers come last.
+	 */
+	static void writeStatementFields(StatementImpl statement,
+			JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeStringField("rank", RANK_NAMES[statement.getRank().ordinal()]);
+		String statementId = statement.getStatementId();
+		if (statementId != null && !statementId.isEmpty()) {
+			gen.writeStringField("id", statementId);
+		}
+		Snak mainSnak = statement.getMainSnak();
+		if (mainSnak != null) {
+			gen.writeFieldName("mainsnak");
+			writeSnak(mainSnak, gen, provider);
+		}
+		List<String> qualifiersOrder = statement.getQualifiersOrder();
+		if (!qualifiersOrder.isEmpty()) {
+			writeStringArrayField("qualifiers-order", qualifiersOrder, gen);
+		}
+		List<Reference> references = statement.getReferences();
+		if (references != null && !references.isEmpty()) {
+			gen.writeArrayFieldStart("references");
+			for (Reference reference : references) {
+				if (reference.getClass() == ReferenceImpl.class) {
+					gen.writeStartObject(reference);
+					writeReferenceFields((ReferenceImpl) reference, gen, provider);
+					gen.writeEndObject();
+				} else {
+					provider.defaultSerializeValue(reference, gen);
+				}
+			}
+			gen.writeEndArray();
+		}
+		gen.writeStringField("type", statement.getJsonType());
+		Map<String, List<Snak>> qualifiers = statement.getJsonQualifiers();
+		if (!qualifiers.isEmpty()) {
+			gen.writeFieldName("qualifiers");
+			writeSnakMap(qualifiers, gen, provider);
+		}
+	}
+
+	/**
+	 * Writes the fields of a reference. The hash is left out if it is not
+	 * known.
+	 */
+	static void writeReferenceFields(ReferenceImpl reference,
+			JsonGenerator gen, SerializerProvider provider) throws IOException {
+		gen.writeFieldName("snaks");
+		writeSnakMap(reference.getSnaks(), gen, provider);
+		writeStringArrayField("snaks-order", reference.getPropertyOrder(), gen);
+		String hash = reference.getHash();
+		if (hash != null) {
+			gen.writeStringField("hash", hash);
+		}
+	}
+
+	/**
+	 * Writes a map from property ids to lists of snaks, as used for
+	 * qualifiers and the snaks of references.
+	 */
+	static void writeSnakMap(Map<String, List<Snak>> snaks, JsonGenerator gen,
+			SerializerProvider provider) throws IOException {
+		gen.writeStartObject(snaks);
+		for (Map.Entry<String, List<Snak>> entry : snaks.entrySet()) {
+			gen.writeArrayFieldStart(entry.getKey());
+			for (Snak snak : entry.getValue()) {
+				writeSnak(snak, gen, provider);
+			}
+			gen.writeEndArray();
+		}
+		gen.writeEndObject();
+	}
+
+	/**
+	 * Writes a snak as the value of a property whose declared type is
+	 * {@link Snak}, that is, without the type information of
+	 * {@link SnakImpl}. Snaks of other classes are written by Jackson.
+	 */
+	static void writeSnak(Snak snak, JsonGenerator gen,
+			SerializerProvider provider) throws IOException {
+		Class<?> snakClass = snak.getClass();
+		if (snakClass == ValueSnakImpl.class
+				|| snakClass == SomeValueSnakImpl.class
+				|| snakClass == NoValueSnakImpl.class) {
+			gen.writeStartObject(snak);
+			writeSnakFields((SnakImpl) snak, gen, provider);
+			gen.writeEndObject();
+		} else {
+			provider.defaultSerializeValue(snak, gen);
+		}
+	}
+
+	/**
+	 * Writes the fields of a snak of one of the three snak classes of this
+	 * package.
+	 */
+	static void writeSnakFields(SnakImpl snak, JsonGenerator gen,
+			SerializerProvider provider) throws IOException {
+		gen.writeStringField("property", snak.getProperty());
+		if (snak instanceof ValueSnakImpl) {
+			ValueSnakImpl valueSnak = (ValueSnakImpl) snak;
+			String datatype = valueSnak.getDatatype();
+			if (datatype != null) {
+				gen.writeStringField("datatype", datatype);
+			}
+			gen.writeFieldName("datavalue");
+			writeValue(valueSnak.getDatavalue(), gen, provider);
+		}
+		gen.writeStringField("snaktype", snak.getSnakType());
+	}
+
+	/**
+	 * Writes a value. Values of other classes than the ones in
+	 * {@link ValueSerializer#VALUE_CLASSES} are written by Jackson.
+	 */
+	static void writeValue(Value value, JsonGenerator gen,
+			SerializerProvider provider) throws IOException {
+		if (value != null && ValueSerializer.VALUE_CLASSES.contains(value.getClass())) {
+			gen.writeStartObject(value);
+			writeValueFields((ValueImpl) value, gen);
+			gen.writeEndObject();
+		} else {
+			provider.defaultSerializeValue(value, gen);
+		}
+	}
+
+	/**
+	 * Writes the fields of a value of one of the classes in
+	 * {@link ValueSerializer#VALUE_CLASSES}: the inner "value" object,
+	 * followed by the type of the value.
+	 */
+	static void writeValueFields(ValueImpl value, JsonGenerator gen)
+			throws IOException {
+		gen.writeFieldName("value");
+		if (value instanceof EntityIdValueImpl) {
+			EntityIdValueImpl.JacksonInnerEntityId inner = ((EntityIdValueImpl) value)
+					.getValue();
+			gen.writeStartObject();
+			gen.writeStringField("id", inner.getStringId());
+			gen.writeNumberField("numeric-id", inner.getNumericId());
+			gen.writeStringField("entity-type", inner.getJsonEntityType());
+			gen.writeEndObject();
+		} else if (value instanceof FormIdValueImpl
+				|| value instanceof SenseIdValueImpl) {
+			gen.writeStartObject();
+			gen.writeStringField("id", ((EntityIdValue) value).getId());
+			gen.writeStringField("entity-type",
+					value instanceof FormIdValueImpl ? EntityIdValueImpl.JSON_ENTITY_TYPE_FORM
+							: EntityIdValueImpl.JSON_ENTITY_TYPE_SENSE);
+			gen.writeEndObject();
+		} else if (value instanceof StringValueImpl) {
+			gen.writeString(((StringValueImpl) value).getString());
+		} else if (value instanceof TimeValueImpl) {
+			TimeValueImpl time = (TimeValueImpl) value;
+			gen.writeStartObject();
+			gen.writeStringField("time", time.getJsonTime());
+			gen.writeNumberField("timezone", time.getTimezoneOffset());
+			gen.writeNumberField("before", time.getBeforeTolerance());
+			gen.writeNumberField("after", time.getAfterTolerance());
+			gen.writeNumberField("precision", time.getPrecision());
+			gen.writeStringField("calendarmodel", time.getPreferredCalendarModel());
+			gen.writeEndObject();
+		} else if (value instanceof QuantityValueImpl) {
+			QuantityValueImpl quantity = (QuantityValueImpl) value;
+			gen.writeStartObject();
+			gen.writeStringField("amount", QuantityValueImpl.JacksonInnerQuantity
+					.bigDecimalToSignedString(quantity.getNumericValue()));
+			if (quantity.getLowerBound() != null) {
+				gen.writeStringField("lowerBound", QuantityValueImpl.JacksonInnerQuantity
+						.bigDecimalToSignedString(quantity.getLowerBound()));
+			}
+			if (quantity.getUpperBound() != null) {
+				gen.writeStringField("upperBound", QuantityValueImpl.JacksonInnerQuantity
+						.bigDecimalToSignedString(quantity.getUpperBound()));
+			}
+			gen.writeStringField("unit", quantity.getUnit());
+			gen.writeEndObject();
+		} else if (value instanceof GlobeCoordinatesValueImpl) {
+			GlobeCoordinatesValueImpl coordinates = (GlobeCoordinatesValueImpl) value;
+			gen.writeStartObject();
+			gen.writeNumberField("latitude", coordinates.getLatitude());
+			gen.writeNumberField("longitude", coordinates.getLongitude());
+			gen.writeNumberField("precision", coordinates.getPrecision());
+			gen.writeStringField("globe", coordinates.getGlobe());
+			gen.writeEndObject();
+		} else {
+			MonolingualTextValueImpl text = (MonolingualTextValueImpl) value;
+			gen.writeStartObject();
+			gen.writeStringField("language", text.getLanguageCode());
+			gen.writeStringField("text", text.getText());
+			gen.writeEndObject();
+		}
+		gen.writeStringField("type", value.getType());
+	}
+
+	private static void writeStringArrayField(String fieldName,
+			List<String> strings, JsonGenerator gen) throws IOException {
+		gen.writeArrayFieldStart(fieldName);
+		for (String string : strings) {
+			gen.writeString(string);
+		}
+		gen.writeEndArray();
+	}
+
+}
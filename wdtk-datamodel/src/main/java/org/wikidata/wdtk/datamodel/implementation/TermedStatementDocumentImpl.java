@@ -53,6 +53,13 @@ public abstract class TermedStatementDocumentImpl extends LabeledStatementDocume
 	protected final Map<String, MonolingualTextValue> descriptions;
 	protected final Map<String, List<MonolingualTextValue>> aliases;
 
+	/**
+	 * Unmodifiable views of {@link #descriptions} and {@link #aliases},
+	 * created when first needed.
+	 */
+	private Map<String, MonolingualTextValue> descriptionsView;
+	private Map<String, List<MonolingualTextValue>> aliasesView;
+
 	/**
 	 * Constructor.
 	 * 
@@ -147,23 +154,47 @@ public abstract class TermedStatementDocumentImpl extends LabeledStatementDocume
 	@JsonProperty("aliases")
 	@Override
 	public Map<String, List<MonolingualTextValue>> getAliases() {
-		// because of the typing provided by the interface one has to
-		// re-create the map anew, simple casting is not possible
-		Map<String, List<MonolingualTextValue>> returnMap = new HashMap<>();
-
-		for (Entry<String, List<MonolingualTextValue>> entry : this.aliases
-				.entrySet()) {
-			returnMap.put(entry.getKey(), Collections
-					. unmodifiableList(entry.getValue()));
+		Map<String, List<MonolingualTextValue>> result = this.aliasesView;
+		if (result == null) {
+			// the lists of the map need unmodifiable wrappers, too; the
+			// document is immutable, so this is done only once
+			Map<String, List<MonolingualTextValue>> wrappedAliases = new HashMap<>();
+			for (Entry<String, List<MonolingualTextValue>> entry : this.aliases
+					.entrySet()) {
+				wrappedAliases.put(entry.getKey(), Collections
+						. unmodifiableList(entry.getValue()));
+			}
+			result = Collections.unmodifiableMap(wrappedAliases);
+			this.aliasesView = result;
 		}
+		return result;
+	}
 
-		return Collections.unmodifiableMap(returnMap);
+	@Override
+	public List<MonolingualTextValue> getAliases(String languageCode) {
+		if (this.aliasesView != null) {
+			List<MonolingualTextValue> result = this.aliasesView.get(languageCode);
+			return (result != null) ? result : Collections.emptyList();
+		}
+		List<MonolingualTextValue> result = this.aliases.get(languageCode);
+		return (result != null) ? Collections.unmodifiableList(result)
+				: Collections.emptyList();
 	}
 
 	@JsonProperty("descriptions")
 	@Override
 	public Map<String, MonolingualTextValue> getDescriptions() {
-		return Collections.unmodifiableMap(this.descriptions);
+		Map<String, MonolingualTextValue> result = this.descriptionsView;
+		if (result == null) {
+			result = Collections.unmodifiableMap(this.descriptions);
+			this.descriptionsView = result;
+		}
+		return result;
+	}
+
+	@Override
+	public MonolingualTextValue getDescription(String languageCode) {
+		return this.descriptions.get(languageCode);
 	}
 
 	@JsonIgnore
@@ -187,19 +218,14 @@ public abstract class TermedStatementDocumentImpl extends LabeledStatementDocume
 
 	protected static Map<String, List<MonolingualTextValue>> withAliases(
 			Map<String, List<MonolingualTextValue>> values, String language, List<MonolingualTextValue> aliases) {
-		Map<String, List<MonolingualTextValue>> newValues = new HashMap<>(values);
-		if(!newValues.containsKey(language)) {
-			newValues.put(language, new ArrayList<>());
-		}
-		List<MonolingualTextValue> l = newValues.get(language);
-		l.clear();
+		List<MonolingualTextValue> l = new ArrayList<>(aliases.size());
 		for(MonolingualTextValue term : aliases) {
 			if(!term.getLanguageCode().equals(language)) {
 				throw new IllegalArgumentException("The alias " + term + " does not have the same language as its group " + language);
 			}
 			l.add(toTerm(term));
 		}
-		return newValues;
+		return PersistentMap.from(values).plus(language, l);
 	}
 
 	/**
@@ -50,12 +50,45 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 @JsonDeserialize()
 public class TimeValueImpl extends ValueImpl implements TimeValue {
 
+	private static final ItemIdValue GREGORIAN_ITEM_ID = ItemIdValueImpl
+			.fromIri(TimeValue.CM_GREGORIAN_PRO);
+
+	private static final ItemIdValue JULIAN_ITEM_ID = ItemIdValueImpl
+			.fromIri(TimeValue.CM_JULIAN_PRO);
+
+	/**
+	 * The year. It is not packed with the other fields since years of
+	 * geological and astronomical times need more than 32 bits.
+	 */
+	private final long year;
+
+	/**
+	 * Month, day, hour, minute, second and precision, one byte each, with the
+	 * month in the highest of the six bytes. Without the lowest byte, the
+	 * value orders times of the same year chronologically.
+	 */
+	private final long fields;
+
+	private final int timezone;
+
+	private final int before;
+
+	private final int after;
+
+	/**
+	 * The calendar model IRI. The two standard models are replaced by the
+	 * constants of {@link TimeValue}, so that they are shared by all values
+	 * and can be recognized by identity.
+	 */
+	private final String calendarModel;
+
 	/**
-	 * Inner helper object to store the actual data. Used to get the nested JSON
-	 * structure that is required here.
+	 * The time string that this value was parsed from, if it differs from the
+	 * string that is composed from the fields, and null otherwise. This keeps
+	 * the JSON serialization of such values unchanged.
 	 */
-	private final JacksonInnerTime value;
-	
+	private final String time;
+
 	/**
 	 * Constructor.
 	 *
@@ -92,10 +125,14 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 			byte second, byte precision, int beforeTolerance,
 			int afterTolerance, int timezoneOffset, String calendarModel) {
 		super(JSON_VALUE_TYPE_TIME);
-		this.value = new JacksonInnerTime(
-				year, month, day, hour, minute, second,
-				timezoneOffset, beforeTolerance, afterTolerance,
-				precision, calendarModel);
+		Validate.notNull(calendarModel, "Calendar model must not be null");
+		this.year = year;
+		this.fields = packFields(month, day, hour, minute, second, precision);
+		this.timezone = timezoneOffset;
+		this.before = beforeTolerance;
+		this.after = afterTolerance;
+		this.calendarModel = internCalendarModel(calendarModel);
+		this.time = null;
 	}
 
 	/**
@@ -105,7 +142,18 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 	TimeValueImpl(
 			@JsonProperty("value") JacksonInnerTime value) {
 		super(JSON_VALUE_TYPE_TIME);
-		this.value = value;
+		this.year = value.getYear();
+		this.fields = packFields(value.getMonth(), value.getDay(),
+				value.getHour(), value.getMinute(), value.getSecond(),
+				(byte) value.getPrecision());
+		this.timezone = value.getTimezone();
+		this.before = value.getBefore();
+		this.after = value.getAfter();
+		this.calendarModel = internCalendarModel(value.getCalendarmodel());
+		String composedTime = formatTime(this.year, getMonth(), getDay(),
+				getHour(), getMinute(), getSecond());
+		this.time = composedTime.equals(value.getTime()) ? null : value
+				.getTime();
 	}
 
 	/**
@@ -115,79 +163,149 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 	 * @return the inner time value
 	 */
 	public JacksonInnerTime getValue() {
-		return value;
+		if (this.time != null) {
+			return new JacksonInnerTime(this.time, this.timezone, this.before,
+					this.after, getPrecision(), this.calendarModel);
+		}
+		return new JacksonInnerTime(this.year, getMonth(), getDay(),
+				getHour(), getMinute(), getSecond(), this.timezone,
+				this.before, this.after, getPrecision(), this.calendarModel);
 	}
-	
+
+	/**
+	 * Returns the time string used in JSON, without creating the inner value
+	 * helper object.
+	 *
+	 * @return the time string
+	 */
+	String getJsonTime() {
+		if (this.time != null) {
+			return this.time;
+		}
+		return formatTime(this.year, getMonth(), getDay(), getHour(),
+				getMinute(), getSecond());
+	}
+
 	@JsonIgnore
 	@Override
 	public long getYear() {
-		return this.value.getYear();
+		return this.year;
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getMonth() {
-		return this.value.getMonth();
+		return (byte) (this.fields >>> 40);
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getDay() {
-		return this.value.getDay();
+		return (byte) (this.fields >>> 32);
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getHour() {
-		return this.value.getHour();
+		return (byte) (this.fields >>> 24);
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getMinute() {
-		return this.value.getMinute();
+		return (byte) (this.fields >>> 16);
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getSecond() {
-		return this.value.getSecond();
+		return (byte) (this.fields >>> 8);
 	}
 
 	@JsonIgnore
 	@Override
 	public String getPreferredCalendarModel() {
-		return this.value.getCalendarmodel();
+		return this.calendarModel;
 	}
 
 	@JsonIgnore
 	@Override
 	public ItemIdValue getPreferredCalendarModelItemId() {
-		return ItemIdValueImpl.fromIri(this.value.getCalendarmodel());
+		if (this.calendarModel == TimeValue.CM_GREGORIAN_PRO) {
+			return GREGORIAN_ITEM_ID;
+		} else if (this.calendarModel == TimeValue.CM_JULIAN_PRO) {
+			return JULIAN_ITEM_ID;
+		}
+		return ItemIdValueImpl.fromIri(this.calendarModel);
 	}
 
 	@JsonIgnore
 	@Override
 	public byte getPrecision() {
-		return (byte) this.value.getPrecision();
+		return (byte) this.fields;
 	}
 
 	@JsonIgnore
 	@Override
 	public int getTimezoneOffset() {
-		return this.value.getTimezone();
+		return this.timezone;
 	}
 
 	@JsonIgnore
 	@Override
 	public int getBeforeTolerance() {
-		return this.value.getBefore();
+		return this.before;
 	}
 
 	@JsonIgnore
 	@Override
 	public int getAfterTolerance() {
-		return this.value.getAfter();
+		return this.after;
+	}
+
+	/**
+	 * Returns the number of days from 1970-01-01 (proleptic Gregorian
+	 * calendar) to the date of this value. The date is read in the Julian
+	 * calendar if that is the preferred calendar model, and in the Gregorian
+	 * calendar otherwise. A month or day of 0, as used for values with a
+	 * precision of years or months, counts as 1.
+	 * <p>
+	 * This only takes a few integer operations and also works for years that
+	 * {@link java.time.LocalDate} does not support.
+	 *
+	 * @return the epoch day of the date
+	 */
+	@JsonIgnore
+	public long getEpochDay() {
+		return getEpochDay(this.year, getMonth(), getDay(),
+				this.calendarModel == TimeValue.CM_JULIAN_PRO);
+	}
+
+	/**
+	 * Compares the points in time of this value and the given value,
+	 * ignoring precision, tolerances and the timezone offset, which is only
+	 * used for display. Values are compared by their epoch days (see
+	 * {@link #getEpochDay()}) and then by their time of day, also if they use
+	 * the same calendar model, so that the order stays consistent when a
+	 * month or day of 0 or beyond the end of the month is mixed with values
+	 * in another calendar model.
+	 *
+	 * @param other
+	 *            the value to compare with
+	 * @return a negative number, zero or a positive number if this value is
+	 *         earlier than, at the same time as, or later than the other value
+	 */
+	public int compareTimeTo(TimeValue other) {
+		int result = Long.compare(getEpochDay(), getEpochDay(other.getYear(),
+				other.getMonth(), other.getDay(),
+				TimeValue.CM_JULIAN_PRO.equals(other.getPreferredCalendarModel())));
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(
+				(getHour() * 60 + getMinute()) * 60 + getSecond(),
+				(other.getHour() * 60 + other.getMinute()) * 60
+						+ other.getSecond());
 	}
 
 	@Override
@@ -213,23 +331,23 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 	@Override
 	public TimeValue toGregorian() {
 		// already in Gregorian calendar
-		if (this.getPreferredCalendarModel().equals(TimeValue.CM_GREGORIAN_PRO)) {
+		if (this.calendarModel == TimeValue.CM_GREGORIAN_PRO) {
 			return this;
 		}
 
 		// convert Julian
-		if (this.getPreferredCalendarModel().equals(TimeValue.CM_JULIAN_PRO)
+		if (this.calendarModel == TimeValue.CM_JULIAN_PRO
 				&& this.getPrecision() >= TimeValue.PREC_DAY
-				&& this.value.year > Integer.MIN_VALUE && this.value.year < Integer.MAX_VALUE
+				&& this.year > Integer.MIN_VALUE && this.year < Integer.MAX_VALUE
 		) {
 			try {
-				final JulianDate julian = JulianDate.of((int) this.value.year, this.value.month, this.value.day);
+				final JulianDate julian = JulianDate.of((int) this.year, getMonth(), getDay());
 				final LocalDate date = LocalDate.from(julian);
 				return new TimeValueImpl(
 						date.getYear(), (byte) date.getMonth().getValue(), (byte) date.getDayOfMonth(),
-						this.value.hour, this.value.minute, this.value.second,
-						(byte) this.value.precision, this.value.before, this.value.after,
-						this.value.timezone, TimeValue.CM_GREGORIAN_PRO
+						getHour(), getMinute(), getSecond(),
+						getPrecision(), this.before, this.after,
+						this.timezone, TimeValue.CM_GREGORIAN_PRO
 				);
 			} catch(DateTimeException e) {
 				return null;
@@ -240,6 +358,79 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 		return null;
 	}
 
+	/**
+	 * Returns the epoch day of the given date, see {@link #getEpochDay()}.
+	 * The computation follows the algorithm "days_from_civil" of Howard
+	 * Hinnant, which counts years from March so that leap days come last.
+	 */
+	static long getEpochDay(long year, int month, int day, boolean julian) {
+		month = Math.max(month, 1);
+		day = Math.max(day, 1);
+		long marchYear = month <= 2 ? year - 1 : year;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5
+				+ day - 1;
+		if (julian) {
+			long cycle = Math.floorDiv(marchYear, 4);
+			long yearOfCycle = marchYear - cycle * 4;
+			return cycle * 1461 + yearOfCycle * 365 + dayOfYear - 719470;
+		}
+		long era = Math.floorDiv(marchYear, 400);
+		long yearOfEra = marchYear - era * 400;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+				+ dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static long packFields(byte month, byte day, byte hour,
+			byte minute, byte second, byte precision) {
+		return (month & 0xFFL) << 40 | (day & 0xFFL) << 32
+				| (hour & 0xFFL) << 24 | (minute & 0xFFL) << 16
+				| (second & 0xFFL) << 8 | (precision & 0xFFL);
+	}
+
+	private static String internCalendarModel(String calendarModel) {
+		if (TimeValue.CM_GREGORIAN_PRO.equals(calendarModel)) {
+			return TimeValue.CM_GREGORIAN_PRO;
+		} else if (TimeValue.CM_JULIAN_PRO.equals(calendarModel)) {
+			return TimeValue.CM_JULIAN_PRO;
+		}
+		return calendarModel;
+	}
+
+	/**
+	 * Composes the time string used in JSON, with the same result as the
+	 * format "%+04d-%02d-%02dT%02d:%02d:%02dZ".
+	 */
+	static String formatTime(long year, byte month, byte day, byte hour,
+			byte minute, byte second) {
+		StringBuilder builder = new StringBuilder(24);
+		String yearDigits = Long.toString(year);
+		int start = 0;
+		if (year < 0) {
+			builder.append('-');
+			start = 1;
+		} else {
+			builder.append('+');
+		}
+		for (int i = yearDigits.length() - start; i < 3; i++) {
+			builder.append('0');
+		}
+		builder.append(yearDigits, start, yearDigits.length());
+		appendTwoDigits(builder.append('-'), month);
+		appendTwoDigits(builder.append('-'), day);
+		appendTwoDigits(builder.append('T'), hour);
+		appendTwoDigits(builder.append(':'), minute);
+		appendTwoDigits(builder.append(':'), second);
+		return builder.append('Z').toString();
+	}
+
+	private static void appendTwoDigits(StringBuilder builder, byte value) {
+		if (value >= 0 && value < 10) {
+			builder.append('0');
+		}
+		builder.append(value);
+	}
+
 	/**
 	 * Helper object that represents the JSON object structure of the value.
 	 */
@@ -353,25 +544,52 @@ public class TimeValueImpl extends ValueImpl implements TimeValue {
 		 * Helper method to decompose the time string into its parts.
 		 */
 		private void decomposeTimeString() {
-			// decompose the time string into its parts
-			String[] substrings = time.split("(?<!\\A)[\\-:TZ]");
-
-			// get the components of the date
-			this.year = Long.parseLong(substrings[0]);
-			this.month = Byte.parseByte(substrings[1]);
-			this.day = Byte.parseByte(substrings[2]);
-			this.hour = Byte.parseByte(substrings[3]);
-			this.minute = Byte.parseByte(substrings[4]);
-			this.second = Byte.parseByte(substrings[5]);
+			// the components are separated by any of "-:TZ", where a
+			// leading "-" is the sign of the year
+			int end = nextSeparator(1);
+			this.year = Long.parseLong(time, 0, end, 10);
+			int start = end + 1;
+			end = nextSeparator(start);
+			this.month = parseByte(start, end);
+			start = end + 1;
+			end = nextSeparator(start);
+			this.day = parseByte(start, end);
+			start = end + 1;
+			end = nextSeparator(start);
+			this.hour = parseByte(start, end);
+			start = end + 1;
+			end = nextSeparator(start);
+			this.minute = parseByte(start, end);
+			start = end + 1;
+			end = nextSeparator(start);
+			this.second = parseByte(start, end);
+		}
+
+		private int nextSeparator(int start) {
+			for (int i = start; i < time.length(); i++) {
+				char c = time.charAt(i);
+				if (c == '-' || c == ':' || c == 'T' || c == 'Z') {
+					return i;
+				}
+			}
+			return time.length();
+		}
+
+		private byte parseByte(int start, int end) {
+			int result = Integer.parseInt(time, start, end, 10);
+			if (result < Byte.MIN_VALUE || result > Byte.MAX_VALUE) {
+				throw new NumberFormatException("Value out of range in time \""
+						+ time + "\"");
+			}
+			return (byte) result;
 		}
 
 		/**
 		 * Helper method to compose the time string from its components.
 		 */
 		private String composeTimeString() {
-			return String.format("%+04d-%02d-%02dT%02d:%02d:%02dZ",
-					this.year, this.month, this.day, this.hour, this.minute,
-					this.second);
+			return formatTime(this.year, this.month, this.day, this.hour,
+					this.minute, this.second);
 		}
 
 		/**
@@ -857,4 +857,19 @@ public interface DataObjectFactory {
 			Map<String, AliasUpdate> aliases,
 			StatementUpdate statements);
 
+	/**
+	 * Returns true if the given object belongs to the implementation of this
+	 * factory, i.e., if it could have been created by this factory. Such
+	 * objects can be used instead of copies, for example by
+	 * {@link org.wikidata.wdtk.datamodel.helpers.DatamodelConverter} in
+	 * structural sharing mode. The default implementation returns false.
+	 *
+	 * @param object
+	 *            the object to check
+	 * @return true if the object can be used as an object of this factory
+	 */
+	default boolean isOwnObject(Object object) {
+		return false;
+	}
+
 }
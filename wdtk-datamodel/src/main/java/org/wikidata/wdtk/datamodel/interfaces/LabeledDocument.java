@@ -46,10 +46,23 @@ public interface LabeledDocument extends EntityDocument {
 	 * @return the label string or null if it does not exists
 	 */
 	default String findLabel(String languageCode) {
-		MonolingualTextValue value = this.getLabels().get(languageCode);
+		MonolingualTextValue value = this.getLabel(languageCode);
 		return (value != null) ? value.getText() : null;
 	}
 
+	/**
+	 * Returns the label for the given language code, or null if there is no
+	 * label for this code. Implementations may provide this without creating
+	 * the map of {@link #getLabels()}.
+	 *
+	 * @param languageCode
+	 *            a string that represents language
+	 * @return the label or null if it does not exists
+	 */
+	default MonolingualTextValue getLabel(String languageCode) {
+		return this.getLabels().get(languageCode);
+	}
+
 	/**
 	 * Returns a copy of this document with an updated revision id.
 	 */
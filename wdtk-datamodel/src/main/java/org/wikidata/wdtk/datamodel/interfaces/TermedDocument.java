@@ -20,6 +20,7 @@ package org.wikidata.wdtk.datamodel.interfaces;
  * #L%
  */
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -56,10 +57,39 @@ public interface TermedDocument extends LabeledDocument {
 	 * @return the description string or null if it does not exists
 	 */
 	default String findDescription(String languageCode) {
-		MonolingualTextValue value = this.getDescriptions().get(languageCode);
+		MonolingualTextValue value = this.getDescription(languageCode);
 		return (value != null) ? value.getText() : null;
 	}
 
+	/**
+	 * Returns the description for the given language code, or null if there
+	 * is no description for this code. Implementations may provide this
+	 * without creating the map of {@link #getDescriptions()}.
+	 *
+	 * @param languageCode
+	 *            a string that represents language
+	 * @return the description or null if it does not exists
+	 */
+	default MonolingualTextValue getDescription(String languageCode) {
+		return this.getDescriptions().get(languageCode);
+	}
+
+	/**
+	 * Returns the aliases for the given language code, in their original
+	 * order. This is a convenience method for accessing the data that can be
+	 * obtained via {@link #getAliases()}, which implementations may provide
+	 * without creating the whole map.
+	 *
+	 * @param languageCode
+	 *            a string that represents language
+	 * @return the unmodifiable list of aliases, which is empty if there are
+	 *         no aliases for this code
+	 */
+	default List<MonolingualTextValue> getAliases(String languageCode) {
+		List<MonolingualTextValue> aliases = this.getAliases().get(languageCode);
+		return (aliases != null) ? aliases : Collections.emptyList();
+	}
+
 	/**
 	 * Returns a copy of this document with an updated revision id.
 	 */
@@ -53,6 +53,7 @@ import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
 import org.wikidata.wdtk.datamodel.interfaces.SenseDocument;
 import org.wikidata.wdtk.datamodel.interfaces.SenseIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.Snak;
@@ -296,7 +297,121 @@ public class DatamodelConverterTest {
                 Collections.emptyList());
         assertEquals(document, converter.copy(document));
     }
-	
+
+	@Test
+	public void testStructuralSharingReusesOwnObjects() {
+		StatementGroup sg = getTestStatementGroup(2, 5, 1, EntityIdValue.ET_ITEM);
+		ItemDocument item = Datamodel.makeItemDocument(
+				getTestItemIdValue(2),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue("label", "en")),
+				Collections.emptyList(),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue("alias", "en")),
+				Collections.singletonList(sg),
+				Collections.singletonMap("enwiki", Datamodel.makeSiteLink("foo", "enwiki", Collections.emptyList())));
+
+		DatamodelConverter converter = new DatamodelConverter(new DataObjectFactoryImpl());
+		assertFalse(converter.isStructuralSharing());
+		assertNotSame(item, converter.copy(item));
+
+		converter.setStructuralSharing(true);
+		assertTrue(converter.isStructuralSharing());
+		assertSame(item, converter.copy(item));
+		assertSame(sg, converter.copy(sg));
+		assertSame(sg.getStatements().get(0), converter.copy(sg.getStatements().get(0)));
+	}
+
+	@Test
+	public void testStructuralSharingRebuildsChangedContainers() {
+		// instances of a subclass do not belong to the implementation package
+		ItemIdValue foreignValue = new ItemIdValueImpl("Q3", Datamodel.SITE_WIKIDATA) {
+		};
+		Statement foreignStatement = Datamodel.makeStatement(
+				getTestItemIdValue(2),
+				Datamodel.makeValueSnak(getTestPropertyIdValue(4), foreignValue),
+				Collections.emptyList(), Collections.emptyList(),
+				StatementRank.NORMAL, "id");
+		StatementGroup sg1 = Datamodel.makeStatementGroup(Collections
+				.singletonList(foreignStatement));
+		StatementGroup sg2 = getTestStatementGroup(2, 5, 1, EntityIdValue.ET_ITEM);
+		List<StatementGroup> sgs = new ArrayList<>();
+		sgs.add(sg1);
+		sgs.add(sg2);
+		ItemDocument item = Datamodel.makeItemDocument(
+				getTestItemIdValue(2),
+				Collections.emptyList(),
+				Collections.emptyList(),
+				Collections.emptyList(), sgs,
+				Collections.emptyMap());
+
+		DatamodelConverter converter = new DatamodelConverter(new DataObjectFactoryImpl());
+		converter.setStructuralSharing(true);
+		ItemDocument copy = converter.copy(item);
+
+		assertEquals(item, copy);
+		assertNotSame(item, copy);
+		Statement statementCopy = copy.findStatementGroup(sg1.getProperty())
+				.getStatements().get(0);
+		assertNotSame(foreignStatement, statementCopy);
+		assertSame(foreignStatement.getSubject(), statementCopy.getSubject());
+		assertSame(sg2.getStatements().get(0),
+				copy.findStatementGroup(sg2.getProperty()).getStatements().get(0));
+	}
+
+	@Test
+	public void testStructuralSharingCopiesForeignContainers() {
+		StatementGroup sg = getTestStatementGroup(2, 5, 1, EntityIdValue.ET_ITEM);
+		List<Statement> statements = new ArrayList<>(sg.getStatements());
+		// all statements are shared, but the group itself is foreign
+		StatementGroup foreignGroup = new StatementGroupImpl(statements) {
+		};
+
+		DatamodelConverter converter = new DatamodelConverter(new DataObjectFactoryImpl());
+		converter.setStructuralSharing(true);
+		StatementGroup copy = converter.copy(foreignGroup);
+		assertNotSame(foreignGroup, copy);
+		assertSame(statements.get(0), copy.getStatements().get(0));
+
+		statements.add(statements.get(0));
+		assertEquals(sg.size(), copy.size());
+	}
+
+	@Test
+	public void testStructuralSharingCopiesStatementGroupsOnce() {
+		ItemIdValue foreignValue = new ItemIdValueImpl("Q3", Datamodel.SITE_WIKIDATA) {
+		};
+		Statement foreignStatement = Datamodel.makeStatement(
+				getTestItemIdValue(2),
+				Datamodel.makeValueSnak(getTestPropertyIdValue(4), foreignValue),
+				Collections.emptyList(), Collections.emptyList(),
+				StatementRank.NORMAL, "id");
+		ItemDocument item = Datamodel.makeItemDocument(
+				getTestItemIdValue(2),
+				Collections.emptyList(),
+				Collections.emptyList(),
+				Collections.emptyList(),
+				Collections.singletonList(Datamodel.makeStatementGroup(
+						Collections.singletonList(foreignStatement))),
+				Collections.emptyMap());
+
+		List<Statement> createdStatements = new ArrayList<>();
+		DatamodelConverter converter = new DatamodelConverter(new DataObjectFactoryImpl() {
+			@Override
+			public Statement getStatement(EntityIdValue subject, Snak mainSnak,
+					List<SnakGroup> qualifiers, List<Reference> references,
+					StatementRank rank, String statementId) {
+				Statement statement = super.getStatement(subject, mainSnak,
+						qualifiers, references, rank, statementId);
+				createdStatements.add(statement);
+				return statement;
+			}
+		});
+		converter.setStructuralSharing(true);
+		ItemDocument copy = converter.copy(item);
+
+		assertEquals(item, copy);
+		assertEquals(1, createdStatements.size());
+	}
+
 	public enum ValueType {
 		STRING, ITEM, GLOBE_COORDINATES, TIME, QUANTITY, MONOLINGUAL_TEXT;
 
@@ -27,6 +27,8 @@ import org.wikidata.wdtk.datamodel.interfaces.*;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class DatamodelFilterTest {
 
@@ -530,4 +532,29 @@ public class DatamodelFilterTest {
 
 		assertEquals(itemDocumentFiltered, filter.filter(itemDocument));
 	}
+
+	@Test
+	public void testUnchangedItemIsNotCopied() {
+		DocumentDataFilter documentDataFilter = new DocumentDataFilter();
+		documentDataFilter.setLanguageFilter(Collections.singleton("en"));
+		documentDataFilter.setSiteLinkFilter(Collections.singleton("enwiki"));
+		DatamodelFilter filter = new DatamodelFilter(new DataObjectFactoryImpl(), documentDataFilter);
+
+		ItemDocument itemDocument = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue("Label en", "en")),
+				Collections.emptyList(),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue("Alias en", "en")),
+				Collections.emptyList(),
+				Collections.singletonMap("enwiki", Datamodel.makeSiteLink("Title", "enwiki", Collections.emptyList()))
+		);
+
+		assertSame(itemDocument, filter.filter(itemDocument));
+
+		ItemDocument withGermanLabel = itemDocument.withLabel(
+				Datamodel.makeMonolingualTextValue("Label de", "de"));
+		ItemDocument filtered = filter.filter(withGermanLabel);
+		assertNotSame(withGermanLabel, filtered);
+		assertEquals(itemDocument, filtered);
+	}
 }
@@ -112,6 +112,25 @@ public class FormDocumentImplTest {
 		assertEquals(fd1.hashCode(), fd2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(fd1, fd2);
+		int hash = fd1.hashCode();
+		// hash code computed on one side only
+		assertEquals(fd1, fd2);
+		assertEquals(fd2, fd1);
+		assertEquals(hash, fd2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(fd1, fd2);
+
+		FormDocument fdDiffRevision = fd1.withRevisionId(1235);
+		assertNotEquals(fd1, fdDiffRevision);
+		fdDiffRevision.hashCode();
+		assertNotEquals(fd1, fdDiffRevision);
+		assertNotEquals(fdDiffRevision, fd1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new FormDocumentImpl(null, repList, gramFeatures, statementGroups, 1234);
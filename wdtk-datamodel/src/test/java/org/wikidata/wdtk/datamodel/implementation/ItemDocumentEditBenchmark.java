@@ -0,0 +1,156 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+/**
+ * Measures the time needed to apply many small edits to an item with
+ * {@link ItemDocument#withStatement(Statement)} and the other methods that
+ * create modified copies, as a bot would do when it prepares a large edit.
+ * <p>
+ * Run the main method to print the results. The optional arguments are the
+ * number of statements to add and the number of statements of the initial
+ * item.
+ */
+public class ItemDocumentEditBenchmark {
+
+	static final ItemIdValue SUBJECT = Datamodel.makeWikidataItemIdValue("Q42");
+
+	/**
+	 * Creates a statement with the given number and rank. The statements are
+	 * spread over 50 properties.
+	 */
+	static Statement makeStatement(int number, StatementRank rank) {
+		PropertyIdValue property = Datamodel.makeWikidataPropertyIdValue("P"
+				+ (1 + number % 50));
+		return Datamodel.makeStatement(SUBJECT, Datamodel.makeValueSnak(
+				property, Datamodel.makeWikidataItemIdValue("Q" + (1000 + number))),
+				Collections.emptyList(), Collections.emptyList(),
+				rank, "Q42$" + number);
+	}
+
+	/**
+	 * Creates an item with the given number of statements.
+	 */
+	static ItemDocument makeItem(int statements) {
+		return addStatements(Datamodel.makeItemDocument(SUBJECT,
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyMap()), 0, statements);
+	}
+
+	/**
+	 * Adds statements with the given numbers to the item, one at a time.
+	 */
+	static ItemDocument addStatements(ItemDocument item, int first, int count) {
+		for (int i = first; i < first + count; i++) {
+			item = item.withStatement(makeStatement(i, StatementRank.NORMAL));
+		}
+		return item;
+	}
+
+	/**
+	 * Replaces the statements with the given numbers, one at a time, and
+	 * changes a label after each of them.
+	 */
+	static ItemDocument replaceStatements(ItemDocument item, int count) {
+		for (int i = 0; i < count; i++) {
+			item = item.withStatement(makeStatement(i, StatementRank.PREFERRED))
+					.withLabel(Datamodel.makeMonolingualTextValue("label " + i, "en"));
+		}
+		return item;
+	}
+
+	/**
+	 * Removes the statements with the given numbers, in batches of ten.
+	 */
+	static ItemDocument removeStatements(ItemDocument item, int count) {
+		for (int i = 0; i < count; i += 10) {
+			Set<String> ids = new HashSet<>();
+			for (int j = i; j < Math.min(count, i + 10); j++) {
+				ids.add("Q42$" + j);
+			}
+			item = item.withoutStatementIds(ids);
+		}
+		return item;
+	}
+
+	/**
+	 * Removes the statements with the given numbers one at a time, and adds
+	 * each of them again with a different rank.
+	 */
+	static ItemDocument removeAndAddStatements(ItemDocument item, int count) {
+		for (int i = 0; i < count; i++) {
+			item = item.withoutStatementIds(Collections.singleton("Q42$" + i))
+					.withStatement(makeStatement(i, StatementRank.DEPRECATED));
+		}
+		return item;
+	}
+
+	public static void main(String[] args) {
+		int additions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int initial = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+		for (int round = 0; round < 3; round++) {
+			long start = System.nanoTime();
+			ItemDocument item = makeItem(initial);
+			long created = System.nanoTime();
+			item = addStatements(item, initial, additions);
+			long added = System.nanoTime();
+			item = replaceStatements(item, initial);
+			long replaced = System.nanoTime();
+			item = removeAndAddStatements(item, initial);
+			long mixed = System.nanoTime();
+			item = removeStatements(item, initial);
+			long removed = System.nanoTime();
+
+			System.out.printf(
+					"round %d: create %d statements %7.1f ms, add %d %7.1f ms, replace %d %7.1f ms, remove and add %d %7.1f ms, remove %d %7.1f ms (%d statements left)%n",
+					round, initial, (created - start) / 1e6, additions,
+					(added - created) / 1e6, initial, (replaced - added) / 1e6,
+					initial, (mixed - replaced) / 1e6,
+					initial, (removed - mixed) / 1e6, countStatements(item));
+		}
+	}
+
+	/**
+	 * Returns the number of statements of the item.
+	 */
+	static int countStatements(ItemDocument item) {
+		int count = 0;
+		for (StatementGroup group : item.getStatementGroups()) {
+			count += group.size();
+		}
+		return count;
+	}
+
+}
@@ -25,8 +25,10 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
@@ -102,6 +104,31 @@ public class ItemDocumentImplTest {
 		assertNull( ir1.findDescription("ja"));
 	}
 
+	@Test
+	public void getTermsByLanguage() {
+		assertEquals(label, ir1.getLabel("en"));
+		assertNull(ir1.getLabel("ja"));
+		assertEquals(desc, ir1.getDescription("fr"));
+		assertNull(ir1.getDescription("ja"));
+		assertEquals(Collections.singletonList(alias), ir1.getAliases("de"));
+		assertEquals(Collections.emptyList(), ir1.getAliases("ja"));
+		// the result does not depend on whether the map of aliases was created
+		ir1.getAliases();
+		assertEquals(Collections.singletonList(alias), ir1.getAliases("de"));
+	}
+
+	@Test
+	public void termMapsAreCached() {
+		assertSame(ir1.getLabels(), ir1.getLabels());
+		assertSame(ir1.getDescriptions(), ir1.getDescriptions());
+		assertSame(ir1.getAliases(), ir1.getAliases());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void aliasesAreUnmodifiable() {
+		ir1.getAliases("de").clear();
+	}
+
 	@Test
 	public void equalityBasedOnContent() {
 		ItemDocument irDiffLabel = new ItemDocumentImpl(iid,
@@ -156,6 +183,25 @@ public class ItemDocumentImplTest {
 		assertEquals(ir1.hashCode(), ir2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(ir1, ir2);
+		int hash = ir1.hashCode();
+		// hash code computed on one side only
+		assertEquals(ir1, ir2);
+		assertEquals(ir2, ir1);
+		assertEquals(hash, ir2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(ir1, ir2);
+
+		ItemDocument irDiffRevision = ir1.withRevisionId(1235);
+		assertNotEquals(ir1, irDiffRevision);
+		irDiffRevision.hashCode();
+		assertNotEquals(ir1, irDiffRevision);
+		assertNotEquals(irDiffRevision, ir1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new ItemDocumentImpl(null,
@@ -315,6 +361,56 @@ public class ItemDocumentImplTest {
 		assertNotEquals(withoutStatement, ir1);
 	}
 
+	private Statement makeEditStatement(int number, StatementRank rank) {
+		return new StatementImpl("Q42$" + number, rank,
+				new ValueSnakImpl(new PropertyIdValueImpl("P" + (1 + number % 50), "http://example.com/entity/"),
+						new ItemIdValueImpl("Q" + (1000 + number), "http://example.com/entity/")),
+				Collections.emptyList(), Collections.emptyList(), iid);
+	}
+
+	private int countStatements(ItemDocument item) {
+		int count = 0;
+		for (StatementGroup group : item.getStatementGroups()) {
+			count += group.size();
+		}
+		return count;
+	}
+
+	@Test
+	public void testRepeatedEdits() {
+		ItemDocument original = ir1.withoutStatementIds(Collections.singleton("MyId"));
+		ItemDocument item = original;
+		for (int i = 0; i < 300; i++) {
+			item = item.withStatement(makeEditStatement(i, StatementRank.NORMAL));
+		}
+		ItemDocument added = item;
+		for (int i = 0; i < 100; i++) {
+			item = item.withStatement(makeEditStatement(i, StatementRank.PREFERRED))
+					.withLabel(new TermImpl("en", "label " + i));
+		}
+		assertEquals(300, countStatements(item));
+		assertEquals(50, item.getStatementGroups().size());
+		assertEquals("label 99", item.findLabel("en"));
+		assertEquals(StatementRank.PREFERRED, item.findStatementGroup("P2")
+				.getStatements().get(0).getRank());
+
+		for (int i = 0; i < 250; i += 10) {
+			Set<String> ids = new HashSet<>();
+			for (int j = i; j < i + 10; j++) {
+				ids.add("Q42$" + j);
+			}
+			item = item.withoutStatementIds(ids);
+		}
+		assertEquals(50, countStatements(item));
+
+		// earlier versions are not affected by the edits
+		assertEquals(0, countStatements(original));
+		assertEquals(300, countStatements(added));
+		assertEquals(StatementRank.NORMAL, added.findStatementGroup("P2")
+				.getStatements().get(0).getRank());
+		assertEquals("label", added.findLabel("en"));
+	}
+
 	@Test
 	public void testLabelsToJson() throws JsonProcessingException {
 		ItemDocumentImpl document = new ItemDocumentImpl(iid,
@@ -0,0 +1,145 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+/**
+ * Measures the time needed to parse entity documents with the
+ * {@link StreamingDeserializerModule} of {@link DatamodelMapper}, compared
+ * to a mapper that only uses the Jackson annotations of the datamodel
+ * classes. The sample documents are the real Wikidata entities that are
+ * used by the deserialization tests, one JSON document per line as in a
+ * dump file.
+ * <p>
+ * Run the main method to print the results. The optional argument is the
+ * number of times that each document is parsed.
+ */
+public class JsonParseBenchmark {
+
+	static final String[] SAMPLE_FILES = { "item.json", "property.json",
+			"lexeme.json" };
+
+	/**
+	 * Loads the sample documents, each as a single line of JSON.
+	 */
+	static List<String> loadSampleLines() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		List<String> lines = new ArrayList<>();
+		for (String file : SAMPLE_FILES) {
+			try (InputStream stream = JsonParseBenchmark.class.getClassLoader()
+					.getResourceAsStream("JsonDeserializer/" + file)) {
+				String json = IOUtils.toString(stream, StandardCharsets.UTF_8);
+				lines.add(mapper.writeValueAsString(mapper.readTree(json)));
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns a reader for entity documents that uses the streaming
+	 * deserializers.
+	 */
+	static ObjectReader makeStreamingReader() {
+		return new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+				.readerFor(EntityDocumentImpl.class)
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+	}
+
+	/**
+	 * Returns a mapper that only uses the Jackson annotations, as
+	 * {@link DatamodelMapper} did before it registered the streaming
+	 * deserializers.
+	 */
+	static ObjectMapper makeAnnotationMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.setInjectableValues(new InjectableValues.Std().addValue(
+				"siteIri", Datamodel.SITE_WIKIDATA));
+		mapper.registerModule(new Jdk8Module());
+		return mapper;
+	}
+
+	/**
+	 * Returns a reader for entity documents that only uses the Jackson
+	 * annotations.
+	 */
+	static ObjectReader makeAnnotationReader() {
+		return makeAnnotationMapper().readerFor(EntityDocumentImpl.class)
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+	}
+
+	/**
+	 * Parses all lines the given number of times and returns the documents
+	 * of the last round.
+	 */
+	static List<EntityDocument> parse(ObjectReader reader, List<String> lines,
+			int rounds) throws IOException {
+		List<EntityDocument> documents = new ArrayList<>(lines.size());
+		for (int i = 0; i < rounds; i++) {
+			documents.clear();
+			for (String line : lines) {
+				documents.add(reader.readValue(line));
+			}
+		}
+		return documents;
+	}
+
+	private static long measure(ObjectReader reader, List<String> lines,
+			int rounds) throws IOException {
+		long start = System.nanoTime();
+		parse(reader, lines, rounds);
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		List<String> lines = loadSampleLines();
+		ObjectReader streamingReader = makeStreamingReader();
+		ObjectReader annotationReader = makeAnnotationReader();
+
+		// warm up both code paths
+		parse(streamingReader, lines, rounds / 10);
+		parse(annotationReader, lines, rounds / 10);
+
+		System.out.println("Parsing " + lines.size() + " documents "
+				+ rounds + " times:");
+		System.out.println("- annotations only: "
+				+ measure(annotationReader, lines, rounds) + " ms");
+		System.out.println("- streaming:        "
+				+ measure(streamingReader, lines, rounds) + " ms");
+	}
+
+}
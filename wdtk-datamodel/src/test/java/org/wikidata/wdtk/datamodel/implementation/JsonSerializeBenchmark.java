@@ -0,0 +1,108 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Measures the time needed to serialize entity documents with the
+ * {@link StreamingSerializerModule} of {@link DatamodelMapper}, compared to
+ * a mapper that only uses the Jackson annotations of the datamodel classes.
+ * The documents are the samples of {@link JsonParseBenchmark}.
+ * <p>
+ * Run the main method to print the results. The optional argument is the
+ * number of times that each document is serialized.
+ */
+public class JsonSerializeBenchmark {
+
+	/**
+	 * Parses the sample documents of {@link JsonParseBenchmark}.
+	 */
+	static List<EntityDocument> loadSampleDocuments() throws IOException {
+		return JsonParseBenchmark.parse(
+				JsonParseBenchmark.makeAnnotationReader(),
+				JsonParseBenchmark.loadSampleLines(), 1);
+	}
+
+	/**
+	 * Returns a writer that uses the streaming serializers.
+	 */
+	static ObjectWriter makeStreamingWriter() {
+		return new DatamodelMapper(Datamodel.SITE_WIKIDATA).writer();
+	}
+
+	/**
+	 * Returns a writer that only uses the Jackson annotations.
+	 */
+	static ObjectWriter makeAnnotationWriter() {
+		return JsonParseBenchmark.makeAnnotationMapper().writer();
+	}
+
+	/**
+	 * Serializes all documents the given number of times and returns the
+	 * JSON of the last round.
+	 */
+	static List<String> serialize(ObjectWriter writer,
+			List<EntityDocument> documents, int rounds) throws IOException {
+		List<String> lines = new ArrayList<>(documents.size());
+		for (int i = 0; i < rounds; i++) {
+			lines.clear();
+			for (EntityDocument document : documents) {
+				lines.add(writer.writeValueAsString(document));
+			}
+		}
+		return lines;
+	}
+
+	private static long measure(ObjectWriter writer,
+			List<EntityDocument> documents, int rounds) throws IOException {
+		long start = System.nanoTime();
+		serialize(writer, documents, rounds);
+		return (System.nanoTime() - start) / 1000000;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		List<EntityDocument> documents = loadSampleDocuments();
+		ObjectWriter streamingWriter = makeStreamingWriter();
+		ObjectWriter annotationWriter = makeAnnotationWriter();
+
+		// warm up both code paths
+		serialize(streamingWriter, documents, rounds / 10);
+		serialize(annotationWriter, documents, rounds / 10);
+
+		System.out.println("Serializing " + documents.size() + " documents "
+				+ rounds + " times:");
+		System.out.println("- annotations only: "
+				+ measure(annotationWriter, documents, rounds) + " ms");
+		System.out.println("- streaming:        "
+				+ measure(streamingWriter, documents, rounds) + " ms");
+	}
+
+}
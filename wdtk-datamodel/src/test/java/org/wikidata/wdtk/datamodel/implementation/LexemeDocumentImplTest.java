@@ -142,6 +142,25 @@ public class LexemeDocumentImplTest {
 		assertEquals(ld1.hashCode(), ld2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(ld1, ld2);
+		int hash = ld1.hashCode();
+		// hash code computed on one side only
+		assertEquals(ld1, ld2);
+		assertEquals(ld2, ld1);
+		assertEquals(hash, ld2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(ld1, ld2);
+
+		LexemeDocument ldDiffRevision = ld1.withRevisionId(1235);
+		assertNotEquals(ld1, ldDiffRevision);
+		ldDiffRevision.hashCode();
+		assertNotEquals(ld1, ldDiffRevision);
+		assertNotEquals(ldDiffRevision, ld1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new LexemeDocumentImpl(null, lexCat, language, lemmaList, statementGroups, forms, senses,  1234);
@@ -125,6 +125,25 @@ public class MediaInfoDocumentImplTest {
 		assertEquals(mi1.hashCode(), mi2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(mi1, mi2);
+		int hash = mi1.hashCode();
+		// hash code computed on one side only
+		assertEquals(mi1, mi2);
+		assertEquals(mi2, mi1);
+		assertEquals(hash, mi2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(mi1, mi2);
+
+		MediaInfoDocument miDiffRevision = mi1.withRevisionId(1235);
+		assertNotEquals(mi1, miDiffRevision);
+		miDiffRevision.hashCode();
+		assertNotEquals(mi1, miDiffRevision);
+		assertNotEquals(miDiffRevision, mi1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new MediaInfoDocumentImpl(null, Collections.emptyList(), statementGroups, 1234);
@@ -0,0 +1,106 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+public class PersistentClaimMapTest {
+
+	private final EntityIdValue subject = new ItemIdValueImpl("Q42", "http://wikidata.org/entity/");
+
+	private Statement makeStatement(String id, String propertyId) {
+		PropertyIdValue property = new PropertyIdValueImpl(propertyId, "http://wikidata.org/entity/");
+		return new StatementImpl(id, StatementRank.NORMAL, new ValueSnakImpl(property, subject),
+				Collections.emptyList(), Collections.emptyList(), subject);
+	}
+
+	@Test
+	public void testWithStatementsAndRemovals() {
+		Statement s1 = makeStatement("id1", "P1");
+		Statement s2 = makeStatement("id2", "P1");
+		Statement s3 = makeStatement("id3", "P2");
+		Map<String, List<Statement>> claims = new HashMap<>();
+		claims.put("P1", Arrays.asList(s1, s2));
+		claims.put("P2", Collections.singletonList(s3));
+
+		PersistentClaimMap map = PersistentClaimMap.from(claims);
+		assertEquals(claims, map);
+		assertSame(map, PersistentClaimMap.from(map));
+
+		PersistentClaimMap removed = map.withoutStatements(Collections.singleton("id1"));
+		assertEquals(Collections.singletonList(s2), removed.get("P1"));
+		assertTrue(removed.get("P1") instanceof PersistentStatementList);
+		assertSame(map.get("P2"), removed.get("P2"));
+
+		// the index is kept up to date by later changes
+		Statement s4 = makeStatement("id4", "P2");
+		PersistentClaimMap changed = removed.withStatement(s4)
+				.withoutStatements(new HashSet<>(Arrays.asList("id2", "id3", "unknown")));
+		assertNull(changed.get("P1"));
+		assertEquals(Collections.singletonList(s4), changed.get("P2"));
+		assertTrue(changed.withoutStatements(Collections.singleton("id4")).isEmpty());
+		assertEquals(claims, map);
+	}
+
+	@Test
+	public void testIdInSeveralGroups() {
+		Statement s1 = makeStatement("id1", "P1");
+		Statement s1Moved = makeStatement("id1", "P2");
+		Statement s2 = makeStatement("id2", "P2");
+
+		PersistentClaimMap map = PersistentClaimMap.from(Collections.emptyMap())
+				.withStatement(s1).withoutStatements(Collections.singleton("unknown"))
+				.withStatement(s2).withStatement(s1Moved);
+		assertEquals(Arrays.asList(s2, s1Moved), map.get("P2"));
+
+		PersistentClaimMap removed = map.withoutStatements(Collections.singleton("id1"));
+		assertNull(removed.get("P1"));
+		assertEquals(Collections.singletonList(s2), removed.get("P2"));
+	}
+
+	@Test
+	public void testRemoveEmptyIds() {
+		Statement noId = makeStatement("", "P1");
+		Statement s1 = makeStatement("id1", "P1");
+		PersistentClaimMap map = PersistentClaimMap.from(Collections.emptyMap())
+				.withStatement(noId).withStatement(s1);
+
+		assertEquals(Collections.singletonList(s1),
+				map.withoutStatements(Collections.singleton("")).get("P1"));
+	}
+
+}
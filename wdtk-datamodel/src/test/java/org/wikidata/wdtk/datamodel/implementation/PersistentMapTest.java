@@ -0,0 +1,144 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+	/**
+	 * Key with few different hash codes, to test collisions.
+	 */
+	static class CollidingKey {
+		final int id;
+
+		CollidingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id % 3;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+		}
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(42);
+		Map<Integer, Integer> expected = new LinkedHashMap<>();
+		PersistentMap<Integer, Integer> map = PersistentMap.empty();
+		for (int i = 0; i < 20000; i++) {
+			int key = random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.minus(key);
+			} else {
+				expected.put(key, i);
+				map = map.plus(key, i);
+			}
+		}
+		assertEquals(expected, map);
+		assertEquals(expected.hashCode(), map.hashCode());
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+		for (int key = 0; key < 2000; key++) {
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+		}
+	}
+
+	@Test
+	public void testOriginalUnchanged() {
+		PersistentMap<String, String> map = PersistentMap.<String, String>empty()
+				.plus("a", "1").plus("b", "2");
+		PersistentMap<String, String> changed = map.plus("a", "3").minus("b").plus("c", "4");
+
+		assertEquals("1", map.get("a"));
+		assertEquals("2", map.get("b"));
+		assertFalse(map.containsKey("c"));
+		assertEquals("3", changed.get("a"));
+		assertNull(changed.get("b"));
+		assertEquals(2, changed.size());
+	}
+
+	@Test
+	public void testInsertionOrder() {
+		Map<String, Integer> hashMap = new HashMap<>();
+		for (int i = 0; i < 100; i++) {
+			hashMap.put("P" + i, i);
+		}
+		PersistentMap<String, Integer> map = PersistentMap.from(hashMap);
+		assertEquals(new ArrayList<>(hashMap.keySet()), new ArrayList<>(map.keySet()));
+
+		map = map.plus("P5", -5).plus("P100", 100);
+		List<String> keys = new ArrayList<>(hashMap.keySet());
+		keys.add("P100");
+		assertEquals(keys, new ArrayList<>(map.keySet()));
+		assertEquals(-5, (int) map.get("P5"));
+	}
+
+	@Test
+	public void testCollisions() {
+		PersistentMap<CollidingKey, Integer> map = PersistentMap.empty();
+		for (int i = 0; i < 30; i++) {
+			map = map.plus(new CollidingKey(i), i);
+		}
+		for (int i = 0; i < 30; i += 2) {
+			map = map.minus(new CollidingKey(i));
+		}
+		assertEquals(15, map.size());
+		for (int i = 0; i < 30; i++) {
+			assertEquals(i % 2 == 0 ? null : i, map.get(new CollidingKey(i)));
+		}
+	}
+
+	@Test
+	public void testFromPersistentMap() {
+		PersistentMap<String, String> map = PersistentMap.<String, String>empty().plus("a", "1");
+		assertSame(map, PersistentMap.from(map));
+		assertSame(map, map.plus("a", map.get("a")));
+		assertSame(map, map.minus("b"));
+		assertTrue(map.minus("a").isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() {
+		PersistentMap.<String, String>empty().plus("a", "1").put("b", "2");
+	}
+
+}
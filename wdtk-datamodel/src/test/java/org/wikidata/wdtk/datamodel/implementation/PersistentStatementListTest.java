@@ -0,0 +1,134 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+public class PersistentStatementListTest {
+
+	private final EntityIdValue subject = new ItemIdValueImpl("Q42", "http://wikidata.org/entity/");
+	private final PropertyIdValue property = new PropertyIdValueImpl("P42", "http://wikidata.org/entity/");
+	private final Snak mainSnak = new ValueSnakImpl(property, subject);
+
+	private Statement makeStatement(String id, StatementRank rank) {
+		return new StatementImpl(id, rank, mainSnak,
+				Collections.emptyList(), Collections.emptyList(), subject);
+	}
+
+	@Test
+	public void testWithStatement() {
+		Statement s1 = makeStatement("id1", StatementRank.NORMAL);
+		Statement s2 = makeStatement("id2", StatementRank.NORMAL);
+		Statement s1Preferred = makeStatement("id1", StatementRank.PREFERRED);
+		Statement noId = makeStatement("", StatementRank.NORMAL);
+
+		PersistentStatementList list = PersistentStatementList.from(Collections.emptyList())
+				.withStatement(s1).withStatement(s2);
+		assertEquals(Arrays.asList(s1, s2), list);
+
+		PersistentStatementList changed = list.withStatement(s1Preferred)
+				.withStatement(noId).withStatement(noId);
+		assertEquals(Arrays.asList(s1Preferred, s2, noId, noId), changed);
+		assertEquals(Arrays.asList(s1, s2), list);
+		assertSame(changed, PersistentStatementList.from(changed));
+	}
+
+	@Test
+	public void testDuplicateIds() {
+		Statement s1 = makeStatement("id1", StatementRank.NORMAL);
+		Statement s2 = makeStatement("id2", StatementRank.NORMAL);
+		Statement s1Preferred = makeStatement("id1", StatementRank.PREFERRED);
+		Statement s3 = makeStatement("id3", StatementRank.NORMAL);
+
+		PersistentStatementList list = PersistentStatementList.from(Arrays.asList(s1, s2, s1));
+		assertEquals(Arrays.asList(s1Preferred, s2, s1Preferred, s3),
+				list.withStatement(s1Preferred).withStatement(s3));
+	}
+
+	@Test
+	public void testWithoutStatement() {
+		Statement s1 = makeStatement("id1", StatementRank.NORMAL);
+		Statement s2 = makeStatement("id2", StatementRank.NORMAL);
+		Statement s3 = makeStatement("id3", StatementRank.NORMAL);
+		Statement s2Preferred = makeStatement("id2", StatementRank.PREFERRED);
+
+		PersistentStatementList list = PersistentStatementList.from(Arrays.asList(s1, s2, s3));
+		PersistentStatementList removed = list.withoutStatement("id1");
+		assertEquals(Arrays.asList(s2, s3), removed);
+		assertEquals(s3, removed.get(1));
+		assertSame(removed, removed.withoutStatement("id1"));
+		assertEquals(Arrays.asList(s1, s2, s3), list);
+
+		// statements can be replaced and added after a removal
+		PersistentStatementList changed = removed.withStatement(s2Preferred)
+				.withStatement(s1);
+		assertEquals(Arrays.asList(s2Preferred, s3, s1), changed);
+		assertEquals(Arrays.asList(s2Preferred, s1), changed.withoutStatement("id3"));
+		assertTrue(list.withoutStatement("id1").withoutStatement("id2")
+				.withoutStatement("id3").isEmpty());
+	}
+
+	@Test
+	public void testWithoutStatementCompacts() {
+		List<Statement> expected = new ArrayList<>();
+		PersistentStatementList list = PersistentStatementList.from(Collections.emptyList());
+		for (int i = 0; i < 200; i++) {
+			Statement statement = makeStatement("id" + i, StatementRank.NORMAL);
+			list = list.withStatement(statement);
+			expected.add(statement);
+			if (i % 3 != 0) {
+				list = list.withoutStatement("id" + (i - 1));
+				expected.remove(expected.size() - 2);
+			}
+		}
+		assertEquals(expected, list);
+		assertEquals(expected.get(expected.size() - 1), list.get(list.size() - 1));
+	}
+
+	@Test
+	public void testWithoutDuplicateIds() {
+		Statement s1 = makeStatement("id1", StatementRank.NORMAL);
+		Statement s2 = makeStatement("id2", StatementRank.NORMAL);
+		Statement noId = makeStatement("", StatementRank.NORMAL);
+
+		PersistentStatementList list = PersistentStatementList.from(Arrays.asList(s1, s2, s1, noId));
+		assertEquals(Arrays.asList(s2, noId), list.withoutStatement("id1"));
+		assertEquals(Arrays.asList(s1, s2, s1), list.withoutStatement(""));
+		assertEquals(Collections.singletonList(noId),
+				list.withoutStatements(new HashSet<>(Arrays.asList("id1", "id2"))));
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PersistentVectorTest {
+
+	@Test
+	public void testEmpty() {
+		PersistentVector<String> vector = PersistentVector.empty();
+		assertTrue(vector.isEmpty());
+		assertEquals(new ArrayList<String>(), vector);
+	}
+
+	@Test
+	public void testPlusKeepsOriginal() {
+		PersistentVector<Integer> vector = PersistentVector.empty();
+		List<PersistentVector<Integer>> versions = new ArrayList<>();
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			versions.add(vector);
+			vector = vector.plus(i);
+			expected.add(i);
+		}
+		assertEquals(expected, vector);
+		for (int i = 0; i < versions.size(); i += 97) {
+			assertEquals(expected.subList(0, i), versions.get(i));
+		}
+	}
+
+	@Test
+	public void testWith() {
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			expected.add(i);
+		}
+		PersistentVector<Integer> original = PersistentVector.from(expected);
+		PersistentVector<Integer> vector = original;
+		for (int i = 0; i < 2000; i += 7) {
+			vector = vector.with(i, -i);
+		}
+		for (int i = 0; i < 2000; i++) {
+			assertEquals(i % 7 == 0 ? -i : i, (int) vector.get(i));
+			assertEquals(i, (int) original.get(i));
+		}
+	}
+
+	@Test
+	public void testFromVector() {
+		PersistentVector<String> vector = PersistentVector.from(Arrays.asList("a", "b"));
+		assertSame(vector, PersistentVector.from(vector));
+		assertEquals(Arrays.asList("a", "b"), vector);
+		assertEquals(Arrays.asList("a", "b").hashCode(), vector.hashCode());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds() {
+		PersistentVector.from(Arrays.asList("a", "b")).get(2);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutable() {
+		PersistentVector.from(Arrays.asList("a", "b")).add("c");
+	}
+
+}
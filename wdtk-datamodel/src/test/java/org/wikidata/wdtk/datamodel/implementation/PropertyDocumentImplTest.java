@@ -134,6 +134,25 @@ public class PropertyDocumentImplTest {
 		assertEquals(pd1.hashCode(), pd2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(pd1, pd2);
+		int hash = pd1.hashCode();
+		// hash code computed on one side only
+		assertEquals(pd1, pd2);
+		assertEquals(pd2, pd1);
+		assertEquals(hash, pd2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(pd1, pd2);
+
+		PropertyDocument pdDiffRevision = pd1.withRevisionId(1235);
+		assertNotEquals(pd1, pdDiffRevision);
+		pdDiffRevision.hashCode();
+		assertNotEquals(pd1, pdDiffRevision);
+		assertNotEquals(pdDiffRevision, pd1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new PropertyDocumentImpl(null, labelList, descList, aliasList,
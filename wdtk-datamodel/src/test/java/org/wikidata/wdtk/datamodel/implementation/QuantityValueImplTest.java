@@ -23,6 +23,7 @@ package org.wikidata.wdtk.datamodel.implementation;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 
 import java.io.IOException;
@@ -185,4 +186,58 @@ public class QuantityValueImplTest {
 	public void testUnboundedToJava() throws IOException {
 		assertEquals(q3, mapper.readValue(JSON_UNBOUNDED_QUANTITY_VALUE, ValueImpl.class));
 	}
+
+	@Test
+	public void compactValuesKeepRepresentation() {
+		BigDecimal amount = new BigDecimal("-1.50");
+		BigDecimal lower = new BigDecimal("-2");
+		BigDecimal upper = new BigDecimal("1E+3");
+		QuantityValue quantity = new QuantityValueImpl(amount, lower, upper, unitMeterId);
+		assertEquals("-1.50", quantity.getNumericValue().toString());
+		assertEquals("-2", quantity.getLowerBound().toString());
+		assertEquals("1E+3", quantity.getUpperBound().toString());
+		assertNull(new QuantityValueImpl(amount, null, null, unitMeterId).getLowerBound());
+	}
+
+	@Test
+	public void testCompactToJson() throws IOException {
+		String json = "{\"value\":{\"amount\":\"+42.195\",\"lowerBound\":\"+42.190\",\"upperBound\":\"+42.200\",\"unit\":\"http://wikidata.org/entity/Q11573\"},\"type\":\"quantity\"}";
+		ValueImpl quantity = mapper.readValue(json, ValueImpl.class);
+		assertEquals(new QuantityValueImpl(new BigDecimal("42.195"), new BigDecimal("42.190"),
+				new BigDecimal("42.200"), unitMeterId), quantity);
+		JsonComparator.compareJsonStrings(json, mapper.writeValueAsString(quantity));
+	}
+
+	@Test
+	public void numericValueAsDouble() {
+		for (String number : new String[] { "0", "-1.50", "1E+3", "0.1", "123456789.123456",
+				"1234567890123456789", "0.000000000000000000000000001" }) {
+			QuantityValueImpl quantity = new QuantityValueImpl(new BigDecimal(number), null, null, (ItemIdValue) null);
+			assertEquals(new BigDecimal(number).doubleValue(), quantity.getNumericValueAsDouble(), 0);
+		}
+		assertEquals(nv.doubleValue(), ((QuantityValueImpl) q1).getNumericValueAsDouble(), 0);
+	}
+
+	@Test
+	public void compareNumericValues() {
+		String[] numbers = { "-9223372036854775807", "-1E+3", "-2.5", "0.00", "0", "0.1",
+				"0.123456789012345678901234567890123456789", "1.5", "1.50", "92233720368547758.07" };
+		for (String first : numbers) {
+			for (String second : numbers) {
+				QuantityValueImpl quantity1 = new QuantityValueImpl(new BigDecimal(first), null, null, (ItemIdValue) null);
+				QuantityValueImpl quantity2 = new QuantityValueImpl(new BigDecimal(second), null, null, (ItemIdValue) null);
+				assertEquals(first + " vs " + second,
+						Integer.signum(new BigDecimal(first).compareTo(new BigDecimal(second))),
+						Integer.signum(quantity1.compareNumericValueTo(quantity2)));
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void unitsAreShared() {
+		QuantityValue quantity1 = new QuantityValueImpl(nv, lb, ub, unitMeter);
+		QuantityValue quantity2 = new QuantityValueImpl(nv, lb, ub, unitMeter);
+		assertSame(quantity1.getUnitItemId(), quantity2.getUnitItemId());
+	}
 }
@@ -103,6 +103,25 @@ public class SenseDocumentImplTest {
 		assertEquals(sd1.hashCode(), sd2.hashCode());
 	}
 
+	@Test
+	public void equalityIndependentOfCachedHash() {
+		// no hash code computed yet
+		assertEquals(sd1, sd2);
+		int hash = sd1.hashCode();
+		// hash code computed on one side only
+		assertEquals(sd1, sd2);
+		assertEquals(sd2, sd1);
+		assertEquals(hash, sd2.hashCode());
+		// hash codes computed on both sides
+		assertEquals(sd1, sd2);
+
+		SenseDocument sdDiffRevision = sd1.withRevisionId(1235);
+		assertNotEquals(sd1, sdDiffRevision);
+		sdDiffRevision.hashCode();
+		assertNotEquals(sd1, sdDiffRevision);
+		assertNotEquals(sdDiffRevision, sd1);
+	}
+
 	@Test(expected = NullPointerException.class)
 	public void idNotNull() {
 		new SenseDocumentImpl(null, repList, statementGroups, 1234);
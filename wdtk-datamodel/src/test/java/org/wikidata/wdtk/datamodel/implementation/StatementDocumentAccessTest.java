@@ -241,4 +241,38 @@ public class StatementDocumentAccessTest {
 		assertEquals(v, id.findStatementStringValue("P1"));
 	}
 
+	@Test
+	public void testFindStatementGroupByIndex() {
+		ItemDocumentBuilder builder = ItemDocumentBuilder.forItemId(q1);
+		for (int i = 1; i <= 200; i++) {
+			builder.withStatement(StatementBuilder.forSubjectAndProperty(q1,
+					Datamodel.makeWikidataPropertyIdValue("P" + i))
+					.withValue(q2).build());
+		}
+		ItemDocument id = builder.build();
+
+		StatementGroup group = id.findStatementGroup("P150");
+		assertEquals("P150", group.getProperty().getId());
+		assertSame(group, id.findStatementGroup(Datamodel
+				.makeWikidataPropertyIdValue("P150")));
+		assertTrue(id.getStatementGroups().contains(group));
+		assertNull(id.findStatementGroup("P201"));
+		assertTrue(id.hasStatementValue("P200", q2));
+	}
+
+	@Test
+	public void testFindStatementGroupOtherSite() {
+		PropertyIdValue otherP1 = Datamodel.makePropertyIdValue("P1",
+				"http://example.org/entity/");
+		Statement s = StatementBuilder.forSubjectAndProperty(q1, p1)
+				.withValue(q1).build();
+		ItemDocument id = ItemDocumentBuilder.forItemId(q1).withStatement(s)
+				.build();
+
+		assertNotNull(id.findStatementGroup("P1"));
+		assertNull(id.findStatementGroup(otherP1));
+		assertFalse(id.hasStatement(otherP1));
+		assertFalse(id.hasStatementValue(otherP1, q1));
+	}
+
 }
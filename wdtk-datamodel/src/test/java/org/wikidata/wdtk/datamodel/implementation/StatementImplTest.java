@@ -30,6 +30,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.helpers.Hash;
 import org.wikidata.wdtk.datamodel.interfaces.*;
 
 public class StatementImplTest {
@@ -103,6 +104,15 @@ public class StatementImplTest {
 		assertEquals(s1.hashCode(), s2.hashCode());
 	}
 
+	@Test
+	public void hashIsCached() {
+		int hash = Hash.hashCode(s1);
+		assertEquals(hash, s1.hashCode());
+		assertEquals(hash, s1.hashCode());
+		assertNotEquals(s1.hashCode(), smallStatement.hashCode());
+		assertNotEquals(s1, smallStatement);
+	}
+
 	@Test
 	public void equalityBasedOnContent() {
 		Statement sDiffClaim = new StatementImpl("MyId", StatementRank.NORMAL, mainSnak,
@@ -0,0 +1,171 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.UnsupportedEntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.UnsupportedValue;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+public class StreamingDeserializerModuleTest {
+
+	private static final ItemIdValue SUBJECT = Datamodel.makeWikidataItemIdValue("Q42");
+
+	private final ObjectMapper streamingMapper = new DatamodelMapper(Datamodel.SITE_WIKIDATA);
+
+	private final ObjectMapper annotationMapper = makeAnnotationMapper();
+
+	/**
+	 * Returns a mapper that only uses the Jackson annotations of the
+	 * datamodel classes, which the streaming deserializers must agree with.
+	 */
+	static ObjectMapper makeAnnotationMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.setInjectableValues(new InjectableValues.Std().addValue(
+				"siteIri", Datamodel.SITE_WIKIDATA));
+		mapper.registerModule(new Jdk8Module());
+		return mapper;
+	}
+
+	/**
+	 * Loads one of the real entity documents used by the deserialization
+	 * tests.
+	 */
+	static String loadSampleDocument(String file) throws IOException {
+		try (InputStream stream = StreamingDeserializerModuleTest.class
+				.getClassLoader().getResourceAsStream("JsonDeserializer/" + file)) {
+			return IOUtils.toString(stream, StandardCharsets.UTF_8);
+		}
+	}
+
+	private SnakImpl readSnak(ObjectMapper mapper, String json) throws IOException {
+		return mapper.readValue(json, SnakImpl.class);
+	}
+
+	private String valueSnak(String datavalue) {
+		return "{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":" + datavalue
+				+ ",\"datatype\":\"wikibase-item\"}";
+	}
+
+	private void assertSameSnak(String json) throws IOException {
+		assertEquals(readSnak(annotationMapper, json), readSnak(streamingMapper, json));
+	}
+
+	@Test
+	public void testValuesBeforeType() throws IOException {
+		assertSameSnak(valueSnak("{\"value\":\"abc\",\"type\":\"string\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"id\":\"L3-F2\"},\"type\":\"wikibase-entityid\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"time\":\"+1952-03-11T00:00:00Z\",\"timezone\":0,\"before\":0,\"after\":0,\"precision\":11,\"calendarmodel\":\"http://www.wikidata.org/entity/Q1985727\"},\"type\":\"time\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"amount\":\"+1.50\",\"unit\":\"http://www.wikidata.org/entity/Q11573\",\"upperBound\":\"+1.51\",\"lowerBound\":\"+1.49\"},\"type\":\"quantity\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"latitude\":51.5,\"longitude\":-0.12,\"altitude\":null,\"precision\":null,\"globe\":\"http://www.wikidata.org/entity/Q2\"},\"type\":\"globecoordinate\"}"));
+		assertSameSnak(valueSnak("{\"value\":{\"text\":\"Douglas\",\"language\":\"en\"},\"type\":\"monolingualtext\"}"));
+	}
+
+	@Test
+	public void testValuesAfterType() throws IOException {
+		assertSameSnak(valueSnak("{\"type\":\"string\",\"value\":\"abc\"}"));
+		assertSameSnak(valueSnak("{\"type\":\"wikibase-entityid\",\"value\":{\"entity-type\":\"property\",\"numeric-id\":31}}"));
+		assertSameSnak(valueSnak("{\"type\":\"quantity\",\"value\":{\"amount\":\"-12\",\"unit\":\"1\"}}"));
+	}
+
+	@Test
+	public void testUnsupportedValues() throws IOException {
+		String unknownType = valueSnak("{\"value\":{\"a\":[1,2]},\"type\":\"funky\"}");
+		assertSameSnak(unknownType);
+		assertTrue(((ValueSnak) readSnak(streamingMapper, unknownType)).getValue() instanceof UnsupportedValue);
+
+		String unknownEntity = valueSnak("{\"value\":{\"entity-type\":\"funky\",\"id\":\"Z1\"},\"type\":\"wikibase-entityid\"}");
+		assertSameSnak(unknownEntity);
+		assertTrue(((ValueSnak) readSnak(streamingMapper, unknownEntity)).getValue() instanceof UnsupportedEntityIdValue);
+	}
+
+	@Test
+	public void testOtherSnakTypes() throws IOException {
+		assertSameSnak("{\"property\":\"P31\",\"snaktype\":\"somevalue\"}");
+		assertSameSnak("{\"snaktype\":\"novalue\",\"property\":\"P31\",\"hash\":\"abc\"}");
+	}
+
+	@Test
+	public void testInvalidSnaks() {
+		assertThrows(JsonMappingException.class, () -> readSnak(streamingMapper, "{\"property\":\"P31\"}"));
+		assertThrows(JsonMappingException.class, () -> readSnak(streamingMapper, "{\"snaktype\":\"other\",\"property\":\"P31\"}"));
+		assertThrows(JsonMappingException.class, () -> readSnak(streamingMapper, "{\"snaktype\":\"novalue\"}"));
+		assertThrows(JsonMappingException.class, () -> readSnak(streamingMapper,
+				valueSnak("{\"value\":{\"amount\":\"+1\"},\"type\":\"quantity\"}")));
+	}
+
+	@Test
+	public void testStatement() throws IOException {
+		String json = "{\"mainsnak\":" + valueSnak("{\"value\":\"abc\",\"type\":\"string\"}")
+				+ ",\"type\":\"statement\",\"qualifiers\":{\"P580\":[{\"snaktype\":\"somevalue\",\"property\":\"P580\"}]}"
+				+ ",\"qualifiers-order\":[\"P580\"],\"id\":\"Q42$1\",\"rank\":\"preferred\""
+				+ ",\"references\":[{\"hash\":\"h\",\"snaks\":{\"P143\":[" + valueSnak("{\"value\":{\"id\":\"Q328\"},\"type\":\"wikibase-entityid\"}")
+				+ "]},\"snaks-order\":[\"P143\"]}]}";
+		Statement expected = annotationMapper.readValue(json, StatementImpl.PreStatement.class).withSubject(SUBJECT);
+		Statement statement = streamingMapper.readValue(json, StatementImpl.PreStatement.class).withSubject(SUBJECT);
+		assertEquals(expected, statement);
+		assertEquals("h", statement.getReferences().get(0).getHash());
+	}
+
+	@Test
+	public void testSampleDocuments() throws IOException {
+		ObjectReader streamingReader = streamingMapper.readerFor(EntityDocumentImpl.class)
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+		ObjectReader annotationReader = annotationMapper.readerFor(EntityDocumentImpl.class)
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+		for (String file : new String[] { "item.json", "property.json", "lexeme.json" }) {
+			String json = loadSampleDocument(file);
+			EntityDocument expected = annotationReader.readValue(json);
+			assertEquals(expected, streamingReader.readValue(json));
+		}
+	}
+
+	@Test
+	public void testEmptyQualifiersAsArray() throws IOException {
+		String json = "{\"mainsnak\":{\"snaktype\":\"novalue\",\"property\":\"P31\"},\"qualifiers\":[],\"rank\":\"normal\"}";
+		Statement statement = streamingMapper.readValue(json, StatementImpl.PreStatement.class).withSubject(SUBJECT);
+		assertTrue(statement.getQualifiers().isEmpty());
+		assertEquals("", statement.getStatementId());
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.wikidata.wdtk.datamodel.implementation;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.helpers.JsonSerializer;
+import org.wikidata.wdtk.datamodel.helpers.StatementBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.GlobeCoordinatesValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class StreamingSerializerModuleTest {
+
+	private static final ItemIdValue Q42 = Datamodel.makeWikidataItemIdValue("Q42");
+
+	private static final PropertyIdValue P1 = Datamodel.makeWikidataPropertyIdValue("P1");
+
+	private static final PropertyIdValue P2 = Datamodel.makeWikidataPropertyIdValue("P2");
+
+	private final ObjectMapper streamingMapper = new DatamodelMapper(Datamodel.SITE_WIKIDATA);
+
+	private final ObjectMapper annotationMapper = StreamingDeserializerModuleTest.makeAnnotationMapper();
+
+	private void assertSameJson(Object object) throws IOException {
+		assertEquals(annotationMapper.writeValueAsString(object),
+				streamingMapper.writeValueAsString(object));
+	}
+
+	private void assertSameJsonForSnak(String json) throws IOException {
+		assertSameJson(annotationMapper.readValue(json, SnakImpl.class));
+	}
+
+	@Test
+	public void testValues() throws IOException {
+		for (Value value : Arrays.asList(
+				Datamodel.makeWikidataLexemeIdValue("L1"),
+				Datamodel.makeWikidataFormIdValue("L1-F1"),
+				Datamodel.makeWikidataSenseIdValue("L1-S1"),
+				Datamodel.makeMediaInfoIdValue("M1", Datamodel.SITE_WIKIMEDIA_COMMONS))) {
+			assertSameJson(value);
+		}
+		for (Value value : Arrays.asList(Q42, P1,
+				Datamodel.makeStringValue("\"quoted\" é"),
+				Datamodel.makeTimeValue(-13798000000L, (byte) 0, (byte) 0,
+						(byte) 0, (byte) 0, (byte) 0, TimeValue.PREC_1GY, 0, 0,
+						0, TimeValue.CM_GREGORIAN_PRO),
+				Datamodel.makeTimeValue(2000, (byte) 1, (byte) 2, (byte) 3,
+						(byte) 4, (byte) 5, TimeValue.PREC_SECOND, 1, 2, 60,
+						TimeValue.CM_JULIAN_PRO),
+				Datamodel.makeQuantityValue(new BigDecimal("1.5"),
+						new BigDecimal("1"), new BigDecimal("2"), Q42),
+				Datamodel.makeQuantityValue(new BigDecimal("-0.000001")),
+				Datamodel.makeQuantityValue(new BigDecimal("123456789012345678901234567890")),
+				Datamodel.makeGlobeCoordinatesValue(51.5, -0.12,
+						GlobeCoordinatesValue.PREC_MILLI_ARCSECOND,
+						GlobeCoordinatesValue.GLOBE_EARTH),
+				Datamodel.makeMonolingualTextValue("text", "en"))) {
+			assertSameJson(value);
+			assertSameJson(Datamodel.makeValueSnak(P1, value));
+		}
+	}
+
+	@Test
+	public void testParsedSnaks() throws IOException {
+		assertSameJsonForSnak("{\"snaktype\":\"value\",\"property\":\"P1\",\"datatype\":\"time\","
+				+ "\"datavalue\":{\"value\":{\"time\":\"+2000-00-00T00:00:00Z\",\"timezone\":0,"
+				+ "\"before\":0,\"after\":0,\"precision\":9,"
+				+ "\"calendarmodel\":\"http://www.wikidata.org/entity/Q1985727\"},\"type\":\"time\"}}");
+		assertSameJsonForSnak("{\"snaktype\":\"value\",\"property\":\"P1\",\"datatype\":\"quantity\","
+				+ "\"datavalue\":{\"value\":{\"amount\":\"+1.0E+3\",\"unit\":\"1\"},\"type\":\"quantity\"}}");
+		assertSameJsonForSnak("{\"snaktype\":\"value\",\"property\":\"P1\",\"datatype\":\"some-new-type\","
+				+ "\"datavalue\":{\"value\":{\"foo\":\"bar\"},\"type\":\"some-new-type\"}}");
+		assertSameJsonForSnak("{\"snaktype\":\"value\",\"property\":\"P1\",\"datatype\":\"wikibase-funky\","
+				+ "\"datavalue\":{\"value\":{\"id\":\"F1\",\"entity-type\":\"funky\"},\"type\":\"wikibase-entityid\"}}");
+		assertSameJsonForSnak("{\"snaktype\":\"somevalue\",\"property\":\"P1\"}");
+		assertSameJsonForSnak("{\"snaktype\":\"novalue\",\"property\":\"P1\"}");
+	}
+
+	@Test
+	public void testSnakSubclassIsLeftToAnnotations() throws IOException {
+		assertSameJson(new ValueSnakImpl(P1, Q42) {
+		});
+	}
+
+	@Test
+	public void testStatements() throws IOException {
+		Statement full = StatementBuilder.forSubjectAndProperty(Q42, P1)
+				.withValue(Q42)
+				.withQualifierValue(P1, Q42)
+				.withQualifierSomeValue(P2)
+				.withReference(Datamodel.makeReference(Collections.singletonList(
+						Datamodel.makeSnakGroup(Collections.singletonList(
+								Datamodel.makeNoValueSnak(P1))))))
+				.withId("Q42$1")
+				.withRank(StatementRank.PREFERRED).build();
+		Statement empty = StatementBuilder.forSubjectAndProperty(Q42, P1)
+				.withRank(StatementRank.DEPRECATED).build();
+		assertSameJson(full);
+		assertSameJson(empty);
+		assertEquals(annotationMapper.writeValueAsString(full),
+				JsonSerializer.getJsonString(full));
+	}
+
+	@Test
+	public void testSampleDocuments() throws IOException {
+		for (String file : new String[] { "item.json", "property.json", "lexeme.json" }) {
+			assertSameJson(annotationMapper.readerFor(EntityDocumentImpl.class)
+					.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT)
+					.readValue(StreamingDeserializerModuleTest.loadSampleDocument(file)));
+		}
+	}
+
+	@Test
+	public void testTermsAndSiteLinks() throws IOException {
+		assertSameJson(new TermImpl("en", "label"));
+		assertSameJson(Datamodel.makeSiteLink("Title", "enwiki"));
+		assertSameJson(Datamodel.makeSiteLink("Title", "enwiki",
+				Collections.singletonList(Q42)));
+	}
+
+}
@@ -22,10 +22,15 @@ package org.wikidata.wdtk.datamodel.implementation;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoField;
 
 import org.junit.Test;
+import org.threeten.extra.chrono.JulianDate;
 import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -172,4 +177,75 @@ public class TimeValueImplTest {
 		assertEquals(TimeValue.CM_GREGORIAN_PRO, gregorian.getPreferredCalendarModel());
 	}
 
+	@Test
+	public void testNonCanonicalTimeToJson() throws IOException {
+		String json = "{\"value\":{\"time\":\"+00000002013-01-01T00:00:00Z\",\"timezone\":0,\"before\":0,\"after\":0,\"precision\":11,\"calendarmodel\":\"http://www.wikidata.org/entity/Q1985727\"},\"type\":\"time\"}";
+		TimeValue t = (TimeValue) mapper.readValue(json, ValueImpl.class);
+		assertEquals(2013, t.getYear());
+		JsonComparator.compareJsonStrings(json, mapper.writeValueAsString(t));
+	}
+
+	@Test
+	public void formatTime() {
+		assertEquals("+2007-05-12T10:45:00Z", TimeValueImpl.formatTime(2007, (byte) 5, (byte) 12, (byte) 10, (byte) 45, (byte) 0));
+		assertEquals("+005-00-00T00:00:00Z", TimeValueImpl.formatTime(5, (byte) 0, (byte) 0, (byte) 0, (byte) 0, (byte) 0));
+		assertEquals("-13800000000-01-01T00:00:00Z", TimeValueImpl.formatTime(-13800000000L, (byte) 1, (byte) 1, (byte) 0, (byte) 0, (byte) 0));
+		assertEquals(String.format("%+04d-%02d-%02dT%02d:%02d:%02dZ", -5L, (byte) 1, (byte) 2, (byte) 3, (byte) 4, (byte) 5),
+				TimeValueImpl.formatTime(-5, (byte) 1, (byte) 2, (byte) 3, (byte) 4, (byte) 5));
+	}
+
+	@Test
+	public void sharedCalendarModelItemIds() {
+		assertSame(t1.getPreferredCalendarModelItemId(), t2.getPreferredCalendarModelItemId());
+	}
+
+	@Test
+	public void epochDay() {
+		for (long day = -800000; day < 800000; day += 997) {
+			LocalDate date = LocalDate.ofEpochDay(day);
+			assertEquals(day, TimeValueImpl.getEpochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), false));
+			JulianDate julian = JulianDate.from(date);
+			assertEquals(day, TimeValueImpl.getEpochDay(julian.get(ChronoField.YEAR), julian.get(ChronoField.MONTH_OF_YEAR),
+					julian.get(ChronoField.DAY_OF_MONTH), true));
+		}
+		assertEquals(LocalDate.of(2007, 5, 12).toEpochDay(), ((TimeValueImpl) t1).getEpochDay());
+		TimeValueImpl year = new TimeValueImpl(1950, (byte) 0, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_YEAR, 0, 0, 0, TimeValue.CM_GREGORIAN_PRO);
+		assertEquals(LocalDate.of(1950, 1, 1).toEpochDay(), year.getEpochDay());
+	}
+
+	@Test
+	public void compareTime() {
+		TimeValueImpl julian = new TimeValueImpl(1143, (byte) 10, (byte) 5, (byte) 1, (byte) 2,
+				(byte) 0, TimeValue.PREC_MINUTE, 0, 1, 0, TimeValue.CM_JULIAN_PRO);
+		TimeValueImpl gregorian = (TimeValueImpl) julian.toGregorian();
+		TimeValueImpl later = new TimeValueImpl(1143, (byte) 10, (byte) 12, (byte) 1, (byte) 3,
+				(byte) 0, TimeValue.PREC_MINUTE, 0, 1, 0, TimeValue.CM_GREGORIAN_PRO);
+		TimeValueImpl bigBang = new TimeValueImpl(-13800000000L, (byte) 0, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_1GY, 0, 0, 0, TimeValue.CM_GREGORIAN_PRO);
+
+		assertEquals(0, julian.compareTimeTo(gregorian));
+		assertEquals(0, gregorian.compareTimeTo(julian));
+		assertTrue(gregorian.compareTimeTo(later) < 0);
+		assertTrue(julian.compareTimeTo(later) < 0);
+		assertTrue(later.compareTimeTo(julian) > 0);
+		assertTrue(bigBang.compareTimeTo(julian) < 0);
+		assertTrue(((TimeValueImpl) t1).compareTimeTo(later) > 0);
+	}
+
+	@Test
+	public void compareTimeIsTransitiveAcrossCalendars() {
+		TimeValueImpl year = new TimeValueImpl(1950, (byte) 0, (byte) 0, (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_YEAR, 0, 0, 0, TimeValue.CM_GREGORIAN_PRO);
+		TimeValueImpl firstDay = new TimeValueImpl(1950, (byte) 1, (byte) 1, (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_DAY, 0, 0, 0, TimeValue.CM_GREGORIAN_PRO);
+		TimeValueImpl julian = new TimeValueImpl(1949, (byte) 12, (byte) 19, (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_DAY, 0, 0, 0, TimeValue.CM_JULIAN_PRO);
+
+		assertEquals(0, year.compareTimeTo(julian));
+		assertEquals(0, firstDay.compareTimeTo(julian));
+		assertEquals(0, year.compareTimeTo(firstDay));
+		assertEquals(0, firstDay.compareTimeTo(year));
+	}
+
 }
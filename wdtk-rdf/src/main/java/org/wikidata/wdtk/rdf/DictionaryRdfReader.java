@@ -0,0 +1,207 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+
+/**
+ * Reads RDF data written by {@link DictionaryRdfWriter} and passes the
+ * decoded triples to an rdf4j {@link RDFHandler}. Since all terms are defined
+ * by number, no syntax needs to be parsed and each term is only decoded once
+ * per dictionary.
+ */
+public class DictionaryRdfReader {
+
+	final InputStream input;
+	final List<String> namespaces = new ArrayList<>();
+	final List<Value> terms = new ArrayList<>();
+
+	/**
+	 * Creates a new reader for the given stream.
+	 *
+	 * @param input
+	 *            the stream to read from
+	 */
+	public DictionaryRdfReader(InputStream input) {
+		this.input = new BufferedInputStream(input);
+	}
+
+	/**
+	 * Reads the whole RDF document and reports all declared namespaces and
+	 * all triples to the given handler.
+	 *
+	 * @param handler
+	 *            the handler to forward the RDF data to
+	 * @throws IOException
+	 *             if the stream could not be read
+	 * @throws RDFParseException
+	 *             if the data is not in the expected format
+	 * @throws RDFHandlerException
+	 *             if the handler reports an error
+	 */
+	public void read(RDFHandler handler) throws IOException,
+			RDFParseException, RDFHandlerException {
+		for (byte b : DictionaryRdfWriter.MAGIC) {
+			if (readByte() != b) {
+				throw new RDFParseException(
+						"Data is not in the dictionary RDF format.");
+			}
+		}
+		int version = readByte();
+		if (version != DictionaryRdfWriter.VERSION) {
+			throw new RDFParseException("Unsupported format version "
+					+ version + ".");
+		}
+
+		handler.startRDF();
+		while (true) {
+			int record = readByte();
+			switch (record) {
+			case DictionaryRdfWriter.RECORD_END:
+				handler.endRDF();
+				return;
+			case DictionaryRdfWriter.RECORD_NAMESPACE:
+				String prefix = readString();
+				String namespace = readString();
+				this.namespaces.add(namespace);
+				if (!prefix.isEmpty()) {
+					handler.handleNamespace(prefix, namespace);
+				}
+				break;
+			case DictionaryRdfWriter.RECORD_TERM:
+				this.terms.add(readTerm());
+				break;
+			case DictionaryRdfWriter.RECORD_TRIPLE:
+				Value subject = getTerm(readNumber());
+				Value predicate = getTerm(readNumber());
+				Value object = getTerm(readNumber());
+				if (!(subject instanceof Resource)
+						|| !(predicate instanceof IRI)) {
+					throw new RDFParseException("Invalid triple ("
+							+ subject + ", " + predicate + ", " + object + ").");
+				}
+				handler.handleStatement(RdfWriter.factory.createStatement(
+						(Resource) subject, (IRI) predicate, object));
+				break;
+			case DictionaryRdfWriter.RECORD_RESET:
+				this.terms.clear();
+				break;
+			default:
+				throw new RDFParseException("Unknown record type " + record
+						+ ".");
+			}
+		}
+	}
+
+	Value readTerm() throws IOException {
+		int type = readByte();
+		switch (type) {
+		case DictionaryRdfWriter.TERM_IRI:
+			return RdfWriter.factory.createIRI(getNamespace(readNumber())
+					+ readString());
+		case DictionaryRdfWriter.TERM_NUMERIC_IRI:
+			String namespace = getNamespace(readNumber());
+			char letter = (char) readByte();
+			return RdfWriter.factory.createIRI(namespace + letter
+					+ readNumber());
+		case DictionaryRdfWriter.TERM_BNODE:
+			return RdfWriter.factory.createBNode(readString());
+		case DictionaryRdfWriter.TERM_PLAIN_LITERAL:
+			return RdfWriter.factory.createLiteral(readString());
+		case DictionaryRdfWriter.TERM_LANGUAGE_LITERAL:
+			String languageCode = readString();
+			return RdfWriter.factory.createLiteral(readString(), languageCode);
+		case DictionaryRdfWriter.TERM_TYPED_LITERAL:
+			Value datatype = getTerm(readNumber());
+			if (!(datatype instanceof IRI)) {
+				throw new RDFParseException("Invalid datatype " + datatype
+						+ ".");
+			}
+			return RdfWriter.factory.createLiteral(readString(),
+					(IRI) datatype);
+		default:
+			throw new RDFParseException("Unknown term type " + type + ".");
+		}
+	}
+
+	Value getTerm(long id) {
+		if (id >= this.terms.size()) {
+			throw new RDFParseException("Undefined term " + id + ".");
+		}
+		return this.terms.get((int) id);
+	}
+
+	String getNamespace(long id) {
+		if (id >= this.namespaces.size()) {
+			throw new RDFParseException("Undefined namespace " + id + ".");
+		}
+		return this.namespaces.get((int) id);
+	}
+
+	int readByte() throws IOException {
+		int b = this.input.read();
+		if (b < 0) {
+			throw new EOFException("Unexpected end of dictionary RDF data.");
+		}
+		return b;
+	}
+
+	long readNumber() throws IOException {
+		long result = 0;
+		int shift = 0;
+		int b;
+		do {
+			if (shift > 63) {
+				throw new RDFParseException("Malformed number.");
+			}
+			b = readByte();
+			result |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+
+	String readString() throws IOException {
+		long length = readNumber();
+		if (length > Integer.MAX_VALUE) {
+			throw new RDFParseException("String too long.");
+		}
+		byte[] bytes = this.input.readNBytes((int) length);
+		if (bytes.length != length) {
+			throw new EOFException("Unexpected end of dictionary RDF data.");
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,332 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFWriter;
+
+/**
+ * RDF writer that produces a compact, dictionary-encoded binary stream instead
+ * of a textual RDF syntax. It can be passed to {@link RdfWriter} or
+ * {@link RdfSerializer} in place of the writers created by rdf4j.
+ * <p>
+ * The dictionary is built incrementally: the first time an RDF term is used,
+ * a record defining it is written and the term is assigned the next free
+ * number. Triples are then written as tuples of such numbers. IRIs are split
+ * into a namespace and a local name. Namespaces, such as the prefixes in
+ * {@link Vocabulary}, are stored only once, and local names of the form
+ * letter+digits (such as "Q42" or "P31") are stored as numbers. The stream
+ * can be read back with {@link DictionaryRdfReader}.
+ * <p>
+ * To keep memory bounded on very large exports, the term dictionary is
+ * cleared whenever it reaches a given size. Namespaces are never cleared.
+ */
+public class DictionaryRdfWriter extends AbstractRDFWriter {
+
+	/**
+	 * Format descriptor for the dictionary-encoded RDF format.
+	 */
+	public static final RDFFormat DICTIONARY_RDF = new RDFFormat(
+			"WDTK Dictionary RDF", "application/x-wdtk-dictionary-rdf",
+			null, "wdrdf", RDFFormat.SUPPORTS_NAMESPACES,
+			RDFFormat.NO_CONTEXTS, RDFFormat.NO_RDF_STAR);
+
+	/**
+	 * Default number of terms after which the dictionary is cleared.
+	 */
+	public static final int DEFAULT_MAX_DICTIONARY_SIZE = 1_000_000;
+
+	static final byte[] MAGIC = { 'W', 'D', 'R', 'D' };
+	static final int VERSION = 1;
+
+	static final int RECORD_END = 0;
+	static final int RECORD_NAMESPACE = 1;
+	static final int RECORD_TERM = 2;
+	static final int RECORD_TRIPLE = 3;
+	static final int RECORD_RESET = 4;
+
+	static final int TERM_IRI = 0;
+	static final int TERM_NUMERIC_IRI = 1;
+	static final int TERM_BNODE = 2;
+	static final int TERM_PLAIN_LITERAL = 3;
+	static final int TERM_LANGUAGE_LITERAL = 4;
+	static final int TERM_TYPED_LITERAL = 5;
+
+	final OutputStream output;
+	final int maxDictionarySize;
+
+	final Map<String, Long> namespaces = new HashMap<>();
+	final Map<Value, Long> terms = new HashMap<>();
+
+	long namespaceCount = 0;
+	long tripleCount = 0;
+
+	/**
+	 * Creates a new writer with the default dictionary size.
+	 *
+	 * @param output
+	 *            the stream to write to; it is flushed but not closed at the
+	 *            end of the RDF document
+	 */
+	public DictionaryRdfWriter(OutputStream output) {
+		this(output, DEFAULT_MAX_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param output
+	 *            the stream to write to; it is flushed but not closed at the
+	 *            end of the RDF document
+	 * @param maxDictionarySize
+	 *            number of terms after which the dictionary is cleared
+	 */
+	public DictionaryRdfWriter(OutputStream output, int maxDictionarySize) {
+		if (maxDictionarySize < 4) {
+			throw new IllegalArgumentException(
+					"The dictionary must hold at least the terms of one triple.");
+		}
+		this.output = new BufferedOutputStream(output);
+		this.maxDictionarySize = maxDictionarySize;
+	}
+
+	/**
+	 * Returns the number of triples written so far.
+	 *
+	 * @return number of triples
+	 */
+	public long getTripleCount() {
+		return this.tripleCount;
+	}
+
+	@Override
+	public RDFFormat getRDFFormat() {
+		return DICTIONARY_RDF;
+	}
+
+	@Override
+	public void startRDF() throws RDFHandlerException {
+		super.startRDF();
+		this.namespaces.clear();
+		this.terms.clear();
+		this.namespaceCount = 0;
+		this.tripleCount = 0;
+		try {
+			this.output.write(MAGIC);
+			this.output.write(VERSION);
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	@Override
+	public void handleNamespace(String prefix, String uri)
+			throws RDFHandlerException {
+		super.handleNamespace(prefix, uri);
+		try {
+			addNamespace(prefix, uri);
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	@Override
+	protected void consumeStatement(Statement st) {
+		try {
+			// a triple may add up to four terms (including a datatype)
+			if (this.terms.size() + 4 > this.maxDictionarySize) {
+				this.output.write(RECORD_RESET);
+				this.terms.clear();
+			}
+			long subject = getTermId(st.getSubject());
+			long predicate = getTermId(st.getPredicate());
+			long object = getTermId(st.getObject());
+
+			this.output.write(RECORD_TRIPLE);
+			writeNumber(subject);
+			writeNumber(predicate);
+			writeNumber(object);
+			this.tripleCount++;
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	@Override
+	public void handleComment(String comment) throws RDFHandlerException {
+		// comments are not preserved in this format
+	}
+
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		checkWritingStarted();
+		try {
+			this.output.write(RECORD_END);
+			this.output.flush();
+		} catch (IOException e) {
+			throw new RDFHandlerException(e);
+		}
+	}
+
+	/**
+	 * Returns the dictionary number of the given term, writing its definition
+	 * to the stream if it has not been used before.
+	 */
+	long getTermId(Value value) throws IOException {
+		Long id = this.terms.get(value);
+		if (id != null) {
+			return id;
+		}
+
+		if (value instanceof IRI) {
+			writeIriTerm((IRI) value);
+		} else if (value instanceof BNode) {
+			this.output.write(RECORD_TERM);
+			this.output.write(TERM_BNODE);
+			writeString(((BNode) value).getID());
+		} else if (value instanceof Literal) {
+			writeLiteralTerm((Literal) value);
+		} else {
+			throw new IllegalArgumentException("Unsupported RDF term " + value);
+		}
+
+		long newId = this.terms.size();
+		this.terms.put(value, newId);
+		return newId;
+	}
+
+	void writeIriTerm(IRI iri) throws IOException {
+		String iriString = iri.stringValue();
+		int split = Math.max(iriString.lastIndexOf('/'),
+				iriString.lastIndexOf('#')) + 1;
+		long namespaceId = getNamespaceId(iriString.substring(0, split));
+		String localName = iriString.substring(split);
+
+		this.output.write(RECORD_TERM);
+		long number = getLocalNameNumber(localName);
+		if (number >= 0) {
+			this.output.write(TERM_NUMERIC_IRI);
+			writeNumber(namespaceId);
+			this.output.write(localName.charAt(0));
+			writeNumber(number);
+		} else {
+			this.output.write(TERM_IRI);
+			writeNumber(namespaceId);
+			writeString(localName);
+		}
+	}
+
+	void writeLiteralTerm(Literal literal) throws IOException {
+		if (literal.getLanguage().isPresent()) {
+			this.output.write(RECORD_TERM);
+			this.output.write(TERM_LANGUAGE_LITERAL);
+			writeString(literal.getLanguage().get());
+			writeString(literal.getLabel());
+		} else if (literal.getDatatype() == null
+				|| RdfWriter.XSD_STRING.equals(literal.getDatatype())) {
+			this.output.write(RECORD_TERM);
+			this.output.write(TERM_PLAIN_LITERAL);
+			writeString(literal.getLabel());
+		} else {
+			// the datatype must be defined before the literal record starts
+			long datatypeId = getTermId(literal.getDatatype());
+			this.output.write(RECORD_TERM);
+			this.output.write(TERM_TYPED_LITERAL);
+			writeNumber(datatypeId);
+			writeString(literal.getLabel());
+		}
+	}
+
+	long getNamespaceId(String namespace) throws IOException {
+		Long id = this.namespaces.get(namespace);
+		if (id != null) {
+			return id;
+		}
+		return addNamespace("", namespace);
+	}
+
+	/**
+	 * Writes a new namespace definition. Namespaces are numbered in the order
+	 * of their definition, also when the same namespace is defined again under
+	 * a declared prefix.
+	 */
+	long addNamespace(String prefix, String namespace) throws IOException {
+		long newId = this.namespaceCount++;
+		this.namespaces.put(namespace, newId);
+		this.output.write(RECORD_NAMESPACE);
+		writeString(prefix);
+		writeString(namespace);
+		return newId;
+	}
+
+	/**
+	 * Returns the number encoded in local names like "Q42", or -1 if the local
+	 * name does not have this form. Numbers with leading zeros are not
+	 * considered, so that the original string can be restored.
+	 */
+	static long getLocalNameNumber(String localName) {
+		int length = localName.length();
+		if (length < 2 || length > 19) {
+			return -1;
+		}
+		char first = localName.charAt(0);
+		if (first < 'A' || first > 'Z' || localName.charAt(1) == '0') {
+			return -1;
+		}
+		long result = 0;
+		for (int i = 1; i < length; i++) {
+			char c = localName.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	void writeNumber(long number) throws IOException {
+		while ((number & ~0x7FL) != 0) {
+			this.output.write((int) ((number & 0x7F) | 0x80));
+			number >>>= 7;
+		}
+		this.output.write((int) number);
+	}
+
+	void writeString(String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeNumber(bytes.length);
+		this.output.write(bytes);
+	}
+
+}
@@ -28,6 +28,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -60,6 +61,12 @@ import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 /**
  * This class helps to manage information about Properties that has to obtained
  * by a webservice.
+ * <p>
+ * The public methods of this class are thread-safe, so that one register can
+ * be shared by renderings on several threads. Web requests are made without
+ * holding the lock of the register, so that information that is already
+ * known can be read while other properties are fetched. Subclasses that
+ * access the maps of the register directly must synchronize on the register.
  *
  * @author Michael Guenther
  *
@@ -119,6 +126,13 @@ public class PropertyRegister {
 	 */
 	final Set<String> knownMissing;
 
+	/**
+	 * Fetches that are currently in progress, by the ids of the properties
+	 * that they request. Threads that need one of these properties wait for
+	 * the running fetch instead of making another request.
+	 */
+	final Map<String, CompletableFuture<Void>> pendingFetches = new HashMap<>();
+
 	static final PropertyRegister WIKIDATA_PROPERTY_REGISTER = new PropertyRegister(
 			"P1921", BasicApiConnection.getWikidataApiConnection(),
 			Datamodel.SITE_WIKIDATA);
@@ -174,10 +188,12 @@ public class PropertyRegister {
 	 *         not be determined
 	 */
 	public String getPropertyType(PropertyIdValue propertyIdValue) {
-		if (!datatypes.containsKey(propertyIdValue.getId())) {
+		if (!hasPropertyInformation(propertyIdValue)) {
 			fetchPropertyInformation(propertyIdValue);
 		}
-		return datatypes.get(propertyIdValue.getId());
+		synchronized (this) {
+			return datatypes.get(propertyIdValue.getId());
+		}
 	}
 
 	/**
@@ -187,7 +203,7 @@ public class PropertyRegister {
 	 * @param propertyIdValue
 	 * @param datatypeIri
 	 */
-	public void setPropertyType(PropertyIdValue propertyIdValue,
+	public synchronized void setPropertyType(PropertyIdValue propertyIdValue,
 			String datatypeIri) {
 		datatypes.put(propertyIdValue.getId(), datatypeIri);
 
@@ -204,11 +220,17 @@ public class PropertyRegister {
 	 *         was found for the given property
 	 */
 	public String getPropertyUriPattern(PropertyIdValue propertyIdValue) {
-		if (!this.datatypes.containsKey(propertyIdValue.getId())) {
+		if (!hasPropertyInformation(propertyIdValue)) {
 			fetchPropertyInformation(propertyIdValue);
 		}
-		return this.uriPatterns.get(propertyIdValue.getId());
+		synchronized (this) {
+			return this.uriPatterns.get(propertyIdValue.getId());
+		}
+	}
 
+	private synchronized boolean hasPropertyInformation(
+			PropertyIdValue propertyIdValue) {
+		return this.datatypes.containsKey(propertyIdValue.getId());
 	}
 
 	/**
@@ -305,43 +327,79 @@ public class PropertyRegister {
 	 * Fetches the information of the given property from the Web API. Further
 	 * properties are fetched in the same request and results cached so as to
 	 * limit the total number of Web requests made until all properties are
-	 * fetched.
+	 * fetched. If the property is already being fetched by another thread,
+	 * this method waits for that fetch to complete instead.
 	 *
 	 * @param property
 	 */
 	protected void fetchPropertyInformation(PropertyIdValue property) {
 		int propertyIdNumber = Integer.parseInt(property.getId().substring(1));
-		// Don't do anything if all properties up to this index have already
-		// been fetched. In particular, don't try indefinitely to find a
-		// certain property type (maybe the property was deleted).
-		//
-		// If we previously tried to fetch this property and didn't
-		// find it, there is no point in trying again either.
-		if (this.smallestUnfetchedPropertyIdNumber > propertyIdNumber || knownMissing.contains(property.getId())) {
-			return;
-		}
+		List<String> propertyIds = null;
+		CompletableFuture<Void> fetch;
+		synchronized (this) {
+			fetch = this.pendingFetches.get(property.getId());
+			if (fetch == null) {
+				// Don't do anything if all properties up to this index have already
+				// been fetched. In particular, don't try indefinitely to find a
+				// certain property type (maybe the property was deleted).
+				//
+				// If we previously tried to fetch this property and didn't
+				// find it, there is no point in trying again either.
+				if (this.smallestUnfetchedPropertyIdNumber > propertyIdNumber || knownMissing.contains(property.getId())) {
+					return;
+				}
 
-		List<String> propertyIds = new ArrayList<>(
-				API_MAX_ENTITY_DOCUMENT_NUMBER);
+				propertyIds = new ArrayList<>(API_MAX_ENTITY_DOCUMENT_NUMBER);
+				propertyIds.add(property.getId());
+				for (int i = 1; i < API_MAX_ENTITY_DOCUMENT_NUMBER; i++) {
+					propertyIds.add("P" + this.smallestUnfetchedPropertyIdNumber);
+					this.smallestUnfetchedPropertyIdNumber++;
+				}
+
+				fetch = new CompletableFuture<>();
+				for (String propertyId : propertyIds) {
+					this.pendingFetches.putIfAbsent(propertyId, fetch);
+				}
 
-		propertyIds.add(property.getId());
-		for (int i = 1; i < API_MAX_ENTITY_DOCUMENT_NUMBER; i++) {
-			propertyIds.add("P" + this.smallestUnfetchedPropertyIdNumber);
-			this.smallestUnfetchedPropertyIdNumber++;
+				dataFetcher.getFilter().setLanguageFilter(Collections.emptySet());
+				dataFetcher.getFilter().setSiteLinkFilter(Collections.emptySet());
+			}
 		}
 
-		dataFetcher.getFilter().setLanguageFilter(Collections.emptySet());
-		dataFetcher.getFilter().setSiteLinkFilter(Collections.emptySet());
+		if (propertyIds == null) {
+			// another thread is already fetching this property
+			fetch.join();
+			return;
+		}
 
-		Map<String, EntityDocument> properties;
+		Map<String, EntityDocument> properties = Collections.emptyMap();
 		try {
 			properties = dataFetcher.getEntityDocuments(propertyIds);
 		} catch (MediaWikiApiErrorException|IOException e) {
 			logger.error("Error when trying to fetch property data: "
 					+ e.toString());
-			properties = Collections.emptyMap();
+		} finally {
+			synchronized (this) {
+				addPropertyInformation(property, properties);
+				for (String propertyId : propertyIds) {
+					this.pendingFetches.remove(propertyId, fetch);
+				}
+			}
+			fetch.complete(null);
 		}
+	}
 
+	/**
+	 * Stores the datatypes and URI patterns of the fetched property
+	 * documents. Must be called while holding the lock of the register.
+	 *
+	 * @param property
+	 *            the property that the documents were fetched for
+	 * @param properties
+	 *            the fetched documents by property id
+	 */
+	private void addPropertyInformation(PropertyIdValue property,
+			Map<String, EntityDocument> properties) {
 		for (Entry<String, EntityDocument> entry : properties.entrySet()) {
 			EntityDocument propertyDocument = entry.getValue();
 			if (!(propertyDocument instanceof PropertyDocument)) {
@@ -432,7 +490,9 @@ public class PropertyRegister {
 
 				if (binding.has("uri")) {
 					countPatterns += 1;
-					this.uriPatterns.put(propId.getId(), binding.path("uri").path("value").asText());
+					synchronized (this) {
+						this.uriPatterns.put(propId.getId(), binding.path("uri").path("value").asText());
+					}
 				}
 			}
 
@@ -0,0 +1,405 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFWriter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * Computes the changes in the RDF export of entities between two versions of
+ * their documents. For each entity, the triples that are no longer exported
+ * are written to a removal writer, and the triples that are newly exported
+ * are written to an addition writer.
+ * <p>
+ * Both versions are rendered with the same logic as {@link RdfSerializer},
+ * using the same task flags. Applying the diff to a store that contains the
+ * export of the old versions does not reproduce a full export of the new
+ * versions exactly:
+ * <ul>
+ * <li>Triples about references and complex values are identified by hashes
+ * and may be shared among many entities. They are added when needed but
+ * never removed, so stores should clean up unused nodes of this kind
+ * separately.</li>
+ * <li>Triples that contain blank nodes (used for "some value" snaks) cannot
+ * be matched in another store. They are compared to each other ignoring the
+ * identity of their blank nodes, so they are only written as additions if
+ * the new version really introduced them. Their removal is written as SPARQL
+ * Update operations to the writer set with
+ * {@link #setBlankNodeRemovalWriter(Writer)}. If no such writer is set, these
+ * triples remain in the store.</li>
+ * <li>OWL declarations are added for properties that are used by the new
+ * version of an entity but not by its old version, and each property is
+ * declared at most once per diff. Declarations are never removed, since
+ * other entities may still use the property.</li>
+ * </ul>
+ */
+public class RdfDiffer {
+
+	/**
+	 * Placeholder used to compare triples with blank nodes.
+	 */
+	static final BNode ANY_BNODE = RdfWriter.factory.createBNode("any");
+
+	final RdfWriter removalWriter;
+	final RdfWriter additionWriter;
+	final Sites sites;
+	final PropertyRegister propertyRegister;
+	final StatementCollector statementCollector = new StatementCollector();
+	final RdfWriter collectingRdfWriter = new RdfWriter(this.statementCollector);
+
+	/**
+	 * Buffer for the OWL declarations written to the addition writer. It
+	 * remembers the properties that have been declared already.
+	 */
+	final OwlDeclarationBuffer addedDeclarations = new OwlDeclarationBuffer();
+
+	Writer blankNodeRemovalWriter;
+
+	int tasks = RdfSerializer.TASK_ALL_ENTITIES
+			| RdfSerializer.TASK_ALL_EXACT_DATA;
+
+	long changedEntityCount = 0;
+
+	/**
+	 * Creates a new differ.
+	 *
+	 * @param removalWriter
+	 *            the writer for triples that must be removed
+	 * @param additionWriter
+	 *            the writer for triples that must be added
+	 * @param sites
+	 *            information about site links
+	 * @param propertyRegister
+	 *            the register to look up property types
+	 */
+	public RdfDiffer(RdfWriter removalWriter, RdfWriter additionWriter,
+			Sites sites, PropertyRegister propertyRegister) {
+		this.removalWriter = removalWriter;
+		this.additionWriter = additionWriter;
+		this.sites = sites;
+		this.propertyRegister = propertyRegister;
+		this.collectingRdfWriter.start();
+	}
+
+	/**
+	 * Sets the tasks that should be performed when rendering documents. The
+	 * value should be a combination of flags such as
+	 * {@link RdfSerializer#TASK_STATEMENTS}, and should be the same as the
+	 * tasks used to create the data that the diff is applied to.
+	 *
+	 * @param tasks
+	 *            the tasks to be performed
+	 */
+	public void setTasks(int tasks) {
+		this.tasks = tasks;
+	}
+
+	/**
+	 * Returns the tasks that are performed when rendering documents.
+	 *
+	 * @return tasks to be performed
+	 */
+	public int getTasks() {
+		return this.tasks;
+	}
+
+	/**
+	 * Sets the writer for SPARQL Update operations that remove triples with
+	 * blank nodes. Each operation deletes all triples of an entity that link
+	 * to a blank node with a given property, together with the triples about
+	 * these blank nodes. If the writer is null, which is the default, such
+	 * triples are not removed.
+	 *
+	 * @param blankNodeRemovalWriter
+	 *            the writer for the SPARQL Update operations, or null
+	 */
+	public void setBlankNodeRemovalWriter(Writer blankNodeRemovalWriter) {
+		this.blankNodeRemovalWriter = blankNodeRemovalWriter;
+	}
+
+	/**
+	 * Returns the number of entities for which changes have been found.
+	 *
+	 * @return number of changed entities
+	 */
+	public long getChangedEntityCount() {
+		return this.changedEntityCount;
+	}
+
+	/**
+	 * Starts writing to both output writers.
+	 */
+	public void open() throws RDFHandlerException {
+		this.removalWriter.start();
+		this.additionWriter.start();
+	}
+
+	/**
+	 * Finishes writing to both output writers.
+	 */
+	public void close() throws RDFHandlerException {
+		this.removalWriter.finish();
+		this.additionWriter.finish();
+	}
+
+	/**
+	 * Writes the changes between two versions of an entity. Either version
+	 * may be null to represent entities that have been created or deleted.
+	 * Documents with the same non-zero revision id are assumed to be equal.
+	 *
+	 * @param oldDocument
+	 *            the old version of the entity, or null
+	 * @param newDocument
+	 *            the new version of the entity, or null
+	 * @throws RDFHandlerException
+	 *             if there was a problem writing the triples
+	 */
+	public void writeDiff(EntityDocument oldDocument, EntityDocument newDocument)
+			throws RDFHandlerException {
+		if (oldDocument != null && newDocument != null) {
+			if (!oldDocument.getEntityId().equals(newDocument.getEntityId())) {
+				throw new IllegalArgumentException(
+						"Cannot compare documents of different entities "
+								+ oldDocument.getEntityId() + " and "
+								+ newDocument.getEntityId() + ".");
+			}
+			if (oldDocument.getRevisionId() != 0
+					&& oldDocument.getRevisionId() == newDocument
+							.getRevisionId()) {
+				return;
+			}
+		}
+
+		OwlDeclarationBuffer oldDeclarations = new OwlDeclarationBuffer();
+		OwlDeclarationBuffer newDeclarations = new OwlDeclarationBuffer();
+		Map<Statement, Statement> oldTriples = render(oldDocument,
+				oldDeclarations);
+		Map<Statement, Statement> newTriples = render(newDocument,
+				newDeclarations);
+
+		boolean changed = false;
+		for (Map.Entry<Statement, Statement> entry : oldTriples.entrySet()) {
+			if (newTriples.containsKey(entry.getKey())) {
+				continue;
+			}
+			if (isRemovable(entry.getValue())) {
+				writeTriple(this.removalWriter, entry.getValue());
+				changed = true;
+			} else if (isBlankNodeLink(entry.getKey())) {
+				writeBlankNodeRemoval(entry.getKey());
+				changed = true;
+			}
+		}
+		for (Map.Entry<Statement, Statement> entry : newTriples.entrySet()) {
+			if (!oldTriples.containsKey(entry.getKey())) {
+				writeTriple(this.additionWriter, entry.getValue());
+				changed = true;
+			}
+		}
+		if (changed) {
+			this.changedEntityCount++;
+		}
+
+		addNewDeclarations(oldDeclarations, newDeclarations);
+		this.addedDeclarations.writePropertyDeclarations(this.additionWriter,
+				(this.tasks & RdfSerializer.TASK_STATEMENTS) != 0,
+				(this.tasks & RdfSerializer.TASK_SIMPLE_STATEMENTS) != 0);
+	}
+
+	/**
+	 * Renders the given document to RDF. The result maps the triples, with
+	 * all blank nodes replaced by a placeholder, to the triples themselves.
+	 * The properties that need OWL declarations are added to the given
+	 * buffer instead of being written.
+	 */
+	Map<Statement, Statement> render(EntityDocument document,
+			OwlDeclarationBuffer declarations) throws RDFHandlerException {
+		Map<Statement, Statement> result = new LinkedHashMap<>();
+		if (document == null) {
+			return result;
+		}
+
+		this.statementCollector.result = result;
+		// a fresh converter ensures that shared nodes are written again
+		RdfConverter rdfConverter = new RdfConverter(this.collectingRdfWriter,
+				this.sites, this.propertyRegister) {
+			@Override
+			public void writeOWLDeclarations() {
+				OwlDeclarationBuffer queued = this.owlDeclarationBuffer;
+				declarations.objectPropertyQueue
+						.addAll(queued.objectPropertyQueue);
+				declarations.datatypePropertyQueue
+						.addAll(queued.datatypePropertyQueue);
+				declarations.objectPropertyUriQueue
+						.addAll(queued.objectPropertyUriQueue);
+				declarations.datatypePropertyUriQueue
+						.addAll(queued.datatypePropertyUriQueue);
+				queued.objectPropertyQueue.clear();
+				queued.datatypePropertyQueue.clear();
+				queued.objectPropertyUriQueue.clear();
+				queued.datatypePropertyUriQueue.clear();
+			}
+		};
+		rdfConverter.setTasks(this.tasks);
+		if (document instanceof ItemDocument) {
+			rdfConverter.writeItemDocument((ItemDocument) document);
+		} else if (document instanceof PropertyDocument) {
+			rdfConverter.writePropertyDocument((PropertyDocument) document);
+		}
+		return result;
+	}
+
+	/**
+	 * Queues declarations for the properties that are needed by the new
+	 * version of an entity but not by the old one.
+	 */
+	void addNewDeclarations(OwlDeclarationBuffer oldDeclarations,
+			OwlDeclarationBuffer newDeclarations) {
+		HashSet<PropertyIdValue> oldProperties = new HashSet<>(
+				oldDeclarations.objectPropertyQueue);
+		oldProperties.addAll(oldDeclarations.datatypePropertyQueue);
+		HashSet<IRI> oldPropertyUris = new HashSet<>(
+				oldDeclarations.objectPropertyUriQueue);
+		oldPropertyUris.addAll(oldDeclarations.datatypePropertyUriQueue);
+
+		for (PropertyIdValue property : newDeclarations.objectPropertyQueue) {
+			if (!oldProperties.contains(property)) {
+				this.addedDeclarations.addObjectProperty(property);
+			}
+		}
+		for (PropertyIdValue property : newDeclarations.datatypePropertyQueue) {
+			if (!oldProperties.contains(property)) {
+				this.addedDeclarations.addDatatypeProperty(property);
+			}
+		}
+		for (IRI propertyUri : newDeclarations.objectPropertyUriQueue) {
+			if (!oldPropertyUris.contains(propertyUri)) {
+				this.addedDeclarations.addObjectProperty(propertyUri);
+			}
+		}
+		for (IRI propertyUri : newDeclarations.datatypePropertyUriQueue) {
+			if (!oldPropertyUris.contains(propertyUri)) {
+				this.addedDeclarations.addDatatypeProperty(propertyUri);
+			}
+		}
+	}
+
+	boolean isRemovable(Statement triple) {
+		if (triple.getSubject() instanceof BNode
+				|| triple.getObject() instanceof BNode) {
+			return false;
+		}
+		String subject = triple.getSubject().stringValue();
+		return !subject.startsWith(Vocabulary.PREFIX_WIKIDATA_REFERENCE)
+				&& !subject.startsWith(Vocabulary.PREFIX_WIKIDATA_VALUE);
+	}
+
+	void writeTriple(RdfWriter rdfWriter, Statement triple)
+			throws RDFHandlerException {
+		rdfWriter.writeTripleValueObject(triple.getSubject(),
+				triple.getPredicate(), triple.getObject());
+	}
+
+	/**
+	 * Returns true if the given triple, with blank nodes replaced by the
+	 * placeholder, links a named subject to blank nodes. Triples about the
+	 * blank nodes themselves are removed together with these links.
+	 */
+	boolean isBlankNodeLink(Statement key) {
+		return key.getObject() == ANY_BNODE
+				&& !(key.getSubject() instanceof BNode);
+	}
+
+	/**
+	 * Writes a SPARQL Update operation that removes all triples with the
+	 * subject and predicate of the given triple that have a blank node as
+	 * object, and all triples about these blank nodes.
+	 */
+	void writeBlankNodeRemoval(Statement key) {
+		if (this.blankNodeRemovalWriter == null) {
+			return;
+		}
+		String link = "<" + key.getSubject().stringValue() + "> <"
+				+ key.getPredicate().stringValue() + "> ?blank";
+		try {
+			this.blankNodeRemovalWriter.write("DELETE { " + link
+					+ " . ?blank ?p ?o . } WHERE { " + link
+					+ " . FILTER(isBlank(?blank)) OPTIONAL { ?blank ?p ?o } } ;\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Simple rdf4j writer that collects the triples of one document.
+	 */
+	static class StatementCollector extends AbstractRDFWriter {
+
+		Map<Statement, Statement> result;
+
+		@Override
+		public RDFFormat getRDFFormat() {
+			return RDFFormat.NTRIPLES;
+		}
+
+		@Override
+		protected void consumeStatement(Statement st) {
+			Resource subject = st.getSubject();
+			Value object = st.getObject();
+			if (subject instanceof BNode || object instanceof BNode) {
+				Statement key = RdfWriter.factory.createStatement(
+						subject instanceof BNode ? ANY_BNODE : subject,
+						st.getPredicate(),
+						object instanceof BNode ? ANY_BNODE : object);
+				this.result.putIfAbsent(key, st);
+			} else {
+				this.result.put(st, st);
+			}
+		}
+
+		@Override
+		public void endRDF() {
+		}
+
+		@Override
+		public void handleComment(String comment) {
+		}
+	}
+
+}
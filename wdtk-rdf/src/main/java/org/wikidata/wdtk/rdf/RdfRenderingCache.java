@@ -0,0 +1,328 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+
+/**
+ * Renders single entity documents to complete RDF documents and caches the
+ * serialized bytes. Entries are identified by entity id, revision id and
+ * task flags, so a cached rendering is reused exactly when the same revision
+ * is requested again with the same settings. The cache is bounded by the
+ * total number of bytes it holds, evicting the least recently used entries
+ * first.
+ * <p>
+ * Documents without a revision id (revision id 0) cannot be identified
+ * reliably and are rendered without caching.
+ * <p>
+ * The methods of this class are thread-safe. Rendering happens outside of
+ * the cache lock, using the thread-safe methods of the shared
+ * {@link PropertyRegister}. If a rendering is requested while another thread
+ * is rendering the same entry, the request waits for that rendering instead
+ * of starting another one.
+ */
+public class RdfRenderingCache {
+
+	final RDFFormat format;
+	final Sites sites;
+	final PropertyRegister propertyRegister;
+	final long maxBytes;
+
+	final LinkedHashMap<CacheKey, byte[]> entries = new LinkedHashMap<>(16,
+			0.75f, true);
+
+	/**
+	 * Renderings that are currently in progress, so that concurrent requests
+	 * for the same entry can wait for them.
+	 */
+	final Map<CacheKey, CompletableFuture<byte[]>> pendingRenderings = new HashMap<>();
+
+	long currentBytes = 0;
+	long hitCount = 0;
+	long missCount = 0;
+	long evictionCount = 0;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param format
+	 *            RDF format, such as RDFFormat.TURTLE
+	 * @param sites
+	 *            information about site links
+	 * @param propertyRegister
+	 *            the register to look up property types
+	 * @param maxBytes
+	 *            maximal total size of the cached renderings in bytes
+	 */
+	public RdfRenderingCache(RDFFormat format, Sites sites,
+			PropertyRegister propertyRegister, long maxBytes) {
+		this.format = format;
+		this.sites = sites;
+		this.propertyRegister = propertyRegister;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the complete RDF serialization of the given document, including
+	 * namespace declarations, rendered with the given tasks.
+	 * <p>
+	 * The returned array is shared with the cache and must not be modified.
+	 *
+	 * @param document
+	 *            the item or property document to render
+	 * @param tasks
+	 *            combination of flags such as
+	 *            {@link RdfSerializer#TASK_STATEMENTS}
+	 * @return the serialized bytes
+	 * @throws RDFHandlerException
+	 *             if there was a problem rendering the document
+	 */
+	public byte[] getRendering(EntityDocument document, int tasks)
+			throws RDFHandlerException {
+		if (document.getRevisionId() == 0) {
+			synchronized (this) {
+				this.missCount++;
+			}
+			return render(document, tasks);
+		}
+
+		CacheKey key = new CacheKey(document.getEntityId().getIri(),
+				document.getRevisionId(), tasks);
+		CompletableFuture<byte[]> pending;
+		synchronized (this) {
+			byte[] cached = this.entries.get(key);
+			if (cached != null) {
+				this.hitCount++;
+				return cached;
+			}
+			pending = this.pendingRenderings.get(key);
+			if (pending == null) {
+				this.missCount++;
+				this.pendingRenderings.put(key, new CompletableFuture<>());
+			} else {
+				this.hitCount++;
+			}
+		}
+		if (pending != null) {
+			return waitForRendering(pending);
+		}
+
+		byte[] rendering;
+		try {
+			rendering = render(document, tasks);
+		} catch (RuntimeException | Error e) {
+			synchronized (this) {
+				this.pendingRenderings.remove(key).completeExceptionally(e);
+			}
+			throw e;
+		}
+		synchronized (this) {
+			if (rendering.length <= this.maxBytes) {
+				byte[] previous = this.entries.put(key, rendering);
+				if (previous != null) {
+					this.currentBytes -= previous.length;
+				}
+				this.currentBytes += rendering.length;
+				evict();
+			}
+			this.pendingRenderings.remove(key).complete(rendering);
+		}
+		return rendering;
+	}
+
+	/**
+	 * Waits for a rendering that is done by another thread, and rethrows its
+	 * exception if it failed.
+	 */
+	byte[] waitForRendering(CompletableFuture<byte[]> pending) {
+		try {
+			return pending.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the complete RDF serialization of the given document to a
+	 * stream, using the cache as in
+	 * {@link #getRendering(EntityDocument, int)}.
+	 *
+	 * @param document
+	 *            the item or property document to render
+	 * @param tasks
+	 *            combination of flags such as
+	 *            {@link RdfSerializer#TASK_STATEMENTS}
+	 * @param output
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if there was a problem writing to the stream
+	 */
+	public void writeRendering(EntityDocument document, int tasks,
+			OutputStream output) throws IOException {
+		output.write(getRendering(document, tasks));
+	}
+
+	/**
+	 * Removes all entries from the cache. Statistics are not reset.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.currentBytes = 0;
+	}
+
+	/**
+	 * Returns the number of requests that were answered from the cache,
+	 * including requests that waited for the same rendering on another
+	 * thread.
+	 *
+	 * @return number of cache hits
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Returns the number of requests that required rendering.
+	 *
+	 * @return number of cache misses
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Returns the number of entries that were evicted to stay within the
+	 * size bound.
+	 *
+	 * @return number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Returns the number of renderings currently in the cache.
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the total size of the renderings currently in the cache.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getCurrentBytes() {
+		return this.currentBytes;
+	}
+
+	byte[] render(EntityDocument document, int tasks)
+			throws RDFHandlerException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RdfWriter rdfWriter = new RdfWriter(this.format, out);
+		RdfConverter rdfConverter = new RdfConverter(rdfWriter, this.sites,
+				this.propertyRegister);
+		rdfConverter.setTasks(tasks);
+
+		rdfWriter.start();
+		rdfConverter.writeNamespaceDeclarations();
+		if (document instanceof ItemDocument) {
+			rdfConverter.writeItemDocument((ItemDocument) document);
+		} else if (document instanceof PropertyDocument) {
+			rdfConverter.writePropertyDocument((PropertyDocument) document);
+		} else {
+			throw new IllegalArgumentException(
+					"Only items and properties can be rendered to RDF.");
+		}
+		rdfWriter.finish();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Removes least recently used entries until the cache fits into its
+	 * bound. Must be called while holding the lock.
+	 */
+	void evict() {
+		Iterator<Map.Entry<CacheKey, byte[]>> iterator = this.entries
+				.entrySet().iterator();
+		while (this.currentBytes > this.maxBytes && iterator.hasNext()) {
+			this.currentBytes -= iterator.next().getValue().length;
+			iterator.remove();
+			this.evictionCount++;
+		}
+	}
+
+	static class CacheKey {
+		final String entityIri;
+		final long revisionId;
+		final int tasks;
+
+		CacheKey(String entityIri, long revisionId, int tasks) {
+			this.entityIri = entityIri;
+			this.revisionId = revisionId;
+			this.tasks = tasks;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.entityIri, this.revisionId, this.tasks);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return this.revisionId == other.revisionId
+					&& this.tasks == other.tasks
+					&& this.entityIri.equals(other.entityIri);
+		}
+	}
+
+}
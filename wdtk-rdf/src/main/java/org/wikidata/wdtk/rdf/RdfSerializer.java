@@ -25,6 +25,7 @@ import java.io.OutputStream;
 
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
@@ -84,6 +85,27 @@ public class RdfSerializer implements EntityDocumentDumpProcessor {
 				propertyRegister);
 	}
 
+	/**
+	 * Creates a new RDF serializer that uses the given rdf4j writer. This can
+	 * be used for output formats that are not created through rdf4j's
+	 * registry, such as {@link DictionaryRdfWriter}.
+	 *
+	 * @param writer
+	 *            the RDF writer to use
+	 * @param output
+	 *            the output stream that the writer writes to; it is closed
+	 *            when the serializer is closed
+	 * @param sites
+	 *            information about site links
+	 */
+	public RdfSerializer(RDFWriter writer, OutputStream output, Sites sites,
+			PropertyRegister propertyRegister) {
+		this.output = output;
+		this.rdfWriter = new RdfWriter(writer);
+		this.rdfConverter = new RdfConverter(this.rdfWriter, sites,
+				propertyRegister);
+	}
+
 	/**
 	 * Sets the tasks that should be performed during export. The value should
 	 * be a combination of flags such as {@link RdfSerializer#TASK_STATEMENTS}.
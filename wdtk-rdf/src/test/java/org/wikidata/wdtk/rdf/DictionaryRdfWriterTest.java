@@ -0,0 +1,141 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+
+public class DictionaryRdfWriterTest {
+
+	final TestObjectFactory objectFactory = new TestObjectFactory();
+
+	Model readModel(byte[] data) throws IOException {
+		Model model = new LinkedHashModel();
+		new DictionaryRdfReader(new ByteArrayInputStream(data))
+				.read(new StatementCollector(model));
+		return model;
+	}
+
+	@Test
+	public void testSerializerRoundTrip() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RdfSerializer serializer = new RdfSerializer(new DictionaryRdfWriter(
+				out), out, new SitesImpl(), new MockPropertyRegister());
+		serializer.open();
+		serializer.processItemDocument(this.objectFactory.createItemDocument());
+		serializer.close();
+
+		Model model = readModel(out.toByteArray());
+		assertTrue(Models.isomorphic(RdfTestHelpers.parseRdf(RdfTestHelpers
+				.getResourceFromFile("completeRDFDocument.rdf")), model));
+		assertEquals(serializer.getTripleCount(), model.size());
+	}
+
+	@Test
+	public void testSmallerThanTurtle() throws IOException {
+		ByteArrayOutputStream dictionaryOut = new ByteArrayOutputStream();
+		RdfSerializer dictionarySerializer = new RdfSerializer(
+				new DictionaryRdfWriter(dictionaryOut), dictionaryOut,
+				new SitesImpl(), new MockPropertyRegister());
+		ByteArrayOutputStream ntriplesOut = new ByteArrayOutputStream();
+		RdfSerializer ntriplesSerializer = new RdfSerializer(
+				RDFFormat.NTRIPLES, ntriplesOut, new SitesImpl(),
+				new MockPropertyRegister());
+
+		for (RdfSerializer serializer : new RdfSerializer[] {
+				dictionarySerializer, ntriplesSerializer }) {
+			serializer.open();
+			serializer.processItemDocument(this.objectFactory
+					.createItemDocument());
+			serializer.close();
+		}
+
+		assertTrue(dictionaryOut.size() * 4 < ntriplesOut.size());
+	}
+
+	@Test
+	public void testDictionaryReset() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DictionaryRdfWriter writer = new DictionaryRdfWriter(out, 4);
+		RdfWriter rdfWriter = new RdfWriter(writer);
+		BNode bnode = rdfWriter.getFreshBNode();
+		IRI q42 = rdfWriter.getUri("http://www.wikidata.org/entity/Q42");
+
+		rdfWriter.start();
+		rdfWriter.writeNamespaceDeclaration("wd",
+				"http://www.wikidata.org/entity/");
+		rdfWriter.writeTripleValueObject(q42, RdfWriter.RDFS_LABEL,
+				rdfWriter.getLiteral("Douglas Adams", "en"));
+		rdfWriter.writeTripleLiteralObject(bnode, RdfWriter.WB_TIME,
+				"+1952-03-11T00:00:00Z", RdfWriter.XSD_DATETIME);
+		rdfWriter.writeTripleValueObject(q42, RdfWriter.WB_TIME, bnode);
+		rdfWriter.writeTripleStringObject(q42, RdfWriter.SKOS_ALT_LABEL,
+				"Q0042");
+		rdfWriter.finish();
+
+		Model expected = new LinkedHashModel();
+		expected.add(q42, RdfWriter.RDFS_LABEL,
+				rdfWriter.getLiteral("Douglas Adams", "en"));
+		expected.add(bnode, RdfWriter.WB_TIME, rdfWriter.getLiteral(
+				"+1952-03-11T00:00:00Z", RdfWriter.XSD_DATETIME));
+		expected.add(q42, RdfWriter.WB_TIME, bnode);
+		expected.add(q42, RdfWriter.SKOS_ALT_LABEL,
+				rdfWriter.getLiteral("Q0042"));
+
+		Model model = readModel(out.toByteArray());
+		assertEquals(expected, model);
+		assertEquals("http://www.wikidata.org/entity/",
+				model.getNamespace("wd").get().getName());
+		assertEquals(4, writer.getTripleCount());
+	}
+
+	@Test
+	public void testLocalNameNumbers() {
+		assertEquals(42, DictionaryRdfWriter.getLocalNameNumber("Q42"));
+		assertEquals(31, DictionaryRdfWriter.getLocalNameNumber("P31"));
+		assertEquals(-1, DictionaryRdfWriter.getLocalNameNumber("Q042"));
+		assertEquals(-1, DictionaryRdfWriter.getLocalNameNumber("Q"));
+		assertEquals(-1, DictionaryRdfWriter.getLocalNameNumber("q42"));
+		assertEquals(-1, DictionaryRdfWriter.getLocalNameNumber("Q42-abc"));
+	}
+
+	@Test(expected = RDFParseException.class)
+	public void testInvalidData() throws IOException {
+		readModel("<http://example.org/> a <http://example.org/> ."
+				.getBytes());
+	}
+
+}
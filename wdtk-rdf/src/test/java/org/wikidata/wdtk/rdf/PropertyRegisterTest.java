@@ -21,6 +21,7 @@ package org.wikidata.wdtk.rdf;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -30,6 +31,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.core.IsIterableContaining;
 import org.junit.Before;
@@ -53,6 +59,7 @@ import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 public class PropertyRegisterTest {
 
 	PropertyRegister propertyRegister;
+	Map<String, EntityDocument> mockResult;
 
 	final String siteIri = "http://www.example.org/entities/";
 
@@ -61,7 +68,7 @@ public class PropertyRegisterTest {
 
 	@Before
 	public void setUp() throws MediaWikiApiErrorException, IOException {
-		Map<String, EntityDocument> mockResult = new HashMap<>();
+		mockResult = new HashMap<>();
 		List<StatementGroup> mockStatementGroups = new ArrayList<>();
 
 		PropertyIdValue pid434 = dataObjectFactory.getPropertyIdValue("P434",
@@ -245,6 +252,53 @@ public class PropertyRegisterTest {
 				"http://wikiba.se/ontology#String");
 	}
 
+	@Test(timeout = 10000)
+	public void testFetchingDoesNotBlockReaders() throws Exception {
+		CountDownLatch fetchStarted = new CountDownLatch(1);
+		CountDownLatch fetchReleased = new CountDownLatch(1);
+		AtomicInteger requests = new AtomicInteger();
+		WikibaseDataFetcher blockingFetcher = Mockito
+				.mock(WikibaseDataFetcher.class);
+		Mockito.when(blockingFetcher.getFilter()).thenReturn(
+				new DocumentDataFilter());
+		Mockito.when(blockingFetcher.getEntityDocuments(Mockito.<List<String>>any()))
+				.thenAnswer(invocation -> {
+					requests.incrementAndGet();
+					fetchStarted.countDown();
+					fetchReleased.await();
+					return this.mockResult;
+				});
+		this.propertyRegister.dataFetcher = blockingFetcher;
+		PropertyIdValue pid434 = dataObjectFactory.getPropertyIdValue("P434",
+				this.siteIri);
+		PropertyIdValue known = dataObjectFactory.getPropertyIdValue("P31",
+				this.siteIri);
+		this.propertyRegister.setPropertyType(known, DatatypeIdValue.DT_ITEM);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(
+					() -> this.propertyRegister.getPropertyType(pid434));
+			fetchStarted.await();
+			Future<String> second = executor.submit(
+					() -> this.propertyRegister.getPropertyUriPattern(pid434));
+
+			// known properties can be read while the fetch is running
+			assertEquals(DatatypeIdValue.DT_ITEM,
+					this.propertyRegister.getPropertyType(known));
+			assertFalse(second.isDone());
+
+			fetchReleased.countDown();
+			assertEquals(DatatypeIdValue.DT_STRING, first.get());
+			assertEquals("http://musicbrainz.org/$1/artist", second.get());
+			assertEquals(1, requests.get());
+			assertTrue(this.propertyRegister.pendingFetches.isEmpty());
+		} finally {
+			fetchReleased.countDown();
+			executor.shutdownNow();
+		}
+	}
+
 	@Test
 	public void testWikidataPropertyRegister() {
 		PropertyRegister pr = PropertyRegister.getWikidataPropertyRegister();
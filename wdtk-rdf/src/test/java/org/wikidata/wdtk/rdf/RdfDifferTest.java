@@ -0,0 +1,218 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+public class RdfDifferTest {
+
+	final TestObjectFactory objectFactory = new TestObjectFactory();
+
+	ByteArrayOutputStream removals;
+	ByteArrayOutputStream additions;
+	RdfDiffer rdfDiffer;
+
+	@Before
+	public void setUp() {
+		this.removals = new ByteArrayOutputStream();
+		this.additions = new ByteArrayOutputStream();
+		this.rdfDiffer = new RdfDiffer(
+				new RdfWriter(RDFFormat.TURTLE, this.removals),
+				new RdfWriter(RDFFormat.TURTLE, this.additions),
+				new SitesImpl(), new MockPropertyRegister());
+	}
+
+	@Test
+	public void testUnchangedDocument() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument();
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(document, document);
+		this.rdfDiffer.close();
+
+		assertTrue(RdfTestHelpers.parseRdf(this.removals.toString()).isEmpty());
+		assertTrue(RdfTestHelpers.parseRdf(this.additions.toString()).isEmpty());
+		assertEquals(0, this.rdfDiffer.getChangedEntityCount());
+	}
+
+	@Test
+	public void testCreatedDocument() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument();
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(null, document);
+		this.rdfDiffer.close();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RdfSerializer rdfSerializer = new RdfSerializer(RDFFormat.TURTLE, out,
+				new SitesImpl(), new MockPropertyRegister());
+		rdfSerializer.open();
+		rdfSerializer.processItemDocument(document);
+		rdfSerializer.close();
+		Model serialized = RdfTestHelpers.parseRdf(out.toString());
+
+		// everything but basic declarations is added
+		Model added = RdfTestHelpers.parseRdf(this.additions.toString());
+		assertTrue(serialized.containsAll(added.filter(null, null, null)
+				.stream()
+				.filter(st -> !(st.getSubject() instanceof BNode)
+						&& !(st.getObject() instanceof BNode))
+				.collect(Collectors.toList())));
+		assertTrue(added.contains(RdfWriter.factory.createIRI(
+				Vocabulary.PREFIX_PROPERTY + "P549"), RdfWriter.RDF_TYPE,
+				RdfWriter.OWL_OBJECT_PROPERTY));
+		IRI subject = RdfWriter.factory.createIRI(document.getEntityId()
+				.getIri());
+		assertEquals(serialized.filter(subject, null, null),
+				added.filter(subject, null, null));
+		assertTrue(added.contains(subject, RdfWriter.RDF_TYPE,
+				RdfWriter.WB_ITEM));
+		assertTrue(RdfTestHelpers.parseRdf(this.removals.toString()).isEmpty());
+		assertEquals(1, this.rdfDiffer.getChangedEntityCount());
+	}
+
+	@Test
+	public void testChangedDocument() throws IOException {
+		ItemDocument oldDocument = this.objectFactory.createItemDocument();
+		ItemDocument newDocument = oldDocument
+				.withLabel(Datamodel.makeMonolingualTextValue("new label", "lc"))
+				.withoutStatementIds(Collections.singleton("Q10$none3"));
+
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(oldDocument, newDocument);
+		this.rdfDiffer.close();
+
+		Model removed = RdfTestHelpers.parseRdf(this.removals.toString());
+		Model added = RdfTestHelpers.parseRdf(this.additions.toString());
+		IRI subject = RdfWriter.factory.createIRI(oldDocument.getEntityId()
+				.getIri());
+
+		assertEquals(1, added.size());
+		assertTrue(added.contains(subject, RdfWriter.RDFS_LABEL,
+				RdfWriter.factory.createLiteral("new label", "lc")));
+		assertTrue(removed.contains(subject, RdfWriter.RDFS_LABEL,
+				RdfWriter.factory.createLiteral("foo", "lc")));
+		assertTrue(removed.contains(subject, RdfWriter.factory
+				.createIRI(Vocabulary.PREFIX_PROPERTY + "P549"), null));
+		assertTrue(Models.subjectIRIs(removed).stream()
+				.noneMatch(iri -> iri.stringValue().startsWith(
+						Vocabulary.PREFIX_WIKIDATA_REFERENCE)));
+		assertEquals(1, this.rdfDiffer.getChangedEntityCount());
+	}
+
+	@Test
+	public void testSameRevisionSkipped() throws IOException {
+		ItemDocument oldDocument = this.objectFactory.createItemDocument()
+				.withRevisionId(1234);
+		ItemDocument newDocument = oldDocument.withLabel(
+				Datamodel.makeMonolingualTextValue("new label", "en"));
+
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(oldDocument, newDocument);
+		this.rdfDiffer.close();
+
+		assertTrue(RdfTestHelpers.parseRdf(this.additions.toString()).isEmpty());
+	}
+
+	ItemDocument withSomeValueStatement(ItemDocument document) {
+		Statement statement = Datamodel.makeStatement(
+				Datamodel.makeClaim(document.getEntityId(),
+						Datamodel.makeSomeValueSnak(Datamodel
+								.makeWikidataPropertyIdValue("P1001")),
+						Collections.emptyList()),
+				Collections.emptyList(), StatementRank.NORMAL, "Q10$some");
+		return document.withStatement(statement);
+	}
+
+	@Test
+	public void testNewPropertyDeclared() throws IOException {
+		ItemDocument oldDocument = this.objectFactory.createItemDocument();
+		ItemDocument newDocument = withSomeValueStatement(oldDocument);
+
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(oldDocument, newDocument);
+		this.rdfDiffer.close();
+
+		Model added = RdfTestHelpers.parseRdf(this.additions.toString());
+		IRI statementProperty = RdfWriter.factory
+				.createIRI(Vocabulary.PREFIX_PROPERTY + "P1001");
+		assertTrue(added.contains(statementProperty, RdfWriter.RDF_TYPE,
+				RdfWriter.OWL_OBJECT_PROPERTY));
+		assertTrue(added.contains(RdfWriter.factory.createIRI(oldDocument
+				.getEntityId().getIri()), statementProperty, null));
+		// properties of the old version are declared already
+		assertFalse(added.contains(RdfWriter.factory.createIRI(
+				Vocabulary.PREFIX_PROPERTY + "P549"), null, null));
+	}
+
+	@Test
+	public void testBlankNodeRemoval() throws IOException {
+		ItemDocument newDocument = this.objectFactory.createItemDocument();
+		ItemDocument oldDocument = withSomeValueStatement(newDocument);
+		StringWriter blankNodeRemovals = new StringWriter();
+		this.rdfDiffer.setBlankNodeRemovalWriter(blankNodeRemovals);
+
+		this.rdfDiffer.open();
+		this.rdfDiffer.writeDiff(oldDocument, newDocument);
+		this.rdfDiffer.close();
+
+		String link = "<" + Vocabulary.PREFIX_WIKIDATA_STATEMENT
+				+ "Q10-some> <" + Vocabulary.PREFIX_PROPERTY_STATEMENT
+				+ "P1001> ?blank";
+		assertEquals("DELETE { " + link + " . ?blank ?p ?o . } WHERE { "
+				+ link + " . FILTER(isBlank(?blank)) "
+				+ "OPTIONAL { ?blank ?p ?o } } ;\n",
+				blankNodeRemovals.toString());
+		assertTrue(RdfTestHelpers.parseRdf(this.additions.toString()).isEmpty());
+		assertEquals(1, this.rdfDiffer.getChangedEntityCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentEntities() throws IOException {
+		ItemDocument oldDocument = this.objectFactory.createItemDocument();
+		ItemIdValue otherId = Datamodel.makeWikidataItemIdValue("Q11");
+		this.rdfDiffer.writeDiff(oldDocument,
+				Datamodel.makeItemDocument(otherId, Collections.emptyList(),
+						Collections.emptyList(), Collections.emptyList(),
+						Collections.emptyList(), Collections.emptyMap()));
+	}
+
+}
@@ -0,0 +1,183 @@
+package org.wikidata.wdtk.rdf;
+
+/*
+ * #%L
+ * Wikidata Toolkit RDF
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+
+public class RdfRenderingCacheTest {
+
+	static final int TASKS = RdfSerializer.TASK_ALL_ENTITIES
+			| RdfSerializer.TASK_ALL_EXACT_DATA;
+
+	final TestObjectFactory objectFactory = new TestObjectFactory();
+
+	RdfRenderingCache cache;
+
+	@Before
+	public void setUp() {
+		this.cache = new RdfRenderingCache(RDFFormat.TURTLE, new SitesImpl(),
+				new MockPropertyRegister(), 1_000_000);
+	}
+
+	@Test
+	public void testRendering() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument()
+				.withRevisionId(42);
+		Model model = RdfTestHelpers.parseRdf(new String(this.cache
+				.getRendering(document, TASKS), StandardCharsets.UTF_8));
+
+		IRI subject = RdfWriter.factory.createIRI(document.getEntityId()
+				.getIri());
+		assertTrue(model.contains(subject, RdfWriter.RDF_TYPE,
+				RdfWriter.WB_ITEM));
+		assertTrue(model.contains(subject, RdfWriter.RDFS_LABEL, null));
+	}
+
+	@Test
+	public void testHitsAndMisses() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument()
+				.withRevisionId(42);
+
+		byte[] first = this.cache.getRendering(document, TASKS);
+		byte[] second = this.cache.getRendering(document, TASKS);
+		assertSame(first, second);
+		assertEquals(1, this.cache.getHitCount());
+		assertEquals(1, this.cache.getMissCount());
+
+		byte[] otherRevision = this.cache.getRendering(
+				document.withRevisionId(43), TASKS);
+		byte[] otherTasks = this.cache.getRendering(document,
+				RdfSerializer.TASK_ALL_ENTITIES | RdfSerializer.TASK_LABELS);
+		assertNotSame(first, otherRevision);
+		assertTrue(otherTasks.length < first.length);
+		assertEquals(3, this.cache.getMissCount());
+		assertEquals(3, this.cache.getEntryCount());
+		assertEquals(first.length + otherRevision.length + otherTasks.length,
+				this.cache.getCurrentBytes());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		this.cache.writeRendering(document, TASKS, out);
+		assertArrayEquals(first, out.toByteArray());
+		assertEquals(2, this.cache.getHitCount());
+	}
+
+	@Test
+	public void testNoRevisionNotCached() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument();
+		this.cache.getRendering(document, TASKS);
+		this.cache.getRendering(document, TASKS);
+		assertEquals(0, this.cache.getHitCount());
+		assertEquals(2, this.cache.getMissCount());
+		assertEquals(0, this.cache.getEntryCount());
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		ItemDocument document = this.objectFactory.createItemDocument();
+		int size = this.cache.render(document, TASKS).length;
+		this.cache = new RdfRenderingCache(RDFFormat.TURTLE, new SitesImpl(),
+				new MockPropertyRegister(), 2 * size + size / 2);
+
+		this.cache.getRendering(document.withRevisionId(1), TASKS);
+		this.cache.getRendering(document.withRevisionId(2), TASKS);
+		// make revision 1 the most recently used entry
+		this.cache.getRendering(document.withRevisionId(1), TASKS);
+		this.cache.getRendering(document.withRevisionId(3), TASKS);
+
+		assertEquals(2, this.cache.getEntryCount());
+		assertEquals(1, this.cache.getEvictionCount());
+		this.cache.getRendering(document.withRevisionId(1), TASKS);
+		assertEquals(2, this.cache.getHitCount());
+		this.cache.getRendering(document.withRevisionId(2), TASKS);
+		assertEquals(2, this.cache.getHitCount());
+
+		this.cache.clear();
+		assertEquals(0, this.cache.getEntryCount());
+		assertEquals(0, this.cache.getCurrentBytes());
+	}
+
+	@Test
+	public void testConcurrentMissesRenderOnce() throws Exception {
+		AtomicInteger renderCount = new AtomicInteger();
+		CountDownLatch rendering = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		this.cache = new RdfRenderingCache(RDFFormat.TURTLE, new SitesImpl(),
+				new MockPropertyRegister(), 1_000_000) {
+			@Override
+			byte[] render(EntityDocument document, int tasks)
+					throws RDFHandlerException {
+				renderCount.incrementAndGet();
+				rendering.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.render(document, tasks);
+			}
+		};
+		ItemDocument document = this.objectFactory.createItemDocument()
+				.withRevisionId(42);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<byte[]> first = executor
+					.submit(() -> this.cache.getRendering(document, TASKS));
+			rendering.await();
+			Future<byte[]> second = executor
+					.submit(() -> this.cache.getRendering(document, TASKS));
+			while (this.cache.getHitCount() == 0) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			assertSame(first.get(), second.get());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, renderCount.get());
+		assertEquals(1, this.cache.getMissCount());
+		assertEquals(1, this.cache.getHitCount());
+	}
+
+}
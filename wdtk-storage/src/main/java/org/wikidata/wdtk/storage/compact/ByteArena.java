@@ -0,0 +1,148 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Append-only storage for byte records, which are kept in large shared
+ * chunks instead of one array per record. A record never spans two chunks,
+ * so that it can be read from a single array. Records that are larger than
+ * the chunk size get a chunk of their own.
+ * <p>
+ * Records are identified by addresses, which combine the index of the chunk
+ * (upper 32 bits) with the offset of the record in the chunk (lower 32
+ * bits).
+ */
+public class ByteArena {
+
+	/**
+	 * Default size of chunks in bytes.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+	final int chunkSize;
+
+	final List<byte[]> chunks = new ArrayList<>();
+
+	/**
+	 * Number of bytes used in the last chunk.
+	 */
+	int used;
+
+	/**
+	 * Total number of bytes in all records.
+	 */
+	long size;
+
+	/**
+	 * Constructs an empty arena with the default chunk size.
+	 */
+	public ByteArena() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructs an empty arena.
+	 *
+	 * @param chunkSize
+	 *            size of the chunks that are allocated, in bytes
+	 */
+	public ByteArena(int chunkSize) {
+		Validate.isTrue(chunkSize > 0, "Chunk size must be positive");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Appends a record.
+	 *
+	 * @param bytes
+	 *            array that contains the record
+	 * @param offset
+	 *            start of the record in the array
+	 * @param length
+	 *            length of the record
+	 * @return address of the new record
+	 */
+	public long append(byte[] bytes, int offset, int length) {
+		if (this.chunks.isEmpty()
+				|| length > this.chunks.get(this.chunks.size() - 1).length
+						- this.used) {
+			this.chunks.add(new byte[Math.max(this.chunkSize, length)]);
+			this.used = 0;
+		}
+		int chunkIndex = this.chunks.size() - 1;
+		System.arraycopy(bytes, offset, this.chunks.get(chunkIndex), this.used,
+				length);
+		long address = ((long) chunkIndex << 32) | this.used;
+		this.used += length;
+		this.size += length;
+		return address;
+	}
+
+	/**
+	 * Returns the chunk that contains the record with the given address.
+	 *
+	 * @param address
+	 *            address of a record
+	 * @return array that contains the record
+	 */
+	public byte[] getChunk(long address) {
+		return this.chunks.get((int) (address >>> 32));
+	}
+
+	/**
+	 * Returns the offset of the record with the given address in its chunk.
+	 *
+	 * @param address
+	 *            address of a record
+	 * @return offset in the array returned by {@link #getChunk(long)}
+	 */
+	public static int getOffset(long address) {
+		return (int) address;
+	}
+
+	/**
+	 * Returns the total size of all records in bytes.
+	 *
+	 * @return size of the records
+	 */
+	public long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the total size of all allocated chunks in bytes.
+	 *
+	 * @return allocated memory
+	 */
+	public long getCapacity() {
+		long capacity = 0;
+		for (byte[] chunk : this.chunks) {
+			capacity += chunk.length;
+		}
+		return capacity;
+	}
+
+}
@@ -0,0 +1,342 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.Equality;
+import org.wikidata.wdtk.datamodel.helpers.Hash;
+import org.wikidata.wdtk.datamodel.helpers.ToString;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+
+/**
+ * View of an item in a {@link CompactItemStore}. Objects of this class only
+ * hold a reference to the store and the ordinal of the item. All getters
+ * decode the requested part of the stored record into new datamodel objects,
+ * so callers that access the same data repeatedly should keep the results.
+ * Methods such as {@link #findLabel(String)},
+ * {@link #findStatementGroup(String)} and {@link #findItemValueIds(int)}
+ * skip over the parts of the record that they do not need.
+ * <p>
+ * The documents are read-only. The methods that create modified copies
+ * return ordinary {@link ItemDocument} objects, which are not added to the
+ * store.
+ */
+public class CompactItemDocument implements ItemDocument {
+
+	static final int SECTION_LABELS = 0;
+	static final int SECTION_DESCRIPTIONS = 1;
+	static final int SECTION_ALIASES = 2;
+	static final int SECTION_SITE_LINKS = 3;
+	static final int SECTION_STATEMENTS = 4;
+
+	final CompactItemStore store;
+
+	final int ordinal;
+
+	CompactItemDocument(CompactItemStore store, int ordinal) {
+		this.store = store;
+		this.ordinal = ordinal;
+	}
+
+	/**
+	 * Returns the ordinal of this item in its store.
+	 *
+	 * @return ordinal
+	 */
+	public int getOrdinal() {
+		return this.ordinal;
+	}
+
+	/**
+	 * Returns the numeric part of the id of this item, such as 42 for Q42.
+	 *
+	 * @return numeric id
+	 */
+	public int getNumericId() {
+		return this.store.numericIds[this.ordinal];
+	}
+
+	@Override
+	public ItemIdValue getEntityId() {
+		return this.store.getItemIdValue(getNumericId());
+	}
+
+	@Override
+	public long getRevisionId() {
+		return this.store.getRecordReader(this.ordinal).readVarLong();
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getLabels() {
+		return Collections.unmodifiableMap(ItemRecordCodec.decodeTerms(
+				this.store, getReader(SECTION_LABELS)));
+	}
+
+	@Override
+	public String findLabel(String languageCode) {
+		return findTerm(SECTION_LABELS, languageCode);
+	}
+
+	@Override
+	public MonolingualTextValue getLabel(String languageCode) {
+		return makeTerm(findLabel(languageCode), languageCode);
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getDescriptions() {
+		return Collections.unmodifiableMap(ItemRecordCodec.decodeTerms(
+				this.store, getReader(SECTION_DESCRIPTIONS)));
+	}
+
+	@Override
+	public String findDescription(String languageCode) {
+		return findTerm(SECTION_DESCRIPTIONS, languageCode);
+	}
+
+	@Override
+	public MonolingualTextValue getDescription(String languageCode) {
+		return makeTerm(findDescription(languageCode), languageCode);
+	}
+
+	@Override
+	public Map<String, List<MonolingualTextValue>> getAliases() {
+		return Collections.unmodifiableMap(ItemRecordCodec.decodeAliases(
+				this.store, getReader(SECTION_ALIASES)));
+	}
+
+	@Override
+	public List<MonolingualTextValue> getAliases(String languageCode) {
+		int language = this.store.languages.findIndex(languageCode);
+		if (language < 0) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(ItemRecordCodec.findAliases(
+				getReader(SECTION_ALIASES), language, languageCode));
+	}
+
+	@Override
+	public Map<String, SiteLink> getSiteLinks() {
+		return Collections.unmodifiableMap(ItemRecordCodec.decodeSiteLinks(
+				this.store, getReader(SECTION_SITE_LINKS)));
+	}
+
+	@Override
+	public List<StatementGroup> getStatementGroups() {
+		RecordReader reader = getReader(SECTION_STATEMENTS);
+		ItemIdValue subject = getEntityId();
+		int count = reader.readVarInt();
+		List<StatementGroup> statementGroups = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			reader.readVarInt(); // property
+			statementGroups.add(ItemRecordCodec.decodeStatementGroup(
+					this.store, reader, subject));
+		}
+		return Collections.unmodifiableList(statementGroups);
+	}
+
+	@Override
+	public StatementGroup findStatementGroup(PropertyIdValue propertyIdValue) {
+		if (!this.store.getSiteIri().equals(propertyIdValue.getSiteIri())) {
+			return null;
+		}
+		return findStatementGroup(propertyIdValue.getId());
+	}
+
+	@Override
+	public StatementGroup findStatementGroup(String propertyId) {
+		if (propertyId.isEmpty() || propertyId.charAt(0) != 'P') {
+			return null;
+		}
+		int property = ItemRecordCodec.getNumericId(propertyId);
+		if (property < 0) {
+			return null;
+		}
+		RecordReader reader = findStatements(property);
+		return reader == null ? null : ItemRecordCodec.decodeStatementGroup(
+				this.store, reader, getEntityId());
+	}
+
+	/**
+	 * Returns the numeric ids of the items that are the values of the main
+	 * snaks of the statements for the given property. Other values are
+	 * ignored. No datamodel objects are created, which makes this method
+	 * suitable for traversing the graph of items.
+	 *
+	 * @param property
+	 *            numeric id of the property, such as 31 for P31
+	 * @return numeric ids of the item values, in the order of the statements
+	 */
+	public int[] findItemValueIds(int property) {
+		RecordReader reader = findStatements(property);
+		if (reader == null) {
+			return new int[0];
+		}
+		int count = reader.readVarInt();
+		int[] result = new int[count];
+		int found = 0;
+		for (int i = 0; i < count; i++) {
+			int length = reader.readVarInt();
+			int end = reader.position + length;
+			reader.readByte(); // rank
+			int statementIdKind = reader.readByte();
+			if (statementIdKind == ItemRecordCodec.STATEMENT_ID_STRING) {
+				reader.skipSection();
+			} else if (statementIdKind != ItemRecordCodec.STATEMENT_ID_EMPTY) {
+				reader.position += 16;
+			}
+			if (reader.readByte() == ItemRecordCodec.SNAK_VALUE) {
+				reader.readVarInt(); // property
+				if (reader.readByte() == ItemRecordCodec.VALUE_ITEM) {
+					result[found++] = reader.readVarInt();
+				}
+			}
+			reader.position = end;
+		}
+		return found == count ? result : Arrays.copyOf(result, found);
+	}
+
+	/**
+	 * Creates an {@link ItemDocument} with all the data of this item, which
+	 * does not depend on the store.
+	 *
+	 * @return the decoded item document
+	 */
+	public ItemDocument toItemDocument() {
+		List<MonolingualTextValue> aliases = new ArrayList<>();
+		for (List<MonolingualTextValue> languageAliases : getAliases().values()) {
+			aliases.addAll(languageAliases);
+		}
+		return Datamodel.makeItemDocument(getEntityId(),
+				new ArrayList<>(getLabels().values()),
+				new ArrayList<>(getDescriptions().values()), aliases,
+				getStatementGroups(), getSiteLinks(), getRevisionId());
+	}
+
+	@Override
+	public ItemDocument withEntityId(ItemIdValue newEntityId) {
+		return toItemDocument().withEntityId(newEntityId);
+	}
+
+	@Override
+	public ItemDocument withRevisionId(long newRevisionId) {
+		return toItemDocument().withRevisionId(newRevisionId);
+	}
+
+	@Override
+	public ItemDocument withLabel(MonolingualTextValue newLabel) {
+		return toItemDocument().withLabel(newLabel);
+	}
+
+	@Override
+	public ItemDocument withDescription(MonolingualTextValue newDescription) {
+		return toItemDocument().withDescription(newDescription);
+	}
+
+	@Override
+	public ItemDocument withAliases(String language,
+			List<MonolingualTextValue> aliases) {
+		return toItemDocument().withAliases(language, aliases);
+	}
+
+	@Override
+	public ItemDocument withStatement(Statement statement) {
+		return toItemDocument().withStatement(statement);
+	}
+
+	@Override
+	public ItemDocument withoutStatementIds(Set<String> statementIds) {
+		return toItemDocument().withoutStatementIds(statementIds);
+	}
+
+	@Override
+	public int hashCode() {
+		return Hash.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return Equality.equalsItemDocument(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return ToString.toString(this);
+	}
+
+	/**
+	 * Returns a reader that is positioned at the start of the given section
+	 * of the record of this item.
+	 */
+	RecordReader getReader(int section) {
+		RecordReader reader = this.store.getRecordReader(this.ordinal);
+		reader.readVarLong(); // revision id
+		for (int i = 0; i < section; i++) {
+			reader.skipSection();
+		}
+		return reader;
+	}
+
+	String findTerm(int section, String languageCode) {
+		int language = this.store.languages.findIndex(languageCode);
+		if (language < 0) {
+			return null;
+		}
+		return ItemRecordCodec.findTerm(getReader(section), language);
+	}
+
+	private static MonolingualTextValue makeTerm(String text, String languageCode) {
+		return text == null ? null : Datamodel.makeMonolingualTextValue(text,
+				languageCode);
+	}
+
+	/**
+	 * Returns a reader that is positioned at the statement count of the
+	 * group for the given property, or null if there is no such group.
+	 */
+	RecordReader findStatements(int property) {
+		RecordReader reader = getReader(SECTION_STATEMENTS);
+		int groupCount = reader.readVarInt();
+		for (int i = 0; i < groupCount; i++) {
+			if (reader.readVarInt() == property) {
+				return reader;
+			}
+			int count = reader.readVarInt();
+			for (int j = 0; j < count; j++) {
+				reader.skipSection();
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,294 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+
+/**
+ * Read-only in-memory store for a large number of item documents of one
+ * site. Each document is encoded into a byte record in a shared
+ * {@link ByteArena}: ids of the site are stored by their numbers, language
+ * codes, site keys and IRIs as indices of {@link StringDictionary} objects,
+ * and texts as UTF-8. This needs a small fraction of the memory of the usual
+ * object graphs.
+ * <p>
+ * The documents are accessed through {@link CompactItemDocument} objects,
+ * which decode the data on demand. Each item gets an ordinal, which is the
+ * position in which it was first added. Adding an item again replaces its
+ * data, but the space of the old record is not reclaimed.
+ * <p>
+ * The store can be registered as an {@link EntityDocumentProcessor} to load
+ * the items of a dump. Adding items is not thread-safe; once the store has
+ * been filled, it can be read by any number of threads.
+ */
+public class CompactItemStore implements EntityDocumentProcessor {
+
+	final String siteIri;
+
+	final StringDictionary languages = new StringDictionary();
+
+	final StringDictionary siteKeys = new StringDictionary();
+
+	/**
+	 * Dictionary for calendar models, globes, and sites of foreign entities.
+	 */
+	final StringDictionary iris = new StringDictionary();
+
+	final ByteArena arena;
+
+	final ItemRecordCodec codec;
+
+	int[] numericIds = new int[16];
+
+	long[] addresses = new long[16];
+
+	int size;
+
+	/**
+	 * Open-addressing hash table that maps numeric ids to ordinals. Each slot
+	 * holds an ordinal plus one, or 0 if it is empty.
+	 */
+	int[] ordinalTable = new int[32];
+
+	/**
+	 * Constructs an empty store.
+	 *
+	 * @param siteIri
+	 *            IRI of the site of the items, such as
+	 *            {@link Datamodel#SITE_WIKIDATA}
+	 */
+	public CompactItemStore(String siteIri) {
+		this(siteIri, new ByteArena());
+	}
+
+	/**
+	 * Constructs an empty store that uses the given arena.
+	 *
+	 * @param siteIri
+	 *            IRI of the site of the items
+	 * @param arena
+	 *            arena for the records of the items
+	 */
+	public CompactItemStore(String siteIri, ByteArena arena) {
+		Validate.notNull(siteIri, "Site IRI cannot be null");
+		this.siteIri = siteIri;
+		this.arena = arena;
+		this.codec = new ItemRecordCodec(this);
+	}
+
+	/**
+	 * Returns the IRI of the site of the items in this store.
+	 *
+	 * @return site IRI
+	 */
+	public String getSiteIri() {
+		return this.siteIri;
+	}
+
+	/**
+	 * Adds an item document to the store, or replaces the stored data if an
+	 * item with the same id has been added before.
+	 *
+	 * @param itemDocument
+	 *            the document to add
+	 * @return ordinal of the item in this store
+	 * @throws IllegalArgumentException
+	 *             if the document belongs to another site, or uses properties
+	 *             or placeholder ids that cannot be stored
+	 */
+	public int add(ItemDocument itemDocument) {
+		ItemIdValue itemId = itemDocument.getEntityId();
+		int numericId = ItemRecordCodec.getNumericId(itemId);
+		if (numericId < 0 || !this.siteIri.equals(itemId.getSiteIri())) {
+			throw new IllegalArgumentException("Cannot store item " + itemId
+					+ " in a store for " + this.siteIri);
+		}
+		this.codec.encode(itemDocument);
+		long address = this.arena.append(this.codec.record.buffer, 0,
+				this.codec.record.length);
+
+		int ordinal = findOrdinal(numericId);
+		if (ordinal >= 0) {
+			this.addresses[ordinal] = address;
+			return ordinal;
+		}
+
+		ordinal = this.size;
+		if (ordinal == this.numericIds.length) {
+			this.numericIds = Arrays.copyOf(this.numericIds, 2 * ordinal);
+			this.addresses = Arrays.copyOf(this.addresses, 2 * ordinal);
+		}
+		this.numericIds[ordinal] = numericId;
+		this.addresses[ordinal] = address;
+		this.size++;
+		if (2 * this.size > this.ordinalTable.length) {
+			rehash(2 * this.ordinalTable.length);
+		} else {
+			insertOrdinal(ordinal);
+		}
+		return ordinal;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		add(itemDocument);
+	}
+
+	/**
+	 * Returns the number of items in this store.
+	 *
+	 * @return number of items
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the ordinal of the item with the given numeric id, such as 42
+	 * for Q42.
+	 *
+	 * @param numericId
+	 *            numeric part of the item id
+	 * @return the ordinal, or -1 if the item is not in this store
+	 */
+	public int findOrdinal(int numericId) {
+		int mask = this.ordinalTable.length - 1;
+		int slot = mix(numericId) & mask;
+		int entry;
+		while ((entry = this.ordinalTable[slot]) != 0) {
+			if (this.numericIds[entry - 1] == numericId) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the numeric id of the item with the given ordinal.
+	 *
+	 * @param ordinal
+	 *            ordinal of an item in this store
+	 * @return numeric part of the item id
+	 */
+	public int getNumericId(int ordinal) {
+		Validate.isTrue(ordinal >= 0 && ordinal < this.size,
+				"Ordinal out of range");
+		return this.numericIds[ordinal];
+	}
+
+	/**
+	 * Returns a view of the item with the given ordinal.
+	 *
+	 * @param ordinal
+	 *            ordinal of an item in this store
+	 * @return the item document
+	 */
+	public CompactItemDocument getItemDocument(int ordinal) {
+		Validate.isTrue(ordinal >= 0 && ordinal < this.size,
+				"Ordinal out of range");
+		return new CompactItemDocument(this, ordinal);
+	}
+
+	/**
+	 * Returns a view of the item with the given numeric id, or null if the
+	 * item is not in this store.
+	 *
+	 * @param numericId
+	 *            numeric part of the item id
+	 * @return the item document or null
+	 */
+	public CompactItemDocument findItemDocument(int numericId) {
+		int ordinal = findOrdinal(numericId);
+		return ordinal < 0 ? null : new CompactItemDocument(this, ordinal);
+	}
+
+	/**
+	 * Returns a view of the item with the given id, or null if the item is
+	 * not in this store.
+	 *
+	 * @param itemIdValue
+	 *            id of the item
+	 * @return the item document or null
+	 */
+	public CompactItemDocument findItemDocument(ItemIdValue itemIdValue) {
+		int numericId = ItemRecordCodec.getNumericId(itemIdValue);
+		if (numericId < 0 || !this.siteIri.equals(itemIdValue.getSiteIri())) {
+			return null;
+		}
+		return findItemDocument(numericId);
+	}
+
+	/**
+	 * Returns the number of bytes used by the records of all items.
+	 *
+	 * @return size of the records
+	 */
+	public long getRecordSize() {
+		return this.arena.getSize();
+	}
+
+	RecordReader getRecordReader(int ordinal) {
+		long address = this.addresses[ordinal];
+		return new RecordReader(this.arena.getChunk(address),
+				ByteArena.getOffset(address));
+	}
+
+	ItemIdValue getItemIdValue(int numericId) {
+		return Datamodel.makeItemIdValue("Q" + numericId, this.siteIri);
+	}
+
+	PropertyIdValue getPropertyIdValue(int numericId) {
+		return Datamodel.makePropertyIdValue("P" + numericId, this.siteIri);
+	}
+
+	void rehash(int capacity) {
+		this.ordinalTable = new int[capacity];
+		for (int ordinal = 0; ordinal < this.size; ordinal++) {
+			insertOrdinal(ordinal);
+		}
+	}
+
+	void insertOrdinal(int ordinal) {
+		int mask = this.ordinalTable.length - 1;
+		int slot = mix(this.numericIds[ordinal]) & mask;
+		while (this.ordinalTable[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		this.ordinalTable[slot] = ordinal + 1;
+	}
+
+	/**
+	 * Spreads consecutive ids over the table.
+	 */
+	static int mix(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
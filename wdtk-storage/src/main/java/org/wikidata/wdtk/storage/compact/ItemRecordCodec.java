@@ -0,0 +1,651 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityIdValueImpl;
+import org.wikidata.wdtk.datamodel.implementation.SnakImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.GlobeCoordinatesValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.NoValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.SomeValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+
+/**
+ * Binary encoding of item documents as used by {@link CompactItemStore}.
+ * A record has the following layout, where numbers are variable-length
+ * integers as written by {@link RecordWriter}, and languages, site keys and
+ * IRIs are indices in the dictionaries of the store:
+ *
+ * <pre>
+ * revision id
+ * labels:       length, count, (language, text)*
+ * descriptions: length, count, (language, text)*
+ * aliases:      length, count, (language, count, text*)*
+ * site links:   length, count, (site key, title, count, badge value*)*
+ * statements:   group count, (property, count, (length, statement)*)*
+ * </pre>
+ *
+ * The length prefixes allow readers to skip over the parts they do not
+ * need. Entity ids of the site of the store are stored by their numeric
+ * part. Value snaks that cannot be created through {@link Datamodel}, such
+ * as snaks with lexeme ids, are stored as JSON.
+ */
+class ItemRecordCodec {
+
+	static final int SNAK_VALUE = 0;
+	static final int SNAK_SOME_VALUE = 1;
+	static final int SNAK_NO_VALUE = 2;
+	static final int SNAK_JSON = 3;
+
+	static final int VALUE_ITEM = 0;
+	static final int VALUE_PROPERTY = 1;
+	static final int VALUE_ENTITY = 2;
+	static final int VALUE_STRING = 3;
+	static final int VALUE_MONOLINGUAL_TEXT = 4;
+	static final int VALUE_TIME = 5;
+	static final int VALUE_QUANTITY = 6;
+	static final int VALUE_GLOBE_COORDINATES = 7;
+
+	static final int STATEMENT_ID_EMPTY = 0;
+	static final int STATEMENT_ID_UUID_UPPER_CASE = 1;
+	static final int STATEMENT_ID_UUID_LOWER_CASE = 2;
+	static final int STATEMENT_ID_STRING = 3;
+
+	static final int QUANTITY_LOWER_BOUND = 1;
+	static final int QUANTITY_UPPER_BOUND = 2;
+	static final int QUANTITY_UNIT = 4;
+
+	static final StatementRank[] RANKS = StatementRank.values();
+
+	final CompactItemStore store;
+
+	final DatamodelMapper mapper;
+
+	final RecordWriter record = new RecordWriter();
+	final RecordWriter section = new RecordWriter();
+	final RecordWriter statement = new RecordWriter();
+
+	ItemRecordCodec(CompactItemStore store) {
+		this.store = store;
+		this.mapper = new DatamodelMapper(store.getSiteIri());
+	}
+
+	/**
+	 * Encodes the given document. The result is in {@link #record} until the
+	 * next call.
+	 */
+	void encode(ItemDocument document) {
+		this.record.reset();
+		this.record.writeVarLong(document.getRevisionId());
+
+		encodeTerms(document.getLabels().values());
+		encodeTerms(document.getDescriptions().values());
+
+		this.section.reset();
+		Map<String, List<MonolingualTextValue>> aliases = document.getAliases();
+		this.section.writeVarInt(aliases.size());
+		for (Map.Entry<String, List<MonolingualTextValue>> entry : aliases
+				.entrySet()) {
+			this.section.writeVarInt(this.store.languages.getIndex(entry.getKey()));
+			this.section.writeVarInt(entry.getValue().size());
+			for (MonolingualTextValue alias : entry.getValue()) {
+				this.section.writeString(alias.getText());
+			}
+		}
+		this.record.writeSection(this.section);
+
+		this.section.reset();
+		Map<String, SiteLink> siteLinks = document.getSiteLinks();
+		this.section.writeVarInt(siteLinks.size());
+		for (SiteLink siteLink : siteLinks.values()) {
+			this.section.writeVarInt(this.store.siteKeys.getIndex(siteLink
+					.getSiteKey()));
+			this.section.writeString(siteLink.getPageTitle());
+			this.section.writeVarInt(siteLink.getBadges().size());
+			for (ItemIdValue badge : siteLink.getBadges()) {
+				encodeValue(badge, this.section);
+			}
+		}
+		this.record.writeSection(this.section);
+
+		List<StatementGroup> statementGroups = document.getStatementGroups();
+		this.record.writeVarInt(statementGroups.size());
+		for (StatementGroup statementGroup : statementGroups) {
+			this.record.writeVarInt(getPropertyNumber(statementGroup.getProperty()));
+			this.record.writeVarInt(statementGroup.size());
+			for (Statement s : statementGroup) {
+				this.statement.reset();
+				encodeStatement(s, document.getEntityId().getId());
+				this.record.writeSection(this.statement);
+			}
+		}
+	}
+
+	void encodeTerms(Collection<MonolingualTextValue> terms) {
+		this.section.reset();
+		this.section.writeVarInt(terms.size());
+		for (MonolingualTextValue term : terms) {
+			this.section.writeVarInt(this.store.languages.getIndex(term
+					.getLanguageCode()));
+			this.section.writeString(term.getText());
+		}
+		this.record.writeSection(this.section);
+	}
+
+	void encodeStatement(Statement s, String subjectId) {
+		this.statement.writeByte(s.getRank().ordinal());
+		encodeStatementId(s.getStatementId(), subjectId);
+		encodeSnak(s.getMainSnak(), this.statement);
+		encodeSnakGroups(s.getQualifiers());
+		this.statement.writeVarInt(s.getReferences().size());
+		for (Reference reference : s.getReferences()) {
+			encodeSnakGroups(reference.getSnakGroups());
+		}
+	}
+
+	/**
+	 * Statement ids usually consist of the subject id and a UUID. Such ids
+	 * are stored as 16 bytes if this reproduces them exactly.
+	 */
+	void encodeStatementId(String statementId, String subjectId) {
+		if (statementId.isEmpty()) {
+			this.statement.writeByte(STATEMENT_ID_EMPTY);
+			return;
+		}
+		int separator = subjectId.length();
+		if (statementId.length() == separator + 37
+				&& statementId.startsWith(subjectId)
+				&& statementId.charAt(separator) == '$') {
+			String uuidString = statementId.substring(separator + 1);
+			try {
+				UUID uuid = UUID.fromString(uuidString);
+				String lowerCase = uuid.toString();
+				int kind = -1;
+				if (lowerCase.equals(uuidString)) {
+					kind = STATEMENT_ID_UUID_LOWER_CASE;
+				} else if (lowerCase.toUpperCase(Locale.ROOT).equals(uuidString)) {
+					kind = STATEMENT_ID_UUID_UPPER_CASE;
+				}
+				if (kind != -1) {
+					this.statement.writeByte(kind);
+					this.statement.writeLong(uuid.getMostSignificantBits());
+					this.statement.writeLong(uuid.getLeastSignificantBits());
+					return;
+				}
+			} catch (IllegalArgumentException e) {
+				// not a UUID; store as string
+			}
+		}
+		this.statement.writeByte(STATEMENT_ID_STRING);
+		this.statement.writeString(statementId);
+	}
+
+	void encodeSnakGroups(List<SnakGroup> snakGroups) {
+		this.statement.writeVarInt(snakGroups.size());
+		for (SnakGroup snakGroup : snakGroups) {
+			this.statement.writeVarInt(snakGroup.size());
+			for (Snak snak : snakGroup) {
+				encodeSnak(snak, this.statement);
+			}
+		}
+	}
+
+	void encodeSnak(Snak snak, RecordWriter writer) {
+		if (snak instanceof ValueSnak
+				&& needsJson(((ValueSnak) snak).getValue())) {
+			getPropertyNumber(snak.getPropertyId());
+			writer.writeByte(SNAK_JSON);
+			try {
+				writer.writeString(this.mapper.writeValueAsString(snak));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Snak cannot be serialized: "
+						+ snak, e);
+			}
+		} else if (snak instanceof ValueSnak) {
+			writer.writeByte(SNAK_VALUE);
+			writer.writeVarInt(getPropertyNumber(snak.getPropertyId()));
+			encodeValue(((ValueSnak) snak).getValue(), writer);
+		} else if (snak instanceof SomeValueSnak) {
+			writer.writeByte(SNAK_SOME_VALUE);
+			writer.writeVarInt(getPropertyNumber(snak.getPropertyId()));
+		} else if (snak instanceof NoValueSnak) {
+			writer.writeByte(SNAK_NO_VALUE);
+			writer.writeVarInt(getPropertyNumber(snak.getPropertyId()));
+		} else {
+			throw new IllegalArgumentException("Unsupported snak type: "
+					+ snak.getClass().getName());
+		}
+	}
+
+	void encodeValue(Value value, RecordWriter writer) {
+		if (value instanceof EntityIdValue) {
+			EntityIdValue entityIdValue = (EntityIdValue) value;
+			if (entityIdValue.isPlaceholder()) {
+				throw new IllegalArgumentException(
+						"Placeholder ids cannot be stored: " + value);
+			}
+			int number = getNumericId(entityIdValue);
+			if (number >= 0 && entityIdValue instanceof ItemIdValue
+					&& this.store.getSiteIri().equals(entityIdValue.getSiteIri())) {
+				writer.writeByte(VALUE_ITEM);
+				writer.writeVarInt(number);
+			} else if (number >= 0 && entityIdValue instanceof PropertyIdValue
+					&& this.store.getSiteIri().equals(entityIdValue.getSiteIri())) {
+				writer.writeByte(VALUE_PROPERTY);
+				writer.writeVarInt(number);
+			} else {
+				writer.writeByte(VALUE_ENTITY);
+				writer.writeString(entityIdValue.getId());
+				writer.writeVarInt(this.store.iris.getIndex(entityIdValue
+						.getSiteIri()));
+			}
+		} else if (value instanceof StringValue) {
+			writer.writeByte(VALUE_STRING);
+			writer.writeString(((StringValue) value).getString());
+		} else if (value instanceof MonolingualTextValue) {
+			MonolingualTextValue text = (MonolingualTextValue) value;
+			writer.writeByte(VALUE_MONOLINGUAL_TEXT);
+			writer.writeVarInt(this.store.languages.getIndex(text
+					.getLanguageCode()));
+			writer.writeString(text.getText());
+		} else if (value instanceof TimeValue) {
+			TimeValue time = (TimeValue) value;
+			writer.writeByte(VALUE_TIME);
+			writer.writeSignedVarLong(time.getYear());
+			writer.writeByte(time.getMonth());
+			writer.writeByte(time.getDay());
+			writer.writeByte(time.getHour());
+			writer.writeByte(time.getMinute());
+			writer.writeByte(time.getSecond());
+			writer.writeByte(time.getPrecision());
+			writer.writeVarInt(time.getBeforeTolerance());
+			writer.writeVarInt(time.getAfterTolerance());
+			writer.writeSignedVarInt(time.getTimezoneOffset());
+			writer.writeVarInt(this.store.iris.getIndex(time
+					.getPreferredCalendarModel()));
+		} else if (value instanceof QuantityValue) {
+			QuantityValue quantity = (QuantityValue) value;
+			ItemIdValue unit = quantity.getUnitItemId();
+			int flags = (quantity.getLowerBound() != null ? QUANTITY_LOWER_BOUND : 0)
+					| (quantity.getUpperBound() != null ? QUANTITY_UPPER_BOUND : 0)
+					| (unit != null ? QUANTITY_UNIT : 0);
+			writer.writeByte(VALUE_QUANTITY);
+			writer.writeByte(flags);
+			encodeDecimal(quantity.getNumericValue(), writer);
+			if (quantity.getLowerBound() != null) {
+				encodeDecimal(quantity.getLowerBound(), writer);
+			}
+			if (quantity.getUpperBound() != null) {
+				encodeDecimal(quantity.getUpperBound(), writer);
+			}
+			if (unit != null) {
+				encodeValue(unit, writer);
+			}
+		} else if (value instanceof GlobeCoordinatesValue) {
+			GlobeCoordinatesValue coordinates = (GlobeCoordinatesValue) value;
+			writer.writeByte(VALUE_GLOBE_COORDINATES);
+			writer.writeDouble(coordinates.getLatitude());
+			writer.writeDouble(coordinates.getLongitude());
+			writer.writeDouble(coordinates.getPrecision());
+			writer.writeVarInt(this.store.iris.getIndex(coordinates.getGlobe()));
+		} else {
+			throw new IllegalArgumentException("Unsupported value: " + value);
+		}
+	}
+
+	/**
+	 * Returns true if value snaks with the given value cannot be created by
+	 * {@link Datamodel#makeValueSnak(PropertyIdValue, Value)}. This is the
+	 * case for unsupported values and ids of lexemes, forms, senses and media
+	 * info entities, which only occur in data that was read from JSON.
+	 */
+	static boolean needsJson(Value value) {
+		return !(value instanceof ItemIdValue || value instanceof PropertyIdValue
+				|| value instanceof StringValue
+				|| value instanceof MonolingualTextValue
+				|| value instanceof TimeValue || value instanceof QuantityValue
+				|| value instanceof GlobeCoordinatesValue);
+	}
+
+	/**
+	 * Decimals are stored by their scale and, if it fits into a long, their
+	 * unscaled value. The lowest bit of the first number tells which case
+	 * applies.
+	 */
+	static void encodeDecimal(BigDecimal decimal, RecordWriter writer) {
+		BigInteger unscaled = decimal.unscaledValue();
+		boolean small = unscaled.bitLength() < 64;
+		long scale = decimal.scale();
+		writer.writeSignedVarLong(scale << 1 | (small ? 0 : 1));
+		if (small) {
+			writer.writeSignedVarLong(unscaled.longValue());
+		} else {
+			writer.writeString(unscaled.toString());
+		}
+	}
+
+	int getPropertyNumber(PropertyIdValue propertyIdValue) {
+		int number = getNumericId(propertyIdValue);
+		if (number < 0
+				|| !this.store.getSiteIri().equals(propertyIdValue.getSiteIri())) {
+			throw new IllegalArgumentException(
+					"Only properties of " + this.store.getSiteIri()
+							+ " can be used in compact items: " + propertyIdValue);
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the numeric part of ids like "Q42", or -1 if the id does not
+	 * have this form or the number does not fit into an int.
+	 */
+	static int getNumericId(EntityIdValue entityIdValue) {
+		return getNumericId(entityIdValue.getId());
+	}
+
+	static int getNumericId(String id) {
+		if (id.length() < 2 || id.length() > 11 || id.charAt(1) < '1'
+				|| id.charAt(1) > '9') {
+			return -1;
+		}
+		long number = 0;
+		for (int i = 1; i < id.length(); i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			number = 10 * number + (c - '0');
+		}
+		return number <= Integer.MAX_VALUE ? (int) number : -1;
+	}
+
+	static Map<String, MonolingualTextValue> decodeTerms(
+			CompactItemStore store, RecordReader reader) {
+		reader.readVarInt(); // section length
+		int count = reader.readVarInt();
+		Map<String, MonolingualTextValue> terms = new HashMap<>(2 * count);
+		for (int i = 0; i < count; i++) {
+			String language = store.languages.getString(reader.readVarInt());
+			terms.put(language, Datamodel.makeMonolingualTextValue(
+					reader.readString(), language));
+		}
+		return terms;
+	}
+
+	/**
+	 * Returns the text for the given language in a section of terms, without
+	 * decoding the other terms.
+	 */
+	static String findTerm(RecordReader reader, int language) {
+		reader.readVarInt(); // section length
+		int count = reader.readVarInt();
+		for (int i = 0; i < count; i++) {
+			if (reader.readVarInt() == language) {
+				return reader.readString();
+			}
+			reader.skipSection();
+		}
+		return null;
+	}
+
+	static Map<String, List<MonolingualTextValue>> decodeAliases(
+			CompactItemStore store, RecordReader reader) {
+		reader.readVarInt(); // section length
+		int count = reader.readVarInt();
+		Map<String, List<MonolingualTextValue>> aliases = new HashMap<>(
+				2 * count);
+		for (int i = 0; i < count; i++) {
+			String language = store.languages.getString(reader.readVarInt());
+			int aliasCount = reader.readVarInt();
+			List<MonolingualTextValue> list = new ArrayList<>(aliasCount);
+			for (int j = 0; j < aliasCount; j++) {
+				list.add(Datamodel.makeMonolingualTextValue(reader.readString(),
+						language));
+			}
+			aliases.put(language, list);
+		}
+		return aliases;
+	}
+
+	/**
+	 * Returns the aliases for the given language in the section of aliases,
+	 * without decoding the aliases of other languages.
+	 */
+	static List<MonolingualTextValue> findAliases(RecordReader reader,
+			int language, String languageCode) {
+		reader.readVarInt(); // section length
+		int count = reader.readVarInt();
+		for (int i = 0; i < count; i++) {
+			boolean found = reader.readVarInt() == language;
+			int aliasCount = reader.readVarInt();
+			if (found) {
+				List<MonolingualTextValue> list = new ArrayList<>(aliasCount);
+				for (int j = 0; j < aliasCount; j++) {
+					list.add(Datamodel.makeMonolingualTextValue(
+							reader.readString(), languageCode));
+				}
+				return list;
+			}
+			for (int j = 0; j < aliasCount; j++) {
+				reader.skipSection();
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	static Map<String, SiteLink> decodeSiteLinks(CompactItemStore store,
+			RecordReader reader) {
+		reader.readVarInt(); // section length
+		int count = reader.readVarInt();
+		Map<String, SiteLink> siteLinks = new HashMap<>(2 * count);
+		for (int i = 0; i < count; i++) {
+			String siteKey = store.siteKeys.getString(reader.readVarInt());
+			String title = reader.readString();
+			int badgeCount = reader.readVarInt();
+			List<ItemIdValue> badges = new ArrayList<>(badgeCount);
+			for (int j = 0; j < badgeCount; j++) {
+				badges.add((ItemIdValue) decodeValue(store, reader));
+			}
+			siteLinks.put(siteKey, Datamodel.makeSiteLink(title, siteKey, badges));
+		}
+		return siteLinks;
+	}
+
+	/**
+	 * Decodes the statements of one group. The reader must be positioned
+	 * after the property of the group.
+	 */
+	static StatementGroup decodeStatementGroup(CompactItemStore store,
+			RecordReader reader, ItemIdValue subject) {
+		int count = reader.readVarInt();
+		List<Statement> statements = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			reader.readVarInt(); // statement length
+			statements.add(decodeStatement(store, reader, subject));
+		}
+		return Datamodel.makeStatementGroup(statements);
+	}
+
+	static Statement decodeStatement(CompactItemStore store,
+			RecordReader reader, ItemIdValue subject) {
+		StatementRank rank = RANKS[reader.readByte()];
+		String statementId = decodeStatementId(reader, subject.getId());
+		Snak mainSnak = decodeSnak(store, reader);
+		List<SnakGroup> qualifiers = decodeSnakGroups(store, reader);
+		int referenceCount = reader.readVarInt();
+		List<Reference> references = new ArrayList<>(referenceCount);
+		for (int i = 0; i < referenceCount; i++) {
+			references.add(Datamodel.makeReference(decodeSnakGroups(store,
+					reader)));
+		}
+		return Datamodel.makeStatement(subject, mainSnak, qualifiers,
+				references, rank, statementId);
+	}
+
+	static String decodeStatementId(RecordReader reader, String subjectId) {
+		int kind = reader.readByte();
+		switch (kind) {
+		case STATEMENT_ID_EMPTY:
+			return "";
+		case STATEMENT_ID_STRING:
+			return reader.readString();
+		default:
+			String uuid = new UUID(reader.readLong(), reader.readLong())
+					.toString();
+			if (kind == STATEMENT_ID_UUID_UPPER_CASE) {
+				uuid = uuid.toUpperCase(Locale.ROOT);
+			}
+			return subjectId + "$" + uuid;
+		}
+	}
+
+	static List<SnakGroup> decodeSnakGroups(CompactItemStore store,
+			RecordReader reader) {
+		int groupCount = reader.readVarInt();
+		List<SnakGroup> snakGroups = new ArrayList<>(groupCount);
+		for (int i = 0; i < groupCount; i++) {
+			int count = reader.readVarInt();
+			List<Snak> snaks = new ArrayList<>(count);
+			for (int j = 0; j < count; j++) {
+				snaks.add(decodeSnak(store, reader));
+			}
+			snakGroups.add(Datamodel.makeSnakGroup(snaks));
+		}
+		return snakGroups;
+	}
+
+	static Snak decodeSnak(CompactItemStore store, RecordReader reader) {
+		int kind = reader.readByte();
+		if (kind == SNAK_JSON) {
+			try {
+				return store.codec.mapper.readValue(reader.readString(),
+						SnakImpl.class);
+			} catch (IOException e) {
+				throw new IllegalStateException("Stored snak cannot be read", e);
+			}
+		}
+		PropertyIdValue property = store.getPropertyIdValue(reader.readVarInt());
+		switch (kind) {
+		case SNAK_VALUE:
+			return Datamodel.makeValueSnak(property, decodeValue(store, reader));
+		case SNAK_SOME_VALUE:
+			return Datamodel.makeSomeValueSnak(property);
+		case SNAK_NO_VALUE:
+			return Datamodel.makeNoValueSnak(property);
+		default:
+			throw new IllegalStateException("Unknown snak type " + kind);
+		}
+	}
+
+	static Value decodeValue(CompactItemStore store, RecordReader reader) {
+		int tag = reader.readByte();
+		switch (tag) {
+		case VALUE_ITEM:
+			return store.getItemIdValue(reader.readVarInt());
+		case VALUE_PROPERTY:
+			return store.getPropertyIdValue(reader.readVarInt());
+		case VALUE_ENTITY:
+			String id = reader.readString();
+			return EntityIdValueImpl.fromId(id, store.iris.getString(reader
+					.readVarInt()));
+		case VALUE_STRING:
+			return Datamodel.makeStringValue(reader.readString());
+		case VALUE_MONOLINGUAL_TEXT:
+			String language = store.languages.getString(reader.readVarInt());
+			return Datamodel.makeMonolingualTextValue(reader.readString(),
+					language);
+		case VALUE_TIME:
+			long year = reader.readSignedVarLong();
+			byte month = (byte) reader.readByte();
+			byte day = (byte) reader.readByte();
+			byte hour = (byte) reader.readByte();
+			byte minute = (byte) reader.readByte();
+			byte second = (byte) reader.readByte();
+			byte precision = (byte) reader.readByte();
+			int beforeTolerance = reader.readVarInt();
+			int afterTolerance = reader.readVarInt();
+			int timezoneOffset = reader.readSignedVarInt();
+			return Datamodel.makeTimeValue(year, month, day, hour, minute,
+					second, precision, beforeTolerance, afterTolerance,
+					timezoneOffset, store.iris.getString(reader.readVarInt()));
+		case VALUE_QUANTITY:
+			int flags = reader.readByte();
+			BigDecimal numericValue = decodeDecimal(reader);
+			BigDecimal lowerBound = (flags & QUANTITY_LOWER_BOUND) != 0
+					? decodeDecimal(reader) : null;
+			BigDecimal upperBound = (flags & QUANTITY_UPPER_BOUND) != 0
+					? decodeDecimal(reader) : null;
+			ItemIdValue unit = (flags & QUANTITY_UNIT) != 0
+					? (ItemIdValue) decodeValue(store, reader) : null;
+			return Datamodel.makeQuantityValue(numericValue, lowerBound,
+					upperBound, unit);
+		case VALUE_GLOBE_COORDINATES:
+			double latitude = reader.readDouble();
+			double longitude = reader.readDouble();
+			double coordinatePrecision = reader.readDouble();
+			return Datamodel.makeGlobeCoordinatesValue(latitude, longitude,
+					coordinatePrecision, store.iris.getString(reader
+							.readVarInt()));
+		default:
+			throw new IllegalStateException("Unknown value type " + tag);
+		}
+	}
+
+	static BigDecimal decodeDecimal(RecordReader reader) {
+		long header = reader.readSignedVarLong();
+		int scale = (int) (header >> 1);
+		if ((header & 1) == 0) {
+			return BigDecimal.valueOf(reader.readSignedVarLong(), scale);
+		} else {
+			return new BigDecimal(new BigInteger(reader.readString()), scale);
+		}
+	}
+
+}
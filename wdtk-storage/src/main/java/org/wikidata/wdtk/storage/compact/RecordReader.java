@@ -0,0 +1,97 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor for decoding data that was written by a {@link RecordWriter}.
+ */
+class RecordReader {
+
+	final byte[] data;
+
+	int position;
+
+	RecordReader(byte[] data, int position) {
+		this.data = data;
+		this.position = position;
+	}
+
+	int readByte() {
+		return this.data[this.position++] & 0xFF;
+	}
+
+	int readVarInt() {
+		return (int) readVarLong();
+	}
+
+	long readVarLong() {
+		long result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.data[this.position++];
+			result |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return result;
+	}
+
+	int readSignedVarInt() {
+		int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	long readSignedVarLong() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	long readLong() {
+		long result = 0;
+		for (int i = 0; i < 8; i++) {
+			result |= (long) (this.data[this.position++] & 0xFF) << (8 * i);
+		}
+		return result;
+	}
+
+	double readDouble() {
+		return Double.longBitsToDouble(readLong());
+	}
+
+	String readString() {
+		int length = readVarInt();
+		String result = new String(this.data, this.position, length,
+				StandardCharsets.UTF_8);
+		this.position += length;
+		return result;
+	}
+
+	/**
+	 * Skips a string or a section that starts with its length.
+	 */
+	void skipSection() {
+		int length = readVarInt();
+		this.position += length;
+	}
+
+}
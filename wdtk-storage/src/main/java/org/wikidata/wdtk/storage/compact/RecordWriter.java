@@ -0,0 +1,108 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer for encoding records. Integers are written as
+ * variable-length quantities with seven bits per byte, least significant
+ * group first; signed integers are zigzag-encoded before. This is the
+ * counterpart of {@link RecordReader}.
+ */
+class RecordWriter {
+
+	byte[] buffer = new byte[256];
+
+	int length;
+
+	void reset() {
+		this.length = 0;
+	}
+
+	void writeByte(int value) {
+		ensureCapacity(1);
+		this.buffer[this.length++] = (byte) value;
+	}
+
+	void writeVarInt(int value) {
+		writeVarLong(value & 0xFFFFFFFFL);
+	}
+
+	void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			this.buffer[this.length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buffer[this.length++] = (byte) value;
+	}
+
+	void writeSignedVarInt(int value) {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	void writeSignedVarLong(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	void writeDouble(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		writeLong(bits);
+	}
+
+	void writeLong(long value) {
+		ensureCapacity(8);
+		for (int i = 0; i < 8; i++) {
+			this.buffer[this.length++] = (byte) (value >>> (8 * i));
+		}
+	}
+
+	void writeString(String string) {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(bytes.length);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	void writeBytes(byte[] bytes, int offset, int count) {
+		ensureCapacity(count);
+		System.arraycopy(bytes, offset, this.buffer, this.length, count);
+		this.length += count;
+	}
+
+	/**
+	 * Writes the length of the content of the given writer, followed by the
+	 * content.
+	 */
+	void writeSection(RecordWriter section) {
+		writeVarInt(section.length);
+		writeBytes(section.buffer, 0, section.length);
+	}
+
+	void ensureCapacity(int additional) {
+		if (this.length + additional > this.buffer.length) {
+			this.buffer = Arrays.copyOf(this.buffer, Math.max(
+					2 * this.buffer.length, this.length + additional));
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns consecutive indices, starting from 0, to strings, so that
+ * frequently repeated strings such as language codes can be stored as small
+ * integers. Indices are never removed or reassigned.
+ */
+public class StringDictionary {
+
+	final Map<String, Integer> indices = new HashMap<>();
+
+	final List<String> strings = new ArrayList<>();
+
+	/**
+	 * Returns the index of the given string, adding it to the dictionary if
+	 * it is not known yet.
+	 *
+	 * @param string
+	 *            the string to look up
+	 * @return index of the string
+	 */
+	public int getIndex(String string) {
+		Integer index = this.indices.get(string);
+		if (index == null) {
+			index = this.strings.size();
+			this.indices.put(string, index);
+			this.strings.add(string);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of the given string, or -1 if it is not in the
+	 * dictionary. The dictionary is not changed.
+	 *
+	 * @param string
+	 *            the string to look up
+	 * @return index of the string or -1
+	 */
+	public int findIndex(String string) {
+		Integer index = this.indices.get(string);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Returns the string with the given index.
+	 *
+	 * @param index
+	 *            index of the string
+	 * @return the string
+	 * @throws IndexOutOfBoundsException
+	 *             if no string has this index
+	 */
+	public String getString(int index) {
+		return this.strings.get(index);
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary.
+	 *
+	 * @return number of strings
+	 */
+	public int size() {
+		return this.strings.size();
+	}
+
+}
@@ -0,0 +1,113 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Rank and select index for a {@link BitVectorImpl}, which keeps its counts
+ * and samples in arrays on the heap.
+ *
+ * @see RankedBitVectorImpl
+ */
+class ArrayRankSelectIndex extends RankSelectIndex {
+
+	/**
+	 * The bit vector. Changes need to be notified with
+	 * {@link #invalidate(long)}.
+	 */
+	final BitVectorImpl bitVector;
+
+	long[] counts = new long[2];
+
+	int[] falseSamples = new int[1];
+
+	int[] trueSamples = new int[1];
+
+	/**
+	 * Constructs an index for the given bit vector.
+	 *
+	 * @param bitVector
+	 *            bit vector
+	 * @param samplingRate
+	 *            number of occurrences between two samples of the select
+	 *            index; this value must be a positive number
+	 * @throws IllegalArgumentException
+	 *             if the sampling rate is not a positive number
+	 */
+	ArrayRankSelectIndex(BitVectorImpl bitVector, int samplingRate) {
+		super(samplingRate);
+		this.bitVector = bitVector;
+	}
+
+	@Override
+	long size() {
+		return this.bitVector.size();
+	}
+
+	@Override
+	long getWord(int wordIndex) {
+		return this.bitVector.arrayOfBits[wordIndex];
+	}
+
+	@Override
+	long getCount(int index) {
+		return this.counts[index];
+	}
+
+	@Override
+	void setCount(int index, long value) {
+		this.counts[index] = value;
+	}
+
+	@Override
+	void ensureCountCapacity(int length) {
+		if (this.counts.length < length) {
+			this.counts = Arrays.copyOf(this.counts,
+					Math.max(length, 2 * this.counts.length));
+		}
+	}
+
+	@Override
+	int getSample(boolean bit, int sample) {
+		return bit ? this.trueSamples[sample] : this.falseSamples[sample];
+	}
+
+	@Override
+	void setSample(boolean bit, int sample, int block) {
+		if (bit) {
+			this.trueSamples = setSample(this.trueSamples, sample, block);
+		} else {
+			this.falseSamples = setSample(this.falseSamples, sample, block);
+		}
+	}
+
+	private static int[] setSample(int[] samples, int sample, int block) {
+		int[] result = samples;
+		if (sample >= samples.length) {
+			result = Arrays.copyOf(samples,
+					Math.max(sample + 1, 2 * samples.length));
+		}
+		result[sample] = block;
+		return result;
+	}
+
+}
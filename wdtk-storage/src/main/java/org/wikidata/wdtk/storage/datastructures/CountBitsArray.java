@@ -42,6 +42,9 @@ import org.apache.commons.lang3.ArrayUtils;
  * For efficiency reasons, this class assumes that the bit vector is unmodified.
  * Any modification of the bit vector needs to be notified in
  * {@link FindPositionArray#update()}.
+ * <p>
+ * {@link RankedBitVectorImpl} uses a {@link RankSelectIndex} instead, which
+ * reads whole words. This class is kept as a simple reference implementation.
  * 
  * @see RankedBitVectorImpl
  * 
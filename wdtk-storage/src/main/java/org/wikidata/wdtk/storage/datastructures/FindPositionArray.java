@@ -56,6 +56,9 @@ import org.apache.commons.lang3.ArrayUtils;
  * For efficiency reasons, this class assumes that the bit vector is unmodified.
  * Any modification of the bit vector needs to be notified in
  * {@link FindPositionArray#update()}.
+ * <p>
+ * {@link RankedBitVectorImpl} finds positions with the samples of a
+ * {@link RankSelectIndex}. This class remains for comparison with it.
  * 
  * @see RankedBitVectorImpl
  * 
@@ -0,0 +1,315 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Implementation of {@link BitVector} that stores its bits in a
+ * memory-mapped file. The bits are kept in 64-bit words as in
+ * {@link BitVectorImpl}, after a header with the size of the vector, so the
+ * vector is available as soon as the file is opened and can have more bits
+ * than fit in a Java array. Like {@link BitVectorImpl}, the vector is
+ * flexible: bits can be set at any non-negative position, and positions
+ * outside the vector contain <code>false</code>.
+ * <p>
+ * A vector that is opened read-only can be shared by several processes.
+ * Changes of a writable vector are visible to other processes that map the
+ * same file, and are written to the storage device by {@link #flush()} and
+ * {@link #close()}.
+ *
+ * @see MappedRankedBitVector
+ */
+public class MappedBitVector implements BitVector, Iterable<Boolean>,
+		Closeable {
+
+	/**
+	 * First long of the file: "WDTKBITS" in ASCII.
+	 */
+	static final long MAGIC_NUMBER = 0x5744544B42495453L;
+
+	static final long FORMAT_VERSION = 1;
+
+	/**
+	 * Number of longs before the first word of bits.
+	 */
+	static final int HEADER_LENGTH = 8;
+
+	static final int SIZE_INDEX = 2;
+
+	final MappedLongArray words;
+
+	final boolean readOnly;
+
+	long size;
+
+	int hashCode;
+
+	boolean validHashCode = false;
+
+	/**
+	 * Opens a writable bit vector, creating an empty one if the file does not
+	 * exist.
+	 *
+	 * @param path
+	 *            path of the file
+	 * @throws IOException
+	 *             if the file cannot be opened or is not a bit vector file
+	 */
+	public MappedBitVector(Path path) throws IOException {
+		this(path, false);
+	}
+
+	/**
+	 * Opens a bit vector. A read-only bit vector must exist.
+	 *
+	 * @param path
+	 *            path of the file
+	 * @param readOnly
+	 *            if true, the bit vector cannot be changed
+	 * @throws IOException
+	 *             if the file cannot be opened or is not a bit vector file
+	 */
+	public MappedBitVector(Path path, boolean readOnly) throws IOException {
+		this.words = new MappedLongArray(path, readOnly);
+		this.readOnly = readOnly;
+		try {
+			if (this.words.initialLength == 0 && !readOnly) {
+				this.words.set(0, MAGIC_NUMBER);
+				this.words.set(1, FORMAT_VERSION);
+				this.words.set(SIZE_INDEX, 0);
+			} else if (this.words.initialLength < HEADER_LENGTH
+					|| this.words.get(0) != MAGIC_NUMBER
+					|| this.words.get(1) != FORMAT_VERSION) {
+				throw new IOException("File " + path
+						+ " does not contain a bit vector.");
+			}
+			this.size = this.words.get(SIZE_INDEX);
+		} catch (IOException | RuntimeException e) {
+			this.words.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the word at the given position of the bit vector, with the bit
+	 * at position <code>64 * wordIndex</code> as its lowest bit. Words
+	 * outside the vector are 0.
+	 *
+	 * @param wordIndex
+	 *            position of the word
+	 * @return the word
+	 */
+	long getWord(long wordIndex) {
+		long index = HEADER_LENGTH + wordIndex;
+		return index < this.words.capacity() ? this.words.get(index) : 0;
+	}
+
+	@Override
+	public boolean addBit(boolean bit) {
+		assertWritable();
+		ensureSize(this.size);
+		if (bit) {
+			setBitInFile(this.size - 1);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean getBit(long position) {
+		assertNonNegativePosition(position);
+		if (position >= this.size) {
+			return false;
+		}
+		return ((getWord(position >>> BitVectorImpl.LG_WORD_SIZE) >>> (position & BitVectorImpl.WORD_MASK)) & 1) == 1;
+	}
+
+	@Override
+	public void setBit(long position, boolean bit) {
+		assertWritable();
+		assertNonNegativePosition(position);
+		ensureSize(position);
+		if (bit) {
+			setBitInFile(position);
+		} else {
+			long index = HEADER_LENGTH
+					+ (position >>> BitVectorImpl.LG_WORD_SIZE);
+			long word = this.words.get(index)
+					& ~(1L << (position & BitVectorImpl.WORD_MASK));
+			setLong(index, word);
+		}
+		this.validHashCode = false;
+	}
+
+	@Override
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the bit vector cannot be changed.
+	 *
+	 * @return true if the bit vector is read-only
+	 */
+	public boolean isReadOnly() {
+		return this.readOnly;
+	}
+
+	/**
+	 * Writes changes of the bit vector to the storage device.
+	 */
+	public void flush() {
+		this.words.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.words.close();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BitVector)) {
+			return false;
+		}
+		BitVector other = (BitVector) obj;
+		if (this.size != other.size()) {
+			return false;
+		}
+
+		long comparisonFirstPos = 0;
+		if (other instanceof MappedBitVector
+				|| other instanceof BitVectorImpl) {
+			// full words can be compared directly, see BitVectorImpl
+			long fullWords = this.size >>> BitVectorImpl.LG_WORD_SIZE;
+			for (long i = 0; i < fullWords; i++) {
+				if (getWord(i) != getWord(other, i)) {
+					return false;
+				}
+			}
+			comparisonFirstPos = fullWords << BitVectorImpl.LG_WORD_SIZE;
+		}
+
+		for (long i = comparisonFirstPos; i < this.size; i++) {
+			if (getBit(i) != other.getBit(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Computes the same hash code as {@link BitVectorImpl#hashCode()}, so
+	 * that equal bit vectors of both classes have equal hash codes.
+	 */
+	@Override
+	public int hashCode() {
+		if (!this.validHashCode) {
+			int ret = (int) this.size;
+			long fullWords = this.size >>> BitVectorImpl.LG_WORD_SIZE;
+			for (long i = 0; i < fullWords; i++) {
+				ret += (0x1F * getWord(i));
+			}
+			long lastWordMask = (1L << (this.size & BitVectorImpl.WORD_MASK)) - 1;
+			ret += (0x1F * (getWord(fullWords) & lastWordMask));
+			this.hashCode = ret;
+			this.validHashCode = true;
+		}
+		return this.hashCode;
+	}
+
+	@Override
+	public Iterator<Boolean> iterator() {
+		return new BitVectorIterator(this);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (long position = 0; position < this.size; position++) {
+			sb.append(getBit(position) ? "1" : "0");
+		}
+		return sb.toString();
+	}
+
+	private static long getWord(BitVector bitVector, long wordIndex) {
+		if (bitVector instanceof MappedBitVector) {
+			return ((MappedBitVector) bitVector).getWord(wordIndex);
+		}
+		return ((BitVectorImpl) bitVector).arrayOfBits[(int) wordIndex];
+	}
+
+	private void assertNonNegativePosition(long position) {
+		if (position < 0) {
+			throw new IndexOutOfBoundsException("Position " + position
+					+ " is out of bounds.");
+		}
+	}
+
+	private void assertWritable() {
+		if (this.readOnly) {
+			throw new UnsupportedOperationException(
+					"The bit vector is read-only.");
+		}
+	}
+
+	/**
+	 * Makes the bit vector large enough to contain the given position,
+	 * adding <code>false</code> values if needed.
+	 */
+	private void ensureSize(long position) {
+		if (position >= this.size) {
+			this.validHashCode = false;
+			long newSize = position + 1;
+			try {
+				this.words.ensureCapacity(HEADER_LENGTH
+						+ (newSize >>> BitVectorImpl.LG_WORD_SIZE) + 1);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			setLong(SIZE_INDEX, newSize);
+			this.size = newSize;
+		}
+	}
+
+	private void setBitInFile(long position) {
+		long index = HEADER_LENGTH + (position >>> BitVectorImpl.LG_WORD_SIZE);
+		setLong(index, this.words.get(index)
+				| (1L << (position & BitVectorImpl.WORD_MASK)));
+		this.validHashCode = false;
+	}
+
+	private void setLong(long index, long value) {
+		try {
+			this.words.set(index, value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Array of longs that is stored in a memory-mapped file, in little-endian
+ * byte order. Since a single mapping is limited to 2 GiB, the file is
+ * mapped in segments of 128 MiB. When the array grows, the file is
+ * extended and only the last segment is mapped again, so no data is
+ * copied. Small arrays grow by doubling up to the size of a segment.
+ * <p>
+ * The mappings are released by the garbage collector, since Java offers no
+ * way to unmap them explicitly; {@link #close()} only closes the file.
+ */
+class MappedLongArray implements Closeable {
+
+	static final int LG_SEGMENT_SIZE = 24;
+
+	static final int SEGMENT_SIZE = 1 << LG_SEGMENT_SIZE;
+
+	static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	static final int MINIMUM_CAPACITY = 0x200;
+
+	final FileChannel channel;
+
+	final boolean readOnly;
+
+	/**
+	 * Number of longs in the file when it was opened.
+	 */
+	final long initialLength;
+
+	MappedByteBuffer[] buffers = new MappedByteBuffer[0];
+
+	LongBuffer[] segments = new LongBuffer[0];
+
+	/**
+	 * Number of longs that are mapped.
+	 */
+	long capacity;
+
+	/**
+	 * Opens the given file, which is created if it does not exist and the
+	 * array is not read-only.
+	 *
+	 * @param path
+	 *            path of the file
+	 * @param readOnly
+	 *            if true, the file is only read and must exist
+	 * @throws IOException
+	 *             if the file cannot be opened or mapped
+	 */
+	MappedLongArray(Path path, boolean readOnly) throws IOException {
+		this.readOnly = readOnly;
+		if (readOnly) {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		} else {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+		}
+		try {
+			this.initialLength = this.channel.size() / Long.BYTES;
+			if (readOnly) {
+				map(this.initialLength);
+			} else {
+				map(Math.max(MINIMUM_CAPACITY, this.initialLength));
+			}
+		} catch (IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of longs that can be read without growing the
+	 * array.
+	 *
+	 * @return capacity in longs
+	 */
+	long capacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Returns the long at the given index, which must be smaller than the
+	 * capacity.
+	 *
+	 * @param index
+	 *            index
+	 * @return the long
+	 */
+	long get(long index) {
+		return this.segments[(int) (index >>> LG_SEGMENT_SIZE)]
+				.get((int) (index & SEGMENT_MASK));
+	}
+
+	/**
+	 * Sets the long at the given index, growing the array if needed.
+	 *
+	 * @param index
+	 *            index
+	 * @param value
+	 *            the new value
+	 * @throws IOException
+	 *             if the file cannot be extended
+	 */
+	void set(long index, long value) throws IOException {
+		ensureCapacity(index + 1);
+		this.segments[(int) (index >>> LG_SEGMENT_SIZE)].put(
+				(int) (index & SEGMENT_MASK), value);
+	}
+
+	/**
+	 * Grows the array, if needed, so that it can hold the given number of
+	 * longs. New longs are 0.
+	 *
+	 * @param length
+	 *            number of longs
+	 * @throws IOException
+	 *             if the file cannot be extended
+	 */
+	void ensureCapacity(long length) throws IOException {
+		if (length <= this.capacity) {
+			return;
+		}
+		if (this.readOnly) {
+			throw new UnsupportedOperationException(
+					"A read-only array cannot grow.");
+		}
+		long newCapacity;
+		if (length <= SEGMENT_SIZE) {
+			newCapacity = Math.min(SEGMENT_SIZE,
+					Math.max(length, 2 * this.capacity));
+		} else {
+			newCapacity = (length + SEGMENT_MASK) & ~(long) SEGMENT_MASK;
+		}
+		map(newCapacity);
+	}
+
+	/**
+	 * Writes changes to the storage device.
+	 */
+	void force() {
+		if (!this.readOnly) {
+			for (MappedByteBuffer buffer : this.buffers) {
+				buffer.force();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		this.channel.close();
+	}
+
+	/**
+	 * Maps the file up to the given number of longs, keeping the mappings
+	 * of full segments.
+	 */
+	private void map(long newCapacity) throws IOException {
+		int segmentCount = (int) ((newCapacity + SEGMENT_MASK) >>> LG_SEGMENT_SIZE);
+		int keptSegments = (int) (this.capacity >>> LG_SEGMENT_SIZE);
+		MappedByteBuffer[] newBuffers = new MappedByteBuffer[segmentCount];
+		LongBuffer[] newSegments = new LongBuffer[segmentCount];
+		System.arraycopy(this.buffers, 0, newBuffers, 0, keptSegments);
+		System.arraycopy(this.segments, 0, newSegments, 0, keptSegments);
+		FileChannel.MapMode mode = this.readOnly ? FileChannel.MapMode.READ_ONLY
+				: FileChannel.MapMode.READ_WRITE;
+		for (int i = keptSegments; i < segmentCount; i++) {
+			long start = (long) i << LG_SEGMENT_SIZE;
+			long length = Math.min(SEGMENT_SIZE, newCapacity - start);
+			newBuffers[i] = this.channel.map(mode, start * Long.BYTES, length
+					* Long.BYTES);
+			newSegments[i] = newBuffers[i].order(ByteOrder.LITTLE_ENDIAN)
+					.asLongBuffer();
+		}
+		this.buffers = newBuffers;
+		this.segments = newSegments;
+		this.capacity = newCapacity;
+	}
+
+}
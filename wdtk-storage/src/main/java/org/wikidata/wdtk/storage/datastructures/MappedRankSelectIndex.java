@@ -0,0 +1,252 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Rank and select index for a {@link MappedBitVector}, which keeps its
+ * counts and samples in two memory-mapped files next to the bit vector. The
+ * state of the index is stored in the header of the file with the counts,
+ * so that an index that is up to date can be used right after opening.
+ * <p>
+ * The samples for <code>true</code> and <code>false</code> are stored
+ * together, one pair per long, with the block of the sample for
+ * <code>true</code> in the lower 32 bits.
+ *
+ * @see MappedRankedBitVector
+ */
+class MappedRankSelectIndex extends RankSelectIndex implements Closeable {
+
+	/**
+	 * First long of the file with the counts: "WDTKRANK" in ASCII.
+	 */
+	static final long MAGIC_NUMBER = 0x5744544B52414E4BL;
+
+	static final long FORMAT_VERSION = 1;
+
+	static final int SAMPLING_RATE_INDEX = 2;
+
+	static final int INDEXED_SIZE_INDEX = 3;
+
+	static final int TOTAL_TRUE_INDEX = 4;
+
+	static final int INDEXED_BLOCKS_INDEX = 5;
+
+	static final int TRUE_SAMPLE_COUNT_INDEX = 6;
+
+	static final int FALSE_SAMPLE_COUNT_INDEX = 7;
+
+	/**
+	 * Number of longs before the first count.
+	 */
+	static final int HEADER_LENGTH = 8;
+
+	/**
+	 * The bit vector. Changes need to be notified with
+	 * {@link #invalidate(long)}.
+	 */
+	final MappedBitVector bitVector;
+
+	final MappedLongArray counts;
+
+	final MappedLongArray samples;
+
+	/**
+	 * Opens the index of the given bit vector. If the index files do not
+	 * exist yet, or were written with another sampling rate, the index is
+	 * built again when it is first queried.
+	 *
+	 * @param bitVector
+	 *            bit vector
+	 * @param countsPath
+	 *            path of the file with the counts
+	 * @param samplesPath
+	 *            path of the file with the samples
+	 * @param samplingRate
+	 *            number of occurrences between two samples of the select
+	 *            index; this value must be a positive number
+	 * @throws IOException
+	 *             if the files cannot be opened, or if the bit vector is
+	 *             read-only and the index is not up to date
+	 */
+	MappedRankSelectIndex(MappedBitVector bitVector, Path countsPath,
+			Path samplesPath, int samplingRate) throws IOException {
+		super(samplingRate);
+		this.bitVector = bitVector;
+		boolean readOnly = bitVector.isReadOnly();
+		this.counts = new MappedLongArray(countsPath, readOnly);
+		try {
+			this.samples = new MappedLongArray(samplesPath, readOnly);
+		} catch (IOException | RuntimeException e) {
+			this.counts.close();
+			throw e;
+		}
+		try {
+			boolean valid = readState();
+			if (readOnly && (!valid || this.indexedBlocks != getBlockCount())) {
+				throw new IOException("The rank and select index in "
+						+ countsPath
+						+ " is not up to date. It must be updated by opening the bit vector for writing.");
+			}
+			if (!readOnly && !valid) {
+				this.counts.set(0, MAGIC_NUMBER);
+				this.counts.set(1, FORMAT_VERSION);
+				this.counts.set(SAMPLING_RATE_INDEX, samplingRate);
+				this.indexedBlocks = 0;
+				this.trueSampleCount = 0;
+				this.falseSampleCount = 0;
+				stateChanged();
+			}
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the state of the index from the header of the counts, and
+	 * invalidates the blocks that may have changed after the index was last
+	 * updated.
+	 *
+	 * @return true if the files contain an index with the sampling rate of
+	 *         this index
+	 */
+	private boolean readState() {
+		if (this.counts.initialLength < HEADER_LENGTH
+				|| this.counts.get(0) != MAGIC_NUMBER
+				|| this.counts.get(1) != FORMAT_VERSION
+				|| this.counts.get(SAMPLING_RATE_INDEX) != this.samplingRate) {
+			return false;
+		}
+		long indexedSize = this.counts.get(INDEXED_SIZE_INDEX);
+		int blocks = (int) this.counts.get(INDEXED_BLOCKS_INDEX);
+		int trueSamples = (int) this.counts.get(TRUE_SAMPLE_COUNT_INDEX);
+		int falseSamples = (int) this.counts.get(FALSE_SAMPLE_COUNT_INDEX);
+		if (indexedSize > this.bitVector.size()
+				|| this.counts.capacity() < HEADER_LENGTH + 2L * blocks
+				|| this.samples.capacity() < Math.max(trueSamples,
+						falseSamples)) {
+			return false;
+		}
+		this.indexedBlocks = blocks;
+		this.totalTrue = this.counts.get(TOTAL_TRUE_INDEX);
+		this.trueSampleCount = trueSamples;
+		this.falseSampleCount = falseSamples;
+		if (indexedSize < this.bitVector.size()) {
+			invalidate(indexedSize);
+		}
+		return true;
+	}
+
+	private int getBlockCount() {
+		long size = this.bitVector.size();
+		return size == 0 ? 0 : (int) (((size - 1) >>> LG_BLOCK_SIZE) + 1);
+	}
+
+	@Override
+	long size() {
+		return this.bitVector.size();
+	}
+
+	@Override
+	long getWord(int wordIndex) {
+		return this.bitVector.getWord(wordIndex);
+	}
+
+	@Override
+	long getCount(int index) {
+		return this.counts.get(HEADER_LENGTH + index);
+	}
+
+	@Override
+	void setCount(int index, long value) {
+		setLong(this.counts, HEADER_LENGTH + index, value);
+	}
+
+	@Override
+	void ensureCountCapacity(int length) {
+		try {
+			this.counts.ensureCapacity(HEADER_LENGTH + length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	int getSample(boolean bit, int sample) {
+		long pair = this.samples.get(sample);
+		return (int) (bit ? pair : pair >>> 32);
+	}
+
+	@Override
+	void setSample(boolean bit, int sample, int block) {
+		long pair = sample < this.samples.capacity() ? this.samples
+				.get(sample) : 0;
+		if (bit) {
+			pair = (pair & 0xFFFFFFFF00000000L) | (block & 0xFFFFFFFFL);
+		} else {
+			pair = (pair & 0xFFFFFFFFL) | ((long) block << 32);
+		}
+		setLong(this.samples, sample, pair);
+	}
+
+	@Override
+	void stateChanged() {
+		if (this.bitVector.isReadOnly()) {
+			return;
+		}
+		setLong(this.counts, INDEXED_SIZE_INDEX, this.bitVector.size());
+		setLong(this.counts, TOTAL_TRUE_INDEX, this.totalTrue);
+		setLong(this.counts, INDEXED_BLOCKS_INDEX, this.indexedBlocks);
+		setLong(this.counts, TRUE_SAMPLE_COUNT_INDEX, this.trueSampleCount);
+		setLong(this.counts, FALSE_SAMPLE_COUNT_INDEX, this.falseSampleCount);
+	}
+
+	/**
+	 * Writes changes of the index to the storage device.
+	 */
+	void flush() {
+		this.counts.force();
+		this.samples.force();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.counts.close();
+		} finally {
+			this.samples.close();
+		}
+	}
+
+	private static void setLong(MappedLongArray array, long index, long value) {
+		try {
+			array.set(index, value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
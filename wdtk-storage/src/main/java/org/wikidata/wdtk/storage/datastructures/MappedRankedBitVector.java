@@ -0,0 +1,180 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Implementation of {@link RankedBitVector} that is stored in memory-mapped
+ * files. The bits are stored in a {@link MappedBitVector}, and the rank and
+ * select index in two files next to it, whose names end in ".rank" and
+ * ".select". The index is updated when it is queried and when the vector is
+ * closed, so that a vector that was closed properly can be opened without
+ * reading its bits again.
+ * <p>
+ * A vector that is opened read-only can be shared by several processes,
+ * but its index must be up to date. The files must only be changed through
+ * this class, since changes to the bit vector alone are not noticed by the
+ * index.
+ *
+ * @see RankedBitVectorImpl
+ */
+public class MappedRankedBitVector implements RankedBitVector,
+		Iterable<Boolean>, Closeable {
+
+	final MappedBitVector bitVector;
+
+	final MappedRankSelectIndex index;
+
+	/**
+	 * Opens a writable ranked bit vector, creating an empty one if the file
+	 * does not exist.
+	 *
+	 * @param path
+	 *            path of the file with the bits
+	 * @throws IOException
+	 *             if the files cannot be opened or have the wrong format
+	 */
+	public MappedRankedBitVector(Path path) throws IOException {
+		this(path, false);
+	}
+
+	/**
+	 * Opens a ranked bit vector. A read-only bit vector must exist and have
+	 * an index that is up to date.
+	 *
+	 * @param path
+	 *            path of the file with the bits
+	 * @param readOnly
+	 *            if true, the bit vector cannot be changed
+	 * @throws IOException
+	 *             if the files cannot be opened or have the wrong format, or
+	 *             if the vector is read-only and the index is not up to date
+	 */
+	public MappedRankedBitVector(Path path, boolean readOnly)
+			throws IOException {
+		this.bitVector = new MappedBitVector(path, readOnly);
+		try {
+			this.index = new MappedRankSelectIndex(this.bitVector,
+					getIndexPath(path, ".rank"), getIndexPath(path, ".select"),
+					RankedBitVectorImpl.defaultFindPositionBlockSize);
+		} catch (IOException | RuntimeException e) {
+			this.bitVector.close();
+			throw e;
+		}
+	}
+
+	private static Path getIndexPath(Path path, String suffix) {
+		return path.resolveSibling(path.getFileName() + suffix);
+	}
+
+	@Override
+	public boolean addBit(boolean bit) {
+		long position = this.bitVector.size();
+		boolean ret = this.bitVector.addBit(bit);
+		this.index.invalidate(position);
+		return ret;
+	}
+
+	@Override
+	public long countBits(boolean bit, long position) {
+		return this.index.countBits(bit, position);
+	}
+
+	@Override
+	public long findPosition(boolean bit, long nOccurrence) {
+		return this.index.findPosition(bit, nOccurrence);
+	}
+
+	@Override
+	public boolean getBit(long position) {
+		return this.bitVector.getBit(position);
+	}
+
+	@Override
+	public void setBit(long position, boolean bit) {
+		boolean oldBit = getBit(position);
+		if (oldBit != bit) {
+			long oldSize = this.bitVector.size();
+			this.bitVector.setBit(position, bit);
+			this.index.invalidate(Math.min(position, oldSize));
+		}
+	}
+
+	@Override
+	public long size() {
+		return this.bitVector.size();
+	}
+
+	/**
+	 * Updates the index and writes all changes to the storage device.
+	 */
+	public void flush() {
+		if (!this.bitVector.isReadOnly()) {
+			this.index.updateIndex();
+		}
+		this.index.flush();
+		this.bitVector.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			try {
+				this.index.close();
+			} finally {
+				this.bitVector.close();
+			}
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof BitVector)) {
+			return false;
+		}
+		return this.bitVector.equals(obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.bitVector.hashCode();
+	}
+
+	@Override
+	public Iterator<Boolean> iterator() {
+		return this.bitVector.iterator();
+	}
+
+	@Override
+	public String toString() {
+		return this.bitVector.toString();
+	}
+
+}
@@ -0,0 +1,395 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Index for rank and select queries on a bit vector, which works on the
+ * words of the bit vector instead of single bits.
+ * <p>
+ * For rank, the bit vector is divided in blocks of 512 bits (8 words). For
+ * each block, the index stores the number of <code>true</code> values before
+ * the block, and in a second long, the number of <code>true</code> values
+ * before each word of the block, relative to the start of the block, in
+ * seven fields of 9 bits. Counting up to a position then takes two array
+ * accesses and one {@link Long#bitCount(long)}. The number of
+ * <code>false</code> values follows from the size.
+ * <p>
+ * For select, the index stores, for each value, the block that contains
+ * every <i>k</i>-th occurrence, where <i>k</i> is the sampling rate. A query
+ * searches the blocks between two samples, then the words of the block, and
+ * finds the bit in the word with a broadword algorithm.
+ * <p>
+ * The index is updated lazily when it is queried. Changes to the bit vector
+ * need to be notified with {@link #invalidate(long)}, and only the blocks
+ * from the changed position onwards are counted again, so that appending
+ * bits does not rebuild the index.
+ * <p>
+ * Subclasses provide the words of the bit vector and store the counts and
+ * samples of the index, either in arrays ({@link ArrayRankSelectIndex}) or
+ * in memory-mapped files ({@link MappedRankSelectIndex}).
+ *
+ * @see RankedBitVectorImpl
+ * @see MappedRankedBitVector
+ */
+abstract class RankSelectIndex {
+
+	static final int LG_BLOCK_SIZE = 9;
+
+	static final int LG_WORDS_PER_BLOCK = LG_BLOCK_SIZE
+			- BitVectorImpl.LG_WORD_SIZE;
+
+	static final int WORDS_PER_BLOCK = 1 << LG_WORDS_PER_BLOCK;
+
+	/**
+	 * Width of the fields for the counts of the words of a block.
+	 */
+	static final int WORD_COUNT_BITS = 9;
+
+	static final long WORD_COUNT_MASK = (1L << WORD_COUNT_BITS) - 1;
+
+	static final long ONES_STEP_8 = 0x0101010101010101L;
+
+	static final long MSBS_STEP_8 = 0x8080808080808080L;
+
+	/**
+	 * Position of the <i>r</i>-th bit set in a byte <i>b</i>, at index
+	 * <code>(r &lt;&lt; 8) | b</code>.
+	 */
+	static final byte[] SELECT_IN_BYTE = new byte[8 << 8];
+	static {
+		for (int value = 0; value < 0x100; value++) {
+			int rank = 0;
+			for (int position = 0; position < 8; position++) {
+				if (((value >>> position) & 1) != 0) {
+					SELECT_IN_BYTE[(rank << 8) | value] = (byte) position;
+					rank++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of occurrences between two samples of the select index.
+	 */
+	final int samplingRate;
+
+	/**
+	 * Number of blocks whose counts are up to date.
+	 */
+	int indexedBlocks;
+
+	/**
+	 * Number of <code>true</code> values in the bit vector, if all blocks
+	 * are indexed.
+	 */
+	long totalTrue;
+
+	/**
+	 * Number of samples for <code>false</code> and <code>true</code>. The
+	 * samples are the blocks that contain the occurrences 1, <i>k</i> + 1,
+	 * 2<i>k</i> + 1, ... of a value, where <i>k</i> is the sampling rate.
+	 */
+	int falseSampleCount;
+
+	int trueSampleCount;
+
+	/**
+	 * Constructs an empty index.
+	 *
+	 * @param samplingRate
+	 *            number of occurrences between two samples of the select
+	 *            index; this value must be a positive number
+	 * @throws IllegalArgumentException
+	 *             if the sampling rate is not a positive number
+	 */
+	RankSelectIndex(int samplingRate) {
+		if (samplingRate < 1) {
+			throw new IllegalArgumentException(
+					"The sampling rate must be a positive number. The received value was: "
+							+ samplingRate + ".");
+		}
+		this.samplingRate = samplingRate;
+	}
+
+	/**
+	 * Returns the size of the bit vector.
+	 */
+	abstract long size();
+
+	/**
+	 * Returns a word of the bit vector, with the bit at position
+	 * <code>64 * wordIndex</code> as its lowest bit.
+	 */
+	abstract long getWord(int wordIndex);
+
+	/**
+	 * Returns an entry of the counts, where entry <code>2 * block</code> is
+	 * the number of <code>true</code> values before the block and entry
+	 * <code>2 * block + 1</code> holds the packed counts of its words.
+	 */
+	abstract long getCount(int index);
+
+	/**
+	 * Sets an entry of the counts. The entries up to the given length have
+	 * been made available with {@link #ensureCountCapacity(int)}.
+	 */
+	abstract void setCount(int index, long value);
+
+	/**
+	 * Makes sure that the given number of count entries can be set.
+	 */
+	abstract void ensureCountCapacity(int length);
+
+	/**
+	 * Returns the block of a sample of the select index for <i>bit</i>.
+	 */
+	abstract int getSample(boolean bit, int sample);
+
+	/**
+	 * Sets the block of a sample of the select index for <i>bit</i>.
+	 * Samples are only set in ascending order.
+	 */
+	abstract void setSample(boolean bit, int sample, int block);
+
+	/**
+	 * Called after the state of the index has changed, that is, the number
+	 * of indexed blocks, the number of samples, or the total count. Does
+	 * nothing by default.
+	 */
+	void stateChanged() {
+	}
+
+	/**
+	 * Returns the number of occurrences of <i>bit</i> up to <i>position</i>.
+	 *
+	 * @see RankedBitVector#countBits(boolean, long)
+	 */
+	long countBits(boolean bit, long position) {
+		long size = size();
+		long trueValues = 0;
+		if (position >= 0 && size > 0) {
+			trueValues = countTrue(Math.min(position, size - 1));
+		}
+		return bit ? trueValues : ((position + 1) - trueValues);
+	}
+
+	/**
+	 * Returns the position of the <i>n</i>-th occurrence of <i>bit</i>.
+	 *
+	 * @see RankedBitVector#findPosition(boolean, long)
+	 */
+	long findPosition(boolean bit, long nOccurrence) {
+		if (nOccurrence <= 0) {
+			return RankedBitVector.NOT_FOUND;
+		}
+		updateIndex();
+		long total = bit ? this.totalTrue : size() - this.totalTrue;
+		if (nOccurrence > total) {
+			return RankedBitVector.NOT_FOUND;
+		}
+
+		int sample = (int) ((nOccurrence - 1) / this.samplingRate);
+		int sampleCount = bit ? this.trueSampleCount : this.falseSampleCount;
+		int low = getSample(bit, sample);
+		int high = sample + 1 < sampleCount ? getSample(bit, sample + 1)
+				: this.indexedBlocks - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (countBeforeBlock(bit, middle) < nOccurrence) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		long remaining = nOccurrence - countBeforeBlock(bit, low);
+		long wordCounts = getCount(2 * low + 1);
+		int wordInBlock = WORDS_PER_BLOCK - 1;
+		while (countBeforeWord(bit, wordCounts, wordInBlock) >= remaining) {
+			wordInBlock--;
+		}
+		int rank = (int) (remaining
+				- countBeforeWord(bit, wordCounts, wordInBlock) - 1);
+		int wordIndex = (low << LG_WORDS_PER_BLOCK) + wordInBlock;
+		long word = getWord(wordIndex);
+		return ((long) wordIndex << BitVectorImpl.LG_WORD_SIZE)
+				+ selectInWord(bit ? word : ~word, rank);
+	}
+
+	/**
+	 * Notifies the index that the bit vector has changed at the given
+	 * position, or that bits were added starting at this position.
+	 *
+	 * @param position
+	 *            first changed position
+	 */
+	void invalidate(long position) {
+		long block = position >>> LG_BLOCK_SIZE;
+		if (block < this.indexedBlocks) {
+			this.indexedBlocks = (int) block;
+			while (this.trueSampleCount > 0
+					&& getSample(true, this.trueSampleCount - 1) >= block) {
+				this.trueSampleCount--;
+			}
+			while (this.falseSampleCount > 0
+					&& getSample(false, this.falseSampleCount - 1) >= block) {
+				this.falseSampleCount--;
+			}
+			stateChanged();
+		}
+	}
+
+	/**
+	 * Returns the number of <code>true</code> values up to a position that
+	 * is smaller than the size of the bit vector.
+	 */
+	long countTrue(long position) {
+		updateIndex();
+		int wordIndex = (int) (position >>> BitVectorImpl.LG_WORD_SIZE);
+		int block = wordIndex >>> LG_WORDS_PER_BLOCK;
+		long mask = -1L >>> (BitVectorImpl.WORD_MASK - (position & BitVectorImpl.WORD_MASK));
+		return getCount(2 * block)
+				+ countBeforeWord(true, getCount(2 * block + 1), wordIndex
+						& (WORDS_PER_BLOCK - 1))
+				+ Long.bitCount(getWord(wordIndex) & mask);
+	}
+
+	/**
+	 * Returns the number of occurrences of <i>bit</i> before the given
+	 * indexed block.
+	 */
+	long countBeforeBlock(boolean bit, int block) {
+		long trueValues = getCount(2 * block);
+		return bit ? trueValues : ((long) block << LG_BLOCK_SIZE) - trueValues;
+	}
+
+	/**
+	 * Returns the number of occurrences of <i>bit</i> in a block before the
+	 * given word, using the packed counts of the block.
+	 */
+	static long countBeforeWord(boolean bit, long wordCounts, int wordInBlock) {
+		long trueValues = 0;
+		if (wordInBlock > 0) {
+			trueValues = (wordCounts >>> (WORD_COUNT_BITS * (wordInBlock - 1)))
+					& WORD_COUNT_MASK;
+		}
+		return bit ? trueValues
+				: ((long) wordInBlock << BitVectorImpl.LG_WORD_SIZE)
+						- trueValues;
+	}
+
+	/**
+	 * Returns the position of the bit set with the given rank in a word,
+	 * where rank 0 is the lowest bit set. The rank must be smaller than the
+	 * number of bits set in the word. This follows the broadword algorithm
+	 * of S. Vigna, "Broadword Implementation of Rank/Select Queries" (2008):
+	 * the bits set in each byte are added up in parallel, the byte that
+	 * contains the bit is found by comparing all the sums with the rank at
+	 * once, and the position in the byte is looked up in a table.
+	 *
+	 * @param word
+	 *            word
+	 * @param rank
+	 *            rank of the bit, starting at 0
+	 * @return position of the bit in the word
+	 */
+	static int selectInWord(long word, int rank) {
+		long byteSums = word - ((word >>> 1) & 0x5555555555555555L);
+		byteSums = (byteSums & 0x3333333333333333L)
+				+ ((byteSums >>> 2) & 0x3333333333333333L);
+		byteSums = ((byteSums + (byteSums >>> 4)) & 0x0F0F0F0F0F0F0F0FL)
+				* ONES_STEP_8;
+		// each byte of byteSums is now the number of bits set up to that byte
+		long smallerSums = (((rank * ONES_STEP_8) | MSBS_STEP_8) - byteSums)
+				& MSBS_STEP_8;
+		int byteOffset = (int) (((smallerSums >>> 7) * ONES_STEP_8) >>> 53) & ~0x7;
+		int rankInByte = rank
+				- (int) (((byteSums << 8) >>> byteOffset) & 0xFF);
+		int byteValue = (int) ((word >>> byteOffset) & 0xFF);
+		return byteOffset + SELECT_IN_BYTE[(rankInByte << 8) | byteValue];
+	}
+
+	/**
+	 * Counts the blocks that changed since the last update, up to the end of
+	 * the bit vector.
+	 */
+	void updateIndex() {
+		long size = size();
+		if (size == 0) {
+			if (this.indexedBlocks != 0 || this.totalTrue != 0) {
+				this.indexedBlocks = 0;
+				this.totalTrue = 0;
+				stateChanged();
+			}
+			return;
+		}
+		int blocks = (int) (((size - 1) >>> LG_BLOCK_SIZE) + 1);
+		if (this.indexedBlocks == blocks) {
+			return;
+		}
+		ensureCountCapacity(2 * blocks);
+
+		int lastWord = (int) ((size - 1) >>> BitVectorImpl.LG_WORD_SIZE);
+		long lastWordMask = -1L >>> (BitVectorImpl.WORD_MASK - ((size - 1) & BitVectorImpl.WORD_MASK));
+		long trueValues = 0;
+		if (this.indexedBlocks > 0) {
+			int previous = this.indexedBlocks - 1;
+			int previousLastWord = (previous << LG_WORDS_PER_BLOCK)
+					+ WORDS_PER_BLOCK - 1;
+			trueValues = getCount(2 * previous)
+					+ countBeforeWord(true, getCount(2 * previous + 1),
+							WORDS_PER_BLOCK - 1)
+					+ Long.bitCount(getWord(previousLastWord));
+		}
+
+		for (int block = this.indexedBlocks; block < blocks; block++) {
+			long trueBefore = trueValues;
+			long wordCounts = 0;
+			int firstWord = block << LG_WORDS_PER_BLOCK;
+			for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+				if (i > 0) {
+					wordCounts |= (trueValues - trueBefore) << (WORD_COUNT_BITS * (i - 1));
+				}
+				int wordIndex = firstWord + i;
+				if (wordIndex < lastWord) {
+					trueValues += Long.bitCount(getWord(wordIndex));
+				} else if (wordIndex == lastWord) {
+					trueValues += Long.bitCount(getWord(wordIndex) & lastWordMask);
+				}
+			}
+			setCount(2 * block, trueBefore);
+			setCount(2 * block + 1, wordCounts);
+
+			long blockEnd = Math.min((long) (block + 1) << LG_BLOCK_SIZE, size);
+			long falseValues = blockEnd - trueValues;
+			while ((long) this.trueSampleCount * this.samplingRate < trueValues) {
+				setSample(true, this.trueSampleCount++, block);
+			}
+			while ((long) this.falseSampleCount * this.samplingRate < falseValues) {
+				setSample(false, this.falseSampleCount++, block);
+			}
+		}
+		this.indexedBlocks = blocks;
+		this.totalTrue = trueValues;
+		stateChanged();
+	}
+
+}
@@ -24,41 +24,29 @@ import java.util.Iterator;
 
 /**
  * Default implementation of {@link RankedBitVector}. This implementation uses
- * auxiliary classes to have efficient performance for the methods of a ranked
- * bit vector. Hence, {@link #countBits(boolean, long)} uses an instance of
- * {@link CountBitsArray} and {@link #findPosition(boolean, long)} uses two
- * instances of {@link FindPositionArray}.
+ * a {@link RankSelectIndex} on the words of the bit vector, so that
+ * {@link #countBits(boolean, long)} and {@link #findPosition(boolean, long)}
+ * do not need to read the bit vector bit by bit. The index is updated when it
+ * is queried, starting from the first position that changed.
  * 
- * @see CountBitsArray
- * 
- * @see FindPositionArray
+ * @see RankSelectIndex
  * 
  * @author Julian Mendez
  */
 public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 
-	static final int defaultCountBitsBlockSize = 0x400;
-
 	static final int defaultFindPositionBlockSize = 0x2000;
 
 	final BitVectorImpl bitVector;
 
-	final CountBitsArray countBitsArray;
-
-	final FindPositionArray findPositionOfFalse;
-
-	final FindPositionArray findPositionOfTrue;
+	final RankSelectIndex index;
 
 	/**
 	 * Constructor of a ranked bit vector of size 0.
 	 */
 	public RankedBitVectorImpl() {
 		this.bitVector = new BitVectorImpl();
-		this.countBitsArray = new CountBitsArray(this.bitVector,
-				defaultCountBitsBlockSize);
-		this.findPositionOfFalse = new FindPositionArray(this.bitVector, false,
-				defaultFindPositionBlockSize);
-		this.findPositionOfTrue = new FindPositionArray(this.bitVector, true,
+		this.index = new ArrayRankSelectIndex(this.bitVector,
 				defaultFindPositionBlockSize);
 	}
 
@@ -71,18 +59,12 @@ public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 	public RankedBitVectorImpl(BitVector bitVector) {
 		this.bitVector = new BitVectorImpl(bitVector);
 		if (bitVector instanceof RankedBitVectorImpl) {
-			this.countBitsArray = new CountBitsArray(this.bitVector,
-					((RankedBitVectorImpl) bitVector).countBitsArray
-							.getBlockSize());
+			this.index = new ArrayRankSelectIndex(this.bitVector,
+					((RankedBitVectorImpl) bitVector).index.samplingRate);
 		} else {
-			this.countBitsArray = new CountBitsArray(this.bitVector,
-					defaultCountBitsBlockSize);
+			this.index = new ArrayRankSelectIndex(this.bitVector,
+					defaultFindPositionBlockSize);
 		}
-		this.findPositionOfFalse = new FindPositionArray(this.bitVector, false,
-				defaultFindPositionBlockSize);
-		this.findPositionOfTrue = new FindPositionArray(this.bitVector, true,
-				defaultFindPositionBlockSize);
-
 	}
 
 	/**
@@ -94,11 +76,7 @@ public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 	 */
 	public RankedBitVectorImpl(long initialSize) {
 		this.bitVector = new BitVectorImpl(initialSize);
-		this.countBitsArray = new CountBitsArray(this.bitVector,
-				defaultCountBitsBlockSize);
-		this.findPositionOfFalse = new FindPositionArray(this.bitVector, false,
-				defaultFindPositionBlockSize);
-		this.findPositionOfTrue = new FindPositionArray(this.bitVector, true,
+		this.index = new ArrayRankSelectIndex(this.bitVector,
 				defaultFindPositionBlockSize);
 	}
 
@@ -111,33 +89,43 @@ public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 	 *            initial size of this ranked bit vector
 	 * @param countBlockSize
 	 *            block size to count number of occurrences of a value; this
-	 *            value must be a positive number
+	 *            value must be a positive number. It is only checked, since
+	 *            the index counts the bits in fixed blocks of 512 bits.
 	 * @param findPositionBlockSize
 	 *            block size to find the position of the <i>n</i>-th occurrence
-	 *            of a value; this value must be greater than or equal to 64
+	 *            of a value, which is used as the sampling rate of the index;
+	 *            this value must be greater than or equal to 64
 	 * @throws IllegalArgumentException
 	 *             if any of the block sizes is too small
 	 */
 	public RankedBitVectorImpl(long initialSize, int countBlockSize,
 			int findPositionBlockSize) {
+		if (countBlockSize < 1) {
+			throw new IllegalArgumentException(
+					"The block size must be a positive number. The received value was: "
+							+ countBlockSize + ".");
+		}
+		if (findPositionBlockSize < 0x40) {
+			throw new IllegalArgumentException(
+					"The block size must be greater than or equal to " + 0x40
+							+ ". The received value was " + findPositionBlockSize
+							+ ".");
+		}
 		this.bitVector = new BitVectorImpl(initialSize);
-		this.countBitsArray = new CountBitsArray(this.bitVector, countBlockSize);
-		this.findPositionOfFalse = new FindPositionArray(this.bitVector, false,
-				findPositionBlockSize);
-		this.findPositionOfTrue = new FindPositionArray(this.bitVector, true,
-				findPositionBlockSize);
+		this.index = new ArrayRankSelectIndex(this.bitVector, findPositionBlockSize);
 	}
 
 	@Override
 	public boolean addBit(boolean bit) {
+		long position = this.bitVector.size();
 		boolean ret = this.bitVector.addBit(bit);
-		notifyObservers();
+		this.index.invalidate(position);
 		return ret;
 	}
 
 	@Override
 	public long countBits(boolean bit, long position) {
-		return this.countBitsArray.countBits(bit, position);
+		return this.index.countBits(bit, position);
 	}
 
 	@Override
@@ -153,11 +141,7 @@ public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 
 	@Override
 	public long findPosition(boolean bit, long nOccurrence) {
-		if (nOccurrence <= 0) {
-			return NOT_FOUND;
-		}
-		return bit ? this.findPositionOfTrue.findPosition(nOccurrence)
-				: this.findPositionOfFalse.findPosition(nOccurrence);
+		return this.index.findPosition(bit, nOccurrence);
 	}
 
 	@Override
@@ -175,18 +159,13 @@ public class RankedBitVectorImpl implements RankedBitVector, Iterable<Boolean> {
 		return this.bitVector.iterator();
 	}
 
-	void notifyObservers() {
-		this.countBitsArray.update();
-		this.findPositionOfFalse.update();
-		this.findPositionOfTrue.update();
-	}
-
 	@Override
 	public void setBit(long position, boolean bit) {
 		boolean oldBit = getBit(position);
 		if (oldBit != bit) {
+			long oldSize = this.bitVector.size();
 			this.bitVector.setBit(position, bit);
-			notifyObservers();
+			this.index.invalidate(Math.min(position, oldSize));
 		}
 	}
 
@@ -0,0 +1,338 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+
+/**
+ * Map from entity ids to int values, such as counters, which is a compact
+ * replacement for {@code HashMap<EntityIdValue, Integer>}. The ids are
+ * stored as keys of {@link EntityIdKeys} in an open-addressing hash table
+ * with linear probing, which is kept at most half full. Entries do not
+ * need any objects of their own.
+ * <p>
+ * All methods are available for keys and for {@link EntityIdValue} objects.
+ * The latter are converted to keys, so that ids of different sites are
+ * not distinguished. The map is not thread-safe.
+ */
+public class EntityIdIntMap {
+
+	/**
+	 * Receives the entries of a map.
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer {
+		/**
+		 * Processes one entry.
+		 *
+		 * @param key
+		 *            key of the entity id
+		 * @param value
+		 *            value of the entry
+		 */
+		void accept(long key, int value);
+	}
+
+	long[] keys;
+
+	int[] values;
+
+	int size;
+
+	/**
+	 * Constructs an empty map.
+	 */
+	public EntityIdIntMap() {
+		this(0);
+	}
+
+	/**
+	 * Constructs an empty map that can hold the given number of entries
+	 * without growing.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public EntityIdIntMap(int expectedSize) {
+		int tableSize = EntityIdKeys.getTableSize(expectedSize);
+		this.keys = new long[tableSize];
+		this.values = new int[tableSize];
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the map has no entries.
+	 *
+	 * @return true if the map is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns true if the map has an entry for the given key.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return true if the key is in the map
+	 */
+	public boolean containsKey(long key) {
+		return this.keys[findSlot(key)] != 0;
+	}
+
+	/**
+	 * Returns true if the map has an entry for the given id.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return true if the id is in the map
+	 */
+	public boolean containsKey(EntityIdValue entityIdValue) {
+		return containsKey(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Returns the value for the given key, or the given default value if the
+	 * key is not in the map.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @param defaultValue
+	 *            value to return for missing keys
+	 * @return value of the key
+	 */
+	public int getOrDefault(long key, int defaultValue) {
+		int slot = findSlot(key);
+		return this.keys[slot] != 0 ? this.values[slot] : defaultValue;
+	}
+
+	/**
+	 * Returns the value for the given id, or the given default value if the
+	 * id is not in the map.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @param defaultValue
+	 *            value to return for missing ids
+	 * @return value of the id
+	 */
+	public int getOrDefault(EntityIdValue entityIdValue, int defaultValue) {
+		return getOrDefault(EntityIdKeys.getKey(entityIdValue), defaultValue);
+	}
+
+	/**
+	 * Sets the value of the given key.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @param value
+	 *            the new value
+	 */
+	public void put(long key, int value) {
+		int slot = findSlot(key);
+		if (this.keys[slot] == 0) {
+			slot = insert(slot, key);
+		}
+		this.values[slot] = value;
+	}
+
+	/**
+	 * Sets the value of the given id.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @param value
+	 *            the new value
+	 */
+	public void put(EntityIdValue entityIdValue, int value) {
+		put(EntityIdKeys.getKey(entityIdValue), value);
+	}
+
+	/**
+	 * Adds the given number to the value of the given key. Missing keys are
+	 * added with the value 0 before.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @param delta
+	 *            number to add
+	 * @return the new value
+	 */
+	public int addTo(long key, int delta) {
+		int slot = findSlot(key);
+		if (this.keys[slot] == 0) {
+			slot = insert(slot, key);
+		}
+		return this.values[slot] += delta;
+	}
+
+	/**
+	 * Adds the given number to the value of the given id. Missing ids are
+	 * added with the value 0 before.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @param delta
+	 *            number to add
+	 * @return the new value
+	 */
+	public int addTo(EntityIdValue entityIdValue, int delta) {
+		return addTo(EntityIdKeys.getKey(entityIdValue), delta);
+	}
+
+	/**
+	 * Removes the entry for the given key.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return true if the map contained the key
+	 */
+	public boolean remove(long key) {
+		int slot = findSlot(key);
+		if (this.keys[slot] == 0) {
+			return false;
+		}
+		int mask = this.keys.length - 1;
+		// shift back the following entries of the probe sequence
+		int free = slot;
+		int next = (free + 1) & mask;
+		while (this.keys[next] != 0) {
+			int home = EntityIdKeys.getSlot(this.keys[next], mask);
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				this.keys[free] = this.keys[next];
+				this.values[free] = this.values[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.keys[free] = 0;
+		this.values[free] = 0;
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Removes the entry for the given id.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return true if the map contained the id
+	 */
+	public boolean remove(EntityIdValue entityIdValue) {
+		return remove(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, 0);
+		Arrays.fill(this.values, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Passes all entries to the given consumer, in no particular order. The
+	 * map must not be changed during the iteration.
+	 *
+	 * @param consumer
+	 *            receives the entries
+	 */
+	public void forEach(EntryConsumer consumer) {
+		for (int slot = 0; slot < this.keys.length; slot++) {
+			if (this.keys[slot] != 0) {
+				consumer.accept(this.keys[slot], this.values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the keys of all entries, in no particular order.
+	 *
+	 * @return new array of keys
+	 */
+	public long[] getKeys() {
+		long[] result = new long[this.size];
+		int i = 0;
+		for (long key : this.keys) {
+			if (key != 0) {
+				result[i++] = key;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the slot that contains the given key, or the empty slot where
+	 * it would be inserted.
+	 */
+	int findSlot(long key) {
+		if (key == 0) {
+			throw new IllegalArgumentException("0 is not a valid key");
+		}
+		int mask = this.keys.length - 1;
+		int slot = EntityIdKeys.getSlot(key, mask);
+		while (this.keys[slot] != 0 && this.keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Inserts a key into the given empty slot, growing the table if needed.
+	 *
+	 * @return the slot of the key
+	 */
+	int insert(int slot, long key) {
+		if (2 * (this.size + 1) > this.keys.length) {
+			rehash(2 * this.keys.length);
+			slot = findSlot(key);
+		}
+		this.keys[slot] = key;
+		this.size++;
+		return slot;
+	}
+
+	void rehash(int tableSize) {
+		long[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		this.keys = new long[tableSize];
+		this.values = new int[tableSize];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = findSlot(oldKeys[i]);
+				this.keys[slot] = oldKeys[i];
+				this.values[slot] = oldValues[i];
+			}
+		}
+	}
+
+}
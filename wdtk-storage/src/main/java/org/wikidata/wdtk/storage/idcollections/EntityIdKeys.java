@@ -0,0 +1,213 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+
+/**
+ * Static methods for converting between entity ids and keys of type long,
+ * as used by the collections of this package. The key of an id combines a
+ * code for the entity type (upper 16 bits) with the number of the id (lower
+ * 48 bits), so that "Q42", "P42", "L42" and "M42" have different keys. Keys
+ * are never 0. The site IRI of an id is not part of its key.
+ * <p>
+ * Ids of items, properties, lexemes and media info entities are supported.
+ * Converting an id to a key does not create any objects.
+ */
+public final class EntityIdKeys {
+
+	static final int TYPE_SHIFT = 48;
+
+	static final long NUMBER_MASK = (1L << TYPE_SHIFT) - 1;
+
+	/**
+	 * Prefixes of the supported ids. The position of a prefix in this string,
+	 * plus one, is the type code of its keys.
+	 */
+	static final String PREFIXES = "QPLM";
+
+	private EntityIdKeys() {
+	}
+
+	/**
+	 * Returns the key of the given entity id.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return key of the id
+	 * @throws IllegalArgumentException
+	 *             if the id is not supported
+	 */
+	public static long getKey(EntityIdValue entityIdValue) {
+		return getKey(entityIdValue.getId());
+	}
+
+	/**
+	 * Returns the key of the given entity id string, such as "Q42".
+	 *
+	 * @param id
+	 *            the id
+	 * @return key of the id
+	 * @throws IllegalArgumentException
+	 *             if the id is not supported
+	 */
+	public static long getKey(String id) {
+		int type = id.isEmpty() ? -1 : PREFIXES.indexOf(id.charAt(0));
+		if (type < 0 || id.length() < 2 || id.length() > 16
+				|| id.charAt(1) == '0') {
+			throw new IllegalArgumentException("Unsupported entity id: " + id);
+		}
+		long number = 0;
+		for (int i = 1; i < id.length(); i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new IllegalArgumentException("Unsupported entity id: "
+						+ id);
+			}
+			number = 10 * number + (c - '0');
+		}
+		return getKey(id.charAt(0), number);
+	}
+
+	/**
+	 * Returns the key of the id with the given prefix and number.
+	 *
+	 * @param prefix
+	 *            the first character of the id, such as 'Q' for items
+	 * @param number
+	 *            the number of the id, such as 42 for "Q42"
+	 * @return key of the id
+	 * @throws IllegalArgumentException
+	 *             if the prefix or number is not supported
+	 */
+	public static long getKey(char prefix, long number) {
+		int type = PREFIXES.indexOf(prefix);
+		if (type < 0 || number <= 0 || number > NUMBER_MASK) {
+			throw new IllegalArgumentException("Unsupported entity id: "
+					+ prefix + number);
+		}
+		return ((long) (type + 1) << TYPE_SHIFT) | number;
+	}
+
+	/**
+	 * Returns the key of the item with the given number.
+	 *
+	 * @param number
+	 *            the number of the item, such as 42 for "Q42"
+	 * @return key of the item id
+	 */
+	public static long getItemKey(long number) {
+		return getKey('Q', number);
+	}
+
+	/**
+	 * Returns the key of the property with the given number.
+	 *
+	 * @param number
+	 *            the number of the property, such as 31 for "P31"
+	 * @return key of the property id
+	 */
+	public static long getPropertyKey(long number) {
+		return getKey('P', number);
+	}
+
+	/**
+	 * Returns the number of the id with the given key.
+	 *
+	 * @param key
+	 *            key of an id
+	 * @return the number of the id, such as 42 for "Q42"
+	 */
+	public static long getNumber(long key) {
+		return key & NUMBER_MASK;
+	}
+
+	/**
+	 * Returns the prefix of the id with the given key.
+	 *
+	 * @param key
+	 *            key of an id
+	 * @return the first character of the id, such as 'Q' for items
+	 */
+	public static char getPrefix(long key) {
+		return PREFIXES.charAt((int) (key >>> TYPE_SHIFT) - 1);
+	}
+
+	/**
+	 * Returns the id string of the given key, such as "Q42".
+	 *
+	 * @param key
+	 *            key of an id
+	 * @return the id
+	 */
+	public static String getId(long key) {
+		return getPrefix(key) + Long.toString(getNumber(key));
+	}
+
+	/**
+	 * Creates the entity id value with the given key.
+	 *
+	 * @param key
+	 *            key of an id
+	 * @param siteIri
+	 *            IRI of the site that the id belongs to
+	 * @return the entity id
+	 */
+	public static EntityIdValue getEntityIdValue(long key, String siteIri) {
+		String id = getId(key);
+		switch (getPrefix(key)) {
+		case 'Q':
+			return Datamodel.makeItemIdValue(id, siteIri);
+		case 'P':
+			return Datamodel.makePropertyIdValue(id, siteIri);
+		case 'L':
+			return Datamodel.makeLexemeIdValue(id, siteIri);
+		default:
+			return Datamodel.makeMediaInfoIdValue(id, siteIri);
+		}
+	}
+
+	/**
+	 * Returns the initial slot of a key in an open-addressing table with the
+	 * given mask. Keys of consecutive ids are spread over the table.
+	 */
+	static int getSlot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/**
+	 * Returns the table size for the given number of entries, such that the
+	 * table is at most half full.
+	 */
+	static int getTableSize(int expectedSize) {
+		int size = 16;
+		while (size < 2L * expectedSize) {
+			size <<= 1;
+			if (size == 1 << 30) {
+				break;
+			}
+		}
+		return size;
+	}
+
+}
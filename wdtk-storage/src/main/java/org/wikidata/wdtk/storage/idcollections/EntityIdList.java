@@ -0,0 +1,158 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+
+/**
+ * List of entity ids, which stores the keys of {@link EntityIdKeys} in a
+ * single array of longs. This is a compact replacement for
+ * {@code List<EntityIdValue>}. Ids of different sites are not
+ * distinguished. The list is not thread-safe.
+ */
+public class EntityIdList {
+
+	long[] keys;
+
+	int size;
+
+	/**
+	 * Constructs an empty list.
+	 */
+	public EntityIdList() {
+		this(16);
+	}
+
+	/**
+	 * Constructs an empty list that can hold the given number of ids without
+	 * growing.
+	 *
+	 * @param capacity
+	 *            initial capacity
+	 */
+	public EntityIdList(int capacity) {
+		this.keys = new long[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Returns the number of ids in the list.
+	 *
+	 * @return number of ids
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Appends the given key to the list.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 */
+	public void add(long key) {
+		if (this.size == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+		}
+		this.keys[this.size++] = key;
+	}
+
+	/**
+	 * Appends the given id to the list.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 */
+	public void add(EntityIdValue entityIdValue) {
+		add(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Returns the key at the given position.
+	 *
+	 * @param index
+	 *            position in the list
+	 * @return key of the id
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not smaller than the size of the list
+	 */
+	public long getKey(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ " out of bounds for length " + this.size);
+		}
+		return this.keys[index];
+	}
+
+	/**
+	 * Creates the id at the given position.
+	 *
+	 * @param index
+	 *            position in the list
+	 * @param siteIri
+	 *            IRI of the site of the id
+	 * @return the id
+	 */
+	public EntityIdValue getEntityIdValue(int index, String siteIri) {
+		return EntityIdKeys.getEntityIdValue(getKey(index), siteIri);
+	}
+
+	/**
+	 * Sorts the list by key, so that ids of the same type are ordered by
+	 * their numbers.
+	 */
+	public void sort() {
+		Arrays.sort(this.keys, 0, this.size);
+	}
+
+	/**
+	 * Returns the position of the given key in a sorted list.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return position of the key, or a negative number as for
+	 *         {@link Arrays#binarySearch(long[], int, int, long)} if it is
+	 *         not in the list
+	 */
+	public int binarySearch(long key) {
+		return Arrays.binarySearch(this.keys, 0, this.size, key);
+	}
+
+	/**
+	 * Reduces the memory of the list to what is needed for its current size.
+	 */
+	public void trimToSize() {
+		if (this.size < this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, Math.max(1, this.size));
+		}
+	}
+
+	/**
+	 * Returns the keys of the list.
+	 *
+	 * @return new array of keys
+	 */
+	public long[] toArray() {
+		return Arrays.copyOf(this.keys, this.size);
+	}
+
+}
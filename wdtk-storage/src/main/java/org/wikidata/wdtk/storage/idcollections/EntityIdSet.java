@@ -0,0 +1,231 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+
+/**
+ * Set of entity ids, which is a compact replacement for
+ * {@code HashSet<EntityIdValue>}. The ids are stored as keys of
+ * {@link EntityIdKeys} in an open-addressing hash table with linear
+ * probing, which is kept at most half full. Ids of different sites are not
+ * distinguished. The set is not thread-safe.
+ */
+public class EntityIdSet {
+
+	long[] keys;
+
+	int size;
+
+	/**
+	 * Constructs an empty set.
+	 */
+	public EntityIdSet() {
+		this(0);
+	}
+
+	/**
+	 * Constructs an empty set that can hold the given number of ids without
+	 * growing.
+	 *
+	 * @param expectedSize
+	 *            expected number of ids
+	 */
+	public EntityIdSet(int expectedSize) {
+		this.keys = new long[EntityIdKeys.getTableSize(expectedSize)];
+	}
+
+	/**
+	 * Returns the number of ids in the set.
+	 *
+	 * @return number of ids
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if the set has no ids.
+	 *
+	 * @return true if the set is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns true if the set contains the given key.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return true if the key is in the set
+	 */
+	public boolean contains(long key) {
+		return this.keys[findSlot(key)] != 0;
+	}
+
+	/**
+	 * Returns true if the set contains the given id.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return true if the id is in the set
+	 */
+	public boolean contains(EntityIdValue entityIdValue) {
+		return contains(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Adds the given key to the set.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return true if the key was not in the set before
+	 */
+	public boolean add(long key) {
+		int slot = findSlot(key);
+		if (this.keys[slot] != 0) {
+			return false;
+		}
+		if (2 * (this.size + 1) > this.keys.length) {
+			rehash(2 * this.keys.length);
+			slot = findSlot(key);
+		}
+		this.keys[slot] = key;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Adds the given id to the set.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return true if the id was not in the set before
+	 */
+	public boolean add(EntityIdValue entityIdValue) {
+		return add(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Removes the given key from the set.
+	 *
+	 * @param key
+	 *            key of an entity id
+	 * @return true if the key was in the set
+	 */
+	public boolean remove(long key) {
+		int slot = findSlot(key);
+		if (this.keys[slot] == 0) {
+			return false;
+		}
+		int mask = this.keys.length - 1;
+		int free = slot;
+		int next = (free + 1) & mask;
+		while (this.keys[next] != 0) {
+			int home = EntityIdKeys.getSlot(this.keys[next], mask);
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				this.keys[free] = this.keys[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.keys[free] = 0;
+		this.size--;
+		return true;
+	}
+
+	/**
+	 * Removes the given id from the set.
+	 *
+	 * @param entityIdValue
+	 *            the id
+	 * @return true if the id was in the set
+	 */
+	public boolean remove(EntityIdValue entityIdValue) {
+		return remove(EntityIdKeys.getKey(entityIdValue));
+	}
+
+	/**
+	 * Removes all ids.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, 0);
+		this.size = 0;
+	}
+
+	/**
+	 * Passes the keys of all ids to the given consumer, in no particular
+	 * order. The set must not be changed during the iteration.
+	 *
+	 * @param consumer
+	 *            receives the keys
+	 */
+	public void forEach(LongConsumer consumer) {
+		for (long key : this.keys) {
+			if (key != 0) {
+				consumer.accept(key);
+			}
+		}
+	}
+
+	/**
+	 * Returns the keys of all ids, in no particular order.
+	 *
+	 * @return new array of keys
+	 */
+	public long[] toArray() {
+		long[] result = new long[this.size];
+		int i = 0;
+		for (long key : this.keys) {
+			if (key != 0) {
+				result[i++] = key;
+			}
+		}
+		return result;
+	}
+
+	int findSlot(long key) {
+		if (key == 0) {
+			throw new IllegalArgumentException("0 is not a valid key");
+		}
+		int mask = this.keys.length - 1;
+		int slot = EntityIdKeys.getSlot(key, mask);
+		while (this.keys[slot] != 0 && this.keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	void rehash(int tableSize) {
+		long[] oldKeys = this.keys;
+		this.keys = new long[tableSize];
+		for (long key : oldKeys) {
+			if (key != 0) {
+				this.keys[findSlot(key)] = key;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,262 @@
+package org.wikidata.wdtk.storage.compact;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.helpers.ItemDocumentBuilder;
+import org.wikidata.wdtk.datamodel.helpers.ReferenceBuilder;
+import org.wikidata.wdtk.datamodel.helpers.StatementBuilder;
+import org.wikidata.wdtk.datamodel.implementation.SnakImpl;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+
+public class CompactItemStoreTest {
+
+	final ItemIdValue q42 = Datamodel.makeWikidataItemIdValue("Q42");
+	final PropertyIdValue p31 = Datamodel.makeWikidataPropertyIdValue("P31");
+	final PropertyIdValue p569 = Datamodel.makeWikidataPropertyIdValue("P569");
+	final PropertyIdValue p1082 = Datamodel.makeWikidataPropertyIdValue("P1082");
+	final PropertyIdValue p625 = Datamodel.makeWikidataPropertyIdValue("P625");
+	final PropertyIdValue p1476 = Datamodel.makeWikidataPropertyIdValue("P1476");
+	final PropertyIdValue p854 = Datamodel.makeWikidataPropertyIdValue("P854");
+	final PropertyIdValue p5 = Datamodel.makeWikidataPropertyIdValue("P5");
+
+	CompactItemStore store;
+
+	ItemDocument document;
+
+	@Before
+	public void setUp() throws IOException {
+		store = new CompactItemStore(Datamodel.SITE_WIKIDATA, new ByteArena(1024));
+		DatamodelMapper mapper = new DatamodelMapper(Datamodel.SITE_WIKIDATA);
+		Snak unsupported = mapper.readValue("{\"snaktype\":\"value\",\"property\":\"P1476\","
+						+ "\"datatype\":\"funky\",\"datavalue\":"
+						+ "{\"type\":\"funky\",\"value\":{\"a\":[1,2]}}}",
+						SnakImpl.class);
+		Snak lexeme = mapper.readValue("{\"snaktype\":\"value\",\"property\":\"P5\","
+				+ "\"datatype\":\"wikibase-lexeme\",\"datavalue\":{\"type\":"
+				+ "\"wikibase-entityid\",\"value\":{\"id\":\"L7\"}}}",
+				SnakImpl.class);
+
+		document = ItemDocumentBuilder.forItemId(q42)
+				.withRevisionId(1234567890L)
+				.withLabel("Douglas Adams", "en")
+				.withLabel("Дуглас Адамс", "ru")
+				.withDescription("English writer", "en")
+				.withAlias("Douglas Noël Adams", "en")
+				.withAlias("DNA", "en")
+				.withAlias("Адамс", "ru")
+				.withSiteLink("Douglas Adams", "enwiki",
+						Datamodel.makeWikidataItemIdValue("Q17437796"))
+				.withSiteLink("Douglas Adams", "dewiki")
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p31)
+						.withValue(Datamodel.makeWikidataItemIdValue("Q5"))
+						.withId("Q42$F078E5B3-F9A8-480E-B7AC-D97778CBBEF9")
+						.withReference(ReferenceBuilder.newInstance()
+								.withPropertyValue(p854, Datamodel.makeStringValue(
+										"http://example.org"))
+								.withSomeValue(p5).build())
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p31)
+						.withValue(Datamodel.makeWikidataItemIdValue("Q36180"))
+						.withId("q42$7bd8c3b4-4b11-4e9e-9c1f-1e2a9f3c4d5e")
+						.withRank(StatementRank.PREFERRED)
+						.withQualifierValue(p31, Datamodel.makeWikidataPropertyIdValue("P50"))
+						.withQualifierNoValue(p5)
+						.withQualifier(unsupported)
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p31)
+						.withSomeValue().withId("custom id").build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p569)
+						.withValue(Datamodel.makeTimeValue(-13800000000L, (byte) 3,
+								(byte) 11, (byte) 0, (byte) 0, (byte) 0,
+								TimeValue.PREC_DAY, 0, 2, -60,
+								TimeValue.CM_GREGORIAN_PRO))
+						.withRank(StatementRank.DEPRECATED).build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p1082)
+						.withValue(Datamodel.makeQuantityValue(new BigDecimal("1.50"),
+								new BigDecimal("1.4"), new BigDecimal("1.6E+3"),
+								Datamodel.makeWikidataItemIdValue("Q11573")))
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p1082)
+						.withValue(Datamodel.makeQuantityValue(new BigDecimal(
+								"-123456789012345678901234567890.000001")))
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p625)
+						.withValue(Datamodel.makeGlobeCoordinatesValue(51.03,
+								-0.03, 0.01, "http://www.wikidata.org/entity/Q405"))
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p1476)
+						.withValue(Datamodel.makeMonolingualTextValue(
+								"Hitchhiker", "en"))
+						.build())
+				.withStatement(Datamodel.makeStatement(q42, lexeme,
+						Collections.emptyList(), Collections.emptyList(),
+						StatementRank.NORMAL, ""))
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p5)
+						.withValue(Datamodel.makeItemIdValue("Q3",
+								"http://example.org/entity/"))
+						.build())
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42, p5)
+						.withNoValue().build())
+				.build();
+	}
+
+	@Test
+	public void testRoundTrip() {
+		int ordinal = store.add(document);
+		CompactItemDocument compact = store.getItemDocument(ordinal);
+
+		assertEquals(document, compact);
+		assertEquals(compact, document);
+		assertEquals(document.hashCode(), compact.hashCode());
+		assertEquals(document.toString(), compact.toString());
+		assertEquals(document, compact.toItemDocument());
+		assertEquals(42, compact.getNumericId());
+		assertEquals(1234567890L, compact.getRevisionId());
+	}
+
+	@Test
+	public void testFindTerms() {
+		CompactItemDocument compact = store.getItemDocument(store.add(document));
+
+		assertEquals("Дуглас Адамс", compact.findLabel("ru"));
+		assertEquals("English writer", compact.findDescription("en"));
+		assertNull(compact.findDescription("ru"));
+		assertNull(compact.findLabel("fr"));
+
+		assertEquals(document.getLabel("ru"), compact.getLabel("ru"));
+		assertEquals(document.getDescription("en"), compact.getDescription("en"));
+		assertNull(compact.getLabel("fr"));
+		assertEquals(document.getAliases("en"), compact.getAliases("en"));
+		assertEquals(document.getAliases("ru"), compact.getAliases("ru"));
+		assertTrue(compact.getAliases("fr").isEmpty());
+		assertTrue(compact.getAliases("xx-unknown").isEmpty());
+	}
+
+	@Test
+	public void testFindStatements() {
+		CompactItemDocument compact = store.getItemDocument(store.add(document));
+
+		assertEquals(document.findStatementGroup("P1082"),
+				compact.findStatementGroup("P1082"));
+		assertEquals(document.findStatementGroup(p625),
+				compact.findStatementGroup(p625));
+		assertNull(compact.findStatementGroup("P18"));
+		assertNull(compact.findStatementGroup("Q5"));
+		assertNull(compact.findStatementGroup(Datamodel.makePropertyIdValue(
+				"P31", "http://example.org/entity/")));
+		assertArrayEquals(new int[] { 5, 36180 }, compact.findItemValueIds(31));
+		assertArrayEquals(new int[0], compact.findItemValueIds(1082));
+		assertArrayEquals(new int[0], compact.findItemValueIds(18));
+	}
+
+	@Test
+	public void testManyItems() {
+		for (int i = 1; i <= 1000; i++) {
+			ItemIdValue id = Datamodel.makeWikidataItemIdValue("Q" + (7 * i));
+			store.add(ItemDocumentBuilder.forItemId(id)
+					.withLabel("item " + i, "en")
+					.withStatement(StatementBuilder.forSubjectAndProperty(id, p31)
+							.withValue(Datamodel.makeWikidataItemIdValue("Q" + i))
+							.build())
+					.build());
+		}
+		assertEquals("item 6", store.findItemDocument(42).findLabel("en"));
+		assertEquals(5, store.add(document));
+
+		assertEquals(1000, store.size());
+		assertEquals(5, store.findOrdinal(42));
+		assertEquals(document, store.findItemDocument(42));
+		assertEquals("item 500", store.findItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q3500")).findLabel("en"));
+		assertArrayEquals(new int[] { 500 }, store.findItemDocument(3500)
+				.findItemValueIds(31));
+		assertNull(store.findItemDocument(43));
+		assertNull(store.findItemDocument(Datamodel.makeItemIdValue("Q7",
+				"http://example.org/entity/")));
+		assertEquals(700, store.getNumericId(99));
+	}
+
+	@Test
+	public void testReplaceItem() {
+		int ordinal = store.add(document);
+		ItemDocument changed = document.withLabel(
+				Datamodel.makeMonolingualTextValue("DA", "en"));
+		assertEquals(ordinal, store.add(changed));
+		assertEquals(1, store.size());
+		assertEquals(changed, store.findItemDocument(42));
+		assertTrue(store.getRecordSize() > 0);
+	}
+
+	@Test
+	public void testWithMethods() {
+		CompactItemDocument compact = store.getItemDocument(store.add(document));
+		ItemDocument changed = compact.withRevisionId(5)
+				.withDescription(Datamodel.makeMonolingualTextValue("writer", "de"))
+				.withoutStatementIds(Collections.singleton(
+						"Q42$F078E5B3-F9A8-480E-B7AC-D97778CBBEF9"));
+
+		assertEquals(5, changed.getRevisionId());
+		assertEquals("writer", changed.findDescription("de"));
+		assertEquals(2, changed.findStatementGroup(p31).size());
+		assertEquals(document, compact);
+	}
+
+	@Test
+	public void testProcessItemDocument() {
+		store.processItemDocument(document);
+		assertEquals(document, store.findItemDocument(42));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherSite() {
+		store.add(Datamodel.makeItemDocument(Datamodel.makeItemIdValue("Q1",
+				"http://example.org/entity/")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOtherSiteProperty() {
+		store.add(ItemDocumentBuilder.forItemId(q42)
+				.withStatement(StatementBuilder.forSubjectAndProperty(q42,
+						Datamodel.makePropertyIdValue("P1",
+								"http://example.org/entity/"))
+						.withNoValue().build())
+				.build());
+	}
+
+}
@@ -0,0 +1,122 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedBitVectorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Path getPath() {
+		return this.folder.getRoot().toPath().resolve("bits");
+	}
+
+	@Test
+	public void testAddAndReopen() throws IOException {
+		BitVectorImpl expected = new BitVectorImpl();
+		PseudorandomBooleanGenerator generator = new PseudorandomBooleanGenerator(
+				0x1234);
+		try (MappedBitVector bv = new MappedBitVector(getPath())) {
+			Assert.assertEquals(0, bv.size());
+			for (int i = 0; i < 0x10000; i++) {
+				boolean value = generator.getPseudorandomBoolean();
+				bv.addBit(value);
+				expected.addBit(value);
+			}
+			Assert.assertEquals(expected, bv);
+			Assert.assertEquals(bv, expected);
+			Assert.assertEquals(expected.hashCode(), bv.hashCode());
+		}
+
+		try (MappedBitVector bv = new MappedBitVector(getPath(), true)) {
+			Assert.assertEquals(0x10000, bv.size());
+			Assert.assertEquals(expected, bv);
+			Assert.assertEquals(expected.hashCode(), bv.hashCode());
+			Assert.assertEquals(expected.toString(), bv.toString());
+		}
+	}
+
+	@Test
+	public void testSetBit() throws IOException {
+		try (MappedBitVector bv = new MappedBitVector(getPath())) {
+			bv.setBit(100, true);
+			Assert.assertEquals(101, bv.size());
+			Assert.assertTrue(bv.getBit(100));
+			Assert.assertFalse(bv.getBit(99));
+			Assert.assertFalse(bv.getBit(1000));
+
+			bv.setBit(100, false);
+			Assert.assertFalse(bv.getBit(100));
+			bv.setBit(200, false);
+			Assert.assertEquals(201, bv.size());
+
+			BitVectorImpl expected = new BitVectorImpl(201);
+			Assert.assertEquals(expected, bv);
+			Assert.assertEquals(expected.hashCode(), bv.hashCode());
+		}
+	}
+
+	@Test
+	public void testSegments() throws IOException {
+		long position = (1L << 30) + 100;
+		try (MappedBitVector bv = new MappedBitVector(getPath())) {
+			bv.addBit(true);
+			bv.setBit(position, true);
+			Assert.assertEquals(position + 1, bv.size());
+		}
+		try (MappedBitVector bv = new MappedBitVector(getPath(), true)) {
+			Assert.assertTrue(bv.getBit(0));
+			Assert.assertFalse(bv.getBit(position - 1));
+			Assert.assertTrue(bv.getBit(position));
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testReadOnly() throws IOException {
+		new MappedBitVector(getPath()).close();
+		try (MappedBitVector bv = new MappedBitVector(getPath(), true)) {
+			bv.addBit(true);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNegativePosition() throws IOException {
+		try (MappedBitVector bv = new MappedBitVector(getPath())) {
+			bv.getBit(-1);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testWrongFile() throws IOException {
+		Files.write(getPath(), new byte[100]);
+		new MappedBitVector(getPath()).close();
+	}
+
+}
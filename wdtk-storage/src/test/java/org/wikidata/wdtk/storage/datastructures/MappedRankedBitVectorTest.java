@@ -0,0 +1,131 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedRankedBitVectorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Path getPath() {
+		return this.folder.getRoot().toPath().resolve("bits");
+	}
+
+	/**
+	 * Checks that both ranked bit vectors answer all rank and select queries
+	 * in the same way.
+	 */
+	void assertSameQueries(RankedBitVector expected, RankedBitVector bv) {
+		Assert.assertEquals(expected, bv);
+		for (long i = 0; i <= expected.size(); i++) {
+			Assert.assertEquals(expected.countBits(true, i),
+					bv.countBits(true, i));
+			Assert.assertEquals(expected.countBits(false, i),
+					bv.countBits(false, i));
+			Assert.assertEquals(expected.findPosition(true, i),
+					bv.findPosition(true, i));
+			Assert.assertEquals(expected.findPosition(false, i),
+					bv.findPosition(false, i));
+		}
+	}
+
+	@Test
+	public void testQueriesAfterReopening() throws IOException {
+		RankedBitVectorImpl expected = new RankedBitVectorImpl();
+		PseudorandomBooleanGenerator generator = new PseudorandomBooleanGenerator(
+				0x4321);
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath())) {
+			for (int i = 0; i < 0x8000; i++) {
+				boolean value = generator.getPseudorandomBoolean();
+				bv.addBit(value);
+				expected.addBit(value);
+				if (i % 0x1001 == 0) {
+					Assert.assertEquals(expected.countBits(true, i),
+							bv.countBits(true, i));
+				}
+			}
+			assertSameQueries(expected, bv);
+		}
+
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath(),
+				true)) {
+			Assert.assertEquals(0x8000 >>> RankSelectIndex.LG_BLOCK_SIZE,
+					bv.index.indexedBlocks);
+			assertSameQueries(expected, bv);
+		}
+
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath())) {
+			bv.setBit(3, !bv.getBit(3));
+			expected.setBit(3, !expected.getBit(3));
+			for (int i = 0; i < 0x900; i++) {
+				bv.addBit(i % 3 == 0);
+				expected.addBit(i % 3 == 0);
+			}
+			bv.setBit(0x9000, true);
+			expected.setBit(0x9000, true);
+		}
+
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath(),
+				true)) {
+			assertSameQueries(expected, bv);
+		}
+	}
+
+	@Test
+	public void testChangesWithoutQueries() throws IOException {
+		RankedBitVectorImpl expected = new RankedBitVectorImpl();
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath())) {
+			for (int i = 0; i < 0x1000; i++) {
+				bv.addBit(i % 5 == 0);
+				expected.addBit(i % 5 == 0);
+			}
+			Assert.assertEquals(expected.countBits(true, 0x800),
+					bv.countBits(true, 0x800));
+			for (int i = 0; i < 0x1000; i++) {
+				bv.addBit(i % 7 == 0);
+				expected.addBit(i % 7 == 0);
+			}
+			bv.index.flush();
+			bv.bitVector.flush();
+		}
+		// the index files were written before the last bits were added
+		try (MappedRankedBitVector bv = new MappedRankedBitVector(getPath())) {
+			assertSameQueries(expected, bv);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadOnlyWithoutIndex() throws IOException {
+		try (MappedBitVector bv = new MappedBitVector(getPath())) {
+			bv.addBit(true);
+		}
+		new MappedRankedBitVector(getPath(), true).close();
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.wikidata.wdtk.storage.datastructures;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RankSelectIndexTest {
+
+	/**
+	 * Checks all rank and select queries against a bit-by-bit count.
+	 */
+	void assertCorrectIndex(BitVector bv, RankSelectIndex index) {
+		long trueValues = 0;
+		long falseValues = 0;
+		for (long position = 0; position < bv.size(); position++) {
+			if (bv.getBit(position)) {
+				trueValues++;
+				Assert.assertEquals(position,
+						index.findPosition(true, trueValues));
+			} else {
+				falseValues++;
+				Assert.assertEquals(position,
+						index.findPosition(false, falseValues));
+			}
+			Assert.assertEquals(trueValues, index.countBits(true, position));
+			Assert.assertEquals(falseValues, index.countBits(false, position));
+		}
+		Assert.assertEquals(RankedBitVector.NOT_FOUND,
+				index.findPosition(true, trueValues + 1));
+		Assert.assertEquals(RankedBitVector.NOT_FOUND,
+				index.findPosition(false, falseValues + 1));
+		Assert.assertEquals(trueValues, index.countBits(true, bv.size() + 100));
+	}
+
+	@Test
+	public void testSelectInWord() {
+		Random random = new Random(0x5eed);
+		for (int i = 0; i < 10000; i++) {
+			long word = random.nextLong() & random.nextLong();
+			if (i == 0) {
+				word = -1L;
+			}
+			long rest = word;
+			for (int rank = 0; rest != 0; rank++) {
+				Assert.assertEquals(Long.numberOfTrailingZeros(rest),
+						RankSelectIndex.selectInWord(word, rank));
+				rest &= rest - 1;
+			}
+		}
+	}
+
+	@Test
+	public void testSparseAndDenseBits() {
+		for (int period : new int[] { 1, 2, 7, 64, 511, 513, 5000 }) {
+			for (int samplingRate : new int[] { 1, 3, 0x40, 0x2000 }) {
+				BitVectorImpl bv = new BitVectorImpl();
+				for (int i = 0; i < 20000; i++) {
+					bv.addBit(i % period == 0);
+				}
+				assertCorrectIndex(bv, new ArrayRankSelectIndex(bv, samplingRate));
+			}
+		}
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		PseudorandomBooleanGenerator generator = new PseudorandomBooleanGenerator(
+				0x2468);
+		BitVectorImpl bv = new BitVectorImpl();
+		RankSelectIndex index = new ArrayRankSelectIndex(bv, 5);
+		for (int i = 0; i < 3000; i++) {
+			bv.addBit(generator.getPseudorandomBoolean());
+			index.invalidate(i);
+			if (i % 97 == 0) {
+				assertCorrectIndex(bv, index);
+			}
+		}
+		bv.setBit(10, !bv.getBit(10));
+		index.invalidate(10);
+		bv.setBit(2500, !bv.getBit(2500));
+		index.invalidate(2500);
+		assertCorrectIndex(bv, index);
+
+		long size = bv.size();
+		bv.setBit(5000, true);
+		index.invalidate(size);
+		assertCorrectIndex(bv, index);
+	}
+
+	@Test
+	public void testRankedBitVectorUpdates() {
+		RankedBitVectorImpl bv = new RankedBitVectorImpl(0, 1, 0x40);
+		for (int i = 0; i < 2000; i++) {
+			bv.addBit(i % 3 == 0);
+		}
+		bv.setBit(1, true);
+		bv.setBit(3000, true);
+		Assert.assertEquals(3001, bv.size());
+		assertCorrectIndex(bv, bv.index);
+	}
+
+	@Test
+	public void testAgreesWithAuxiliaryArrays() {
+		Random random = new Random(7);
+		RankedBitVectorImpl bv = new RankedBitVectorImpl();
+		for (int i = 0; i < 0x10000; i++) {
+			bv.addBit(random.nextBoolean());
+		}
+		CountBitsArray countBitsArray = new CountBitsArray(bv.bitVector, 0x400);
+		FindPositionArray findPositionOfFalse = new FindPositionArray(
+				bv.bitVector, false,
+				RankedBitVectorImpl.defaultFindPositionBlockSize);
+		FindPositionArray findPositionOfTrue = new FindPositionArray(
+				bv.bitVector, true,
+				RankedBitVectorImpl.defaultFindPositionBlockSize);
+		for (int i = 0; i < 500; i++) {
+			long position = (long) (random.nextDouble() * bv.size());
+			boolean bit = random.nextBoolean();
+			long count = countBitsArray.countBits(bit, position);
+			Assert.assertEquals(count, bv.countBits(bit, position));
+			Assert.assertEquals(bit ? findPositionOfTrue.findPosition(count)
+					: findPositionOfFalse.findPosition(count),
+					bv.findPosition(bit, count));
+		}
+	}
+
+	@Test
+	public void testAppendsAgreeWithAuxiliaryArrays() {
+		Random random = new Random(5);
+		RankedBitVectorImpl bv = new RankedBitVectorImpl();
+		BitVectorImpl plain = new BitVectorImpl();
+		CountBitsArray countBitsArray = new CountBitsArray(plain, 0x400);
+		for (int i = 0; i < 2000; i++) {
+			boolean bit = random.nextBoolean();
+			bv.addBit(bit);
+			plain.addBit(bit);
+			countBitsArray.update();
+			Assert.assertEquals(countBitsArray.countBits(true, i),
+					bv.countBits(true, i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSamplingRate() {
+		new ArrayRankSelectIndex(new BitVectorImpl(), 0);
+	}
+
+}
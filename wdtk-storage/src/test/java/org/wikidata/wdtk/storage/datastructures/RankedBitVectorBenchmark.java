@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+package org.wikidata.wdtk.storage.datastructures;
+
+import java.util.Random;
+
+/**
+ * Measures rank and select queries of {@link RankedBitVectorImpl}, which
+ * uses a {@link RankSelectIndex}, compared to the bit-by-bit
+ * {@link CountBitsArray} and {@link FindPositionArray} with the same block
+ * sizes. It also measures a sequence of appends that are each followed by a
+ * query, which makes the auxiliary arrays rebuild their whole index.
+ * <p>
+ * Run the main method to print the results. The optional arguments are the
+ * number of bits and the number of queries.
+ */
+public class RankedBitVectorBenchmark {
+
+	/**
+	 * Returns a ranked bit vector with the given number of pseudorandom
+	 * bits.
+	 */
+	static RankedBitVectorImpl makeBitVector(int size, long seed) {
+		Random random = new Random(seed);
+		RankedBitVectorImpl bv = new RankedBitVectorImpl();
+		for (int i = 0; i < size; i++) {
+			bv.addBit(random.nextBoolean());
+		}
+		return bv;
+	}
+
+	/**
+	 * Runs rank and select queries on the index of the given bit vector and
+	 * returns the sum of the results.
+	 */
+	static long queryIndex(RankedBitVectorImpl bv, int queries, long seed) {
+		Random random = new Random(seed);
+		long sum = 0;
+		for (int i = 0; i < queries; i++) {
+			long position = (long) (random.nextDouble() * bv.size());
+			boolean bit = random.nextBoolean();
+			long count = bv.countBits(bit, position);
+			sum += count + bv.findPosition(bit, count);
+		}
+		return sum;
+	}
+
+	/**
+	 * Runs the same queries as
+	 * {@link #queryIndex(RankedBitVectorImpl, int, long)} with the auxiliary
+	 * arrays.
+	 */
+	static long queryArrays(BitVector bv, int queries, long seed) {
+		CountBitsArray countBitsArray = new CountBitsArray(bv, 0x400);
+		FindPositionArray findPositionOfFalse = new FindPositionArray(bv,
+				false, RankedBitVectorImpl.defaultFindPositionBlockSize);
+		FindPositionArray findPositionOfTrue = new FindPositionArray(bv, true,
+				RankedBitVectorImpl.defaultFindPositionBlockSize);
+		Random random = new Random(seed);
+		long sum = 0;
+		for (int i = 0; i < queries; i++) {
+			long position = (long) (random.nextDouble() * bv.size());
+			boolean bit = random.nextBoolean();
+			long count = countBitsArray.countBits(bit, position);
+			sum += count
+					+ (bit ? findPositionOfTrue.findPosition(count)
+							: findPositionOfFalse.findPosition(count));
+		}
+		return sum;
+	}
+
+	/**
+	 * Appends the given number of bits to a new ranked bit vector, counting
+	 * the bits after each append, and returns the sum of the counts.
+	 */
+	static long appendToIndex(int size, long seed) {
+		Random random = new Random(seed);
+		RankedBitVectorImpl bv = new RankedBitVectorImpl();
+		long sum = 0;
+		for (int i = 0; i < size; i++) {
+			bv.addBit(random.nextBoolean());
+			sum += bv.countBits(true, i);
+		}
+		return sum;
+	}
+
+	/**
+	 * Does the same as {@link #appendToIndex(int, long)} with a
+	 * {@link CountBitsArray}.
+	 */
+	static long appendToArrays(int size, long seed) {
+		Random random = new Random(seed);
+		BitVectorImpl bv = new BitVectorImpl();
+		CountBitsArray countBitsArray = new CountBitsArray(bv, 0x400);
+		long sum = 0;
+		for (int i = 0; i < size; i++) {
+			bv.addBit(random.nextBoolean());
+			countBitsArray.update();
+			sum += countBitsArray.countBits(true, i);
+		}
+		return sum;
+	}
+
+	private static void printTime(String name, long start, long sum) {
+		System.out.println("- " + name + (System.nanoTime() - start) / 1000000
+				+ " ms (checksum " + sum + ")");
+	}
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 0x1000000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int appends = 0x4000;
+		RankedBitVectorImpl bv = makeBitVector(size, 0x1234);
+
+		// warm up both code paths
+		queryIndex(bv, queries / 10, 1);
+		queryArrays(bv.bitVector, queries / 10, 1);
+		appendToIndex(appends / 10, 1);
+		appendToArrays(appends / 10, 1);
+
+		System.out.println("Running " + queries + " rank and select queries on "
+				+ size + " bits:");
+		long start = System.nanoTime();
+		long sum = queryArrays(bv.bitVector, queries, 42);
+		printTime("auxiliary arrays: ", start, sum);
+		start = System.nanoTime();
+		sum = queryIndex(bv, queries, 42);
+		printTime("rank/select index: ", start, sum);
+
+		System.out.println("Appending " + appends
+				+ " bits with a query after each one:");
+		start = System.nanoTime();
+		sum = appendToArrays(appends, 42);
+		printTime("auxiliary arrays: ", start, sum);
+		start = System.nanoTime();
+		sum = appendToIndex(appends, 42);
+		printTime("rank/select index: ", start, sum);
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+
+public class EntityIdIntMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		EntityIdIntMap map = new EntityIdIntMap();
+		map.put(Datamodel.makeWikidataItemIdValue("Q42"), 7);
+		map.put(Datamodel.makeWikidataPropertyIdValue("P42"), 8);
+
+		assertEquals(2, map.size());
+		assertEquals(7, map.getOrDefault(EntityIdKeys.getItemKey(42), -1));
+		assertEquals(8, map.getOrDefault(Datamodel
+				.makeWikidataPropertyIdValue("P42"), -1));
+		assertEquals(-1, map.getOrDefault(EntityIdKeys.getItemKey(43), -1));
+		assertTrue(map.containsKey(Datamodel.makeWikidataItemIdValue("Q42")));
+		assertFalse(map.containsKey(EntityIdKeys.getKey("L42")));
+	}
+
+	@Test
+	public void testAddTo() {
+		EntityIdIntMap map = new EntityIdIntMap();
+		assertEquals(3, map.addTo(Datamodel.makeWikidataItemIdValue("Q5"), 3));
+		assertEquals(5, map.addTo(EntityIdKeys.getItemKey(5), 2));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(17);
+		EntityIdIntMap map = new EntityIdIntMap();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			long key = EntityIdKeys.getItemKey(1 + random.nextInt(5000));
+			switch (random.nextInt(3)) {
+			case 0:
+				map.put(key, i);
+				expected.put(key, i);
+				break;
+			case 1:
+				map.addTo(key, 1);
+				expected.merge(key, 1, Integer::sum);
+				break;
+			default:
+				assertEquals(expected.remove(key) != null, map.remove(key));
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			assertEquals((int) entry.getValue(), map.getOrDefault(
+					entry.getKey(), -1));
+		}
+		Map<Long, Integer> iterated = new HashMap<>();
+		map.forEach(iterated::put);
+		assertEquals(expected, iterated);
+		long[] keys = map.getKeys();
+		Arrays.sort(keys);
+		assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue)
+				.sorted().toArray(), keys);
+	}
+
+	@Test
+	public void testClear() {
+		EntityIdIntMap map = new EntityIdIntMap(100);
+		map.put(EntityIdKeys.getItemKey(1), 1);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.containsKey(EntityIdKeys.getItemKey(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedId() {
+		new EntityIdIntMap().put(Datamodel.makeWikidataFormIdValue("L1-F1"), 1);
+	}
+
+}
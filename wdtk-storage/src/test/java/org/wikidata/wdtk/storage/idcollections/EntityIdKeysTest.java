@@ -0,0 +1,87 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+
+public class EntityIdKeysTest {
+
+	@Test
+	public void testRoundTrip() {
+		for (String id : new String[] { "Q1", "Q42", "P31", "L7", "M123",
+				"Q2147483648", "Q281474976710655" }) {
+			long key = EntityIdKeys.getKey(id);
+			assertEquals(id, EntityIdKeys.getId(key));
+			assertEquals(id.charAt(0), EntityIdKeys.getPrefix(key));
+			assertEquals(Long.parseLong(id.substring(1)),
+					EntityIdKeys.getNumber(key));
+		}
+	}
+
+	@Test
+	public void testEntityIdValues() {
+		assertEquals(Datamodel.makeWikidataItemIdValue("Q42"),
+				EntityIdKeys.getEntityIdValue(EntityIdKeys.getItemKey(42),
+						Datamodel.SITE_WIKIDATA));
+		assertEquals(Datamodel.makeWikidataPropertyIdValue("P31"),
+				EntityIdKeys.getEntityIdValue(EntityIdKeys.getPropertyKey(31),
+						Datamodel.SITE_WIKIDATA));
+		assertEquals(Datamodel.makeWikidataLexemeIdValue("L7"),
+				EntityIdKeys.getEntityIdValue(EntityIdKeys.getKey(
+						Datamodel.makeWikidataLexemeIdValue("L7")),
+						Datamodel.SITE_WIKIDATA));
+		assertEquals(Datamodel.makeWikimediaCommonsMediaInfoIdValue("M5"),
+				EntityIdKeys.getEntityIdValue(EntityIdKeys.getKey("M5"),
+						Datamodel.SITE_WIKIMEDIA_COMMONS));
+	}
+
+	@Test
+	public void testTypesAreDistinguished() {
+		assertEquals(4, Stream.of("Q42", "P42", "L42", "M42")
+				.mapToLong(EntityIdKeys::getKey).distinct().count());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFormId() {
+		EntityIdKeys.getKey("L1-F2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLeadingZero() {
+		EntityIdKeys.getKey("Q01");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		EntityIdKeys.getKey("Q281474976710656");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPrefix() {
+		EntityIdKeys.getKey('X', 1);
+	}
+
+}
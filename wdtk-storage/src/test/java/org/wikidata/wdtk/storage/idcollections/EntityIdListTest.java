@@ -0,0 +1,67 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+
+public class EntityIdListTest {
+
+	@Test
+	public void testAddAndGet() {
+		EntityIdList list = new EntityIdList(1);
+		for (int i = 100; i > 0; i--) {
+			list.add(EntityIdKeys.getItemKey(i));
+		}
+		list.add(Datamodel.makeWikidataPropertyIdValue("P31"));
+
+		assertEquals(101, list.size());
+		assertEquals(EntityIdKeys.getItemKey(100), list.getKey(0));
+		assertEquals(Datamodel.makeWikidataPropertyIdValue("P31"),
+				list.getEntityIdValue(100, Datamodel.SITE_WIKIDATA));
+	}
+
+	@Test
+	public void testSortAndSearch() {
+		EntityIdList list = new EntityIdList();
+		list.add(EntityIdKeys.getPropertyKey(1));
+		list.add(EntityIdKeys.getItemKey(30));
+		list.add(EntityIdKeys.getItemKey(2));
+		list.sort();
+		list.trimToSize();
+
+		assertArrayEquals(new long[] { EntityIdKeys.getItemKey(2),
+				EntityIdKeys.getItemKey(30), EntityIdKeys.getPropertyKey(1) },
+				list.toArray());
+		assertEquals(1, list.binarySearch(EntityIdKeys.getItemKey(30)));
+		assertTrue(list.binarySearch(EntityIdKeys.getItemKey(3)) < 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() {
+		new EntityIdList().getKey(0);
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.wikidata.wdtk.storage.idcollections;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+
+public class EntityIdSetTest {
+
+	@Test
+	public void testAddAndContains() {
+		EntityIdSet set = new EntityIdSet();
+		assertTrue(set.add(Datamodel.makeWikidataItemIdValue("Q42")));
+		assertFalse(set.add(EntityIdKeys.getItemKey(42)));
+		assertTrue(set.add(Datamodel.makeWikidataPropertyIdValue("P42")));
+
+		assertEquals(2, set.size());
+		assertTrue(set.contains(Datamodel.makeWikidataItemIdValue("Q42")));
+		assertFalse(set.contains(EntityIdKeys.getKey("L42")));
+		assertTrue(set.remove(Datamodel.makeWikidataItemIdValue("Q42")));
+		assertFalse(set.remove(EntityIdKeys.getItemKey(42)));
+		assertEquals(1, set.size());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(23);
+		EntityIdSet set = new EntityIdSet();
+		Set<Long> expected = new HashSet<>();
+		for (int i = 0; i < 100000; i++) {
+			long key = EntityIdKeys.getKey(random.nextBoolean() ? 'Q' : 'P',
+					1 + random.nextInt(3000));
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), set.remove(key));
+			} else {
+				assertEquals(expected.add(key), set.add(key));
+			}
+		}
+
+		assertEquals(expected.size(), set.size());
+		Set<Long> iterated = new HashSet<>();
+		set.forEach(iterated::add);
+		assertEquals(expected, iterated);
+		assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted()
+				.toArray(), Arrays.stream(set.toArray()).sorted()
+				.toArray());
+		set.clear();
+		assertTrue(set.isEmpty());
+	}
+
+}
@@ -0,0 +1,554 @@
+package org.wikidata.wdtk.testing;
+
+/*
+ * #%L
+ * Wikidata Toolkit utilities for testing
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local HTTP server that imitates the MediaWiki API of a Wikibase site, so
+ * that clients can be tested and benchmarked without accessing a live site.
+ * The server answers "wbgetentities" requests with recorded entity data, and
+ * editing requests ("wbeditentity", "wbsetlabel", "wbsetclaim" and similar)
+ * with a new revision id of the edited entity; the changes themselves are not
+ * applied. Other actions can be answered with recorded responses.
+ * <p>
+ * Responses can be delayed by a configurable latency, and faults can be
+ * injected at regular intervals: maxlag errors for requests that specify a
+ * maxlag parameter, API errors, and HTTP 429 responses with a Retry-After
+ * header. The server counts the requests it receives, so that retries of
+ * clients can be measured. All methods can be called while the server is
+ * running.
+ */
+public class MockWikibaseApiServer implements Closeable {
+
+	static final ObjectMapper mapper = new ObjectMapper();
+
+	final MockWebServer server = new MockWebServer();
+
+	/**
+	 * Recorded entity data, by entity id.
+	 */
+	final Map<String, ObjectNode> entities = new ConcurrentHashMap<>();
+
+	/**
+	 * Recorded responses, by API action.
+	 */
+	final Map<String, String> recordedResponses = new ConcurrentHashMap<>();
+
+	final Map<String, AtomicLong> actionCounts = new ConcurrentHashMap<>();
+	final AtomicLong requestCount = new AtomicLong();
+	final AtomicLong maxlagCount = new AtomicLong();
+	final AtomicLong errorCount = new AtomicLong();
+	final AtomicLong rateLimitCount = new AtomicLong();
+	final AtomicLong lastRevisionId = new AtomicLong(1000);
+	final AtomicLong lastItemId = new AtomicLong(100000000);
+
+	volatile long latency = 0;
+	volatile long latencyJitter = 0;
+	volatile int maxlagInterval = 0;
+	volatile double lag = 5;
+	volatile int errorInterval = 0;
+	volatile String errorCode = "internal_api_error_DBQueryError";
+	volatile int rateLimitInterval = 0;
+	volatile int retryAfter = 1;
+
+	/**
+	 * Creates a new server. It must be started with {@link #start()}.
+	 */
+	public MockWikibaseApiServer() {
+		this.server.setDispatcher(new ApiDispatcher());
+	}
+
+	/**
+	 * Starts the server on a free local port.
+	 *
+	 * @throws IOException
+	 *             if the server could not be started
+	 */
+	public void start() throws IOException {
+		this.server.start();
+	}
+
+	/**
+	 * Stops the server.
+	 *
+	 * @throws IOException
+	 *             if the server could not be stopped
+	 */
+	@Override
+	public void close() throws IOException {
+		this.server.shutdown();
+	}
+
+	/**
+	 * Returns the URL of the API endpoint, which can be passed to an API
+	 * connection. The server must have been started.
+	 *
+	 * @return the URL of the API
+	 */
+	public String getApiUrl() {
+		return this.server.url("/w/api.php").toString();
+	}
+
+	/**
+	 * Adds the data of an entity. The data is given in the JSON format used
+	 * by the API and must contain the id of the entity.
+	 *
+	 * @param json
+	 *            JSON serialization of the entity
+	 * @throws IOException
+	 *             if the data could not be parsed
+	 */
+	public void addEntity(String json) throws IOException {
+		addEntity((ObjectNode) mapper.readTree(json));
+	}
+
+	/**
+	 * Adds all entities from a recorded response of the "wbgetentities"
+	 * action. Entities that were reported as missing are skipped.
+	 *
+	 * @param input
+	 *            stream of the recorded response, which is not closed
+	 * @throws IOException
+	 *             if the data could not be parsed
+	 */
+	public void addEntities(InputStream input) throws IOException {
+		JsonNode root = mapper.readTree(input);
+		Iterator<JsonNode> iterator = root.path("entities").elements();
+		while (iterator.hasNext()) {
+			JsonNode entity = iterator.next();
+			if (entity.isObject() && !entity.has("missing")) {
+				addEntity((ObjectNode) entity);
+			}
+		}
+	}
+
+	/**
+	 * Adds a simple item with an English label, and returns its id. This is
+	 * useful to create large amounts of data for benchmarks.
+	 *
+	 * @param label
+	 *            English label of the item
+	 * @return the id of the new item
+	 */
+	public String addItem(String label) {
+		String id = "Q" + this.lastItemId.incrementAndGet();
+		ObjectNode item = mapper.createObjectNode();
+		item.put("type", "item");
+		item.put("id", id);
+		item.put("lastrevid", this.lastRevisionId.incrementAndGet());
+		item.putObject("labels").putObject("en").put("language", "en")
+				.put("value", label);
+		item.putObject("descriptions");
+		item.putObject("aliases");
+		item.putObject("claims");
+		item.putObject("sitelinks");
+		this.entities.put(id, item);
+		return id;
+	}
+
+	/**
+	 * Sets the response for all requests with the given action, replacing the
+	 * response that the server would otherwise generate. Faults are still
+	 * injected as configured.
+	 *
+	 * @param action
+	 *            the API action, e.g., "wbsearchentities"
+	 * @param json
+	 *            the body of the response
+	 */
+	public void setRecordedResponse(String action, String json) {
+		this.recordedResponses.put(action, json);
+	}
+
+	/**
+	 * Sets the time that passes before a response is sent.
+	 *
+	 * @param latency
+	 *            minimal latency in milliseconds
+	 * @param jitter
+	 *            maximal random time in milliseconds that is added to the
+	 *            latency
+	 */
+	public void setLatency(long latency, long jitter) {
+		if (latency < 0 || jitter < 0) {
+			throw new IllegalArgumentException("Latency must not be negative.");
+		}
+		this.latency = latency;
+		this.latencyJitter = jitter;
+	}
+
+	/**
+	 * Lets every n-th request that specifies a non-negative maxlag parameter
+	 * fail with a maxlag error. Requests with maxlag -1 always fail in this
+	 * way, as in MediaWiki.
+	 *
+	 * @param interval
+	 *            the interval n, or 0 to disable maxlag errors
+	 * @param lag
+	 *            the lag in seconds that is reported
+	 */
+	public void setMaxlagInterval(int interval, double lag) {
+		this.maxlagInterval = checkInterval(interval);
+		this.lag = lag;
+	}
+
+	/**
+	 * Lets every n-th request fail with the given API error.
+	 *
+	 * @param interval
+	 *            the interval n, or 0 to disable errors
+	 * @param code
+	 *            the error code
+	 */
+	public void setErrorInterval(int interval, String code) {
+		this.errorInterval = checkInterval(interval);
+		this.errorCode = code;
+	}
+
+	/**
+	 * Lets every n-th request be rejected with HTTP status 429 and a
+	 * Retry-After header.
+	 *
+	 * @param interval
+	 *            the interval n, or 0 to disable rate limiting
+	 * @param retryAfter
+	 *            the number of seconds after which the client should retry
+	 */
+	public void setRateLimitInterval(int interval, int retryAfter) {
+		this.rateLimitInterval = checkInterval(interval);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Returns the number of requests that have been received.
+	 *
+	 * @return number of requests
+	 */
+	public long getRequestCount() {
+		return this.requestCount.get();
+	}
+
+	/**
+	 * Returns the number of requests with the given action that have been
+	 * received, including failed ones.
+	 *
+	 * @param action
+	 *            the API action, e.g., "wbgetentities"
+	 * @return number of requests
+	 */
+	public long getRequestCount(String action) {
+		AtomicLong count = this.actionCounts.get(action);
+		return count == null ? 0 : count.get();
+	}
+
+	/**
+	 * Returns the number of maxlag errors that have been sent.
+	 *
+	 * @return number of maxlag errors
+	 */
+	public long getMaxlagCount() {
+		return this.maxlagCount.get();
+	}
+
+	/**
+	 * Returns the number of injected API errors that have been sent.
+	 *
+	 * @return number of errors
+	 */
+	public long getErrorCount() {
+		return this.errorCount.get();
+	}
+
+	/**
+	 * Returns the number of requests that have been rejected with HTTP
+	 * status 429.
+	 *
+	 * @return number of rejected requests
+	 */
+	public long getRateLimitCount() {
+		return this.rateLimitCount.get();
+	}
+
+	void addEntity(ObjectNode entity) {
+		String id = entity.path("id").asText(null);
+		if (id == null) {
+			throw new IllegalArgumentException("Entity data must contain an id.");
+		}
+		this.entities.put(id, entity);
+		this.lastRevisionId.accumulateAndGet(entity.path("lastrevid").asLong(),
+				Math::max);
+	}
+
+	static int checkInterval(int interval) {
+		if (interval < 0) {
+			throw new IllegalArgumentException("The interval must not be negative.");
+		}
+		return interval;
+	}
+
+	/**
+	 * Returns true if the given one-based request number is a multiple of
+	 * the given interval.
+	 */
+	static boolean isDue(long number, int interval) {
+		return interval > 0 && number % interval == 0;
+	}
+
+	/**
+	 * Reads the parameters of a request, which are either sent in the body of
+	 * a form or as part of the URL.
+	 */
+	static Map<String, String> getParameters(RecordedRequest request) {
+		Map<String, String> parameters = new HashMap<>();
+		HttpUrl url = request.getRequestUrl();
+		if (url != null) {
+			for (String name : url.queryParameterNames()) {
+				parameters.put(name, url.queryParameter(name));
+			}
+		}
+		String contentType = request.getHeader("Content-Type");
+		if (contentType != null
+				&& contentType.startsWith("application/x-www-form-urlencoded")) {
+			String body = request.getBody().readUtf8();
+			for (String parameter : body.split("&")) {
+				int equals = parameter.indexOf('=');
+				if (equals > 0) {
+					parameters.put(parameter.substring(0, equals), URLDecoder
+							.decode(parameter.substring(equals + 1),
+									StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return parameters;
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	static MockResponse errorResponse(String code, String info) {
+		ObjectNode root = mapper.createObjectNode();
+		root.putObject("error").put("code", code).put("info", info);
+		return jsonResponse(root.toString());
+	}
+
+	MockResponse getEntities(Map<String, String> parameters) {
+		ObjectNode root = mapper.createObjectNode();
+		ObjectNode result = root.putObject("entities");
+		String ids = parameters.get("ids");
+		if (ids != null) {
+			for (String id : ids.split("\\|")) {
+				ObjectNode entity = this.entities.get(id);
+				if (entity != null) {
+					result.set(id, entity);
+				} else {
+					result.putObject(id).put("id", id).put("missing", "");
+				}
+			}
+		}
+		root.put("success", 1);
+		return jsonResponse(root.toString());
+	}
+
+	MockResponse editEntity(Map<String, String> parameters) {
+		String id = parameters.get("id");
+		ObjectNode entity;
+		if (id != null) {
+			ObjectNode recorded = this.entities.get(id);
+			if (recorded == null) {
+				return noSuchEntity(id);
+			}
+			entity = recorded.deepCopy();
+		} else if (parameters.containsKey("new")) {
+			id = "Q" + this.lastItemId.incrementAndGet();
+			entity = mapper.createObjectNode();
+			entity.put("type", parameters.get("new"));
+			entity.put("id", id);
+		} else {
+			return errorResponse("param-missing",
+					"Either provide the item \"id\" or pairs of \"site\" and \"title\".");
+		}
+		entity.put("lastrevid", this.lastRevisionId.incrementAndGet());
+		this.entities.put(id, entity);
+		ObjectNode root = mapper.createObjectNode();
+		root.set("entity", entity);
+		root.put("success", 1);
+		return jsonResponse(root.toString());
+	}
+
+	/**
+	 * Answers actions that change labels, descriptions or aliases, which
+	 * return the id and new revision id of the entity.
+	 */
+	MockResponse editTerms(Map<String, String> parameters) {
+		String id = parameters.get("id");
+		if (id == null || !this.entities.containsKey(id)) {
+			return noSuchEntity(id);
+		}
+		ObjectNode root = mapper.createObjectNode();
+		ObjectNode entity = root.putObject("entity");
+		entity.put("id", id);
+		entity.put("type", this.entities.get(id).path("type").asText());
+		entity.put("lastrevid", newRevision(id));
+		root.put("success", 1);
+		return jsonResponse(root.toString());
+	}
+
+	/**
+	 * Answers actions that change statements, which return the new revision
+	 * id in the page info. The entity is found from the statement ids.
+	 */
+	MockResponse editClaims(Map<String, String> parameters) throws IOException {
+		String claim = parameters.getOrDefault("claim", "");
+		if (claim.startsWith("{")) {
+			claim = mapper.readTree(claim).path("id").asText();
+		}
+		int separator = claim.indexOf('$');
+		String id = separator > 0 ? claim.substring(0, separator).toUpperCase() : null;
+		if (id == null || !this.entities.containsKey(id)) {
+			return noSuchEntity(id);
+		}
+		ObjectNode root = mapper.createObjectNode();
+		root.putObject("pageinfo").put("lastrevid", newRevision(id));
+		root.put("success", 1);
+		return jsonResponse(root.toString());
+	}
+
+	/**
+	 * Stores a new revision id for the given entity and returns it.
+	 */
+	long newRevision(String id) {
+		long revisionId = this.lastRevisionId.incrementAndGet();
+		this.entities.computeIfPresent(id, (key, entity) -> {
+			ObjectNode copy = entity.deepCopy();
+			copy.put("lastrevid", revisionId);
+			return copy;
+		});
+		return revisionId;
+	}
+
+	static MockResponse noSuchEntity(String id) {
+		return errorResponse("no-such-entity",
+				"Could not find an entity with the ID \"" + id + "\".");
+	}
+
+	MockResponse query(Map<String, String> parameters) {
+		ObjectNode root = mapper.createObjectNode();
+		root.put("batchcomplete", "");
+		ObjectNode query = root.putObject("query");
+		if ("tokens".equals(parameters.get("meta"))) {
+			query.putObject("tokens").put("csrftoken", "mocktoken+\\");
+		}
+		return jsonResponse(root.toString());
+	}
+
+	class ApiDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			long number = requestCount.incrementAndGet();
+			Map<String, String> parameters = getParameters(request);
+			String action = parameters.getOrDefault("action", "");
+			actionCounts.computeIfAbsent(action, key -> new AtomicLong())
+					.incrementAndGet();
+
+			long delay = latency;
+			if (latencyJitter > 0) {
+				delay += ThreadLocalRandom.current().nextLong(latencyJitter + 1);
+			}
+			if (delay > 0) {
+				Thread.sleep(delay);
+			}
+
+			if (isDue(number, rateLimitInterval)) {
+				rateLimitCount.incrementAndGet();
+				return new MockResponse().setResponseCode(429)
+						.setHeader("Retry-After", Integer.toString(retryAfter))
+						.setBody("Too many requests");
+			}
+			String maxlag = parameters.get("maxlag");
+			if (maxlag != null && ("-1".equals(maxlag) || isDue(number, maxlagInterval))) {
+				maxlagCount.incrementAndGet();
+				ObjectNode root = mapper.createObjectNode();
+				root.putObject("error").put("code", "maxlag")
+						.put("info", "Waiting for a database server: " + lag
+								+ " seconds lagged.")
+						.put("host", "db1").put("lag", lag);
+				return jsonResponse(root.toString()).setHeader("Retry-After", "5");
+			}
+			if (isDue(number, errorInterval)) {
+				errorCount.incrementAndGet();
+				return errorResponse(errorCode, "Injected error.");
+			}
+
+			String recorded = recordedResponses.get(action);
+			if (recorded != null) {
+				return jsonResponse(recorded);
+			}
+			switch (action) {
+			case "wbgetentities":
+				return getEntities(parameters);
+			case "wbeditentity":
+				return editEntity(parameters);
+			case "wbsetlabel":
+			case "wbsetdescription":
+			case "wbsetaliases":
+				return editTerms(parameters);
+			case "wbsetclaim":
+			case "wbremoveclaims":
+				try {
+					return editClaims(parameters);
+				} catch (IOException e) {
+					return errorResponse("invalid-claim", e.getMessage());
+				}
+			case "query":
+				return query(parameters);
+			default:
+				return errorResponse("badvalue",
+						"Unrecognized value for parameter \"action\": " + action
+								+ ".");
+			}
+		}
+	}
+
+}
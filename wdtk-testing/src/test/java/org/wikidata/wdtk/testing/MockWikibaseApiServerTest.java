@@ -0,0 +1,187 @@
+package org.wikidata.wdtk.testing;
+
+/*
+ * #%L
+ * Wikidata Toolkit utilities for testing
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class MockWikibaseApiServerTest {
+
+	final ObjectMapper mapper = new ObjectMapper();
+	final OkHttpClient client = new OkHttpClient();
+	MockWikibaseApiServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWikibaseApiServer();
+		server.start();
+		server.addEntity("{\"type\":\"item\",\"id\":\"Q42\",\"lastrevid\":2000,"
+				+ "\"labels\":{\"en\":{\"language\":\"en\",\"value\":\"Douglas Adams\"}}}");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	Response post(String... parameters) throws IOException {
+		FormBody.Builder body = new FormBody.Builder();
+		for (int i = 0; i < parameters.length; i += 2) {
+			body.add(parameters[i], parameters[i + 1]);
+		}
+		return client.newCall(new Request.Builder().url(server.getApiUrl())
+				.post(body.build()).build()).execute();
+	}
+
+	JsonNode postJson(String... parameters) throws IOException {
+		try (Response response = post(parameters)) {
+			return mapper.readTree(response.body().string());
+		}
+	}
+
+	@Test
+	public void testGetEntities() throws IOException {
+		JsonNode root = postJson("action", "wbgetentities", "ids", "Q42|Q1");
+		assertEquals("Douglas Adams", root.path("entities").path("Q42")
+				.path("labels").path("en").path("value").asText());
+		assertTrue(root.path("entities").path("Q1").has("missing"));
+		assertEquals(1, server.getRequestCount("wbgetentities"));
+	}
+
+	@Test
+	public void testAddEntitiesFromRecording() throws IOException {
+		String recording = "{\"entities\":{\"Q7\":{\"type\":\"item\",\"id\":\"Q7\",\"lastrevid\":5},"
+				+ "\"Q8\":{\"id\":\"Q8\",\"missing\":\"\"}},\"success\":1}";
+		server.addEntities(new ByteArrayInputStream(recording
+				.getBytes(StandardCharsets.UTF_8)));
+		JsonNode root = postJson("action", "wbgetentities", "ids", "Q7|Q8");
+		assertEquals(5, root.path("entities").path("Q7").path("lastrevid").asLong());
+		assertTrue(root.path("entities").path("Q8").has("missing"));
+	}
+
+	@Test
+	public void testEditEntity() throws IOException {
+		JsonNode first = postJson("action", "wbeditentity", "id", "Q42", "data", "{}");
+		JsonNode second = postJson("action", "wbeditentity", "id", "Q42", "data", "{}");
+		long revision = first.path("entity").path("lastrevid").asLong();
+		assertTrue(revision > 2000);
+		assertEquals(revision + 1, second.path("entity").path("lastrevid").asLong());
+
+		JsonNode created = postJson("action", "wbeditentity", "new", "item", "data", "{}");
+		String id = created.path("entity").path("id").asText();
+		assertEquals(id, postJson("action", "wbgetentities", "ids", id)
+				.path("entities").path(id).path("id").asText());
+		assertEquals("no-such-entity", postJson("action", "wbeditentity", "id",
+				"Q1", "data", "{}").path("error").path("code").asText());
+	}
+
+	@Test
+	public void testSetLabelAndClaims() throws IOException {
+		JsonNode label = postJson("action", "wbsetlabel", "id", "Q42",
+				"language", "en", "value", "Douglas");
+		long revision = label.path("entity").path("lastrevid").asLong();
+		assertTrue(revision > 2000);
+
+		JsonNode claim = postJson("action", "wbsetclaim", "claim",
+				"{\"id\":\"q42$1234\",\"type\":\"statement\"}");
+		assertEquals(revision + 1, claim.path("pageinfo").path("lastrevid").asLong());
+		JsonNode removed = postJson("action", "wbremoveclaims", "claim",
+				"Q42$1234|Q42$5678");
+		assertEquals(revision + 2, removed.path("pageinfo").path("lastrevid").asLong());
+		assertEquals(revision + 2, postJson("action", "wbgetentities", "ids", "Q42")
+				.path("entities").path("Q42").path("lastrevid").asLong());
+		assertEquals("no-such-entity", postJson("action", "wbremoveclaims",
+				"claim", "Q1$1").path("error").path("code").asText());
+	}
+
+	@Test
+	public void testTokens() throws IOException {
+		JsonNode root = postJson("action", "query", "meta", "tokens");
+		assertEquals("mocktoken+\\", root.path("query").path("tokens")
+				.path("csrftoken").asText());
+	}
+
+	@Test
+	public void testMaxlag() throws IOException {
+		server.setMaxlagInterval(2, 7.5);
+		assertTrue(postJson("action", "wbeditentity", "id", "Q42", "maxlag", "5")
+				.has("entity"));
+		JsonNode error = postJson("action", "wbeditentity", "id", "Q42", "maxlag", "5")
+				.path("error");
+		assertEquals("maxlag", error.path("code").asText());
+		assertEquals(7.5, error.path("lag").asDouble(), 0);
+		// requests without maxlag parameter are not affected
+		assertTrue(postJson("action", "wbgetentities", "ids", "Q42").has("entities"));
+		assertEquals("maxlag", postJson("action", "query", "maxlag", "-1")
+				.path("error").path("code").asText());
+		assertEquals(2, server.getMaxlagCount());
+	}
+
+	@Test
+	public void testErrorsAndRateLimits() throws IOException {
+		server.setErrorInterval(3, "failed-save");
+		server.setRateLimitInterval(2, 4);
+		try (Response response = post("action", "wbgetentities", "ids", "Q42")) {
+			assertEquals(200, response.code());
+		}
+		try (Response response = post("action", "wbgetentities", "ids", "Q42")) {
+			assertEquals(429, response.code());
+			assertEquals("4", response.header("Retry-After"));
+		}
+		assertEquals("failed-save", postJson("action", "wbgetentities", "ids",
+				"Q42").path("error").path("code").asText());
+		assertEquals(1, server.getErrorCount());
+		assertEquals(1, server.getRateLimitCount());
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void testRecordedResponseAndLatency() throws IOException {
+		server.setRecordedResponse("wbsearchentities", "{\"search\":[{\"id\":\"Q42\"}]}");
+		server.setLatency(50, 10);
+		long start = System.nanoTime();
+		JsonNode root = postJson("action", "wbsearchentities", "search", "Douglas");
+		assertTrue(System.nanoTime() - start >= 50000000L);
+		assertEquals("Q42", root.path("search").path(0).path("id").asText());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInterval() {
+		server.setErrorInterval(-1, "failed-save");
+	}
+
+}
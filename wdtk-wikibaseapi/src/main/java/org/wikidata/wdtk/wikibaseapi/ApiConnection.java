@@ -26,6 +26,9 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URLEncoder;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -33,6 +36,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -44,13 +49,19 @@ import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorHandler;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiErrorMessage;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.OkHttpClient;
@@ -122,6 +133,13 @@ public abstract class ApiConnection {
 	 */
 	protected final Map<String, String> tokens;
 
+	/**
+	 * Lock for fetching and clearing tokens. It is separate from the lock of
+	 * the connection, which must not be held while a token is fetched over
+	 * the network.
+	 */
+	private final Object tokenLock = new Object();
+
 	/**
 	 * Maximum time to wait for when establishing a connection, in milliseconds.
 	 * For negative values, no timeout is set.
@@ -139,6 +157,16 @@ public abstract class ApiConnection {
 	 */
 	private OkHttpClient client;
 
+	/**
+	 * Settings for the HTTP client, or null for the defaults.
+	 */
+	private TransportConfiguration transportConfiguration;
+
+	/**
+	 * Controller for the rate of edits made through this connection.
+	 */
+	private EditRateController editRateController;
+
 	/**
 	 * Mapper object used for deserializing JSON data.
 	 */
@@ -248,7 +276,7 @@ public abstract class ApiConnection {
 	 *
 	 * @see HttpURLConnection#setConnectTimeout
 	 */
-	public void setConnectTimeout(int timeout) {
+	public synchronized void setConnectTimeout(int timeout) {
 		connectTimeout = timeout;
 		client = null;
 	}
@@ -259,7 +287,7 @@ public abstract class ApiConnection {
 	 *
 	 * @see HttpURLConnection#setReadTimeout
 	 */
-	public void setReadTimeout(int timeout) {
+	public synchronized void setReadTimeout(int timeout) {
 		readTimeout = timeout;
 		client = null;
 	}
@@ -306,22 +334,26 @@ public abstract class ApiConnection {
 	 *     if a network error occurred
 	 */
 	String getOrFetchToken(String tokenType) throws IOException, MediaWikiApiErrorException {
-		if (tokens.containsKey(tokenType)) {
-			return tokens.get(tokenType);
+		synchronized (tokenLock) {
+			if (tokens.containsKey(tokenType)) {
+				return tokens.get(tokenType);
+			}
+			String value = fetchToken(tokenType);
+			tokens.put(tokenType, value);
+			// TODO if fetchToken raises an exception, we could try to recover here:
+			// (1) Check if we are still logged in; maybe log in again
+			// (2) If there is another error, maybe just run the operation again
+			return value;
 		}
-		String value = fetchToken(tokenType);
-		tokens.put(tokenType, value);
-		// TODO if fetchToken raises an exception, we could try to recover here:
-		// (1) Check if we are still logged in; maybe log in again
-		// (2) If there is another error, maybe just run the operation again
-		return value;
 	}
 
 	/**
 	 * Remove fetched value of given token.
 	 */
 	void clearToken(String tokenType) {
-		tokens.remove(tokenType);
+		synchronized (tokenLock) {
+			tokens.remove(tokenType);
+		}
 	}
 
 	/**
@@ -404,6 +436,81 @@ public abstract class ApiConnection {
 		}
 	}
 
+	/**
+	 * Sends a request to the API like
+	 * {@link #sendJsonRequest(String, Map)}, but hands the value of one
+	 * top-level field of the result to the given handler while the response
+	 * is being read, instead of building a JSON tree for it. This is useful
+	 * for large results, such as the "entities" of wbgetentities, which can
+	 * then be deserialized one by one.
+	 * <p>
+	 * All other top-level fields are read into a (small) JSON tree, which is
+	 * checked for errors and warnings as usual once the response has been
+	 * read completely, and which is returned. Error responses of the API do
+	 * not contain result fields, so the handler is not called for them.
+	 *
+	 * @param requestMethod
+	 *            either POST or GET
+	 * @param parameters
+	 *            Maps parameter keys to values. Out of this map the function
+	 *            will create a query string for the request.
+	 * @param streamedField
+	 *            name of the top-level field to pass to the handler
+	 * @param handler
+	 *            handler that reads the value of the streamed field
+	 * @return API result without the streamed field
+	 * @throws IOException
+	 * @throws MediaWikiApiErrorException if the API returns an error
+	 */
+	public JsonNode sendStreamingJsonRequest(String requestMethod,
+			Map<String, String> parameters, String streamedField,
+			JsonFieldHandler handler) throws IOException,
+			MediaWikiApiErrorException {
+		parameters.put(ApiConnection.PARAM_FORMAT, "json");
+		if (loggedIn) {
+			parameters.put(ApiConnection.ASSERT_PARAMETER, "user");
+		}
+		ObjectNode root = this.mapper.createObjectNode();
+		try (InputStream response = sendRequest(requestMethod, parameters, null);
+				JsonParser parser = this.mapper.createParser(response)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new MalformedResponseException(
+						"The API result is not a JSON object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.currentName();
+				parser.nextToken();
+				if (streamedField.equals(fieldName)) {
+					handler.handleField(parser);
+				} else {
+					root.set(fieldName, this.mapper.readTree(parser));
+				}
+			}
+		}
+		this.checkErrors(root);
+		this.logWarnings(root);
+		return root;
+	}
+
+	/**
+	 * Callback for reading one field of an API result in
+	 * {@link ApiConnection#sendStreamingJsonRequest(String, Map, String, JsonFieldHandler)}.
+	 */
+	@FunctionalInterface
+	public interface JsonFieldHandler {
+		/**
+		 * Reads the value of the field. When called, the parser is positioned
+		 * at the first token of the value; the handler must leave it at the
+		 * last token of the value.
+		 *
+		 * @param parser
+		 *            the parser to read from
+		 * @throws IOException
+		 *             if the value cannot be read
+		 */
+		void handleField(JsonParser parser) throws IOException;
+	}
+
 	/**
 	 * Sends a request to the API with the given parameters and the given
 	 * request method and returns the result string. It automatically fills the
@@ -430,6 +537,95 @@ public abstract class ApiConnection {
 	public InputStream sendRequest(String requestMethod,
 			Map<String, String> parameters,
 			Map<String, ImmutablePair<String,File>> files) throws IOException {
+		Request request = buildRequest(requestMethod, parameters, files);
+		return getResponseStream(getClient().newCall(request).execute());
+	}
+
+	/**
+	 * Sends a request to the API like
+	 * {@link #sendRequest(String, Map, Map)}, but without blocking the
+	 * current thread. The request is queued and executed by the HTTP client,
+	 * which limits the number of requests that run at the same time as
+	 * configured in the {@link TransportConfiguration}.
+	 *
+	 * @param requestMethod
+	 *            either POST or GET
+	 * @param parameters
+	 *            Maps parameter keys to values. Out of this map the function
+	 *            will create a query string for the request.
+	 * @param files
+	 *            files to upload, as for {@link #sendRequest(String, Map, Map)}
+	 * @return future API result, which completes exceptionally with an
+	 *         {@link IOException} if the request failed
+	 */
+	public CompletableFuture<InputStream> sendRequestAsync(String requestMethod,
+			Map<String, String> parameters,
+			Map<String, ImmutablePair<String,File>> files) {
+		CompletableFuture<InputStream> result = new CompletableFuture<>();
+		Request request;
+		try {
+			request = buildRequest(requestMethod, parameters, files);
+		} catch (IllegalArgumentException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+		getClient().newCall(request).enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
+				result.completeExceptionally(e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				try {
+					result.complete(getResponseStream(response));
+				} catch (IOException e) {
+					result.completeExceptionally(e);
+				}
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Sends a request to the API like {@link #sendJsonRequest(String, Map)},
+	 * but without blocking the current thread. The response is parsed and
+	 * checked on a thread of the HTTP client.
+	 *
+	 * @param requestMethod
+	 *            either POST or GET
+	 * @param parameters
+	 *            Maps parameter keys to values. Out of this map the function
+	 *            will create a query string for the request.
+	 * @return future API result, which completes exceptionally with an
+	 *         {@link IOException} or a {@link MediaWikiApiErrorException} if
+	 *         the request failed
+	 */
+	public CompletableFuture<JsonNode> sendJsonRequestAsync(String requestMethod,
+			Map<String, String> parameters) {
+		parameters.put(ApiConnection.PARAM_FORMAT, "json");
+		if (loggedIn) {
+			parameters.put(ApiConnection.ASSERT_PARAMETER, "user");
+		}
+		return sendRequestAsync(requestMethod, parameters, null)
+				.thenApply(stream -> {
+					try (InputStream response = stream) {
+						JsonNode root = this.mapper.readTree(response);
+						this.checkErrors(root);
+						this.logWarnings(root);
+						return root;
+					} catch (IOException | MediaWikiApiErrorException e) {
+						throw new CompletionException(e);
+					}
+				});
+	}
+
+	/**
+	 * Builds the HTTP request for the given parameters.
+	 */
+	private Request buildRequest(String requestMethod,
+			Map<String, String> parameters,
+			Map<String, ImmutablePair<String,File>> files) {
 		Request request;
 		String queryString = getQueryString(parameters);
 		if ("GET".equalsIgnoreCase(requestMethod)) {
@@ -453,23 +649,125 @@ public abstract class ApiConnection {
 		} else {
 			throw new IllegalArgumentException("Expected the requestMethod to be either GET or POST, but got " + requestMethod);
 		}
+		return request;
+	}
 
-		if (client == null) {
-			buildClient();
+	/**
+	 * Returns the body of a response, or throws a
+	 * {@link RateLimitedException} if the server asked to retry later.
+	 */
+	private InputStream getResponseStream(Response response) throws IOException {
+		String retryAfter = response.header("Retry-After");
+		if (retryAfter != null && (response.code() == 429 || response.code() == 503)) {
+			response.close();
+			throw new RateLimitedException("The server rejected the request with HTTP status "
+					+ response.code() + ", retry after " + retryAfter,
+					parseRetryAfter(retryAfter));
 		}
-		Response response = client.newCall(request).execute();
 		return Objects.requireNonNull(response.body()).byteStream();
 	}
 
-	private void buildClient() {
-		OkHttpClient.Builder builder = getClientBuilder();
-		if (connectTimeout >= 0) {
-			builder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+	/**
+	 * Returns the controller that limits the rate of edits made through this
+	 * connection. It is shared by all {@link WbEditingAction} objects that
+	 * use this connection. By default, it allows one edit every two seconds
+	 * on average, with bursts of up to nine edits.
+	 *
+	 * @return the edit rate controller
+	 */
+	@JsonIgnore
+	public synchronized EditRateController getEditRateController() {
+		if (this.editRateController == null) {
+			this.editRateController = new EditRateController(0.5,
+					WbEditingAction.editTimeWindow);
 		}
-		if (readTimeout >= 0) {
-			builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+		return this.editRateController;
+	}
+
+	/**
+	 * Sets the controller that limits the rate of edits made through this
+	 * connection. A controller can also be shared among several connections
+	 * to the same site.
+	 *
+	 * @param editRateController
+	 *            the edit rate controller
+	 */
+	@JsonIgnore
+	public synchronized void setEditRateController(
+			EditRateController editRateController) {
+		this.editRateController = Objects.requireNonNull(editRateController);
+	}
+
+	/**
+	 * Returns the settings of the HTTP transport, or null if the defaults of
+	 * the HTTP client are used.
+	 *
+	 * @return the transport configuration
+	 */
+	@JsonIgnore
+	public synchronized TransportConfiguration getTransportConfiguration() {
+		return this.transportConfiguration;
+	}
+
+	/**
+	 * Sets the settings of the HTTP transport, such as the size of the
+	 * connection pool and the number of parallel requests. Requests that are
+	 * sent after this call use the new settings.
+	 *
+	 * @param transportConfiguration
+	 *            the transport configuration, or null to use the defaults of
+	 *            the HTTP client
+	 */
+	@JsonIgnore
+	public synchronized void setTransportConfiguration(
+			TransportConfiguration transportConfiguration) {
+		this.transportConfiguration = transportConfiguration;
+		this.client = null;
+	}
+
+	/**
+	 * Returns the HTTP client, building it if necessary. Synchronized so that
+	 * concurrent requests share a single client and its connection pool.
+	 */
+	synchronized OkHttpClient getClient() {
+		if (client == null) {
+			OkHttpClient.Builder builder = getClientBuilder();
+			if (transportConfiguration != null) {
+				transportConfiguration.configure(builder);
+			}
+			if (connectTimeout >= 0) {
+				builder.connectTimeout(connectTimeout, TimeUnit.MILLISECONDS);
+			}
+			if (readTimeout >= 0) {
+				builder.readTimeout(readTimeout, TimeUnit.MILLISECONDS);
+			}
+			client = builder.build();
+		}
+		return client;
+	}
+
+	/**
+	 * Parses the value of a Retry-After header, which can either be a number
+	 * of seconds or an HTTP date.
+	 *
+	 * @param value
+	 *            the value of the header
+	 * @return time to wait in milliseconds, or 0 if the value is invalid
+	 */
+	static long parseRetryAfter(String value) {
+		try {
+			return Math.max(0, Long.parseLong(value.trim()) * 1000);
+		} catch (NumberFormatException e) {
+			try {
+				ZonedDateTime date = ZonedDateTime.parse(value.trim(),
+						DateTimeFormatter.RFC_1123_DATE_TIME);
+				return Math.max(0, date.toInstant().toEpochMilli()
+						- System.currentTimeMillis());
+			} catch (DateTimeParseException e2) {
+				logger.warn("Could not parse Retry-After header: " + value);
+				return 0;
+			}
 		}
-		client = builder.build();
 	}
 
 	/**
@@ -0,0 +1,393 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.EntityUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.FormUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.ItemUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.LexemeUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.MediaInfoUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.PropertyUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.SenseUpdateBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.FormUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.ItemUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.LexemeUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.SenseUpdate;
+import org.wikidata.wdtk.wikibaseapi.apierrors.EditConflictErrorException;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+/**
+ * Sends many {@link EntityUpdate} objects to the API in parallel, using a
+ * small pool of worker threads. Most of the time needed for an edit is spent
+ * waiting for the server, so that bots can save a lot of time by having
+ * several edits on the way at once. The edit rate is still limited by the
+ * {@link EditRateController} of the underlying {@link ApiConnection}, which
+ * is shared by all workers.
+ * <p>
+ * Edits of the same entity are never made in parallel, but in the order in
+ * which they were submitted. If an update was built on exactly the revision
+ * that its predecessor started from, it is based on the revision created by
+ * the predecessor before it is sent, since only the predecessor has changed
+ * the entity in between. Updates built on other revisions are sent with their
+ * own base revision, so that the server detects edits made by others. If an
+ * edit fails with an edit conflict, the current revision of the entity is
+ * fetched and the update is replayed on top of it; this fails if the update
+ * can no longer be applied, for instance because a statement that it removes
+ * has been deleted in the meantime.
+ * <p>
+ * Each submitted edit yields a {@link CompletableFuture} that completes with
+ * the {@link EditingResult}, or with the {@link IOException} or
+ * {@link MediaWikiApiErrorException} that prevented the edit.
+ */
+public class BulkEditExecutor implements AutoCloseable {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(BulkEditExecutor.class);
+
+	final WikibaseDataEditor editor;
+	final WikibaseDataFetcher fetcher;
+	final ExecutorService executor;
+
+	/**
+	 * Number of times an edit is replayed on a newer revision after an edit
+	 * conflict.
+	 */
+	int maxConflictRetries = 3;
+
+	/**
+	 * Last submitted edit of each entity that has not completed yet.
+	 */
+	final Map<EntityIdValue, CompletableFuture<CompletedEdit>> pendingEdits = new HashMap<>();
+
+	boolean closed = false;
+
+	/**
+	 * Creates a new executor.
+	 *
+	 * @param editor
+	 *            the editor used to send the edits
+	 * @param fetcher
+	 *            the fetcher used to get the current revision of an entity
+	 *            after an edit conflict
+	 * @param threads
+	 *            number of edits that may be on the way at the same time
+	 */
+	public BulkEditExecutor(WikibaseDataEditor editor,
+			WikibaseDataFetcher fetcher, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"The number of threads must be at least 1.");
+		}
+		this.editor = Objects.requireNonNull(editor);
+		this.fetcher = Objects.requireNonNull(fetcher);
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "wdtk-bulk-edit");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Returns the number of times an edit is replayed on the current revision
+	 * of the entity after an edit conflict before giving up.
+	 *
+	 * @return number of retries
+	 */
+	public int getMaxConflictRetries() {
+		return this.maxConflictRetries;
+	}
+
+	/**
+	 * Sets the number of times an edit is replayed on the current revision of
+	 * the entity after an edit conflict before giving up. The default is 3.
+	 *
+	 * @param retries
+	 *            number of retries, 0 to fail on the first edit conflict
+	 */
+	public void setMaxConflictRetries(int retries) {
+		this.maxConflictRetries = retries;
+	}
+
+	/**
+	 * Submits an update to be written, as with
+	 * {@link WikibaseDataEditor#editEntityDocument(EntityUpdate, boolean, String, List)}.
+	 * The method returns immediately.
+	 *
+	 * @param update
+	 *            collection of changes to be written
+	 * @param clear
+	 *            if set to {@code true}, existing entity data will be removed and
+	 *            the update will be applied to empty entity
+	 * @param summary
+	 *            summary for the edit
+	 * @param tags
+	 *            string identifiers of the tags to apply to the edit, {@code null}
+	 *            or empty for no tags
+	 * @return future result of the edit
+	 * @throws IllegalStateException
+	 *             if the executor has been closed
+	 */
+	public CompletableFuture<EditingResult> submit(EntityUpdate update,
+			boolean clear, String summary, List<String> tags) {
+		Objects.requireNonNull(update, "Entity update cannot be null.");
+		EntityIdValue entityId = update.getEntityId();
+		CompletableFuture<CompletedEdit> edit;
+		CompletableFuture<EditingResult> result;
+		synchronized (this.pendingEdits) {
+			if (this.closed) {
+				throw new IllegalStateException("The executor has been closed.");
+			}
+			CompletableFuture<CompletedEdit> previous = this.pendingEdits
+					.get(entityId);
+			if (previous == null) {
+				edit = CompletableFuture.supplyAsync(
+						() -> edit(update, clear, summary, tags), this.executor);
+			} else {
+				// run after the previous edit, whether it succeeded or not
+				edit = previous.handle((previousEdit, exception) -> previousEdit)
+						.thenApplyAsync(previousEdit -> edit(
+								rebaseOnPredecessor(update, previousEdit),
+								update.getBaseRevisionId(), clear, summary,
+								tags), this.executor);
+			}
+			result = edit.thenApply(completedEdit -> completedEdit.result);
+			this.pendingEdits.put(entityId, edit);
+		}
+		result.whenComplete((editingResult, exception) -> {
+			synchronized (this.pendingEdits) {
+				this.pendingEdits.remove(entityId, edit);
+				this.pendingEdits.notifyAll();
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Submits an update to be written without clearing the entity and
+	 * without tags.
+	 *
+	 * @param update
+	 *            collection of changes to be written
+	 * @param summary
+	 *            summary for the edit
+	 * @return future result of the edit
+	 * @throws IllegalStateException
+	 *             if the executor has been closed
+	 */
+	public CompletableFuture<EditingResult> submit(EntityUpdate update,
+			String summary) {
+		return submit(update, false, summary, null);
+	}
+
+	/**
+	 * Waits until all edits submitted so far have completed.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 */
+	public void awaitCompletion() throws InterruptedException {
+		synchronized (this.pendingEdits) {
+			while (!this.pendingEdits.isEmpty()) {
+				this.pendingEdits.wait();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entities that have edits that have not completed
+	 * yet.
+	 *
+	 * @return number of entities with pending edits
+	 */
+	public int getPendingEntityCount() {
+		synchronized (this.pendingEdits) {
+			return this.pendingEdits.size();
+		}
+	}
+
+	/**
+	 * Stops accepting new edits, waits until all submitted edits have
+	 * completed, and releases the worker threads.
+	 */
+	@Override
+	public void close() {
+		synchronized (this.pendingEdits) {
+			this.closed = true;
+		}
+		try {
+			awaitCompletion();
+			this.executor.shutdown();
+			this.executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			this.executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Performs an edit, replaying the update on the current revision of the
+	 * entity after edit conflicts.
+	 */
+	CompletedEdit edit(EntityUpdate update, boolean clear, String summary,
+			List<String> tags) {
+		return edit(update, update.getBaseRevisionId(), clear, summary, tags);
+	}
+
+	/**
+	 * Performs an edit as in
+	 * {@link #edit(EntityUpdate, boolean, String, List)}.
+	 *
+	 * @param startRevisionId
+	 *            the revision that the update was built on, before it was
+	 *            based on the revision created by its predecessor
+	 */
+	CompletedEdit edit(EntityUpdate update, long startRevisionId,
+			boolean clear, String summary, List<String> tags) {
+		int retries = this.maxConflictRetries;
+		while (true) {
+			try {
+				return new CompletedEdit(this.editor.editEntityDocument(update,
+						clear, summary, tags), startRevisionId);
+			} catch (EditConflictErrorException e) {
+				if (retries <= 0 || update.getBaseRevisionId() == 0) {
+					throw new CompletionException(e);
+				}
+				retries--;
+				logger.info("Edit conflict on " + update.getEntityId().getId()
+						+ ". Replaying the update on the current revision.");
+				update = rebaseOnCurrentRevision(update);
+				startRevisionId = update.getBaseRevisionId();
+			} catch (IOException | MediaWikiApiErrorException e) {
+				throw new CompletionException(e);
+			}
+		}
+	}
+
+	/**
+	 * Bases an update on the revision created by the previous edit of the
+	 * same entity, if the update was built on exactly the revision that the
+	 * previous edit started from. Otherwise, the update is returned
+	 * unchanged, so that the server can detect any edits by others.
+	 */
+	static EntityUpdate rebaseOnPredecessor(EntityUpdate update,
+			CompletedEdit previousEdit) {
+		if (previousEdit == null || update.getBaseRevisionId() == 0
+				|| previousEdit.startRevisionId != update.getBaseRevisionId()) {
+			return update;
+		}
+		long previousRevisionId = previousEdit.result.getLastRevisionId()
+				.orElse(0L);
+		if (previousRevisionId == 0
+				|| previousRevisionId == update.getBaseRevisionId()) {
+			return update;
+		}
+		return appendUpdate(EntityUpdateBuilder.forBaseRevisionId(
+				update.getEntityId(), previousRevisionId), update);
+	}
+
+	/**
+	 * Fetches the current revision of the updated entity and replays the
+	 * update on it.
+	 */
+	EntityUpdate rebaseOnCurrentRevision(EntityUpdate update) {
+		String entityId = update.getEntityId().getId();
+		EntityDocument current;
+		try {
+			// a cached document would most likely be the outdated revision
+			current = this.fetcher.fetchEntityDocuments(
+					Collections.singletonList(entityId)).get(entityId);
+		} catch (IOException | MediaWikiApiErrorException e) {
+			throw new CompletionException(e);
+		}
+		if (current == null) {
+			throw new CompletionException(new IOException("Entity "
+					+ entityId + " could not be fetched."));
+		}
+		return appendUpdate(EntityUpdateBuilder.forBaseRevision(current), update);
+	}
+
+	/**
+	 * Replays an update into a builder of the matching type and returns the
+	 * combined update.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the update cannot be applied to the base revision of the
+	 *             builder, or if its type is not supported
+	 */
+	static EntityUpdate appendUpdate(EntityUpdateBuilder builder,
+			EntityUpdate update) {
+		if (update instanceof ItemUpdate) {
+			return ((ItemUpdateBuilder) builder).append((ItemUpdate) update)
+					.build();
+		} else if (update instanceof PropertyUpdate) {
+			return ((PropertyUpdateBuilder) builder).append(
+					(PropertyUpdate) update).build();
+		} else if (update instanceof LexemeUpdate) {
+			return ((LexemeUpdateBuilder) builder)
+					.append((LexemeUpdate) update).build();
+		} else if (update instanceof FormUpdate) {
+			return ((FormUpdateBuilder) builder).append((FormUpdate) update)
+					.build();
+		} else if (update instanceof SenseUpdate) {
+			return ((SenseUpdateBuilder) builder).append((SenseUpdate) update)
+					.build();
+		} else if (update instanceof MediaInfoUpdate) {
+			return ((MediaInfoUpdateBuilder) builder).apply(
+					(MediaInfoUpdate) update).build();
+		}
+		throw new IllegalArgumentException("Unrecognized entity update type.");
+	}
+
+	/**
+	 * Result of an edit, together with the revision that the update was
+	 * built on. The revision created by the edit differs from that revision
+	 * only by the edits of this executor.
+	 */
+	static class CompletedEdit {
+		final EditingResult result;
+		final long startRevisionId;
+
+		CompletedEdit(EditingResult result, long startRevisionId) {
+			this.result = result;
+			this.startRevisionId = startRevisionId;
+		}
+	}
+
+}
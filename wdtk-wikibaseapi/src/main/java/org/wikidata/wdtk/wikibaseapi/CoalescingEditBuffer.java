@@ -0,0 +1,395 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.EntityUpdateBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityUpdate;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+/**
+ * Write-behind buffer that combines several updates of the same entity into
+ * a single edit. Updates are held back for a given time window after the
+ * first pending update of an entity arrived. All updates of the entity that
+ * arrive within this window are merged with the update builders of the data
+ * model, and the result is written with one call of
+ * {@link WikibaseDataEditor#editEntityDocument(EntityUpdate, boolean, String, List)}.
+ * The pending updates of an entity are also written as soon as their number
+ * reaches a given limit. This saves revisions, requests and rate limit budget
+ * when a program makes many small changes to the same entities.
+ * <p>
+ * The merged edit is based on the oldest base revision of the merged updates.
+ * Its summary lists the distinct summaries of the merged updates, and it
+ * carries the tags of all of them. If an update cannot be merged with the
+ * pending ones, the pending updates are written first. If updates were built
+ * on exactly the revision that the previous edit of this buffer started
+ * from, they are based on the revision created by that edit, so that
+ * consecutive edits of the buffer do not conflict with each other. Updates
+ * built on any other revision keep their base revision, so that the server
+ * detects edits made by others in between. Edits are made one at a time by a
+ * background thread. Each update yields a
+ * {@link CompletableFuture} that completes with the result of the edit that
+ * included it.
+ */
+public class CoalescingEditBuffer implements AutoCloseable {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(CoalescingEditBuffer.class);
+
+	/**
+	 * String that separates the summaries of merged updates.
+	 */
+	static final String SUMMARY_SEPARATOR = "; ";
+
+	/**
+	 * Maximal number of entities for which the last edit of this buffer is
+	 * remembered.
+	 */
+	static final int MAX_REMEMBERED_REVISIONS = 10000;
+
+	final WikibaseDataEditor editor;
+	final long flushDelay;
+	final int maxUpdatesPerEdit;
+
+	final ScheduledExecutorService scheduler;
+
+	/**
+	 * Updates that have not been written yet, by entity.
+	 */
+	final Map<EntityIdValue, PendingEdit> pendingEdits = new LinkedHashMap<>();
+
+	/**
+	 * Most recent edits of this buffer. Only accessed by the scheduler
+	 * thread.
+	 */
+	final Map<EntityIdValue, LastEdit> lastEdits = new LinkedHashMap<EntityIdValue, LastEdit>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<EntityIdValue, LastEdit> eldest) {
+			return size() > MAX_REMEMBERED_REVISIONS;
+		}
+	};
+
+	long updateCount = 0;
+	long editCount = 0;
+	boolean closed = false;
+
+	/**
+	 * Creates a new buffer.
+	 *
+	 * @param editor
+	 *            the editor used to write the merged updates
+	 * @param flushDelay
+	 *            time in milliseconds for which updates of an entity are
+	 *            collected before they are written
+	 * @param maxUpdatesPerEdit
+	 *            maximal number of updates that are merged into one edit
+	 */
+	public CoalescingEditBuffer(WikibaseDataEditor editor, long flushDelay,
+			int maxUpdatesPerEdit) {
+		if (flushDelay < 0) {
+			throw new IllegalArgumentException(
+					"The flush delay must not be negative.");
+		}
+		if (maxUpdatesPerEdit < 1) {
+			throw new IllegalArgumentException(
+					"At least one update must be allowed per edit.");
+		}
+		this.editor = Objects.requireNonNull(editor);
+		this.flushDelay = flushDelay;
+		this.maxUpdatesPerEdit = maxUpdatesPerEdit;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "wdtk-edit-buffer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Adds an update to the buffer. The method returns immediately.
+	 *
+	 * @param update
+	 *            collection of changes to be written
+	 * @param summary
+	 *            summary for the edit, or {@code null}
+	 * @param tags
+	 *            string identifiers of the tags to apply to the edit,
+	 *            {@code null} or empty for no tags
+	 * @return future result of the edit that includes the update
+	 * @throws IllegalStateException
+	 *             if the buffer has been closed
+	 */
+	public CompletableFuture<EditingResult> add(EntityUpdate update,
+			String summary, List<String> tags) {
+		Objects.requireNonNull(update, "Entity update cannot be null.");
+		EntityIdValue entityId = update.getEntityId();
+		CompletableFuture<EditingResult> result = new CompletableFuture<>();
+		synchronized (this) {
+			if (this.closed) {
+				throw new IllegalStateException("The buffer has been closed.");
+			}
+			this.updateCount++;
+			PendingEdit pending = this.pendingEdits.get(entityId);
+			if (pending != null) {
+				try {
+					pending.update = merge(pending.update, update);
+				} catch (IllegalArgumentException e) {
+					logger.info("Update of " + entityId.getId()
+							+ " cannot be merged with pending updates: "
+							+ e.getMessage());
+					sendLater(this.pendingEdits.remove(entityId));
+					pending = null;
+				}
+			}
+			if (pending == null) {
+				PendingEdit created = new PendingEdit(update);
+				created.timer = this.scheduler.schedule(
+						() -> flushEntity(entityId, created), this.flushDelay,
+						TimeUnit.MILLISECONDS);
+				this.pendingEdits.put(entityId, created);
+				pending = created;
+			}
+			pending.add(result, summary, tags);
+			if (pending.results.size() >= this.maxUpdatesPerEdit) {
+				sendLater(this.pendingEdits.remove(entityId));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds an update without tags to the buffer.
+	 *
+	 * @param update
+	 *            collection of changes to be written
+	 * @param summary
+	 *            summary for the edit, or {@code null}
+	 * @return future result of the edit that includes the update
+	 * @throws IllegalStateException
+	 *             if the buffer has been closed
+	 */
+	public CompletableFuture<EditingResult> add(EntityUpdate update,
+			String summary) {
+		return add(update, summary, null);
+	}
+
+	/**
+	 * Writes all pending updates and waits until this is done. Errors are
+	 * reported through the futures of the updates.
+	 */
+	public void flush() {
+		List<CompletableFuture<EditingResult>> results = new ArrayList<>();
+		synchronized (this) {
+			for (PendingEdit pending : this.pendingEdits.values()) {
+				results.addAll(pending.results);
+				sendLater(pending);
+			}
+			this.pendingEdits.clear();
+		}
+		for (CompletableFuture<EditingResult> result : results) {
+			result.handle((editingResult, exception) -> null).join();
+		}
+	}
+
+	/**
+	 * Returns the number of updates that have been added to the buffer.
+	 *
+	 * @return number of updates
+	 */
+	public synchronized long getUpdateCount() {
+		return this.updateCount;
+	}
+
+	/**
+	 * Returns the number of edits that have been made for the updates, not
+	 * counting empty updates which do not require an edit.
+	 *
+	 * @return number of edits
+	 */
+	public synchronized long getEditCount() {
+		return this.editCount;
+	}
+
+	/**
+	 * Returns the number of entities with updates that are waiting to be
+	 * written.
+	 *
+	 * @return number of pending entities
+	 */
+	public synchronized int getPendingEntityCount() {
+		return this.pendingEdits.size();
+	}
+
+	/**
+	 * Stops accepting updates, writes all pending updates, and releases the
+	 * background thread.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			this.closed = true;
+		}
+		flush();
+		this.scheduler.shutdown();
+	}
+
+	/**
+	 * Combines two updates of the same entity into one.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the updates cannot be combined
+	 */
+	static EntityUpdate merge(EntityUpdate first, EntityUpdate second) {
+		long baseRevisionId = first.getBaseRevisionId();
+		if (baseRevisionId == 0 || (second.getBaseRevisionId() != 0
+				&& second.getBaseRevisionId() < baseRevisionId)) {
+			baseRevisionId = second.getBaseRevisionId();
+		}
+		EntityUpdateBuilder builder = EntityUpdateBuilder.forBaseRevisionId(
+				first.getEntityId(), baseRevisionId);
+		BulkEditExecutor.appendUpdate(builder, first);
+		return BulkEditExecutor.appendUpdate(builder, second);
+	}
+
+	/**
+	 * Writes the pending updates of an entity when its time window is over,
+	 * unless this happened already.
+	 */
+	void flushEntity(EntityIdValue entityId, PendingEdit pending) {
+		synchronized (this) {
+			if (!this.pendingEdits.remove(entityId, pending)) {
+				return;
+			}
+		}
+		send(pending);
+	}
+
+	/**
+	 * Schedules the given updates to be written right away. Must be called
+	 * while holding the lock of this object.
+	 */
+	void sendLater(PendingEdit pending) {
+		pending.timer.cancel(false);
+		this.scheduler.execute(() -> send(pending));
+	}
+
+	/**
+	 * Writes merged updates. Only called on the scheduler thread.
+	 */
+	void send(PendingEdit pending) {
+		EntityUpdate update = pending.update;
+		EntityIdValue entityId = update.getEntityId();
+		long startRevisionId = update.getBaseRevisionId();
+		LastEdit lastEdit = this.lastEdits.get(entityId);
+		EditingResult result;
+		try {
+			if (lastEdit != null && startRevisionId != 0
+					&& startRevisionId == lastEdit.startRevisionId
+					&& startRevisionId != lastEdit.revisionId) {
+				// only the previous edit of this buffer changed the base revision
+				update = BulkEditExecutor.appendUpdate(EntityUpdateBuilder
+						.forBaseRevisionId(entityId, lastEdit.revisionId),
+						update);
+			}
+			String summary = pending.summaries.isEmpty() ? null : String.join(
+					SUMMARY_SEPARATOR, pending.summaries);
+			result = this.editor.editEntityDocument(update, false, summary,
+					new ArrayList<>(pending.tags));
+		} catch (IOException | MediaWikiApiErrorException
+				| RuntimeException e) {
+			this.lastEdits.remove(entityId);
+			for (CompletableFuture<EditingResult> future : pending.results) {
+				future.completeExceptionally(e);
+			}
+			return;
+		}
+
+		if (result.getLastRevisionId().isPresent()) {
+			this.lastEdits.put(entityId, new LastEdit(startRevisionId, result
+					.getLastRevisionId().getAsLong()));
+			synchronized (this) {
+				this.editCount++;
+			}
+		}
+		for (CompletableFuture<EditingResult> future : pending.results) {
+			future.complete(result);
+		}
+	}
+
+	/**
+	 * The revision that an edit of this buffer was built on, and the revision
+	 * that it created.
+	 */
+	static class LastEdit {
+		final long startRevisionId;
+		final long revisionId;
+
+		LastEdit(long startRevisionId, long revisionId) {
+			this.startRevisionId = startRevisionId;
+			this.revisionId = revisionId;
+		}
+	}
+
+	/**
+	 * Updates of one entity that are waiting to be written.
+	 */
+	static class PendingEdit {
+		EntityUpdate update;
+		final List<CompletableFuture<EditingResult>> results = new ArrayList<>();
+		final Set<String> summaries = new LinkedHashSet<>();
+		final Set<String> tags = new LinkedHashSet<>();
+		ScheduledFuture<?> timer;
+
+		PendingEdit(EntityUpdate update) {
+			this.update = update;
+		}
+
+		void add(CompletableFuture<EditingResult> result, String summary,
+				List<String> tags) {
+			this.results.add(result);
+			if (summary != null && !summary.isEmpty()) {
+				this.summaries.add(summary);
+			}
+			if (tags != null) {
+				this.tags.addAll(tags);
+			}
+		}
+	}
+
+}
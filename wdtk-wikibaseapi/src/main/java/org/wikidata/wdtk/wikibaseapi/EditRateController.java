@@ -0,0 +1,318 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe token bucket that limits the rate of edits made through one
+ * {@link ApiConnection}. All {@link WbEditingAction} objects that use the
+ * same connection draw from the same controller, so that running several
+ * editors in one program does not multiply the edit rate.
+ * <p>
+ * The bucket holds up to a given number of edits that can be made in a
+ * burst, and is refilled at the current rate. The current rate adapts to the
+ * load of the site (additive increase, multiplicative decrease): it is
+ * reduced when the site reports too much replication lag or asks clients to
+ * retry later, in which case all editors also pause for the requested time,
+ * and it slowly grows back to the maximal rate with every successful edit.
+ */
+public class EditRateController {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(EditRateController.class);
+
+	/**
+	 * Factor by which the rate is reduced when the site is overloaded.
+	 */
+	static final double DECREASE_FACTOR = 0.5;
+
+	/**
+	 * Fraction of the maximal rate by which the rate grows after each
+	 * successful edit.
+	 */
+	static final double INCREASE_FRACTION = 0.05;
+
+	/**
+	 * The rate is never reduced below this fraction of the maximal rate.
+	 */
+	static final double MIN_RATE_FRACTION = 1.0 / 64;
+
+	double maxRate;
+	double rate;
+	final int burstSize;
+
+	/**
+	 * Number of edits available at time {@link #lastUpdate}; negative if
+	 * edits have been reserved in advance.
+	 */
+	double tokens;
+	long lastUpdate;
+
+	long acquireCount = 0;
+	long totalWaitNanos = 0;
+	int waitingCount = 0;
+
+	/**
+	 * Creates a new controller.
+	 *
+	 * @param maxEditsPerSecond
+	 *            maximal number of edits per second in the long run, or 0 if
+	 *            the rate should not be limited
+	 * @param burstSize
+	 *            number of edits that can be made without delay after a
+	 *            period of inactivity, at least 1
+	 */
+	public EditRateController(double maxEditsPerSecond, int burstSize) {
+		if (burstSize < 1) {
+			throw new IllegalArgumentException(
+					"The burst size must be at least 1.");
+		}
+		this.burstSize = burstSize;
+		this.tokens = burstSize;
+		this.lastUpdate = System.nanoTime();
+		setMaxEditsPerSecond(maxEditsPerSecond);
+	}
+
+	/**
+	 * Sets the maximal number of edits per second. The current rate is reset
+	 * to this value.
+	 *
+	 * @param maxEditsPerSecond
+	 *            maximal number of edits per second, or 0 if the rate should
+	 *            not be limited
+	 */
+	public synchronized void setMaxEditsPerSecond(double maxEditsPerSecond) {
+		if (maxEditsPerSecond < 0) {
+			throw new IllegalArgumentException(
+					"The edit rate must not be negative.");
+		}
+		refill(System.nanoTime());
+		this.maxRate = maxEditsPerSecond;
+		this.rate = maxEditsPerSecond;
+	}
+
+	/**
+	 * Returns the maximal number of edits per second, or 0 if the rate is not
+	 * limited.
+	 *
+	 * @return maximal rate
+	 */
+	public synchronized double getMaxEditsPerSecond() {
+		return this.maxRate;
+	}
+
+	/**
+	 * Returns the number of edits per second that is currently allowed. This
+	 * is below the maximal rate while the site is overloaded.
+	 *
+	 * @return current rate
+	 */
+	public synchronized double getCurrentEditsPerSecond() {
+		return this.rate;
+	}
+
+	/**
+	 * Returns the number of threads that are currently waiting to edit.
+	 *
+	 * @return length of the queue of waiting editors
+	 */
+	public synchronized int getWaitingCount() {
+		return this.waitingCount;
+	}
+
+	/**
+	 * Returns the number of edits that have been admitted so far.
+	 *
+	 * @return number of edits
+	 */
+	public synchronized long getAcquireCount() {
+		return this.acquireCount;
+	}
+
+	/**
+	 * Returns the total time that editors had to wait before editing.
+	 *
+	 * @return wait time in milliseconds
+	 */
+	public synchronized long getTotalWaitTime() {
+		return this.totalWaitNanos / 1000000;
+	}
+
+	/**
+	 * Returns the average time that editors had to wait before editing.
+	 *
+	 * @return average wait time in milliseconds
+	 */
+	public synchronized double getAverageWaitTime() {
+		return this.acquireCount == 0 ? 0
+				: this.totalWaitNanos / 1000000.0 / this.acquireCount;
+	}
+
+	/**
+	 * Waits until the next edit may be made. If the current thread is
+	 * interrupted while waiting, the method returns early and the interrupt
+	 * flag is set.
+	 *
+	 * @return the time waited in milliseconds
+	 */
+	public long acquire() {
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			refill(now);
+			if (this.rate == 0) {
+				waitNanos = Math.max(0, this.lastUpdate - now);
+			} else {
+				this.tokens -= 1;
+				waitNanos = this.lastUpdate - now;
+				if (this.tokens < 0) {
+					waitNanos += (long) (-this.tokens / this.rate * 1e9);
+				}
+				waitNanos = Math.max(0, waitNanos);
+			}
+			this.acquireCount++;
+			this.totalWaitNanos += waitNanos;
+			if (waitNanos > 0) {
+				this.waitingCount++;
+			}
+		}
+
+		if (waitNanos > 0) {
+			logger.info("We are editing too fast. Pausing for "
+					+ waitNanos / 1000000 + " milliseconds.");
+			try {
+				Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized (this) {
+					this.waitingCount--;
+				}
+			}
+		}
+		return waitNanos / 1000000;
+	}
+
+	/**
+	 * Waits until a pause requested by the site is over, without counting as
+	 * a new edit. This is used before retrying an edit that has been
+	 * rejected.
+	 *
+	 * @return the time waited in milliseconds
+	 */
+	public long awaitPause() {
+		long waitNanos;
+		synchronized (this) {
+			waitNanos = Math.max(0, this.lastUpdate - System.nanoTime());
+			this.totalWaitNanos += waitNanos;
+			if (waitNanos > 0) {
+				this.waitingCount++;
+			}
+		}
+		if (waitNanos > 0) {
+			try {
+				Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				synchronized (this) {
+					this.waitingCount--;
+				}
+			}
+		}
+		return waitNanos / 1000000;
+	}
+
+	/**
+	 * Records that an edit has succeeded, increasing the current rate towards
+	 * the maximal rate.
+	 */
+	public synchronized void onSuccess() {
+		if (this.rate < this.maxRate) {
+			refill(System.nanoTime());
+			this.rate = Math.min(this.maxRate, this.rate + this.maxRate
+					* INCREASE_FRACTION);
+		}
+	}
+
+	/**
+	 * Records that the site rejected an edit because of too much replication
+	 * lag. The current rate is reduced, and no further edits are admitted for
+	 * the given time.
+	 *
+	 * @param lag
+	 *            the lag reported by the site in seconds
+	 * @param pauseMillis
+	 *            time in milliseconds during which all editors should pause
+	 */
+	public synchronized void onMaxlag(double lag, long pauseMillis) {
+		logger.info("Reducing edit rate due to a lag of " + lag + " seconds.");
+		decrease();
+		pause(pauseMillis);
+	}
+
+	/**
+	 * Records that the site asked clients to retry later, for instance with
+	 * an HTTP Retry-After header. The current rate is reduced, and no further
+	 * edits are admitted for the given time.
+	 *
+	 * @param retryAfterMillis
+	 *            time in milliseconds after which edits may be retried
+	 */
+	public synchronized void onRetryAfter(long retryAfterMillis) {
+		logger.info("Reducing edit rate, server asked to retry after "
+				+ retryAfterMillis + " milliseconds.");
+		decrease();
+		pause(retryAfterMillis);
+	}
+
+	private void decrease() {
+		refill(System.nanoTime());
+		this.rate = Math.max(this.maxRate * MIN_RATE_FRACTION, this.rate
+				* DECREASE_FACTOR);
+	}
+
+	/**
+	 * Delays all edits that have not been admitted yet by the given time.
+	 * Only one edit is available immediately after the pause.
+	 */
+	private void pause(long millis) {
+		long now = System.nanoTime();
+		refill(now);
+		this.lastUpdate = Math.max(this.lastUpdate, now + millis * 1000000);
+		this.tokens = Math.min(this.tokens, 1);
+	}
+
+	/**
+	 * Adds the edits that became available since the last update. Does
+	 * nothing while a pause is in effect.
+	 */
+	private void refill(long now) {
+		if (now > this.lastUpdate) {
+			this.tokens = Math.min(this.burstSize, this.tokens
+					+ (now - this.lastUpdate) / 1e9 * this.rate);
+			this.lastUpdate = now;
+		}
+	}
+
+}
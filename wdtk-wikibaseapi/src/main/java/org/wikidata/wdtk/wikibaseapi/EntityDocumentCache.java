@@ -0,0 +1,503 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+
+/**
+ * Client-side cache for entity documents fetched by
+ * {@link WikibaseDataFetcher}. Documents are cached per entity id and per
+ * request settings (the props, languages and site filters derived from the
+ * fetcher's {@link org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter}),
+ * since documents fetched with different filters contain different data.
+ * The cache holds at most a given number of documents and evicts the least
+ * recently used ones first.
+ * <p>
+ * Cached documents are used without contacting the API for the given
+ * revalidation interval. Thereafter, the fetcher checks their revision ids
+ * with a cheap batched request that does not return any entity data, and
+ * only fetches those entities again that have changed. Documents without a
+ * revision id are never cached.
+ * <p>
+ * When the same cache is also set on a {@link WikibaseDataEditor}, all
+ * entries of an entity are removed as soon as the editor changes it.
+ * Documents of the entity that are still being fetched at that time are not
+ * added to the cache when their request completes, since they may show the
+ * entity before the edit.
+ * <p>
+ * The cache can be saved to a stream and loaded again later. Loaded entries
+ * are revalidated the first time they are used. All methods of this class
+ * are thread-safe.
+ */
+public class EntityDocumentCache {
+
+	/**
+	 * Mapper used for saving the cache.
+	 */
+	static final ObjectMapper mapper = new ObjectMapper();
+	static {
+		mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		mapper.registerModule(new Jdk8Module());
+	}
+
+	final int maxEntries;
+	final long revalidationInterval;
+
+	final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+	/**
+	 * Keys of {@link #entries} by the base id of their entity, which is the
+	 * id of the lexeme for its forms and senses. It is used to find the
+	 * entries of an entity without scanning the whole cache.
+	 */
+	final Map<String, Set<CacheKey>> keysByBaseId = new HashMap<>();
+
+	/**
+	 * Number of invalidations so far. Fetches remember the generation at
+	 * which they started, so that documents of entities that were
+	 * invalidated in the meantime can be discarded.
+	 */
+	long generation = 0;
+
+	/**
+	 * Generation of the last invalidation of each recently invalidated
+	 * entity, in the order of invalidation. It holds at most as many entities
+	 * as the cache holds documents.
+	 */
+	final LinkedHashMap<String, Long> invalidations = new LinkedHashMap<>();
+
+	/**
+	 * Latest generation that has been removed from {@link #invalidations}.
+	 * Documents from fetches that started before it are not cached, since
+	 * their entities might have been invalidated.
+	 */
+	long forgottenGeneration = 0;
+
+	long hitCount = 0;
+	long missCount = 0;
+	long revalidatedCount = 0;
+	long outdatedCount = 0;
+	long evictionCount = 0;
+	long invalidationCount = 0;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxEntries
+	 *            maximal number of documents to keep
+	 * @param revalidationInterval
+	 *            time in milliseconds for which cached documents are used
+	 *            without checking their revision; 0 to check revisions on
+	 *            every access
+	 */
+	public EntityDocumentCache(int maxEntries, long revalidationInterval) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException(
+					"The cache must be able to hold at least one document.");
+		}
+		this.maxEntries = maxEntries;
+		this.revalidationInterval = revalidationInterval;
+		this.entries = new LinkedHashMap<CacheKey, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<CacheKey, CacheEntry> eldest) {
+				if (size() > EntityDocumentCache.this.maxEntries) {
+					EntityDocumentCache.this.evictionCount++;
+					removeFromIndex(eldest.getKey());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Removes all cached documents of the given entity, regardless of the
+	 * request settings they have been fetched with. If the id is that of a
+	 * lexeme form or sense, such as "L42-F1", the documents of the lexeme are
+	 * removed as well. If it is the id of a lexeme, the documents of all its
+	 * forms and senses are removed too, since they are part of the lexeme.
+	 *
+	 * @param entityId
+	 *            string id of the entity, e.g., "Q42"
+	 */
+	public synchronized void invalidate(String entityId) {
+		String baseId = getBaseId(entityId);
+		this.generation++;
+		recordInvalidation(entityId);
+		recordInvalidation(baseId);
+		Set<CacheKey> keys = this.keysByBaseId.get(baseId);
+		if (keys == null) {
+			return;
+		}
+		Iterator<CacheKey> iterator = keys.iterator();
+		while (iterator.hasNext()) {
+			CacheKey key = iterator.next();
+			if (entityId.equals(baseId) || key.entityId.equals(entityId)
+					|| key.entityId.equals(baseId)) {
+				iterator.remove();
+				this.entries.remove(key);
+				this.invalidationCount++;
+			}
+		}
+		if (keys.isEmpty()) {
+			this.keysByBaseId.remove(baseId);
+		}
+	}
+
+	/**
+	 * Returns the id of the entity that the given entity is part of, i.e.,
+	 * the lexeme id for forms and senses, or the given id otherwise.
+	 */
+	static String getBaseId(String entityId) {
+		int dash = entityId.indexOf('-');
+		return dash > 0 ? entityId.substring(0, dash) : entityId;
+	}
+
+	private void removeFromIndex(CacheKey key) {
+		String baseId = getBaseId(key.entityId);
+		Set<CacheKey> keys = this.keysByBaseId.get(baseId);
+		if (keys != null && keys.remove(key) && keys.isEmpty()) {
+			this.keysByBaseId.remove(baseId);
+		}
+	}
+
+	private void recordInvalidation(String entityId) {
+		this.invalidations.remove(entityId);
+		this.invalidations.put(entityId, this.generation);
+		if (this.invalidations.size() > this.maxEntries) {
+			Iterator<Long> eldest = this.invalidations.values().iterator();
+			this.forgottenGeneration = eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Removes all documents from the cache. Statistics are not reset.
+	 */
+	public synchronized void clear() {
+		this.entries.clear();
+		this.keysByBaseId.clear();
+	}
+
+	/**
+	 * Returns the number of documents currently in the cache.
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the number of requested documents that were taken from the
+	 * cache, including documents that were revalidated.
+	 *
+	 * @return number of cache hits
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Returns the number of requested documents that had to be fetched,
+	 * including outdated documents.
+	 *
+	 * @return number of cache misses
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Returns the fraction of requested documents that were taken from the
+	 * cache, or 0 if no documents have been requested yet.
+	 *
+	 * @return hit rate between 0 and 1
+	 */
+	public synchronized double getHitRate() {
+		long requests = this.hitCount + this.missCount;
+		return requests == 0 ? 0 : (double) this.hitCount / requests;
+	}
+
+	/**
+	 * Returns the number of cached documents whose revision was checked and
+	 * found to be current.
+	 *
+	 * @return number of revalidated documents
+	 */
+	public synchronized long getRevalidatedCount() {
+		return this.revalidatedCount;
+	}
+
+	/**
+	 * Returns the number of cached documents whose revision was checked and
+	 * found to be outdated.
+	 *
+	 * @return number of outdated documents
+	 */
+	public synchronized long getOutdatedCount() {
+		return this.outdatedCount;
+	}
+
+	/**
+	 * Returns the number of documents that were evicted to stay within the
+	 * size bound.
+	 *
+	 * @return number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Returns the number of documents that were removed because their entity
+	 * was edited.
+	 *
+	 * @return number of invalidated documents
+	 */
+	public synchronized long getInvalidationCount() {
+		return this.invalidationCount;
+	}
+
+	/**
+	 * Writes all cached documents to the given stream as JSON. The stream is
+	 * not closed.
+	 *
+	 * @param output
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if there was a problem writing the data
+	 */
+	public void save(OutputStream output) throws IOException {
+		List<PersistedEntry> persisted = new ArrayList<>();
+		synchronized (this) {
+			for (Map.Entry<CacheKey, CacheEntry> entry : this.entries.entrySet()) {
+				persisted.add(new PersistedEntry(entry.getKey().entityId,
+						entry.getKey().requestKey, entry.getValue().document));
+			}
+		}
+		mapper.writerFor(
+				new TypeReference<List<PersistedEntry>>() {
+				}).writeValue(output, persisted);
+	}
+
+	/**
+	 * Adds the documents that have been written with
+	 * {@link #save(OutputStream)} to the cache. The loaded documents will be
+	 * revalidated before they are used. The stream is not closed.
+	 *
+	 * @param input
+	 *            the stream to read from
+	 * @param siteIri
+	 *            the IRI of the site that the documents belong to, e.g.,
+	 *            "http://www.wikidata.org/entity/"
+	 * @throws IOException
+	 *             if there was a problem reading the data
+	 */
+	public void load(InputStream input, String siteIri) throws IOException {
+		List<PersistedEntry> persisted = new DatamodelMapper(siteIri)
+				.readerFor(new TypeReference<List<PersistedEntry>>() {
+				})
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT)
+				.without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+				.readValue(input);
+		synchronized (this) {
+			for (PersistedEntry entry : persisted) {
+				putEntry(entry.entityId, entry.requestKey, entry.document, 0);
+			}
+		}
+	}
+
+	/**
+	 * Returns the key that identifies the request settings under which a
+	 * document was fetched.
+	 */
+	static String getRequestKey(WbGetEntitiesActionData properties) {
+		return properties.props + "#" + properties.languages + "#"
+				+ properties.sitefilter;
+	}
+
+	/**
+	 * Returns the cached entry, or null if there is none.
+	 */
+	synchronized CacheEntry getEntry(String entityId, String requestKey) {
+		return this.entries.get(new CacheKey(entityId, requestKey));
+	}
+
+	/**
+	 * Returns the current invalidation generation. It must be obtained before
+	 * sending a request whose documents will be added with
+	 * {@link #put(String, String, EntityDocument, long)}.
+	 */
+	synchronized long getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Adds a freshly fetched document to the cache, unless its entity, or
+	 * the lexeme that it is part of, has been invalidated since the fetch
+	 * started.
+	 *
+	 * @param fetchGeneration
+	 *            the generation returned by {@link #getGeneration()} before
+	 *            the fetch was started
+	 */
+	synchronized void put(String entityId, String requestKey,
+			EntityDocument document, long fetchGeneration) {
+		if (fetchGeneration < this.forgottenGeneration
+				|| isInvalidatedSince(entityId, fetchGeneration)
+				|| isInvalidatedSince(getBaseId(entityId), fetchGeneration)) {
+			return;
+		}
+		putEntry(entityId, requestKey, document, System.currentTimeMillis());
+	}
+
+	private boolean isInvalidatedSince(String entityId, long fetchGeneration) {
+		Long invalidated = this.invalidations.get(entityId);
+		return invalidated != null && invalidated > fetchGeneration;
+	}
+
+	/**
+	 * Marks a cached document as checked to be current.
+	 */
+	synchronized void markValidated(CacheEntry entry) {
+		entry.validatedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Updates the statistics after answering a request.
+	 */
+	synchronized void recordRequest(int hits, int misses, int revalidated,
+			int outdated) {
+		this.hitCount += hits;
+		this.missCount += misses;
+		this.revalidatedCount += revalidated;
+		this.outdatedCount += outdated;
+	}
+
+	/**
+	 * Returns true if the given entry can be used without checking its
+	 * revision. Entries that have been loaded from a file (validation time 0)
+	 * are never fresh.
+	 */
+	boolean isFresh(CacheEntry entry) {
+		return entry.validatedAt != 0 && System.currentTimeMillis()
+				- entry.validatedAt < this.revalidationInterval;
+	}
+
+	private void putEntry(String entityId, String requestKey,
+			EntityDocument document, long validatedAt) {
+		if (document == null || document.getRevisionId() == 0) {
+			return;
+		}
+		CacheKey key = new CacheKey(entityId, requestKey);
+		this.keysByBaseId.computeIfAbsent(getBaseId(entityId),
+				baseId -> new HashSet<>()).add(key);
+		this.entries.put(key, new CacheEntry(document, validatedAt));
+	}
+
+	static class CacheEntry {
+		final EntityDocument document;
+		volatile long validatedAt;
+
+		CacheEntry(EntityDocument document, long validatedAt) {
+			this.document = document;
+			this.validatedAt = validatedAt;
+		}
+	}
+
+	static class CacheKey {
+		final String entityId;
+		final String requestKey;
+
+		CacheKey(String entityId, String requestKey) {
+			this.entityId = entityId;
+			this.requestKey = requestKey;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.entityId, this.requestKey);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return this.entityId.equals(other.entityId)
+					&& this.requestKey.equals(other.requestKey);
+		}
+	}
+
+	/**
+	 * JSON representation of a cache entry used for saving the cache.
+	 */
+	static class PersistedEntry {
+		@JsonProperty("id")
+		String entityId;
+		@JsonProperty("request")
+		String requestKey;
+		@JsonProperty("document")
+		EntityDocumentImpl document;
+
+		PersistedEntry() {
+		}
+
+		PersistedEntry(String entityId, String requestKey,
+				EntityDocument document) {
+			this.entityId = entityId;
+			this.requestKey = requestKey;
+			this.document = (EntityDocumentImpl) document;
+		}
+	}
+
+}
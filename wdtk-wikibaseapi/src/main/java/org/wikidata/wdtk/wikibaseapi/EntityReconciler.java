@@ -0,0 +1,349 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+/**
+ * Matches many search strings to entities, as done when reconciling a data
+ * set with a Wikibase site. For each query, the entities are searched with
+ * {@link WbSearchEntitiesAction}, and the documents of the candidates that
+ * were found are fetched, so that they can be checked further.
+ * <p>
+ * All queries are processed in parallel on a given executor, which bounds
+ * the number of concurrent requests. Identical queries are only sent once,
+ * and the documents of candidates are fetched in batches that combine the
+ * candidates of several queries, with each entity being fetched only once.
+ * The documents are fetched with the {@link WikibaseDataFetcher} that this
+ * object was created with, so that its filter can be used to limit the
+ * languages and data that are fetched. If the fetcher has an
+ * {@link EntityDocumentCache}, each batch is answered from the cache where
+ * possible, and the fetched documents are added to it.
+ * The result of each query is passed on as soon as it is complete.
+ */
+public class EntityReconciler {
+
+	final WikibaseDataFetcher fetcher;
+
+	boolean fetchDocuments = true;
+
+	/**
+	 * Creates a new reconciler.
+	 *
+	 * @param fetcher
+	 *            the fetcher used for searching entities and fetching their
+	 *            documents
+	 */
+	public EntityReconciler(WikibaseDataFetcher fetcher) {
+		this.fetcher = Objects.requireNonNull(fetcher);
+	}
+
+	/**
+	 * Returns true if the documents of the candidates are fetched.
+	 *
+	 * @return true if documents are fetched
+	 */
+	public boolean isFetchDocuments() {
+		return this.fetchDocuments;
+	}
+
+	/**
+	 * Sets whether the documents of the candidates are fetched. If not, only
+	 * the search results are returned. This is enabled by default.
+	 *
+	 * @param fetchDocuments
+	 *            true if documents should be fetched
+	 */
+	public void setFetchDocuments(boolean fetchDocuments) {
+		this.fetchDocuments = fetchDocuments;
+	}
+
+	/**
+	 * Runs the given queries, passing the result of each query to the given
+	 * consumer as soon as it is available. The consumer is called from the
+	 * threads of the executor, possibly concurrently, so it must be
+	 * thread-safe. Queries that occur several times in the list are passed
+	 * to the consumer several times.
+	 * <p>
+	 * If a request fails, the queries that depend on it are not passed to the
+	 * consumer, and the returned future completes exceptionally with a
+	 * {@link CompletionException} that wraps the
+	 * {@link MediaWikiApiErrorException} or {@link IOException}. The other
+	 * queries are processed as usual.
+	 *
+	 * @param queries
+	 *            the search queries; the search string and language must be
+	 *            given
+	 * @param executor
+	 *            the executor that runs the requests
+	 * @param consumer
+	 *            receives each query with its result
+	 * @return future that completes once all results have been consumed
+	 */
+	public CompletableFuture<Void> reconcile(
+			List<WbGetEntitiesSearchData> queries, Executor executor,
+			BiConsumer<WbGetEntitiesSearchData, Result> consumer) {
+		DocumentBatcher batcher = new DocumentBatcher(executor);
+		Map<String, CompletableFuture<List<WbSearchEntitiesResult>>> searches = new HashMap<>();
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (WbGetEntitiesSearchData query : queries) {
+			CompletableFuture<List<WbSearchEntitiesResult>> search = searches
+					.computeIfAbsent(getQueryKey(query),
+							key -> CompletableFuture.supplyAsync(() -> {
+								List<WbSearchEntitiesResult> results = search(query);
+								// register before completing, so that the
+								// candidates are fetched before the final flush
+								batcher.register(results);
+								return results;
+							}, executor));
+			futures.add(search.thenCompose(
+					results -> batcher.getDocuments(results).thenAccept(
+							documents -> consumer.accept(query, new Result(
+									query, results, documents)))));
+		}
+		CompletableFuture.allOf(searches.values().toArray(new CompletableFuture[0]))
+				.whenComplete((v, e) -> batcher.flush());
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+	}
+
+	/**
+	 * Runs the given queries and collects their results.
+	 *
+	 * @param queries
+	 *            the search queries
+	 * @param executor
+	 *            the executor that runs the requests
+	 * @return future list of results, in the order of the queries
+	 */
+	public CompletableFuture<List<Result>> reconcile(
+			List<WbGetEntitiesSearchData> queries, Executor executor) {
+		Map<WbGetEntitiesSearchData, Result> results = Collections
+				.synchronizedMap(new HashMap<>());
+		return reconcile(queries, executor, results::put).thenApply(v -> {
+			List<Result> ordered = new ArrayList<>();
+			for (WbGetEntitiesSearchData query : queries) {
+				ordered.add(results.get(query));
+			}
+			return ordered;
+		});
+	}
+
+	/**
+	 * Runs one search request.
+	 */
+	List<WbSearchEntitiesResult> search(WbGetEntitiesSearchData query) {
+		try {
+			return this.fetcher.searchEntities(query);
+		} catch (MediaWikiApiErrorException | IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	/**
+	 * Returns a string that is equal for queries with equal parameters.
+	 */
+	static String getQueryKey(WbGetEntitiesSearchData query) {
+		return query.search + "\n" + query.language + "\n"
+				+ query.strictlanguage + "\n" + query.type + "\n" + query.limit
+				+ "\n" + query.offset + "\n" + query.uselang;
+	}
+
+	/**
+	 * Collects the ids of candidates from several queries and fetches their
+	 * documents in batches of the size of one API request.
+	 */
+	class DocumentBatcher {
+		final Executor executor;
+		final Map<String, CompletableFuture<EntityDocument>> documents = new HashMap<>();
+		List<String> pendingIds = new ArrayList<>();
+
+		DocumentBatcher(Executor executor) {
+			this.executor = executor;
+		}
+
+		/**
+		 * Schedules the documents of the given candidates to be fetched.
+		 */
+		synchronized void register(List<WbSearchEntitiesResult> results) {
+			if (!EntityReconciler.this.fetchDocuments) {
+				return;
+			}
+			for (WbSearchEntitiesResult result : results) {
+				String id = result.getEntityId();
+				if (!this.documents.containsKey(id)) {
+					this.documents.put(id, new CompletableFuture<>());
+					this.pendingIds.add(id);
+				}
+			}
+			if (this.pendingIds.size() >= EntityReconciler.this.fetcher.maxListSize) {
+				flush();
+			}
+		}
+
+		/**
+		 * Fetches the documents of all registered candidates that have not
+		 * been requested yet.
+		 */
+		synchronized void flush() {
+			if (this.pendingIds.isEmpty()) {
+				return;
+			}
+			List<String> batch = this.pendingIds;
+			this.pendingIds = new ArrayList<>();
+			Map<String, CompletableFuture<EntityDocument>> futures = new HashMap<>();
+			for (String id : batch) {
+				futures.put(id, this.documents.get(id));
+			}
+			fetch(batch).whenComplete((fetched, exception) -> {
+				for (Map.Entry<String, CompletableFuture<EntityDocument>> entry : futures
+						.entrySet()) {
+					if (exception != null) {
+						entry.getValue().completeExceptionally(exception);
+					} else {
+						entry.getValue().complete(fetched.get(entry.getKey()));
+					}
+				}
+			});
+		}
+
+		/**
+		 * Fetches one batch of documents. The asynchronous methods of the
+		 * fetcher do not use its cache, so batches are fetched with the
+		 * synchronous method if there is a cache.
+		 */
+		CompletableFuture<Map<String, EntityDocument>> fetch(List<String> batch) {
+			WikibaseDataFetcher fetcher = EntityReconciler.this.fetcher;
+			if (fetcher.getEntityDocumentCache() == null) {
+				return fetcher.getEntityDocumentsAsync(batch, this.executor);
+			}
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return fetcher.getEntityDocuments(batch);
+				} catch (MediaWikiApiErrorException | IOException e) {
+					throw new CompletionException(e);
+				}
+			}, this.executor);
+		}
+
+		/**
+		 * Returns the documents of the given candidates once they have been
+		 * fetched.
+		 */
+		CompletableFuture<Map<String, EntityDocument>> getDocuments(
+				List<WbSearchEntitiesResult> results) {
+			if (!EntityReconciler.this.fetchDocuments) {
+				return CompletableFuture.completedFuture(Collections.emptyMap());
+			}
+			Map<String, CompletableFuture<EntityDocument>> futures = new HashMap<>();
+			synchronized (this) {
+				for (WbSearchEntitiesResult result : results) {
+					futures.put(result.getEntityId(),
+							this.documents.get(result.getEntityId()));
+				}
+			}
+			return CompletableFuture.allOf(
+					futures.values().toArray(new CompletableFuture[0]))
+					.thenApply(v -> {
+						Map<String, EntityDocument> documents = new HashMap<>();
+						for (Map.Entry<String, CompletableFuture<EntityDocument>> entry : futures
+								.entrySet()) {
+							EntityDocument document = entry.getValue().join();
+							if (document != null) {
+								documents.put(entry.getKey(), document);
+							}
+						}
+						return documents;
+					});
+		}
+	}
+
+	/**
+	 * The result of one query: the search results, in the order returned by
+	 * the API, and the documents of the entities that were found.
+	 */
+	public static class Result {
+		final WbGetEntitiesSearchData query;
+		final List<WbSearchEntitiesResult> searchResults;
+		final Map<String, EntityDocument> documents;
+
+		Result(WbGetEntitiesSearchData query,
+				List<WbSearchEntitiesResult> searchResults,
+				Map<String, EntityDocument> documents) {
+			this.query = query;
+			this.searchResults = Collections.unmodifiableList(searchResults);
+			this.documents = Collections.unmodifiableMap(documents);
+		}
+
+		/**
+		 * Returns the query.
+		 *
+		 * @return the query
+		 */
+		public WbGetEntitiesSearchData getQuery() {
+			return this.query;
+		}
+
+		/**
+		 * Returns the search results, best matches first.
+		 *
+		 * @return list of search results
+		 */
+		public List<WbSearchEntitiesResult> getSearchResults() {
+			return this.searchResults;
+		}
+
+		/**
+		 * Returns the documents of the entities that were found, by entity
+		 * id. This is empty if documents are not fetched.
+		 *
+		 * @return map from entity ids to documents
+		 */
+		public Map<String, EntityDocument> getDocuments() {
+			return this.documents;
+		}
+
+		/**
+		 * Returns the document of the given candidate, or null if it has not
+		 * been fetched.
+		 *
+		 * @param entityId
+		 *            the id of the entity, e.g., "Q42"
+		 * @return the document or null
+		 */
+		public EntityDocument getDocument(String entityId) {
+			return this.documents.get(entityId);
+		}
+	}
+
+}
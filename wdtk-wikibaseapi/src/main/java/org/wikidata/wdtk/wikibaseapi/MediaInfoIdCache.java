@@ -0,0 +1,286 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Cache that maps file names to the MediaInfoIds of the files, used by
+ * {@link MediaInfoIdResolver}. Besides the ids of existing files, the cache
+ * remembers names for which no file was found, so that they are not looked
+ * up again in every run. Such negative entries expire after a given time,
+ * since the files might have been uploaded in the meantime. Ids of existing
+ * files do not expire.
+ * <p>
+ * File names are stored in the canonical form computed by
+ * {@link MediaInfoIdResolver#getCanonicalFileName(String)}. The cache can be
+ * saved to a stream and loaded again later. All methods of this class are
+ * thread-safe.
+ */
+public class MediaInfoIdCache {
+
+	static final JsonFactory jsonFactory = new JsonFactory();
+	static {
+		jsonFactory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		jsonFactory.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+	}
+
+	final long negativeTtl;
+
+	/**
+	 * Ids of files that have been found, by canonical file name.
+	 */
+	final Map<String, MediaInfoIdValue> ids = new HashMap<>();
+
+	/**
+	 * Times when files were found to be missing, by canonical file name.
+	 */
+	final Map<String, Long> missing = new HashMap<>();
+
+	long hitCount = 0;
+	long negativeHitCount = 0;
+	long missCount = 0;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param negativeTtl
+	 *            time in milliseconds for which it is remembered that no file
+	 *            was found for a name; 0 to not remember missing files
+	 */
+	public MediaInfoIdCache(long negativeTtl) {
+		if (negativeTtl < 0) {
+			throw new IllegalArgumentException(
+					"The time to live must not be negative.");
+		}
+		this.negativeTtl = negativeTtl;
+	}
+
+	/**
+	 * Removes the cached information about the given file.
+	 *
+	 * @param fileName
+	 *            the name of the file, with or without "File:" prefix
+	 */
+	public synchronized void invalidate(String fileName) {
+		String name = MediaInfoIdResolver.getCanonicalFileName(fileName);
+		this.ids.remove(name);
+		this.missing.remove(name);
+	}
+
+	/**
+	 * Removes all entries from the cache. Statistics are not reset.
+	 */
+	public synchronized void clear() {
+		this.ids.clear();
+		this.missing.clear();
+	}
+
+	/**
+	 * Returns the number of file names for which an id is cached.
+	 *
+	 * @return number of cached ids
+	 */
+	public synchronized int getIdCount() {
+		return this.ids.size();
+	}
+
+	/**
+	 * Returns the number of file names that are remembered as missing,
+	 * including expired entries.
+	 *
+	 * @return number of missing files
+	 */
+	public synchronized int getMissingCount() {
+		return this.missing.size();
+	}
+
+	/**
+	 * Returns the number of requested names whose id was taken from the
+	 * cache.
+	 *
+	 * @return number of cache hits
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Returns the number of requested names that were not looked up because
+	 * they are known to be missing.
+	 *
+	 * @return number of negative cache hits
+	 */
+	public synchronized long getNegativeHitCount() {
+		return this.negativeHitCount;
+	}
+
+	/**
+	 * Returns the number of requested names that had to be looked up.
+	 *
+	 * @return number of cache misses
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Writes the cache to the given stream as JSON. Expired negative entries
+	 * are omitted. The stream is not closed.
+	 *
+	 * @param output
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if there was a problem writing the data
+	 */
+	public void save(OutputStream output) throws IOException {
+		Map<String, String> savedIds = new HashMap<>();
+		Map<String, Long> savedMissing = new HashMap<>();
+		synchronized (this) {
+			for (Map.Entry<String, MediaInfoIdValue> entry : this.ids.entrySet()) {
+				savedIds.put(entry.getKey(), entry.getValue().getId());
+			}
+			long now = System.currentTimeMillis();
+			for (Map.Entry<String, Long> entry : this.missing.entrySet()) {
+				if (!isExpired(entry.getValue(), now)) {
+					savedMissing.put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+		try (JsonGenerator generator = jsonFactory.createGenerator(output)) {
+			generator.writeStartObject();
+			generator.writeObjectFieldStart("ids");
+			for (Map.Entry<String, String> entry : savedIds.entrySet()) {
+				generator.writeStringField(entry.getKey(), entry.getValue());
+			}
+			generator.writeEndObject();
+			generator.writeObjectFieldStart("missing");
+			for (Map.Entry<String, Long> entry : savedMissing.entrySet()) {
+				generator.writeNumberField(entry.getKey(), entry.getValue());
+			}
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+	}
+
+	/**
+	 * Adds the entries that have been written with
+	 * {@link #save(OutputStream)} to the cache. Negative entries keep the
+	 * time when they were created. The stream is not closed.
+	 *
+	 * @param input
+	 *            the stream to read from
+	 * @param siteIri
+	 *            the IRI of the site that the ids belong to, e.g.,
+	 *            "http://commons.wikimedia.org/entity/"
+	 * @throws IOException
+	 *             if there was a problem reading the data
+	 */
+	public void load(InputStream input, String siteIri) throws IOException {
+		Map<String, MediaInfoIdValue> loadedIds = new HashMap<>();
+		Map<String, Long> loadedMissing = new HashMap<>();
+		try (JsonParser parser = jsonFactory.createParser(input)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Invalid cache data.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String section = parser.currentName();
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					throw new IOException("Invalid cache data.");
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String name = parser.currentName();
+					parser.nextToken();
+					if ("ids".equals(section)) {
+						loadedIds.put(name, Datamodel.makeMediaInfoIdValue(
+								parser.getText(), siteIri));
+					} else if ("missing".equals(section)) {
+						loadedMissing.put(name, parser.getLongValue());
+					}
+				}
+			}
+		}
+		synchronized (this) {
+			this.ids.putAll(loadedIds);
+			this.missing.putAll(loadedMissing);
+		}
+	}
+
+	/**
+	 * Looks up the given canonical file names. Names that are cached are
+	 * added to the result, with null values for missing files; the other
+	 * names are returned.
+	 */
+	synchronized List<String> lookup(Iterable<String> names,
+			Map<String, MediaInfoIdValue> result) {
+		List<String> unknown = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		for (String name : names) {
+			MediaInfoIdValue id = this.ids.get(name);
+			if (id != null) {
+				result.put(name, id);
+				this.hitCount++;
+				continue;
+			}
+			Long missingSince = this.missing.get(name);
+			if (missingSince != null && !isExpired(missingSince, now)) {
+				result.put(name, null);
+				this.negativeHitCount++;
+			} else {
+				unknown.add(name);
+				this.missCount++;
+			}
+		}
+		return unknown;
+	}
+
+	/**
+	 * Records the result of looking up a canonical file name, where null
+	 * means that no file was found.
+	 */
+	synchronized void put(String name, MediaInfoIdValue id) {
+		if (id != null) {
+			this.ids.put(name, id);
+			this.missing.remove(name);
+		} else if (this.negativeTtl > 0) {
+			this.missing.put(name, System.currentTimeMillis());
+		}
+	}
+
+	private boolean isExpired(long missingSince, long now) {
+		return now - missingSince >= this.negativeTtl;
+	}
+
+}
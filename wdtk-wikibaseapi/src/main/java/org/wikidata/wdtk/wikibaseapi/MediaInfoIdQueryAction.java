@@ -62,6 +62,22 @@ public class MediaInfoIdQueryAction {
 	 */
 	public Map<String, MediaInfoIdValue> getMediaInfoIds(List<String> fileNames)
 			throws IOException, MediaWikiApiErrorException {
+		return getMediaInfoIds(fileNames, false);
+	}
+
+	/**
+	 * Fetches the MediaInfoIds of files with the given names, like
+	 * {@link #getMediaInfoIds(List)}. If redirects are followed, the names of
+	 * file pages that redirect to other files are mapped to the MediaInfoIds of
+	 * the redirect targets.
+	 *
+	 * @param fileNames list of file names of the requested MediaInfoIds
+	 * @param followRedirects true if redirects should be resolved
+	 * @return map from file names for which data could be found to the MediaInfoIds
+	 * that were retrieved
+	 */
+	public Map<String, MediaInfoIdValue> getMediaInfoIds(List<String> fileNames, boolean followRedirects)
+			throws IOException, MediaWikiApiErrorException {
 		// file name => file name with prefix
 		List<String> fileNamesWithPrefix = new ArrayList<>();
 		for (String fileName : fileNames) {
@@ -72,6 +88,9 @@ public class MediaInfoIdQueryAction {
 		Map<String, String> parameters = new HashMap<>();
 		parameters.put(ApiConnection.PARAM_ACTION, "query");
 		parameters.put("titles", ApiConnection.implodeObjects(fileNamesWithPrefix));
+		if (followRedirects) {
+			parameters.put("redirects", "1");
+		}
 
 		Map<String, MediaInfoIdValue> result = new HashMap<>();
 
@@ -92,6 +111,16 @@ public class MediaInfoIdQueryAction {
 			}
 		}
 
+		// normalized file name => redirect target
+		Map<String, String> redirectMap = new HashMap<>();
+		if (query.has("redirects")) {
+			Iterator<JsonNode> iterator = query.get("redirects").elements();
+			while (iterator.hasNext()) {
+				JsonNode next = iterator.next();
+				redirectMap.put(next.get("from").asText(), next.get("to").asText());
+			}
+		}
+
 		// normalized file name => Mid
 		Map<String, MediaInfoIdValue> midMap = new HashMap<>();
 		JsonNode pages = query.get("pages");
@@ -108,6 +137,7 @@ public class MediaInfoIdQueryAction {
 		for (String fileName : fileNames) {
 			String fileNameWithPrefix = fileName.startsWith("File:") ? fileName : "File:" + fileName;
 			String normalizedFileName = normalizedMap.getOrDefault(fileNameWithPrefix, fileNameWithPrefix);
+			normalizedFileName = redirectMap.getOrDefault(normalizedFileName, normalizedFileName);
 			result.put(fileName, midMap.get(normalizedFileName));
 		}
 
@@ -0,0 +1,314 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+/**
+ * Resolves large numbers of file names to MediaInfoIds. In contrast to
+ * {@link WikibaseDataFetcher#getMediaInfoIdsByFileName(List)}, this class
+ * removes duplicate names before querying the API, sends several batches of
+ * names at the same time, follows redirects between files, and can use a
+ * {@link MediaInfoIdCache} so that names that have been resolved before,
+ * possibly in an earlier run, are not looked up again.
+ * <p>
+ * File names are brought into a canonical form before they are looked up:
+ * the "File:" prefix is added if missing, underscores are replaced by spaces,
+ * and the first letter of the name is capitalized, as MediaWiki does on
+ * Wikimedia Commons. The API normalizes the names further where needed.
+ */
+public class MediaInfoIdResolver {
+
+	/**
+	 * Prefix of the names of file pages.
+	 */
+	static final String FILE_PREFIX = "File:";
+
+	final MediaInfoIdQueryAction mediaInfoIdQueryAction;
+
+	/**
+	 * Number of file names that are looked up in one request.
+	 */
+	int maxTitlesPerRequest = 50;
+
+	/**
+	 * Number of requests that are sent at the same time.
+	 */
+	int maxConcurrentRequests = 1;
+
+	boolean followRedirects = true;
+
+	MediaInfoIdCache cache = null;
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param connection
+	 *            API connection to the site of the files
+	 * @param siteIri
+	 *            the IRI of the site, e.g.,
+	 *            "http://commons.wikimedia.org/entity/"
+	 */
+	public MediaInfoIdResolver(ApiConnection connection, String siteIri) {
+		this.mediaInfoIdQueryAction = new MediaInfoIdQueryAction(connection,
+				siteIri);
+	}
+
+	/**
+	 * Returns the number of file names that are looked up in one request.
+	 *
+	 * @return number of names per request
+	 */
+	public int getMaxTitlesPerRequest() {
+		return this.maxTitlesPerRequest;
+	}
+
+	/**
+	 * Sets the number of file names that are looked up in one request. The
+	 * default is 50, which is the maximum that the API allows for normal
+	 * users; accounts with the "apihighlimits" right, such as bots, may use
+	 * up to 500.
+	 *
+	 * @param maxTitlesPerRequest
+	 *            number of names per request, at least 1
+	 */
+	public void setMaxTitlesPerRequest(int maxTitlesPerRequest) {
+		if (maxTitlesPerRequest < 1) {
+			throw new IllegalArgumentException(
+					"At least one title per request must be allowed.");
+		}
+		this.maxTitlesPerRequest = maxTitlesPerRequest;
+	}
+
+	/**
+	 * Returns the number of requests that are sent at the same time.
+	 *
+	 * @return number of concurrent requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return this.maxConcurrentRequests;
+	}
+
+	/**
+	 * Sets the number of requests that are sent at the same time. The default
+	 * is 1. Please keep this number small when accessing public sites to
+	 * avoid overloading them.
+	 *
+	 * @param maxConcurrentRequests
+	 *            number of concurrent requests, at least 1
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException(
+					"At least one request must be allowed.");
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	/**
+	 * Returns true if names of files that redirect to other files are
+	 * resolved to the ids of the redirect targets.
+	 *
+	 * @return true if redirects are followed
+	 */
+	public boolean isFollowRedirects() {
+		return this.followRedirects;
+	}
+
+	/**
+	 * Sets whether names of files that redirect to other files are resolved
+	 * to the ids of the redirect targets. This is enabled by default.
+	 *
+	 * @param followRedirects
+	 *            true if redirects should be followed
+	 */
+	public void setFollowRedirects(boolean followRedirects) {
+		this.followRedirects = followRedirects;
+	}
+
+	/**
+	 * Returns the cache used by this resolver, or null if there is none.
+	 *
+	 * @return the cache
+	 */
+	public MediaInfoIdCache getCache() {
+		return this.cache;
+	}
+
+	/**
+	 * Sets the cache used by this resolver. A cache can be shared by several
+	 * resolvers for the same site.
+	 *
+	 * @param cache
+	 *            the cache, or null to disable caching
+	 */
+	public void setCache(MediaInfoIdCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Resolves the given file names to MediaInfoIds.
+	 *
+	 * @param fileNames
+	 *            names of files, with or without "File:" prefix
+	 * @return map from the given file names to the MediaInfoIds, with null
+	 *         values for names for which no file was found
+	 * @throws IOException
+	 *             if there was an IO problem, such as missing network
+	 *             connection
+	 * @throws MediaWikiApiErrorException
+	 *             if the API returned an error
+	 */
+	public Map<String, MediaInfoIdValue> resolve(Collection<String> fileNames)
+			throws IOException, MediaWikiApiErrorException {
+		Set<String> names = new LinkedHashSet<>();
+		for (String fileName : fileNames) {
+			names.add(getCanonicalFileName(fileName));
+		}
+
+		Map<String, MediaInfoIdValue> resolved = new HashMap<>();
+		List<String> unknown;
+		MediaInfoIdCache cache = this.cache;
+		if (cache != null) {
+			unknown = cache.lookup(names, resolved);
+		} else {
+			unknown = new ArrayList<>(names);
+		}
+
+		List<List<String>> batches = new ArrayList<>();
+		for (int i = 0; i < unknown.size(); i += this.maxTitlesPerRequest) {
+			batches.add(unknown.subList(i,
+					Math.min(i + this.maxTitlesPerRequest, unknown.size())));
+		}
+		List<Map<String, MediaInfoIdValue>> batchResults;
+		if (this.maxConcurrentRequests > 1 && batches.size() > 1) {
+			batchResults = resolveConcurrently(batches);
+		} else {
+			batchResults = new ArrayList<>();
+			for (List<String> batch : batches) {
+				batchResults.add(resolveBatch(batch));
+			}
+		}
+
+		for (int i = 0; i < batches.size(); i++) {
+			for (String name : batches.get(i)) {
+				MediaInfoIdValue id = batchResults.get(i).get(name);
+				resolved.put(name, id);
+				if (cache != null) {
+					cache.put(name, id);
+				}
+			}
+		}
+
+		Map<String, MediaInfoIdValue> result = new HashMap<>();
+		for (String fileName : fileNames) {
+			result.put(fileName, resolved.get(getCanonicalFileName(fileName)));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the canonical form of a file name that is used for looking up
+	 * files and for caching.
+	 *
+	 * @param fileName
+	 *            name of a file, with or without "File:" prefix
+	 * @return the name with prefix, spaces instead of underscores, and the
+	 *         first letter of the name in upper case
+	 */
+	public static String getCanonicalFileName(String fileName) {
+		String name = fileName.replace('_', ' ').trim();
+		if (name.startsWith(FILE_PREFIX)) {
+			name = name.substring(FILE_PREFIX.length()).trim();
+		}
+		if (!name.isEmpty()) {
+			int first = name.codePointAt(0);
+			name = new StringBuilder()
+					.appendCodePoint(Character.toUpperCase(first))
+					.append(name, Character.charCount(first), name.length())
+					.toString();
+		}
+		return FILE_PREFIX + name;
+	}
+
+	/**
+	 * Looks up one batch of canonical file names.
+	 */
+	Map<String, MediaInfoIdValue> resolveBatch(List<String> names)
+			throws IOException, MediaWikiApiErrorException {
+		return this.mediaInfoIdQueryAction.getMediaInfoIds(names,
+				this.followRedirects);
+	}
+
+	/**
+	 * Looks up batches of file names with up to
+	 * {@link #maxConcurrentRequests} requests at a time, using a temporary
+	 * thread pool.
+	 */
+	List<Map<String, MediaInfoIdValue>> resolveConcurrently(
+			List<List<String>> batches) throws IOException,
+			MediaWikiApiErrorException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				this.maxConcurrentRequests, batches.size()));
+		try {
+			List<CompletableFuture<Map<String, MediaInfoIdValue>>> futures = new ArrayList<>();
+			for (List<String> batch : batches) {
+				futures.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						return resolveBatch(batch);
+					} catch (IOException | MediaWikiApiErrorException e) {
+						throw new CompletionException(e);
+					}
+				}, executor));
+			}
+			List<Map<String, MediaInfoIdValue>> results = new ArrayList<>();
+			for (CompletableFuture<Map<String, MediaInfoIdValue>> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while resolving file names");
+		} catch (ExecutionException e) {
+			throw WikibaseDataFetcher.unwrapExecutionException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when the server rejects a request with HTTP status 429
+ * (too many requests) or 503 (service unavailable) and asks the client to
+ * retry after some time with a Retry-After header.
+ */
+public class RateLimitedException extends IOException {
+
+	private static final long serialVersionUID = 2675472036713523812L;
+
+	private final long retryAfter;
+
+	/**
+	 * Constructs the exception.
+	 *
+	 * @param message
+	 *            the detail message
+	 * @param retryAfter
+	 *            the time in milliseconds after which the request may be
+	 *            retried
+	 */
+	public RateLimitedException(String message, long retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Returns the time after which the request may be retried.
+	 *
+	 * @return time in milliseconds
+	 */
+	public long getRetryAfter() {
+		return this.retryAfter;
+	}
+}
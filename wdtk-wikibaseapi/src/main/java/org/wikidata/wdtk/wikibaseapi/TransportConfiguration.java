@@ -0,0 +1,274 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Settings for the HTTP transport of an {@link ApiConnection}: how many
+ * connections are kept open and for how long, how many requests may run at
+ * the same time, which HTTP versions are used, and whether responses may be
+ * compressed. The defaults are those of the underlying HTTP client, which
+ * suit programs that send one request at a time. Programs that send many
+ * requests in parallel, for instance with
+ * {@link ApiConnection#sendJsonRequestAsync(String, java.util.Map)}, should
+ * raise the number of requests per host; with HTTP/2, all of these requests
+ * are multiplexed over a single connection.
+ * <p>
+ * A configuration is applied with
+ * {@link ApiConnection#setTransportConfiguration(TransportConfiguration)}.
+ * Changing it afterwards has no effect until it is set again.
+ */
+public class TransportConfiguration {
+
+	int maxIdleConnections = 5;
+	long keepAliveDuration = 300000;
+	int maxRequests = 64;
+	int maxRequestsPerHost = 5;
+	boolean http2Enabled = true;
+	boolean http2PriorKnowledge = false;
+	boolean compressionEnabled = true;
+
+	/**
+	 * Returns the maximal number of idle connections that are kept open for
+	 * later requests.
+	 *
+	 * @return number of idle connections
+	 */
+	public int getMaxIdleConnections() {
+		return this.maxIdleConnections;
+	}
+
+	/**
+	 * Sets the maximal number of idle connections that are kept open for
+	 * later requests. The default is 5.
+	 *
+	 * @param maxIdleConnections
+	 *            number of idle connections
+	 * @return this object
+	 */
+	public TransportConfiguration setMaxIdleConnections(int maxIdleConnections) {
+		if (maxIdleConnections < 0) {
+			throw new IllegalArgumentException(
+					"The number of idle connections must not be negative.");
+		}
+		this.maxIdleConnections = maxIdleConnections;
+		return this;
+	}
+
+	/**
+	 * Returns the time for which idle connections are kept open (keep-alive).
+	 *
+	 * @return keep-alive duration in milliseconds
+	 */
+	public long getKeepAliveDuration() {
+		return this.keepAliveDuration;
+	}
+
+	/**
+	 * Sets the time for which idle connections are kept open (keep-alive).
+	 * The default is five minutes.
+	 *
+	 * @param keepAliveDuration
+	 *            keep-alive duration in milliseconds, must be positive
+	 * @return this object
+	 */
+	public TransportConfiguration setKeepAliveDuration(long keepAliveDuration) {
+		if (keepAliveDuration <= 0) {
+			throw new IllegalArgumentException(
+					"The keep-alive duration must be positive.");
+		}
+		this.keepAliveDuration = keepAliveDuration;
+		return this;
+	}
+
+	/**
+	 * Returns the maximal number of asynchronous requests that are executed
+	 * at the same time.
+	 *
+	 * @return number of requests
+	 */
+	public int getMaxRequests() {
+		return this.maxRequests;
+	}
+
+	/**
+	 * Sets the maximal number of asynchronous requests that are executed at
+	 * the same time. Further requests are queued. The default is 64.
+	 * Synchronous requests are not limited by this setting.
+	 *
+	 * @param maxRequests
+	 *            number of requests, at least 1
+	 * @return this object
+	 */
+	public TransportConfiguration setMaxRequests(int maxRequests) {
+		if (maxRequests < 1) {
+			throw new IllegalArgumentException(
+					"At least one request must be allowed.");
+		}
+		this.maxRequests = maxRequests;
+		return this;
+	}
+
+	/**
+	 * Returns the maximal number of asynchronous requests that are executed
+	 * at the same time for each host.
+	 *
+	 * @return number of requests per host
+	 */
+	public int getMaxRequestsPerHost() {
+		return this.maxRequestsPerHost;
+	}
+
+	/**
+	 * Sets the maximal number of asynchronous requests that are executed at
+	 * the same time for each host. Further requests are queued. The default
+	 * is 5. Synchronous requests are not limited by this setting.
+	 *
+	 * @param maxRequestsPerHost
+	 *            number of requests per host, at least 1
+	 * @return this object
+	 */
+	public TransportConfiguration setMaxRequestsPerHost(int maxRequestsPerHost) {
+		if (maxRequestsPerHost < 1) {
+			throw new IllegalArgumentException(
+					"At least one request per host must be allowed.");
+		}
+		this.maxRequestsPerHost = maxRequestsPerHost;
+		return this;
+	}
+
+	/**
+	 * Returns true if HTTP/2 is used for servers that support it.
+	 *
+	 * @return true if HTTP/2 is enabled
+	 */
+	public boolean isHttp2Enabled() {
+		return this.http2Enabled;
+	}
+
+	/**
+	 * Sets whether HTTP/2 is used for servers that support it. HTTP/2 is
+	 * negotiated when connecting via HTTPS, and HTTP/1.1 is used otherwise.
+	 * It is enabled by default.
+	 *
+	 * @param http2Enabled
+	 *            true if HTTP/2 should be used
+	 * @return this object
+	 */
+	public TransportConfiguration setHttp2Enabled(boolean http2Enabled) {
+		this.http2Enabled = http2Enabled;
+		return this;
+	}
+
+	/**
+	 * Returns true if HTTP/2 is used without negotiation, which is required
+	 * for unencrypted connections.
+	 *
+	 * @return true if the server is known to speak HTTP/2
+	 */
+	public boolean isHttp2PriorKnowledge() {
+		return this.http2PriorKnowledge;
+	}
+
+	/**
+	 * Sets whether HTTP/2 is used without negotiation. This only works with
+	 * servers that are known to support HTTP/2 over plain HTTP connections,
+	 * such as local proxies or test servers. It is disabled by default.
+	 *
+	 * @param http2PriorKnowledge
+	 *            true if the server is known to speak HTTP/2
+	 * @return this object
+	 */
+	public TransportConfiguration setHttp2PriorKnowledge(
+			boolean http2PriorKnowledge) {
+		this.http2PriorKnowledge = http2PriorKnowledge;
+		return this;
+	}
+
+	/**
+	 * Returns true if the server may send compressed responses.
+	 *
+	 * @return true if response compression is enabled
+	 */
+	public boolean isCompressionEnabled() {
+		return this.compressionEnabled;
+	}
+
+	/**
+	 * Sets whether the server may send compressed (gzip) responses, which
+	 * are decompressed transparently. This reduces the amount of data
+	 * transferred for large responses at the cost of some processing time.
+	 * It is enabled by default.
+	 *
+	 * @param compressionEnabled
+	 *            true if responses may be compressed
+	 * @return this object
+	 */
+	public TransportConfiguration setCompressionEnabled(
+			boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+		return this;
+	}
+
+	/**
+	 * Applies the settings to a client builder.
+	 *
+	 * @param builder
+	 *            the builder to modify
+	 */
+	void configure(OkHttpClient.Builder builder) {
+		builder.connectionPool(new ConnectionPool(this.maxIdleConnections,
+				this.keepAliveDuration, TimeUnit.MILLISECONDS));
+		Dispatcher dispatcher = new Dispatcher();
+		dispatcher.setMaxRequests(this.maxRequests);
+		dispatcher.setMaxRequestsPerHost(this.maxRequestsPerHost);
+		builder.dispatcher(dispatcher);
+		builder.protocols(getProtocols());
+		if (!this.compressionEnabled) {
+			// the client only asks for gzip if no encoding was requested
+			builder.addInterceptor(chain -> chain.proceed(chain.request()
+					.newBuilder().header("Accept-Encoding", "identity").build()));
+		}
+	}
+
+	/**
+	 * Returns the HTTP versions that the client may use.
+	 */
+	List<Protocol> getProtocols() {
+		if (this.http2PriorKnowledge) {
+			return Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+		} else if (this.http2Enabled) {
+			return Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+		} else {
+			return Collections.singletonList(Protocol.HTTP_1_1);
+		}
+	}
+
+}
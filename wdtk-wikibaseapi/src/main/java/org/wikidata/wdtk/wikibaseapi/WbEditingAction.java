@@ -92,35 +92,23 @@ public class WbEditingAction {
 	double maxLagBackOffFactor = 1.5;
 	
 	/**
-	 * Number of recent editing times to monitor in order to avoid editing too
-	 * fast. Wikidata.org seems to block fast editors after 9 edits, so this
-	 * size seems to make sense.
+	 * Number of edits that can be made in a burst before the average edit
+	 * speed is enforced. Wikidata.org seems to block fast editors after 9
+	 * edits, so this size seems to make sense.
 	 */
 	final static int editTimeWindow = 9;
 
-	/**
-	 * Average time to wait after each edit. Individual edits can be faster than
-	 * this, but it is ensured that this time will be taken per edit in the long
-	 * run.
-	 */
-	int averageMsecsPerEdit = 2000;
-
-	/**
-	 * Times of the last {@link #editTimeWindow} edits. Used in a loop. Most
-	 * recent edit time is at {@link #curEditTimeSlot}.
-	 */
-	final long[] recentEditTimes = new long[editTimeWindow];
-	/**
-	 * @see #recentEditTimes
-	 */
-	int curEditTimeSlot = 0;
-
 	/**
 	 * Number of edits that will be performed before the object enters
 	 * simulation mode, or -1 if there is no limit on the number of edits.
 	 */
 	int remainingEdits = -1;
 
+	/**
+	 * Cache whose documents must be invalidated after edits, or null.
+	 */
+	EntityDocumentCache entityDocumentCache = null;
+
 	/**
 	 * Creates an object to modify data on a Wikibase site. The API is used to
 	 * request the changes. The site URI is necessary since it is not contained
@@ -171,7 +159,7 @@ public class WbEditingAction {
 	 *
 	 * @return number of remaining edits
 	 */
-	public int getRemainingEdits() {
+	public synchronized int getRemainingEdits() {
 		return this.remainingEdits;
 	}
 
@@ -187,7 +175,7 @@ public class WbEditingAction {
 	 *            number of edits that can still be performed, or -1 to disable
 	 *            this limit (default setting)
 	 */
-	public void setRemainingEdits(int remainingEdits) {
+	public synchronized void setRemainingEdits(int remainingEdits) {
 		this.remainingEdits = remainingEdits;
 	}
 
@@ -201,22 +189,38 @@ public class WbEditingAction {
 	 * This means that it will only wait as long as necessary. If your program
 	 * takes time between edits for other reasons, there will be no additional
 	 * delay caused by this feature.
+	 * <p>
+	 * The speed is enforced by the {@link EditRateController} of the
+	 * connection, which is shared by all editing actions that use the same
+	 * connection. It may temporarily enforce a lower speed if the site is
+	 * overloaded. The value returned here is derived from the maximal rate of
+	 * that controller, so it reflects changes made through other editing
+	 * actions as well.
 	 *
-	 * @return average time per edit in milliseconds
+	 * @return average time per edit in milliseconds, or 0 if the edit rate
+	 *         is not limited
 	 */
 	public int getAverageTimePerEdit() {
-		return this.averageMsecsPerEdit;
+		double maxEditsPerSecond = this.connection.getEditRateController()
+				.getMaxEditsPerSecond();
+		if (maxEditsPerSecond == 0) {
+			return 0;
+		}
+		return (int) Math.round(1000.0 / maxEditsPerSecond);
 	}
 
 	/**
 	 * Sets the average time that a single edit should take, measured in
-	 * milliseconds. See {@link #getAverageTimePerEdit()} for details.
+	 * milliseconds. See {@link #getAverageTimePerEdit()} for details. Since
+	 * the speed is controlled per connection, this also affects other editing
+	 * actions that use the same connection.
 	 *
 	 * @param milliseconds
-	 *            the new value in milliseconds
+	 *            the new value in milliseconds, or 0 to disable the limit
 	 */
 	public void setAverageTimePerEdit(int milliseconds) {
-		this.averageMsecsPerEdit = milliseconds;
+		this.connection.getEditRateController().setMaxEditsPerSecond(
+				milliseconds > 0 ? 1000.0 / milliseconds : 0);
 	}
 
 	/**
@@ -728,37 +732,43 @@ public class WbEditingAction {
 		parameters.put("maxlag", Integer.toString(this.maxLag));
 		parameters.put("token", connection.getOrFetchToken("csrf"));
 
-		if (this.remainingEdits > 0) {
-			this.remainingEdits--;
-		} else if (this.remainingEdits == 0) {
-			logger.info("Not editing entity (simulation mode). Request parameters were: "
-					+ parameters.toString());
-			return null;
+		synchronized (this) {
+			if (this.remainingEdits > 0) {
+				this.remainingEdits--;
+			} else if (this.remainingEdits == 0) {
+				logger.info("Not editing entity (simulation mode). Request parameters were: "
+						+ parameters.toString());
+				return null;
+			}
 		}
 
-		checkEditSpeed();
+		EditRateController rateController = this.connection.getEditRateController();
+		rateController.acquire();
 		JsonNode result = null;
 		
 		int retry = getMaxLagMaxRetries();
 		int maxLagSleepTime = getMaxLagFirstWaitTime();
-		MediaWikiApiErrorException lastException = null;
+		Exception lastException = null;
 		while (retry > 0) {
 			try {
 				result = this.connection.sendJsonRequest("POST", parameters);
+				rateController.onSuccess();
 				break;
 			} catch (TokenErrorException e) { // try again with a fresh token
 				lastException = e;
 				connection.clearToken("csrf");
 				parameters.put("token", connection.getOrFetchToken("csrf"));
-			} catch (MaxlagErrorException e) { // wait for 5 seconds
+			} catch (MaxlagErrorException e) { // all editors pause and slow down
 				lastException = e;
 				logger.warn(e.getMessage() + String.format(" -- pausing for %d milliseconds.", maxLagSleepTime));
-				try {
-					Thread.sleep(maxLagSleepTime);
-				} catch (InterruptedException ex) {
-					Thread.currentThread().interrupt();
-				}
+				rateController.onMaxlag(e.getLag(), maxLagSleepTime);
+				rateController.awaitPause();
 				maxLagSleepTime *= getMaxLagBackOffFactor();
+			} catch (RateLimitedException e) {
+				lastException = e;
+				logger.warn(e.getMessage() + String.format(" -- pausing for %d milliseconds.", e.getRetryAfter()));
+				rateController.onRetryAfter(e.getRetryAfter());
+				rateController.awaitPause();
 			}
 			retry--;
 		}
@@ -766,11 +776,72 @@ public class WbEditingAction {
 		if (retry == 0 && lastException != null) {
 			logger.error("Gave up after several retries. Last error was: "
 					+ lastException.toString());
-			throw lastException;
+			if (lastException instanceof IOException) {
+				throw (IOException) lastException;
+			}
+			throw (MediaWikiApiErrorException) lastException;
 		}
 
+		invalidateCachedDocuments(id, result);
 		return result;
 	}
+
+	/**
+	 * Returns the cache whose documents are invalidated after edits, or null
+	 * if there is none.
+	 *
+	 * @return the cache or null
+	 */
+	public EntityDocumentCache getEntityDocumentCache() {
+		return this.entityDocumentCache;
+	}
+
+	/**
+	 * Sets a cache whose documents should be invalidated whenever an entity
+	 * is edited, typically the cache of a {@link WikibaseDataFetcher}.
+	 *
+	 * @param entityDocumentCache
+	 *            the cache, or null if no cache should be updated
+	 */
+	public void setEntityDocumentCache(EntityDocumentCache entityDocumentCache) {
+		this.entityDocumentCache = entityDocumentCache;
+	}
+
+	/**
+	 * Removes the documents of the edited entity from the cache, if any. The
+	 * entity is found from the id parameter of the request or, for edits by
+	 * title and statement edits, from the response.
+	 *
+	 * @param id
+	 *            the id parameter of the request, or null
+	 * @param response
+	 *            the JSON response of the API
+	 */
+	void invalidateCachedDocuments(String id, JsonNode response) {
+		EntityDocumentCache cache = this.entityDocumentCache;
+		if (cache == null || response == null) {
+			return;
+		}
+		if (id != null) {
+			cache.invalidate(id);
+		}
+		String responseId = response.path("entity").path("id").textValue();
+		if (responseId != null) {
+			cache.invalidate(responseId);
+		}
+		invalidateStatementEntity(cache, response.path("claim").path("id").textValue());
+		for (JsonNode statementId : response.path("claims")) {
+			invalidateStatementEntity(cache, statementId.textValue());
+		}
+	}
+
+	private void invalidateStatementEntity(EntityDocumentCache cache,
+			String statementId) {
+		if (statementId != null && statementId.indexOf('$') > 0) {
+			cache.invalidate(statementId.substring(0, statementId.indexOf('$'))
+					.toUpperCase());
+		}
+	}
 	
 	/**
 	 * TODO: TO BE REFACTORED
@@ -815,35 +886,6 @@ public class WbEditingAction {
 				.readValue(entityNode);
 	}
 
-	/**
-	 * Makes sure that we are not editing too fast. The method stores the last
-	 * {@link WbEditingAction#editTimeWindow} time points when an edit was
-	 * made. If the time since the oldest edit in this window is shorter than
-	 * {@link #averageMsecsPerEdit} milliseconds, then the method will pause the
-	 * thread for the remaining time.
-	 */
-	private void checkEditSpeed() {
-		long currentTime = System.nanoTime();
-		int nextIndex = (this.curEditTimeSlot + 1) % editTimeWindow;
-		if (this.recentEditTimes[nextIndex] != 0
-				&& (currentTime - this.recentEditTimes[nextIndex]) / 1000000 < this.averageMsecsPerEdit
-						* editTimeWindow) {
-			long sleepTime = this.averageMsecsPerEdit * editTimeWindow
-					- (currentTime - this.recentEditTimes[nextIndex]) / 1000000;
-			logger.info("We are editing too fast. Pausing for " + sleepTime
-					+ " milliseconds.");
-			try {
-				Thread.sleep(sleepTime);
-			} catch (InterruptedException ex) {
-				Thread.currentThread().interrupt();
-			}
-			currentTime = System.nanoTime();
-		}
-
-		this.recentEditTimes[nextIndex] = currentTime;
-		this.curEditTimeSlot = nextIndex;
-	}
-	
 	/**
 	 * Number of times we should retry if an editing action fails because
 	 * the lag is too high.
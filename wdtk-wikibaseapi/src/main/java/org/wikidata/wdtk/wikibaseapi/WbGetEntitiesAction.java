@@ -24,10 +24,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
@@ -41,10 +39,13 @@ import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * Java implementation of the wbgetentities action.
@@ -69,6 +70,11 @@ public class WbGetEntitiesAction {
 	 */
 	final ObjectMapper mapper;
 
+	/**
+	 * Reader used for deserializing entity documents.
+	 */
+	final ObjectReader entityReader;
+
 	/**
 	 * Creates an object to fetch data from the given ApiConnection. The site
 	 * URI is necessary since it is not contained in the data retrieved from the
@@ -85,6 +91,8 @@ public class WbGetEntitiesAction {
 		this.connection = connection;
 		this.siteIri = siteIri;
 		this.mapper = new DatamodelMapper(siteIri);
+		this.entityReader = this.mapper.readerFor(EntityDocumentImpl.class)
+				.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
 	}
 
 	/**
@@ -199,61 +207,111 @@ public class WbGetEntitiesAction {
 
 		Map<String, EntityDocument> result = new HashMap<>();
 
-		JsonNode root = this.connection.sendJsonRequest("POST", parameters);
+		this.connection.sendStreamingJsonRequest("POST", parameters,
+				"entities", parser -> {
+					if (parser.currentToken() != JsonToken.START_OBJECT) {
+						parser.skipChildren();
+						return;
+					}
+					int i = 0;
+					while (parser.nextToken() == JsonToken.FIELD_NAME) {
+						String key = parser.currentName();
+						parser.nextToken();
+						String title = i < titlesList.size() ? titlesList.get(i)
+								: null;
+						readEntity(parser, key, titles != null, sites, title,
+								result);
+						i++;
+					}
+				});
 
-		JsonNode entities = root.path("entities");
-		Iterator<Entry<String,JsonNode>> entitiesIterator = entities.fields();
-		int i = 0;
-		while(entitiesIterator.hasNext()) {
-			Entry<String,JsonNode> entry = entitiesIterator.next();
-			JsonNode entityNode = entry.getValue();
-			if(!entityNode.has("missing")) {
-				try {
-					EntityDocument ed = mapper.reader()
-							.with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT)
-							.treeToValue(entityNode, EntityDocumentImpl.class);
+		return result;
+	}
 
-					if (titles == null) {
-						// We use the JSON key rather than the id of the value
-						// so that retrieving redirected entities works.
-						result.put(entry.getKey(), ed);
-					} else {
-						if (ed instanceof ItemDocument) {
-							SiteLink siteLink = ((ItemDocument) ed).getSiteLinks().get(sites);
-							if(siteLink != null) {
-								result.put(siteLink.getPageTitle(), ed);
-							}
-						} else if(ed instanceof MediaInfoDocument) {
-							result.put(entityNode.get("title").textValue(), ed);
-						}
-					}
-				} catch (JsonProcessingException e) {
-					throw new MalformedResponseException(
-							"Error when reading JSON for entity " + entityNode.path("id").asText("UNKNOWN"), e);
+	/**
+	 * Reads the JSON of one entity returned by the API and adds the
+	 * resulting document to the result map. The entity is first copied to a
+	 * token buffer so that missing entities, which have no type information,
+	 * can be recognized before deserializing. This avoids building a JSON
+	 * tree for the entity.
+	 *
+	 * @param parser
+	 *            parser positioned at the start of the entity
+	 * @param key
+	 *            the key of the entity in the API result
+	 * @param byTitles
+	 *            true if entities were requested by title rather than by id
+	 * @param sites
+	 *            site key used with titles, or null
+	 * @param title
+	 *            requested title at the position of this entity, or null
+	 * @param result
+	 *            the map to add the document to
+	 * @throws IOException
+	 *             if the JSON cannot be read
+	 */
+	void readEntity(JsonParser parser, String key, boolean byTitles,
+			String sites, String title, Map<String, EntityDocument> result)
+			throws IOException {
+		TokenBuffer buffer = new TokenBuffer(parser);
+		buffer.copyCurrentStructure(parser);
+
+		boolean missing = false;
+		String id = null;
+		String pageTitle = null;
+		try (JsonParser fieldParser = buffer.asParser()) {
+			fieldParser.nextToken();
+			while (fieldParser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = fieldParser.currentName();
+				JsonToken token = fieldParser.nextToken();
+				if ("missing".equals(fieldName)) {
+					missing = true;
+				} else if ("id".equals(fieldName) && token.isScalarValue()) {
+					id = fieldParser.getValueAsString();
+				} else if ("title".equals(fieldName) && token.isScalarValue()) {
+					pageTitle = fieldParser.getValueAsString();
 				}
-			} else if(entityNode.has("id")) {
-				try {
-					EntityIdValue entityIdValue = EntityIdValueImpl.fromId(entityNode.get("id").asText(), siteIri);
-					if(entityIdValue instanceof MediaInfoIdValue) {
-						//TODO: bad hack, it would be much nicer if the API would return the page title
-                                                MediaInfoDocument emptyDocument = Datamodel.makeMediaInfoDocument((MediaInfoIdValue) entityIdValue);
-                                                String key = null;
-                                                if (titles != null) {
-                                                        key = titlesList.get(i);
-                                                } else {
-                                                        key = entityIdValue.getId();
-                                                }
-                                                result.put(key, emptyDocument);
+				fieldParser.skipChildren();
+			}
+		}
+
+		if (!missing) {
+			EntityDocument ed;
+			try (JsonParser entityParser = buffer.asParser(this.entityReader)) {
+				ed = this.entityReader.readValue(entityParser);
+			} catch (JsonProcessingException e) {
+				throw new MalformedResponseException(
+						"Error when reading JSON for entity "
+								+ (id == null ? "UNKNOWN" : id), e);
+			}
+
+			if (!byTitles) {
+				// We use the JSON key rather than the id of the value
+				// so that retrieving redirected entities works.
+				result.put(key, ed);
+			} else {
+				if (ed instanceof ItemDocument) {
+					SiteLink siteLink = ((ItemDocument) ed).getSiteLinks().get(sites);
+					if (siteLink != null) {
+						result.put(siteLink.getPageTitle(), ed);
 					}
-				} catch (IllegalArgumentException e) {
-					throw new MalformedResponseException(
-							"Invalid entity id returned: " + entityNode.get("id").asText(), e);
+				} else if (ed instanceof MediaInfoDocument) {
+					result.put(pageTitle, ed);
+				}
+			}
+		} else if (id != null) {
+			try {
+				EntityIdValue entityIdValue = EntityIdValueImpl.fromId(id, siteIri);
+				if (entityIdValue instanceof MediaInfoIdValue) {
+					//TODO: bad hack, it would be much nicer if the API would return the page title
+					MediaInfoDocument emptyDocument = Datamodel.makeMediaInfoDocument((MediaInfoIdValue) entityIdValue);
+					result.put(byTitles ? title : entityIdValue.getId(), emptyDocument);
 				}
+			} catch (IllegalArgumentException e) {
+				throw new MalformedResponseException(
+						"Invalid entity id returned: " + id, e);
 			}
-			i++;
 		}
-
-		return result;
 	}
 
 }
@@ -296,6 +296,30 @@ public class WikibaseDataEditor {
 		this.wbEditingAction.setRemainingEdits(0);
 	}
 
+	/**
+	 * Returns the cache whose documents are invalidated after edits. See
+	 * {@link WbEditingAction#getEntityDocumentCache()} for details.
+	 *
+	 * @return the cache or null
+	 */
+	public EntityDocumentCache getEntityDocumentCache() {
+		return this.wbEditingAction.getEntityDocumentCache();
+	}
+
+	/**
+	 * Sets a cache whose documents should be invalidated whenever this object
+	 * edits an entity. This should be the cache used by the
+	 * {@link WikibaseDataFetcher} objects of the application. See
+	 * {@link WbEditingAction#setEntityDocumentCache(EntityDocumentCache)} for
+	 * details.
+	 *
+	 * @param entityDocumentCache
+	 *            the cache, or null if no cache should be updated
+	 */
+	public void setEntityDocumentCache(EntityDocumentCache entityDocumentCache) {
+		this.wbEditingAction.setEntityDocumentCache(entityDocumentCache);
+	}
+
 	private EntityDocument createDocument(
 			String type, EntityDocument document, String summary, List<String> tags)
 			throws IOException, MediaWikiApiErrorException {
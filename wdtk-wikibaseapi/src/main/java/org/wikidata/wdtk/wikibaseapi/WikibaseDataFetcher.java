@@ -21,12 +21,24 @@ package org.wikidata.wdtk.wikibaseapi;
  */
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
 import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MaxlagErrorException;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 
 /**
@@ -37,6 +49,9 @@ import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
  */
 public class WikibaseDataFetcher {
 
+	static final Logger logger = LoggerFactory
+			.getLogger(WikibaseDataFetcher.class);
+
 	/**
 	 * API Action to fetch data.
 	 */
@@ -62,6 +77,29 @@ public class WikibaseDataFetcher {
 	 */
 	int maxListSize = 50;
 
+	/**
+	 * Maximal number of API requests that are sent at the same time when
+	 * fetching more entities than fit into one request.
+	 */
+	int maxConcurrentRequests = 1;
+
+	/**
+	 * Maximal number of times a request for entity data is retried when the
+	 * site asks to retry later or reports too much lag.
+	 */
+	int maxRetries = 5;
+
+	/**
+	 * Time in milliseconds to wait before the first retry after a maxlag
+	 * error. It is multiplied by 1.5 for each further retry.
+	 */
+	long maxlagFirstWaitTime = 1000;
+
+	/**
+	 * Cache for documents fetched by id, or null if no cache is used.
+	 */
+	EntityDocumentCache entityDocumentCache = null;
+
 	/**
 	 * Creates an object to fetch data from wikidata.org. This convenience
 	 * method creates a default {@link ApiConnection} that is not logged in. To
@@ -123,6 +161,88 @@ public class WikibaseDataFetcher {
 		return this.filter;
 	}
 
+	/**
+	 * Returns the maximal number of API requests that are sent at the same
+	 * time by {@link #getEntityDocuments(List)}. The default is 1, meaning
+	 * that requests are sent one after another.
+	 *
+	 * @return the maximal number of concurrent requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return this.maxConcurrentRequests;
+	}
+
+	/**
+	 * Sets the maximal number of API requests that are sent at the same time
+	 * by {@link #getEntityDocuments(List)} when more entities are requested
+	 * than fit into one request. Please keep this number small when accessing
+	 * public sites to avoid overloading them.
+	 *
+	 * @param maxConcurrentRequests
+	 *            the maximal number of concurrent requests, at least 1
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		if (maxConcurrentRequests < 1) {
+			throw new IllegalArgumentException(
+					"At least one request must be allowed.");
+		}
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+
+	/**
+	 * Returns the maximal number of times a request for entity data is
+	 * retried when the site asks to retry later (HTTP status 429 or 503 with
+	 * a Retry-After header) or reports too much lag. The default is 5.
+	 *
+	 * @return the maximal number of retries
+	 */
+	public int getMaxRetries() {
+		return this.maxRetries;
+	}
+
+	/**
+	 * Sets the maximal number of times a request for entity data is retried
+	 * when the site asks to retry later or reports too much lag. Before a
+	 * retry, all requests that use the same {@link ApiConnection} pause for
+	 * the time requested by the site, using the connection's
+	 * {@link ApiConnection#getEditRateController() rate controller}.
+	 *
+	 * @param maxRetries
+	 *            the maximal number of retries, 0 to give up at once
+	 */
+	public void setMaxRetries(int maxRetries) {
+		if (maxRetries < 0) {
+			throw new IllegalArgumentException(
+					"The number of retries must not be negative.");
+		}
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Returns the cache used for documents fetched by id, or null if no cache
+	 * is used (default).
+	 *
+	 * @return the cache or null
+	 */
+	public EntityDocumentCache getEntityDocumentCache() {
+		return this.entityDocumentCache;
+	}
+
+	/**
+	 * Sets a cache for documents fetched by id with
+	 * {@link #getEntityDocuments(List)} and related methods. Documents are
+	 * cached separately for each setting of the {@link #getFilter() filter}.
+	 * The same cache can be shared by several fetchers for the same site, and
+	 * should be set on a {@link WikibaseDataEditor} as well so that entities
+	 * edited through it are not served from the cache afterwards.
+	 *
+	 * @param entityDocumentCache
+	 *            the cache to use, or null to disable caching
+	 */
+	public void setEntityDocumentCache(EntityDocumentCache entityDocumentCache) {
+		this.entityDocumentCache = entityDocumentCache;
+	}
+
 	/**
 	 * Fetches the documents for the entity of the given string IDs. The result
 	 * is an {@link EntityDocument} or null if the data could not be fetched.
@@ -171,6 +291,22 @@ public class WikibaseDataFetcher {
 	 */
 	public Map<String, EntityDocument> getEntityDocuments(List<String> entityIds)
 			throws MediaWikiApiErrorException, IOException {
+		if (this.entityDocumentCache != null) {
+			return getEntityDocumentsCached(entityIds);
+		}
+		return fetchEntityDocuments(entityIds);
+	}
+
+	/**
+	 * Fetches the documents for the given IDs from the API, without using
+	 * the cache.
+	 */
+	Map<String, EntityDocument> fetchEntityDocuments(List<String> entityIds)
+			throws MediaWikiApiErrorException, IOException {
+		if (this.maxConcurrentRequests > 1 && entityIds.size() > maxListSize) {
+			return getEntityDocumentsConcurrently(entityIds);
+		}
+
 		Map<String, EntityDocument> result = new HashMap<>();
 		List<String> newEntityIds = new ArrayList<>(entityIds);
 		boolean moreItems = !newEntityIds.isEmpty();
@@ -190,6 +326,207 @@ public class WikibaseDataFetcher {
 		return result;
 	}
 
+	/**
+	 * Answers a request for documents from the cache where possible. Cached
+	 * documents that are due for revalidation are checked in one batched
+	 * request for their current revision ids, and only the documents that
+	 * are outdated or not cached at all are fetched.
+	 */
+	Map<String, EntityDocument> getEntityDocumentsCached(List<String> entityIds)
+			throws MediaWikiApiErrorException, IOException {
+		EntityDocumentCache cache = this.entityDocumentCache;
+		WbGetEntitiesActionData properties = new WbGetEntitiesActionData();
+		configureProperties(properties);
+		String requestKey = EntityDocumentCache.getRequestKey(properties);
+
+		Map<String, EntityDocument> result = new HashMap<>();
+		List<String> missingIds = new ArrayList<>();
+		Map<String, EntityDocumentCache.CacheEntry> staleEntries = new LinkedHashMap<>();
+		int hits = 0;
+		for (String entityId : new LinkedHashSet<>(entityIds)) {
+			EntityDocumentCache.CacheEntry entry = cache.getEntry(entityId,
+					requestKey);
+			if (entry == null) {
+				missingIds.add(entityId);
+			} else if (cache.isFresh(entry)) {
+				result.put(entityId, entry.document);
+				hits++;
+			} else {
+				staleEntries.put(entityId, entry);
+			}
+		}
+
+		int revalidated = 0;
+		if (!staleEntries.isEmpty()) {
+			Map<String, Long> revisionIds = getRevisionIds(new ArrayList<>(
+					staleEntries.keySet()));
+			for (Map.Entry<String, EntityDocumentCache.CacheEntry> stale : staleEntries
+					.entrySet()) {
+				EntityDocument document = stale.getValue().document;
+				Long revisionId = revisionIds.get(stale.getKey());
+				if (revisionId != null && revisionId == document.getRevisionId()) {
+					cache.markValidated(stale.getValue());
+					result.put(stale.getKey(), document);
+					revalidated++;
+				} else {
+					missingIds.add(stale.getKey());
+				}
+			}
+		}
+
+		if (!missingIds.isEmpty()) {
+			long generation = cache.getGeneration();
+			Map<String, EntityDocument> fetched = fetchEntityDocuments(missingIds);
+			for (Map.Entry<String, EntityDocument> entry : fetched.entrySet()) {
+				cache.put(entry.getKey(), requestKey, entry.getValue(),
+						generation);
+			}
+			result.putAll(fetched);
+		}
+
+		cache.recordRequest(hits + revalidated, missingIds.size(),
+				revalidated, staleEntries.size() - revalidated);
+		return result;
+	}
+
+	/**
+	 * Fetches the current revision ids of the given entities, without
+	 * fetching any of their data. Entities that do not exist are not
+	 * contained in the result.
+	 */
+	Map<String, Long> getRevisionIds(List<String> entityIds)
+			throws MediaWikiApiErrorException, IOException {
+		Map<String, Long> result = new HashMap<>();
+		for (int i = 0; i < entityIds.size(); i += maxListSize) {
+			List<String> chunk = entityIds.subList(i,
+					Math.min(i + maxListSize, entityIds.size()));
+			WbGetEntitiesActionData properties = new WbGetEntitiesActionData();
+			properties.ids = ApiConnection.implodeObjects(chunk);
+			properties.props = "info";
+			wbGetEntities(properties).forEach(
+					(id, document) -> result.put(id, document.getRevisionId()));
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs
+	 * asynchronously. The IDs are split into chunks that fit into one API
+	 * request, and each chunk is fetched as a separate task on the given
+	 * executor. The number of concurrent requests is therefore bounded by the
+	 * number of threads of the executor.
+	 * <p>
+	 * The resulting map is as for {@link #getEntityDocuments(List)}. Requests
+	 * that the site asks to retry later are retried as described for
+	 * {@link #setMaxRetries(int)}. If any request fails, the future completes exceptionally with a
+	 * {@link CompletionException} that wraps the
+	 * {@link MediaWikiApiErrorException} or {@link IOException}.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @param executor
+	 *            the executor that runs the requests
+	 * @return future map from IDs for which data could be found to the
+	 *         documents that were retrieved
+	 */
+	public CompletableFuture<Map<String, EntityDocument>> getEntityDocumentsAsync(
+			List<String> entityIds, Executor executor) {
+		Map<String, EntityDocument> result = new ConcurrentHashMap<>();
+		return getEntityDocumentsAsync(entityIds, executor, result::put)
+				.thenApply(v -> result);
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs
+	 * asynchronously, and passes each document to the given consumer as soon
+	 * as the response that contains it has been read. This works like
+	 * {@link #getEntityDocumentsAsync(List, Executor)}, but avoids collecting
+	 * all documents in memory.
+	 * <p>
+	 * The consumer is called from the threads of the executor, possibly
+	 * concurrently, so it must be thread-safe. IDs for which no data could be
+	 * found are not passed to the consumer.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @param executor
+	 *            the executor that runs the requests
+	 * @param consumer
+	 *            receives each requested ID with its document
+	 * @return future that completes once all documents have been consumed
+	 */
+	public CompletableFuture<Void> getEntityDocumentsAsync(
+			List<String> entityIds, Executor executor,
+			BiConsumer<String, EntityDocument> consumer) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < entityIds.size(); i += maxListSize) {
+			List<String> chunk = entityIds.subList(i,
+					Math.min(i + maxListSize, entityIds.size()));
+			// prepare parameters on the calling thread, in case the filter
+			// is changed while requests are running
+			WbGetEntitiesActionData properties = new WbGetEntitiesActionData();
+			properties.ids = ApiConnection.implodeObjects(chunk);
+			configureProperties(properties);
+			futures.add(CompletableFuture.runAsync(() -> {
+				try {
+					wbGetEntities(properties).forEach(consumer);
+				} catch (MediaWikiApiErrorException | IOException e) {
+					throw new CompletionException(e);
+				}
+			}, executor));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+	}
+
+	/**
+	 * Fetches entity documents with up to {@link #maxConcurrentRequests}
+	 * requests at a time, using a temporary thread pool.
+	 */
+	Map<String, EntityDocument> getEntityDocumentsConcurrently(
+			List<String> entityIds) throws MediaWikiApiErrorException,
+			IOException {
+		int chunks = (entityIds.size() + maxListSize - 1) / maxListSize;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				this.maxConcurrentRequests, chunks));
+		try {
+			return new HashMap<>(getEntityDocumentsAsync(
+					new ArrayList<>(entityIds), executor).get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted while fetching entity documents");
+		} catch (ExecutionException e) {
+			throw unwrapExecutionException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Unwraps the cause of an exception thrown by a future of the
+	 * asynchronous methods, so that it can be thrown again. Checked API and
+	 * I/O exceptions and errors are thrown directly. Runtime exceptions are
+	 * returned, and other causes are returned wrapped in a runtime exception,
+	 * so that callers can write {@code throw unwrapExecutionException(e);}.
+	 */
+	static RuntimeException unwrapExecutionException(ExecutionException e)
+			throws MediaWikiApiErrorException, IOException {
+		Throwable cause = e.getCause();
+		if (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof MediaWikiApiErrorException) {
+			throw (MediaWikiApiErrorException) cause;
+		} else if (cause instanceof IOException) {
+			throw (IOException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		} else if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		return new RuntimeException(cause);
+	}
+
 	/**
 	 * Fetches the document for the entity that has a page of the given title on
 	 * the given site. Site keys should be some site identifier known to the
@@ -353,6 +690,9 @@ public class WikibaseDataFetcher {
 	 * Otherwise, you may need to use
 	 * {@link WikibaseDataFetcher#getEntityDocumentsByTitle(String siteKey, List titles)}
 	 *
+	 * To resolve large numbers of file names, use {@link MediaInfoIdResolver},
+	 * which sends batches in parallel and can cache the results.
+	 *
 	 * @param fileNames
 	 *            list of file names of the requested MediaInfoIds
 	 * @return map from file names for which data could be found to the MediaInfoIds
@@ -401,7 +741,52 @@ public class WikibaseDataFetcher {
 			return Collections.emptyMap();
 		}
 		configureProperties(properties);
-		return this.wbGetEntitiesAction.wbGetEntities(properties);
+		return wbGetEntities(properties);
+	}
+
+	/**
+	 * Sends one wbgetentities request, and retries it up to
+	 * {@link #maxRetries} times if the site asks to retry later or reports
+	 * too much lag. Such responses are reported to the rate controller of
+	 * the connection, which makes all requests and edits through this
+	 * connection pause, so that requests running concurrently do not keep
+	 * sending at full rate.
+	 *
+	 * @param properties
+	 *            parameter setting for wbgetentities
+	 * @return map of document identifiers or titles to documents
+	 * @throws MediaWikiApiErrorException
+	 * @throws IOException
+	 */
+	Map<String, EntityDocument> wbGetEntities(
+			WbGetEntitiesActionData properties)
+			throws MediaWikiApiErrorException, IOException {
+		EditRateController rateController = this.wbGetEntitiesAction.connection
+				.getEditRateController();
+		long maxlagWaitTime = this.maxlagFirstWaitTime;
+		int retry = 0;
+		while (true) {
+			rateController.awaitPause();
+			try {
+				return this.wbGetEntitiesAction.wbGetEntities(properties);
+			} catch (RateLimitedException e) {
+				if (retry >= this.maxRetries) {
+					throw e;
+				}
+				logger.warn(e.getMessage() + String.format(
+						" -- pausing for %d milliseconds.", e.getRetryAfter()));
+				rateController.onRetryAfter(e.getRetryAfter());
+			} catch (MaxlagErrorException e) {
+				if (retry >= this.maxRetries) {
+					throw e;
+				}
+				logger.warn(e.getMessage() + String.format(
+						" -- pausing for %d milliseconds.", maxlagWaitTime));
+				rateController.onMaxlag(e.getLag(), maxlagWaitTime);
+				maxlagWaitTime = (long) (maxlagWaitTime * 1.5);
+			}
+			retry++;
+		}
 	}
 
 	public List<WbSearchEntitiesResult> searchEntities(String search)
@@ -30,7 +30,9 @@ import java.io.IOException;
 import java.net.HttpCookie;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +56,7 @@ import org.wikidata.wdtk.wikibaseapi.apierrors.MaxlagErrorException;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiErrorMessage;
 
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -420,6 +423,26 @@ public class BasicApiConnectionTest {
 		assertEquals("{\"entities\":{\"Q8\":{\"pageid\":134,\"ns\":0,\"title\":\"Q8\",\"lastrevid\":1174289176,\"modified\":\"2020-05-05T12:39:07Z\",\"type\":\"item\",\"id\":\"Q8\"}},\"success\":1}", mapper.writeValueAsString(root));
 	}
 
+	@Test
+	public void testStreamingGetMethod() throws IOException, MediaWikiApiErrorException {
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("action", "wbgetentities");
+		parameters.put("languages", "fr");
+		parameters.put("ids", "Q8");
+		parameters.put("sitefilter", "enwiki");
+		parameters.put("props", "info");
+		List<String> ids = new ArrayList<>();
+		JsonNode root = connection.sendStreamingJsonRequest("GET", parameters, "entities", parser -> {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				ids.add(parser.currentName());
+				parser.nextToken();
+				parser.skipChildren();
+			}
+		});
+		assertEquals(Collections.singletonList("Q8"), ids);
+		assertEquals("{\"success\":1}", mapper.writeValueAsString(root));
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testUnsupportedMethod() throws IOException, MediaWikiApiErrorException {
 		connection.sendJsonRequest("PUT", new HashMap<>());
@@ -0,0 +1,281 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.ItemUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.TermUpdateBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemUpdate;
+import org.wikidata.wdtk.wikibaseapi.apierrors.EditConflictErrorException;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class BulkEditExecutorTest {
+
+	MockWebServer server;
+	WikibaseDataEditor wde;
+	WikibaseDataFetcher wdf;
+
+	/**
+	 * Current revision of each entity on the mock server.
+	 */
+	final Map<String, Long> revisions = new ConcurrentHashMap<>();
+	final AtomicInteger inFlight = new AtomicInteger();
+	final AtomicInteger maxInFlight = new AtomicInteger();
+	final AtomicInteger conflicts = new AtomicInteger();
+	final AtomicInteger fetches = new AtomicInteger();
+
+	/**
+	 * Simulates a wiki that rejects edits which are not based on the current
+	 * revision of an entity.
+	 */
+	class EditingDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			Map<String, String> parameters = new HashMap<>();
+			for (String parameter : request.getBody().readUtf8().split("&")) {
+				int equals = parameter.indexOf('=');
+				parameters.put(parameter.substring(0, equals), URLDecoder.decode(
+						parameter.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+			String action = parameters.get("action");
+			if ("query".equals(action)) {
+				return jsonResponse("{\"batchcomplete\":\"\",\"query\":{\"tokens\":{\"csrftoken\":\"abc+\\\\\"}}}");
+			}
+			String id = parameters.containsKey("id") ? parameters.get("id")
+					: parameters.get("ids");
+			if ("wbgetentities".equals(action)) {
+				fetches.incrementAndGet();
+				return jsonResponse("{\"entities\":{\"" + id
+						+ "\":{\"type\":\"item\",\"id\":\"" + id
+						+ "\",\"lastrevid\":" + revisions.get(id)
+						+ ",\"labels\":{\"de\":{\"language\":\"de\",\"value\":\"Etwas\"}}}},\"success\":1}");
+			}
+
+			int current = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(current, Math::max);
+			try {
+				Thread.sleep(30);
+				long revision;
+				synchronized (revisions) {
+					long baseRevision = Long.parseLong(parameters.getOrDefault(
+							"baserevid", "0"));
+					if (baseRevision != 0 && baseRevision != revisions.get(id)) {
+						conflicts.incrementAndGet();
+						return jsonResponse("{\"error\":{\"code\":\"editconflict\",\"info\":\"Edit conflict.\"}}");
+					}
+					revision = revisions.merge(id, 1L, Long::sum);
+				}
+				return jsonResponse("{\"entity\":{\"type\":\"item\",\"id\":\""
+						+ id + "\",\"lastrevid\":" + revision + "},\"success\":1}");
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	static ItemUpdate makeLabelUpdate(String id, long baseRevisionId,
+			String label) {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue(id);
+		return ItemUpdateBuilder.forBaseRevisionId(itemId, baseRevisionId)
+				.updateLabels(TermUpdateBuilder.create()
+						.put(Datamodel.makeMonolingualTextValue(label, "en"))
+						.build())
+				.build();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setDispatcher(new EditingDispatcher());
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		wde = new WikibaseDataEditor(connection, Datamodel.SITE_WIKIDATA);
+		wde.setAverageTimePerEdit(0);
+		wdf = new WikibaseDataFetcher(connection, Datamodel.SITE_WIKIDATA);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testParallelEdits() throws InterruptedException {
+		List<CompletableFuture<EditingResult>> results = new ArrayList<>();
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 4)) {
+			for (int i = 1; i <= 12; i++) {
+				revisions.put("Q" + i, 5L);
+				results.add(executor.submit(makeLabelUpdate("Q" + i, 5, "Label"),
+						"test"));
+			}
+			executor.awaitCompletion();
+			assertEquals(0, executor.getPendingEntityCount());
+		}
+
+		for (CompletableFuture<EditingResult> result : results) {
+			assertEquals(6, result.join().getLastRevisionId().getAsLong());
+		}
+		assertTrue(maxInFlight.get() > 1);
+		assertTrue(maxInFlight.get() <= 4);
+		assertEquals(0, conflicts.get());
+	}
+
+	@Test
+	public void testEditsOfOneEntityAreSerialized() {
+		revisions.put("Q42", 5L);
+		List<CompletableFuture<EditingResult>> results = new ArrayList<>();
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 4)) {
+			for (int i = 0; i < 5; i++) {
+				results.add(executor.submit(makeLabelUpdate("Q42", 5, "Label "
+						+ i), "test"));
+			}
+		}
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(6 + i, results.get(i).join().getLastRevisionId()
+					.getAsLong());
+		}
+		assertEquals(1, maxInFlight.get());
+		assertEquals(0, conflicts.get());
+		assertEquals(10, (long) revisions.get("Q42"));
+	}
+
+	@Test
+	public void testConflictIsRebased() {
+		revisions.put("Q42", 9L);
+		EditingResult result;
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 2)) {
+			result = executor.submit(makeLabelUpdate("Q42", 5, "Label"),
+					"test").join();
+		}
+
+		assertEquals(10, result.getLastRevisionId().getAsLong());
+		assertEquals(1, conflicts.get());
+		assertEquals(1, fetches.get());
+	}
+
+	@Test
+	public void testForeignRevisionIsNotSkipped() {
+		revisions.put("Q42", 5L);
+		CompletableFuture<EditingResult> first;
+		CompletableFuture<EditingResult> second;
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 2)) {
+			executor.setMaxConflictRetries(0);
+			first = executor.submit(makeLabelUpdate("Q42", 5, "First"), "test");
+			// built on revision 3, so revision 4 by someone else was not seen
+			second = executor.submit(makeLabelUpdate("Q42", 3, "Second"),
+					"test");
+		}
+
+		assertEquals(6, first.join().getLastRevisionId().getAsLong());
+		try {
+			second.join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof EditConflictErrorException);
+			assertEquals(1, conflicts.get());
+			assertEquals(6, (long) revisions.get("Q42"));
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test
+	public void testConflictBypassesCache() {
+		revisions.put("Q42", 9L);
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		try {
+			wdf.getEntityDocument("Q42");
+		} catch (IOException | MediaWikiApiErrorException e) {
+			throw new AssertionError(e);
+		}
+		// someone else edits the entity after it was cached
+		revisions.put("Q42", 12L);
+
+		EditingResult result;
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 2)) {
+			result = executor.submit(makeLabelUpdate("Q42", 9, "Label"),
+					"test").join();
+		}
+
+		assertEquals(13, result.getLastRevisionId().getAsLong());
+		assertEquals(1, conflicts.get());
+		assertEquals(2, fetches.get());
+	}
+
+	@Test
+	public void testConflictWithoutRetries() {
+		revisions.put("Q42", 9L);
+		try (BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 2)) {
+			executor.setMaxConflictRetries(0);
+			executor.submit(makeLabelUpdate("Q42", 5, "Label"), "test").join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof EditConflictErrorException);
+			assertEquals(0, fetches.get());
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSubmitAfterClose() {
+		BulkEditExecutor executor = new BulkEditExecutor(wde, wdf, 1);
+		executor.close();
+		executor.submit(makeLabelUpdate("Q42", 5, "Label"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreads() {
+		new BulkEditExecutor(wde, wdf, 0);
+	}
+
+}
@@ -0,0 +1,275 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.ItemUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.TermUpdateBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.EntityUpdate;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemUpdate;
+import org.wikidata.wdtk.wikibaseapi.apierrors.EditConflictErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class CoalescingEditBufferTest {
+
+	MockWebServer server;
+	WikibaseDataEditor wde;
+
+	/**
+	 * Current revision of each entity on the mock server.
+	 */
+	final Map<String, Long> revisions = new ConcurrentHashMap<>();
+	/**
+	 * Parameters of all edit requests received by the mock server.
+	 */
+	final List<Map<String, String>> edits = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Simulates a wiki that rejects edits which are not based on the current
+	 * revision of an entity.
+	 */
+	class EditingDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request) {
+			Map<String, String> parameters = new HashMap<>();
+			for (String parameter : request.getBody().readUtf8().split("&")) {
+				int equals = parameter.indexOf('=');
+				parameters.put(parameter.substring(0, equals), URLDecoder.decode(
+						parameter.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+			if ("query".equals(parameters.get("action"))) {
+				return jsonResponse("{\"batchcomplete\":\"\",\"query\":{\"tokens\":{\"csrftoken\":\"abc+\\\\\"}}}");
+			}
+			edits.add(parameters);
+			String id = parameters.get("id");
+			long revision;
+			synchronized (revisions) {
+				long baseRevision = Long.parseLong(parameters.getOrDefault(
+						"baserevid", "0"));
+				if (baseRevision != 0 && baseRevision != revisions.get(id)) {
+					return jsonResponse("{\"error\":{\"code\":\"editconflict\",\"info\":\"Edit conflict.\"}}");
+				}
+				revision = revisions.merge(id, 1L, Long::sum);
+			}
+			return jsonResponse("{\"entity\":{\"type\":\"item\",\"id\":\"" + id
+					+ "\",\"lastrevid\":" + revision + "},\"success\":1}");
+		}
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	static ItemUpdate makeLabelUpdate(String id, long baseRevisionId,
+			String label, String language) {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue(id);
+		return ItemUpdateBuilder.forBaseRevisionId(itemId, baseRevisionId)
+				.updateLabels(TermUpdateBuilder.create()
+						.put(Datamodel.makeMonolingualTextValue(label, language))
+						.build())
+				.build();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setDispatcher(new EditingDispatcher());
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		wde = new WikibaseDataEditor(connection, Datamodel.SITE_WIKIDATA);
+		wde.setAverageTimePerEdit(0);
+		revisions.put("Q1", 5L);
+		revisions.put("Q42", 5L);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testUpdatesAreMergedWithinTimeWindow() {
+		CompletableFuture<EditingResult> first;
+		CompletableFuture<EditingResult> second;
+		CompletableFuture<EditingResult> third;
+		CompletableFuture<EditingResult> other;
+		try (CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 50, 10)) {
+			first = buffer.add(makeLabelUpdate("Q42", 5, "Douglas Adams", "en"),
+					"English label", Collections.singletonList("bot"));
+			second = buffer.add(makeLabelUpdate("Q42", 5, "Douglas Adams", "de"),
+					"German label", Collections.singletonList("bot"));
+			third = buffer.add(makeLabelUpdate("Q42", 5, "Douglas Adams", "fr"),
+					"English label", Arrays.asList("bot", "labels"));
+			other = buffer.add(makeLabelUpdate("Q1", 5, "Universe", "en"), null);
+
+			assertEquals(6, first.join().getLastRevisionId().getAsLong());
+			assertEquals(6, other.join().getLastRevisionId().getAsLong());
+			assertEquals(0, buffer.getPendingEntityCount());
+			assertEquals(4, buffer.getUpdateCount());
+			assertEquals(2, buffer.getEditCount());
+		}
+
+		assertSame(first.join(), second.join());
+		assertSame(first.join(), third.join());
+		assertEquals(2, edits.size());
+
+		Map<String, String> edit = edits.get(0);
+		assertEquals("wbeditentity", edit.get("action"));
+		assertEquals("Q42", edit.get("id"));
+		assertEquals("5", edit.get("baserevid"));
+		assertEquals("English label; German label", edit.get("summary"));
+		assertEquals("bot|labels", edit.get("tags"));
+		assertTrue(edit.get("data").contains("\"de\""));
+		assertTrue(edit.get("data").contains("\"fr\""));
+		assertEquals("wbsetlabel", edits.get(1).get("action"));
+	}
+
+	@Test
+	public void testSizeLimit() {
+		List<CompletableFuture<EditingResult>> results;
+		try (CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 60000, 2)) {
+			results = Arrays.asList(
+					buffer.add(makeLabelUpdate("Q42", 5, "A", "en"), "test"),
+					buffer.add(makeLabelUpdate("Q42", 5, "A", "de"), "test"),
+					buffer.add(makeLabelUpdate("Q42", 5, "A", "fr"), "test"));
+			assertEquals(6, results.get(1).join().getLastRevisionId()
+					.getAsLong());
+			assertEquals(1, buffer.getPendingEntityCount());
+		}
+
+		// the remaining update is written on close, based on revision 6
+		assertEquals(7, results.get(2).join().getLastRevisionId().getAsLong());
+		assertEquals(2, edits.size());
+		assertEquals("6", edits.get(1).get("baserevid"));
+	}
+
+	@Test
+	public void testForeignRevisionIsNotSkipped() {
+		CompletableFuture<EditingResult> first;
+		CompletableFuture<EditingResult> second;
+		try (CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 60000, 10)) {
+			first = buffer.add(makeLabelUpdate("Q42", 5, "A", "en"), "test");
+			buffer.flush();
+			// built on revision 3, so revision 4 by someone else was not seen
+			second = buffer.add(makeLabelUpdate("Q42", 3, "A", "de"), "test");
+		}
+
+		assertEquals(6, first.join().getLastRevisionId().getAsLong());
+		assertEquals("3", edits.get(1).get("baserevid"));
+		try {
+			second.join();
+			throw new AssertionError("Expected an exception");
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof EditConflictErrorException);
+		}
+	}
+
+	@Test
+	public void testFlush() {
+		try (CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 60000, 10)) {
+			CompletableFuture<EditingResult> result = buffer.add(
+					makeLabelUpdate("Q42", 5, "A", "en"), "test");
+			assertEquals(0, edits.size());
+			buffer.flush();
+			assertTrue(result.isDone());
+			assertEquals(1, edits.size());
+		}
+	}
+
+	@Test
+	public void testErrorsArePropagated() {
+		revisions.put("Q42", 9L);
+		CompletableFuture<EditingResult> first;
+		CompletableFuture<EditingResult> second;
+		try (CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 0, 10)) {
+			first = buffer.add(makeLabelUpdate("Q42", 5, "A", "en"), "test");
+			second = buffer.add(makeLabelUpdate("Q42", 5, "A", "de"), "test");
+		}
+
+		for (CompletableFuture<EditingResult> result : Arrays.asList(first,
+				second)) {
+			try {
+				result.join();
+				throw new AssertionError("Expected an exception");
+			} catch (CompletionException e) {
+				assertTrue(e.getCause() instanceof EditConflictErrorException);
+			}
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue("Q42");
+		EntityUpdate first = ItemUpdateBuilder.forBaseRevisionId(itemId, 7)
+				.updateLabels(TermUpdateBuilder.create()
+						.put(Datamodel.makeMonolingualTextValue("A", "en"))
+						.build())
+				.build();
+		EntityUpdate second = ItemUpdateBuilder.forBaseRevisionId(itemId, 5)
+				.updateLabels(TermUpdateBuilder.create().remove("en").build())
+				.build();
+		EntityUpdate expected = ItemUpdateBuilder.forBaseRevisionId(itemId, 5)
+				.updateLabels(TermUpdateBuilder.create().remove("en").build())
+				.build();
+
+		assertEquals(expected, CoalescingEditBuffer.merge(first, second));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddAfterClose() {
+		CoalescingEditBuffer buffer = new CoalescingEditBuffer(wde, 0, 1);
+		buffer.close();
+		buffer.add(makeLabelUpdate("Q42", 5, "A", "en"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new CoalescingEditBuffer(wde, 0, 0);
+	}
+
+}
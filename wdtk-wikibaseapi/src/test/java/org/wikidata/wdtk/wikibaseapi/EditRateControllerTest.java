@@ -0,0 +1,178 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class EditRateControllerTest {
+
+	@Test
+	public void testBurstAndRate() {
+		EditRateController controller = new EditRateController(20, 3);
+		long start = System.nanoTime();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, controller.acquire());
+		}
+		controller.acquire();
+		long elapsed = (System.nanoTime() - start) / 1000000;
+
+		assertTrue(elapsed >= 40);
+		assertEquals(4, controller.getAcquireCount());
+		assertTrue(controller.getTotalWaitTime() >= 40);
+		assertEquals(controller.getTotalWaitTime() / 4.0,
+				controller.getAverageWaitTime(), 1.0);
+		assertEquals(0, controller.getWaitingCount());
+	}
+
+	@Test
+	public void testUnlimited() {
+		EditRateController controller = new EditRateController(0, 1);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, controller.acquire());
+		}
+	}
+
+	@Test
+	public void testAdditiveIncreaseMultiplicativeDecrease() {
+		EditRateController controller = new EditRateController(10, 1);
+		controller.onMaxlag(6.5, 0);
+		assertEquals(5, controller.getCurrentEditsPerSecond(), 0.0001);
+		controller.onRetryAfter(0);
+		assertEquals(2.5, controller.getCurrentEditsPerSecond(), 0.0001);
+		controller.onSuccess();
+		assertEquals(3, controller.getCurrentEditsPerSecond(), 0.0001);
+
+		for (int i = 0; i < 20; i++) {
+			controller.onMaxlag(10, 0);
+		}
+		assertEquals(10.0 / 64, controller.getCurrentEditsPerSecond(), 0.0001);
+		for (int i = 0; i < 30; i++) {
+			controller.onSuccess();
+		}
+		assertEquals(10, controller.getCurrentEditsPerSecond(), 0.0001);
+	}
+
+	@Test
+	public void testPause() {
+		EditRateController controller = new EditRateController(0, 5);
+		controller.onRetryAfter(100);
+		assertTrue(controller.awaitPause() >= 50);
+		assertEquals(0, controller.awaitPause());
+		assertEquals(0, controller.acquire());
+	}
+
+	@Test
+	public void testSharedByConnection() {
+		MockBasicApiConnection con = new MockBasicApiConnection();
+		EditRateController controller = con.getEditRateController();
+		assertNotNull(controller);
+		assertSame(controller, con.getEditRateController());
+		assertEquals(0.5, controller.getMaxEditsPerSecond(), 0.0001);
+
+		WbEditingAction action = new WbEditingAction(con,
+				Datamodel.SITE_WIKIDATA);
+		action.setAverageTimePerEdit(250);
+		assertEquals(4, controller.getMaxEditsPerSecond(), 0.0001);
+		action.setAverageTimePerEdit(0);
+		assertEquals(0, controller.getMaxEditsPerSecond(), 0.0001);
+	}
+
+	@Test
+	public void testAverageTimePerEditFollowsController() {
+		MockBasicApiConnection con = new MockBasicApiConnection();
+		WbEditingAction action = new WbEditingAction(con,
+				Datamodel.SITE_WIKIDATA);
+		WbEditingAction otherAction = new WbEditingAction(con,
+				Datamodel.SITE_WIKIDATA);
+		assertEquals(2000, action.getAverageTimePerEdit());
+
+		otherAction.setAverageTimePerEdit(250);
+		assertEquals(250, action.getAverageTimePerEdit());
+
+		con.setEditRateController(new EditRateController(0.2, 9));
+		assertEquals(5000, action.getAverageTimePerEdit());
+		con.getEditRateController().setMaxEditsPerSecond(0);
+		assertEquals(0, action.getAverageTimePerEdit());
+	}
+
+	@Test
+	public void testParseRetryAfter() {
+		assertEquals(120000, ApiConnection.parseRetryAfter("120"));
+		assertEquals(0, ApiConnection.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+		assertEquals(0, ApiConnection.parseRetryAfter("soon"));
+	}
+
+	@Test
+	public void testRetryAfterHeader() throws IOException,
+			MediaWikiApiErrorException {
+		AtomicInteger editRequests = new AtomicInteger();
+		MockWebServer server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				String body = request.getBody().readUtf8();
+				if (body.contains("meta=tokens")) {
+					return new MockResponse().setHeader("Content-Type", "application/json")
+							.setBody("{\"batchcomplete\":\"\",\"query\":{\"tokens\":{\"csrftoken\":\"abc+\\\\\"}}}");
+				}
+				if (editRequests.incrementAndGet() == 1) {
+					return new MockResponse().setResponseCode(429)
+							.setHeader("Retry-After", "0");
+				}
+				return new MockResponse().setHeader("Content-Type", "application/json")
+						.setBody("{\"entity\":{\"type\":\"item\",\"id\":\"Q42\",\"lastrevid\":7},\"success\":1}");
+			}
+		});
+		server.start();
+		try {
+			BasicApiConnection connection = new BasicApiConnection(server.url(
+					"/w/api.php").toString());
+			WbEditingAction action = new WbEditingAction(connection,
+					Datamodel.SITE_WIKIDATA);
+			EntityDocument result = action.wbEditEntity("Q42", null, null,
+					null, "{}", false, false, 0, null, null);
+
+			assertEquals(7, result.getRevisionId());
+			assertEquals(2, editRequests.get());
+			assertEquals(0.25, connection.getEditRateController()
+					.getCurrentEditsPerSecond(), 0.03);
+		} finally {
+			server.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,324 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.util.CompressionType;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class EntityDocumentCacheTest {
+
+	MockBasicApiConnection con;
+	WikibaseDataFetcher wdf;
+
+	@Before
+	public void setUp() {
+		con = new MockBasicApiConnection();
+		wdf = new WikibaseDataFetcher(con, Datamodel.SITE_WIKIDATA);
+		setDocument("Q42", 5, "Douglas Adams");
+		setRevision("Q42", 5);
+	}
+
+	@Test
+	public void testCachedFetching() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+
+		EntityDocument first = wdf.getEntityDocument("Q42");
+		// later changes online are not seen
+		setDocument("Q42", 6, "Other");
+		EntityDocument second = wdf.getEntityDocument("Q42");
+
+		assertSame(first, second);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 0.0001);
+		assertEquals(1, cache.getEntryCount());
+	}
+
+	@Test
+	public void testRevalidation() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, 0);
+		wdf.setEntityDocumentCache(cache);
+
+		EntityDocument first = wdf.getEntityDocument("Q42");
+		assertSame(first, wdf.getEntityDocument("Q42"));
+		assertEquals(1, cache.getRevalidatedCount());
+
+		setDocument("Q42", 6, "Other");
+		setRevision("Q42", 6);
+		ItemDocument changed = (ItemDocument) wdf.getEntityDocument("Q42");
+		assertEquals(6, changed.getRevisionId());
+		assertEquals("Other", changed.findLabel("en"));
+		assertEquals(1, cache.getOutdatedCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testFilterSettingsAreCachedSeparately() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		wdf.getEntityDocument("Q42");
+
+		Map<String, String> parameters = new HashMap<>();
+		setStandardParameters(parameters);
+		parameters.put("props", "info|datatype|labels|aliases|descriptions|claims");
+		parameters.put("ids", "Q42");
+		con.setWebResource(parameters, makeEntitiesJson("Q42", 5, "Douglas Adams"));
+		wdf.getFilter().setSiteLinkFilter(Collections.emptySet());
+		wdf.getEntityDocument("Q42");
+
+		assertEquals(0, cache.getHitCount());
+		assertEquals(2, cache.getEntryCount());
+	}
+
+	@Test
+	public void testEviction() throws IOException, MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(1, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		setDocument("Q1", 3, "Universe");
+
+		wdf.getEntityDocument("Q42");
+		wdf.getEntityDocument("Q1");
+		wdf.getEntityDocument("Q42");
+
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testInvalidationByEditor() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		ItemDocument document = (ItemDocument) wdf.getEntityDocument("Q42");
+
+		Map<String, String> params = new HashMap<>();
+		params.put("action", "query");
+		params.put("meta", "tokens");
+		params.put("type", "csrf");
+		params.put("format", "json");
+		con.setWebResourceFromPath(params, this.getClass(),
+				"/query-csrf-token-loggedin-response.json",
+				CompressionType.NONE);
+		params = new HashMap<>();
+		params.put("action", "wbeditentity");
+		params.put("id", "Q42");
+		params.put("token", "42307b93c79b0cb558d2dfb4c3c92e0955e06041+\\");
+		params.put("format", "json");
+		params.put("baserevid", "5");
+		params.put("maxlag", "5");
+		params.put("data", "{}");
+		con.setWebResource(params, "{\"entity\":{\"type\":\"item\",\"id\":\"Q42\",\"lastrevid\":5},\"success\":1}");
+
+		WikibaseDataEditor wde = new WikibaseDataEditor(con,
+				Datamodel.SITE_WIKIDATA);
+		wde.setEntityDocumentCache(cache);
+		wde.nullEdit(document);
+
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(1, cache.getInvalidationCount());
+	}
+
+	@Test
+	public void testInvalidateStatementEntity() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		wdf.getEntityDocument("Q42");
+
+		WbEditingAction action = new WbEditingAction(con, Datamodel.SITE_WIKIDATA);
+		action.setEntityDocumentCache(cache);
+		action.invalidateCachedDocuments(null, new ObjectMapper()
+				.readTree("{\"claims\":[\"q42$427C0317-BA8C-95B0-16C8-1A1B5FAC1081\"],\"success\":1}"));
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@Test
+	public void testInvalidationDuringFetch() {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		ItemDocument document = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyMap()).withRevisionId(5);
+
+		long generation = cache.getGeneration();
+		cache.invalidate("Q42");
+		// the fetch started before the edit
+		cache.put("Q42", "request", document, generation);
+		assertEquals(0, cache.getEntryCount());
+		// other entities are not affected
+		cache.put("Q1", "request", document, generation);
+		assertEquals(1, cache.getEntryCount());
+
+		cache.put("Q42", "request", document, cache.getGeneration());
+		assertEquals(2, cache.getEntryCount());
+	}
+
+	@Test
+	public void testInvalidateLexeme() {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		ItemDocument document = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyMap()).withRevisionId(5);
+		long generation = cache.getGeneration();
+		for (String id : new String[] { "L1", "L1-F1", "L1-S1", "L12", "L12-F1" }) {
+			cache.put(id, "request", document, generation);
+		}
+
+		// editing a form changes the lexeme but not the other forms
+		cache.invalidate("L1-F1");
+		assertEquals(3, cache.getEntryCount());
+		assertNull(cache.getEntry("L1", "request"));
+		assertNotNull(cache.getEntry("L1-S1", "request"));
+
+		// editing the lexeme may change all of its forms and senses
+		cache.invalidate("L1");
+		assertEquals(2, cache.getEntryCount());
+		assertNull(cache.getEntry("L1-S1", "request"));
+		assertEquals(3, cache.getInvalidationCount());
+		assertEquals(Collections.singleton("L12"), cache.keysByBaseId.keySet());
+
+		// forms fetched before their lexeme was edited are not cached
+		cache.put("L1-S1", "request", document, generation);
+		assertNull(cache.getEntry("L1-S1", "request"));
+	}
+
+	@Test
+	public void testEvictionUpdatesIndex() {
+		EntityDocumentCache cache = new EntityDocumentCache(1, Long.MAX_VALUE);
+		ItemDocument document = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyMap()).withRevisionId(5);
+		cache.put("Q1", "request", document, cache.getGeneration());
+		cache.put("Q2", "request", document, cache.getGeneration());
+		assertEquals(Collections.singleton("Q2"), cache.keysByBaseId.keySet());
+		cache.clear();
+		assertEquals(Collections.emptySet(), cache.keysByBaseId.keySet());
+	}
+
+	@Test
+	public void testForgottenInvalidations() {
+		EntityDocumentCache cache = new EntityDocumentCache(1, Long.MAX_VALUE);
+		ItemDocument document = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q3"),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyList(), Collections.emptyList(),
+				Collections.emptyMap()).withRevisionId(5);
+
+		long generation = cache.getGeneration();
+		cache.invalidate("Q1");
+		cache.invalidate("Q2");
+		// the invalidation of Q1 is no longer known, so older fetches are
+		// not trusted
+		cache.put("Q1", "request", document, generation);
+		cache.put("Q3", "request", document, generation);
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException,
+			MediaWikiApiErrorException {
+		EntityDocumentCache cache = new EntityDocumentCache(10, Long.MAX_VALUE);
+		wdf.setEntityDocumentCache(cache);
+		EntityDocument document = wdf.getEntityDocument("Q42");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.save(out);
+		EntityDocumentCache loaded = new EntityDocumentCache(10, Long.MAX_VALUE);
+		loaded.load(new ByteArrayInputStream(out.toByteArray()),
+				Datamodel.SITE_WIKIDATA);
+		assertEquals(1, loaded.getEntryCount());
+
+		// loaded documents are revalidated before use
+		wdf.setEntityDocumentCache(loaded);
+		assertEquals(document, wdf.getEntityDocument("Q42"));
+		assertEquals(1, loaded.getRevalidatedCount());
+		assertEquals(1, loaded.getHitCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new EntityDocumentCache(0, 0);
+	}
+
+	private void setDocument(String id, long revisionId, String label) {
+		Map<String, String> parameters = new HashMap<>();
+		setStandardParameters(parameters);
+		parameters.put("ids", id);
+		con.setWebResource(parameters, makeEntitiesJson(id, revisionId, label));
+	}
+
+	private void setRevision(String id, long revisionId) {
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("action", "wbgetentities");
+		parameters.put("format", "json");
+		parameters.put("props", "info");
+		parameters.put("ids", id);
+		con.setWebResource(parameters, "{\"entities\":{\"" + id
+				+ "\":{\"type\":\"item\",\"id\":\"" + id + "\",\"lastrevid\":"
+				+ revisionId + "}},\"success\":1}");
+	}
+
+	private static String makeEntitiesJson(String id, long revisionId,
+			String label) {
+		return "{\"entities\":{\"" + id + "\":{\"type\":\"item\",\"id\":\""
+				+ id + "\",\"lastrevid\":" + revisionId
+				+ ",\"labels\":{\"en\":{\"language\":\"en\",\"value\":\""
+				+ label + "\"}}}},\"success\":1}";
+	}
+
+	private void setStandardParameters(Map<String, String> parameters) {
+		parameters.put("action", "wbgetentities");
+		parameters.put("format", "json");
+		parameters.put("props",
+				"info|datatype|labels|aliases|descriptions|claims|sitelinks");
+	}
+
+}
@@ -0,0 +1,271 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class EntityReconcilerTest {
+
+	MockWebServer server;
+	WikibaseDataFetcher fetcher;
+	EntityReconciler reconciler;
+	ExecutorService executor;
+
+	final AtomicInteger searchCount = new AtomicInteger();
+	final List<String> fetchedIds = Collections
+			.synchronizedList(new ArrayList<>());
+	final List<String> fetchParameters = Collections
+			.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Answers searches for "sN" with the items QN and Q(N+1), except that
+	 * searches for "none" find nothing and searches for "error" fail. Items
+	 * with ids above 1000 do not exist.
+	 */
+	class ReconcileDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			Thread.sleep(5);
+			Map<String, String> parameters = new HashMap<>();
+			for (String parameter : request.getBody().readUtf8().split("&")) {
+				int equals = parameter.indexOf('=');
+				parameters.put(parameter.substring(0, equals), URLDecoder.decode(
+						parameter.substring(equals + 1), StandardCharsets.UTF_8));
+			}
+			if ("wbsearchentities".equals(parameters.get("action"))) {
+				searchCount.incrementAndGet();
+				String search = parameters.get("search");
+				if ("error".equals(search)) {
+					return jsonResponse("{\"error\":{\"code\":\"some-error\",\"info\":\"Failed.\"}}");
+				} else if ("none".equals(search)) {
+					return jsonResponse("{\"search\":[]}");
+				}
+				int n = Integer.parseInt(search.substring(1));
+				return jsonResponse("{\"search\":[" + searchResult(n) + ","
+						+ searchResult(n + 1) + "]}");
+			} else {
+				fetchParameters.add(parameters.get("languages") + "|"
+						+ parameters.get("props"));
+				List<String> entities = new ArrayList<>();
+				for (String id : parameters.get("ids").split("\\|")) {
+					fetchedIds.add(id);
+					if (Integer.parseInt(id.substring(1)) > 1000) {
+						entities.add("\"" + id + "\":{\"id\":\"" + id
+								+ "\",\"missing\":\"\"}");
+					} else {
+						entities.add("\"" + id + "\":{\"type\":\"item\",\"id\":\""
+								+ id + "\",\"lastrevid\":5,\"labels\":{\"en\":"
+								+ "{\"language\":\"en\",\"value\":\"s"
+								+ id.substring(1) + "\"}}}");
+					}
+				}
+				return jsonResponse("{\"entities\":{" + String.join(",", entities)
+						+ "},\"success\":1}");
+			}
+		}
+	}
+
+	static String searchResult(int n) {
+		return "{\"id\":\"Q" + n + "\",\"label\":\"s" + n + "\"}";
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setDispatcher(new ReconcileDispatcher());
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		fetcher = new WikibaseDataFetcher(connection, Datamodel.SITE_WIKIDATA);
+		reconciler = new EntityReconciler(fetcher);
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		executor.shutdownNow();
+		server.shutdown();
+	}
+
+	static WbGetEntitiesSearchData makeQuery(String search) {
+		WbGetEntitiesSearchData query = new WbGetEntitiesSearchData();
+		query.search = search;
+		query.language = "en";
+		query.type = "item";
+		return query;
+	}
+
+	static List<WbGetEntitiesSearchData> makeQueries(String... searches) {
+		List<WbGetEntitiesSearchData> queries = new ArrayList<>();
+		for (String search : searches) {
+			queries.add(makeQuery(search));
+		}
+		return queries;
+	}
+
+	@Test
+	public void testReconcile() {
+		fetcher.getFilter().setLanguageFilter(Collections.singleton("en"));
+		List<EntityReconciler.Result> results = reconciler.reconcile(
+				makeQueries("s1", "s2", "none"), executor).join();
+
+		assertEquals(3, results.size());
+		EntityReconciler.Result first = results.get(0);
+		assertEquals("s1", first.getQuery().search);
+		assertEquals("Q1", first.getSearchResults().get(0).getEntityId());
+		assertEquals("Q2", first.getSearchResults().get(1).getEntityId());
+		assertEquals(2, first.getDocuments().size());
+		assertEquals("Q2", first.getDocument("Q2").getEntityId().getId());
+		assertEquals(2, results.get(1).getDocuments().size());
+		assertTrue(results.get(2).getSearchResults().isEmpty());
+		assertTrue(results.get(2).getDocuments().isEmpty());
+
+		// Q2 is a candidate of both queries but fetched only once
+		assertEquals(3, fetchedIds.size());
+		assertEquals(1, fetchParameters.size());
+		assertTrue(fetchParameters.get(0).startsWith("en|"));
+	}
+
+	@Test
+	public void testCachedDocumentsAreNotFetchedAgain() {
+		EntityDocumentCache cache = new EntityDocumentCache(100, Long.MAX_VALUE);
+		fetcher.setEntityDocumentCache(cache);
+		List<EntityReconciler.Result> first = reconciler.reconcile(
+				makeQueries("s1"), executor).join();
+		assertEquals(Arrays.asList("Q1", "Q2"), fetchedIds.stream().sorted()
+				.collect(Collectors.toList()));
+		assertEquals(2, cache.getEntryCount());
+
+		fetchedIds.clear();
+		List<EntityReconciler.Result> second = reconciler.reconcile(
+				makeQueries("s2"), executor).join();
+
+		// only Q3 is new
+		assertEquals(Collections.singletonList("Q3"), fetchedIds);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(first.get(0).getDocument("Q2"), second.get(0)
+				.getDocument("Q2"));
+		assertEquals(2, second.get(0).getDocuments().size());
+	}
+
+	@Test
+	public void testDuplicateQueriesAreSearchedOnce() {
+		List<WbGetEntitiesSearchData> queries = makeQueries("s1", "s1", "s3");
+		queries.add(makeQuery("s1"));
+		List<WbGetEntitiesSearchData> consumed = Collections
+				.synchronizedList(new ArrayList<>());
+		reconciler.reconcile(queries, executor,
+				(query, result) -> consumed.add(query)).join();
+
+		assertEquals(2, searchCount.get());
+		assertEquals(4, consumed.size());
+		assertEquals(4, fetchedIds.size());
+	}
+
+	@Test
+	public void testCandidatesAreFetchedInBatches() {
+		List<String> searches = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			searches.add("s" + (2 * i));
+		}
+		AtomicInteger documentCount = new AtomicInteger();
+		reconciler.reconcile(makeQueries(searches.toArray(new String[0])),
+				executor, (query, result) -> documentCount.addAndGet(result
+						.getDocuments().size())).join();
+
+		assertEquals(100, searchCount.get());
+		assertEquals(200, documentCount.get());
+		assertEquals(200, fetchedIds.size());
+		assertEquals(200, fetchedIds.stream().distinct().count());
+		assertTrue(fetchParameters.size() <= 5);
+	}
+
+	@Test
+	public void testMissingCandidates() {
+		List<EntityReconciler.Result> results = reconciler.reconcile(
+				makeQueries("s1000"), executor).join();
+
+		assertEquals(2, results.get(0).getSearchResults().size());
+		assertEquals(1, results.get(0).getDocuments().size());
+		assertNull(results.get(0).getDocument("Q1001"));
+	}
+
+	@Test
+	public void testWithoutDocuments() {
+		reconciler.setFetchDocuments(false);
+		List<EntityReconciler.Result> results = reconciler.reconcile(
+				makeQueries("s1", "s2"), executor).join();
+
+		assertEquals(2, results.get(1).getSearchResults().size());
+		assertTrue(results.get(1).getDocuments().isEmpty());
+		assertTrue(fetchedIds.isEmpty());
+	}
+
+	@Test
+	public void testSearchError() {
+		List<String> consumed = Collections.synchronizedList(new ArrayList<>());
+		try {
+			reconciler.reconcile(makeQueries("s1", "error", "s5"), executor,
+					(query, result) -> consumed.add(query.search)).join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof MediaWikiApiErrorException);
+			assertEquals(Arrays.asList("s1", "s5"), consumed.stream().sorted()
+					.collect(Collectors.toList()));
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+}
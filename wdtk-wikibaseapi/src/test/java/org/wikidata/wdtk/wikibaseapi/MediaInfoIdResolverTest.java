@@ -0,0 +1,252 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.MediaInfoIdValue;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class MediaInfoIdResolverTest {
+
+	MockWebServer server;
+	MediaInfoIdResolver resolver;
+
+	final AtomicInteger requestCount = new AtomicInteger();
+	final AtomicInteger titleCount = new AtomicInteger();
+	final AtomicInteger inFlight = new AtomicInteger();
+	final AtomicInteger maxInFlight = new AtomicInteger();
+
+	/**
+	 * Answers title queries. Files named "File:N.jpg" have page id N, files
+	 * starting with "File:Missing" do not exist, and "File:Moved.jpg"
+	 * redirects to "File:1.jpg". Lower case names are normalized.
+	 */
+	class QueryDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			requestCount.incrementAndGet();
+			int current = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(current, Math::max);
+			try {
+				Thread.sleep(30);
+				Map<String, String> parameters = new HashMap<>();
+				for (String parameter : request.getBody().readUtf8().split("&")) {
+					int equals = parameter.indexOf('=');
+					parameters.put(parameter.substring(0, equals), URLDecoder.decode(
+							parameter.substring(equals + 1), StandardCharsets.UTF_8));
+				}
+				List<String> normalized = new ArrayList<>();
+				List<String> redirects = new ArrayList<>();
+				List<String> pages = new ArrayList<>();
+				int missing = 0;
+				for (String title : parameters.get("titles").split("\\|")) {
+					titleCount.incrementAndGet();
+					if (Character.isLowerCase(title.charAt(5))) {
+						String to = "File:" + Character.toUpperCase(title.charAt(5))
+								+ title.substring(6);
+						normalized.add("{\"from\":\"" + title + "\",\"to\":\"" + to + "\"}");
+						title = to;
+					}
+					if ("File:Moved.jpg".equals(title) && parameters.containsKey("redirects")) {
+						redirects.add("{\"from\":\"File:Moved.jpg\",\"to\":\"File:1.jpg\"}");
+						title = "File:1.jpg";
+					}
+					if (title.startsWith("File:Missing") || "File:Moved.jpg".equals(title)) {
+						missing++;
+						pages.add("\"-" + missing + "\":{\"ns\":6,\"title\":\"" + title
+								+ "\",\"missing\":\"\"}");
+					} else {
+						String pageId = title.substring(5, title.length() - 4);
+						pages.add("\"" + pageId + "\":{\"pageid\":" + pageId
+								+ ",\"ns\":6,\"title\":\"" + title + "\"}");
+					}
+				}
+				return new MockResponse().setHeader("Content-Type",
+						"application/json; charset=utf-8").setBody(
+						"{\"batchcomplete\":\"\",\"query\":{\"normalized\":["
+								+ String.join(",", normalized) + "],\"redirects\":["
+								+ String.join(",", redirects) + "],\"pages\":{"
+								+ String.join(",", pages) + "}}}");
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setDispatcher(new QueryDispatcher());
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		resolver = new MediaInfoIdResolver(connection,
+				Datamodel.SITE_WIKIMEDIA_COMMONS);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	static List<String> makeFileNames(int count) {
+		List<String> names = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			names.add(i + ".jpg");
+		}
+		return names;
+	}
+
+	@Test
+	public void testConcurrentBatches() throws IOException,
+			MediaWikiApiErrorException {
+		resolver.setMaxTitlesPerRequest(10);
+		resolver.setMaxConcurrentRequests(3);
+		Map<String, MediaInfoIdValue> result = resolver.resolve(makeFileNames(95));
+
+		assertEquals(95, result.size());
+		assertEquals("M57", result.get("57.jpg").getId());
+		assertEquals(10, requestCount.get());
+		assertTrue(maxInFlight.get() > 1);
+		assertTrue(maxInFlight.get() <= 3);
+	}
+
+	@Test
+	public void testDuplicatesAreQueriedOnce() throws IOException,
+			MediaWikiApiErrorException {
+		Map<String, MediaInfoIdValue> result = resolver.resolve(Arrays.asList(
+				"7.jpg", "File:7.jpg", "File:7.jpg", " 7.jpg", "File:_7.jpg"));
+
+		assertEquals(4, result.size());
+		assertEquals("M7", result.get("File:7.jpg").getId());
+		assertEquals("M7", result.get(" 7.jpg").getId());
+		assertEquals(1, titleCount.get());
+	}
+
+	@Test
+	public void testNormalizationAndRedirects() throws IOException,
+			MediaWikiApiErrorException {
+		Map<String, MediaInfoIdValue> result = resolver.resolve(Arrays.asList(
+				"moved.jpg", "Missing file.jpg"));
+		assertEquals("M1", result.get("moved.jpg").getId());
+		assertNull(result.get("Missing file.jpg"));
+		assertTrue(result.containsKey("Missing file.jpg"));
+
+		resolver.setFollowRedirects(false);
+		assertNull(resolver.resolve(Arrays.asList("Moved.jpg")).get("Moved.jpg"));
+	}
+
+	@Test
+	public void testCache() throws IOException, MediaWikiApiErrorException {
+		MediaInfoIdCache cache = new MediaInfoIdCache(60000);
+		resolver.setCache(cache);
+		resolver.resolve(Arrays.asList("1.jpg", "Missing.jpg"));
+		Map<String, MediaInfoIdValue> result = resolver.resolve(Arrays.asList(
+				"File:1.jpg", "Missing.jpg", "2.jpg"));
+
+		assertEquals("M1", result.get("File:1.jpg").getId());
+		assertNull(result.get("Missing.jpg"));
+		assertEquals("M2", result.get("2.jpg").getId());
+		assertEquals(2, requestCount.get());
+		assertEquals(3, titleCount.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getNegativeHitCount());
+		assertEquals(3, cache.getMissCount());
+		assertEquals(2, cache.getIdCount());
+		assertEquals(1, cache.getMissingCount());
+	}
+
+	@Test
+	public void testNegativeEntriesExpire() throws IOException,
+			MediaWikiApiErrorException, InterruptedException {
+		MediaInfoIdCache cache = new MediaInfoIdCache(20);
+		resolver.setCache(cache);
+		resolver.resolve(Arrays.asList("Missing.jpg"));
+		Thread.sleep(30);
+		resolver.resolve(Arrays.asList("Missing.jpg"));
+
+		assertEquals(2, requestCount.get());
+		assertEquals(0, cache.getNegativeHitCount());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException,
+			MediaWikiApiErrorException {
+		MediaInfoIdCache cache = new MediaInfoIdCache(60000);
+		resolver.setCache(cache);
+		resolver.resolve(Arrays.asList("1.jpg", "Missing.jpg"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		cache.save(out);
+		MediaInfoIdCache loaded = new MediaInfoIdCache(60000);
+		loaded.load(new ByteArrayInputStream(out.toByteArray()),
+				Datamodel.SITE_WIKIMEDIA_COMMONS);
+		resolver.setCache(loaded);
+		Map<String, MediaInfoIdValue> result = resolver.resolve(Arrays.asList(
+				"1.jpg", "Missing.jpg"));
+
+		assertEquals(Datamodel.makeMediaInfoIdValue("M1",
+				Datamodel.SITE_WIKIMEDIA_COMMONS), result.get("1.jpg"));
+		assertNull(result.get("Missing.jpg"));
+		assertEquals(1, requestCount.get());
+	}
+
+	@Test
+	public void testCanonicalFileName() {
+		assertEquals("File:Albert Einstein Head.jpg", MediaInfoIdResolver
+				.getCanonicalFileName("albert_Einstein_Head.jpg"));
+		assertEquals("File:Cat.jpg",
+				MediaInfoIdResolver.getCanonicalFileName("File:Cat.jpg"));
+		assertEquals("File:Émile.png",
+				MediaInfoIdResolver.getCanonicalFileName("File: émile.png"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		resolver.setMaxTitlesPerRequest(0);
+	}
+
+}
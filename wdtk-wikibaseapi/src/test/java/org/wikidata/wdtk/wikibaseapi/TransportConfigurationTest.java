@@ -0,0 +1,191 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.wikibaseapi.apierrors.NoSuchEntityErrorException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class TransportConfigurationTest {
+
+	MockWebServer server;
+	final AtomicInteger inFlight = new AtomicInteger();
+	final AtomicInteger maxInFlight = new AtomicInteger();
+	final List<String> acceptEncodings = Collections
+			.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Answers every request after a short delay, echoing the "n" parameter.
+	 * Requests with "n=error" yield an API error.
+	 */
+	class SlowDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			int current = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(current, Math::max);
+			try {
+				acceptEncodings.add(request.getHeader("Accept-Encoding"));
+				Thread.sleep(50);
+				String body = request.getBody().readUtf8();
+				if (body.contains("n=error")) {
+					return jsonResponse("{\"error\":{\"code\":\"no-such-entity\",\"info\":\"No entity.\"}}");
+				}
+				String n = body.replaceAll(".*n=([0-9]+).*", "$1");
+				return jsonResponse("{\"n\":" + n + "}");
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	@Before
+	public void setUp() {
+		server = new MockWebServer();
+		server.setDispatcher(new SlowDispatcher());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	BasicApiConnection connect(TransportConfiguration configuration)
+			throws IOException {
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		connection.setTransportConfiguration(configuration);
+		return connection;
+	}
+
+	List<CompletableFuture<JsonNode>> sendRequests(ApiConnection connection,
+			int count) {
+		List<CompletableFuture<JsonNode>> results = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Map<String, String> parameters = new HashMap<>();
+			parameters.put("action", "test");
+			parameters.put("n", Integer.toString(i));
+			results.add(connection.sendJsonRequestAsync("POST", parameters));
+		}
+		return results;
+	}
+
+	@Test
+	public void testMaxRequestsPerHost() throws IOException {
+		BasicApiConnection connection = connect(new TransportConfiguration()
+				.setMaxRequestsPerHost(3));
+		List<CompletableFuture<JsonNode>> results = sendRequests(connection, 12);
+
+		for (int i = 0; i < 12; i++) {
+			assertEquals(i, results.get(i).join().path("n").asInt());
+		}
+		assertTrue(maxInFlight.get() > 1);
+		assertTrue(maxInFlight.get() <= 3);
+	}
+
+	@Test
+	public void testHttp2Multiplexing() throws IOException {
+		server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+		BasicApiConnection connection = connect(new TransportConfiguration()
+				.setHttp2PriorKnowledge(true).setMaxRequestsPerHost(50));
+		List<CompletableFuture<JsonNode>> results = sendRequests(connection, 30);
+
+		for (int i = 0; i < 30; i++) {
+			assertEquals(i, results.get(i).join().path("n").asInt());
+		}
+		assertTrue(maxInFlight.get() > 5);
+		assertEquals(1, connection.getClient().connectionPool()
+				.connectionCount());
+	}
+
+	@Test
+	public void testCompression() throws IOException {
+		BasicApiConnection connection = connect(new TransportConfiguration());
+		sendRequests(connection, 1).get(0).join();
+		connection.setTransportConfiguration(new TransportConfiguration()
+				.setCompressionEnabled(false));
+		sendRequests(connection, 1).get(0).join();
+
+		assertEquals("gzip", acceptEncodings.get(0));
+		assertEquals("identity", acceptEncodings.get(1));
+	}
+
+	@Test
+	public void testAsyncError() throws IOException {
+		BasicApiConnection connection = connect(null);
+		Map<String, String> parameters = new HashMap<>();
+		parameters.put("n", "error");
+		try {
+			connection.sendJsonRequestAsync("POST", parameters).join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof NoSuchEntityErrorException);
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test
+	public void testAsyncConnectionFailure() throws IOException {
+		BasicApiConnection connection = connect(null);
+		server.shutdown();
+		try {
+			sendRequests(connection, 1).get(0).join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxRequestsPerHost() {
+		new TransportConfiguration().setMaxRequestsPerHost(0);
+	}
+
+}
@@ -0,0 +1,251 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.ItemUpdateBuilder;
+import org.wikidata.wdtk.datamodel.helpers.TermUpdateBuilder;
+import org.wikidata.wdtk.datamodel.interfaces.ItemUpdate;
+import org.wikidata.wdtk.testing.MockWikibaseApiServer;
+
+/**
+ * Measures the throughput and latency of {@link WikibaseDataFetcher} and
+ * {@link WikibaseDataEditor} against a {@link MockWikibaseApiServer}, with
+ * several threads and optional fault injection. The numbers depend on the
+ * configured server latency and are only meaningful in comparison, e.g.,
+ * before and after a change of the client.
+ * <p>
+ * Run the main method to print the results of some standard scenarios. The
+ * optional arguments are the number of threads, the number of operations per
+ * scenario, and the server latency in milliseconds.
+ */
+public class WikibaseApiBenchmark {
+
+	/**
+	 * Results of one benchmark run.
+	 */
+	static class Measurement {
+		final String name;
+		final int operations;
+		final int failures;
+		final long elapsedNanos;
+		final long[] latencies;
+		final long serverRequests;
+
+		Measurement(String name, int operations, int failures,
+				long elapsedNanos, long[] latencies, long serverRequests) {
+			this.name = name;
+			this.operations = operations;
+			this.failures = failures;
+			this.elapsedNanos = elapsedNanos;
+			this.latencies = latencies.clone();
+			Arrays.sort(this.latencies);
+			this.serverRequests = serverRequests;
+		}
+
+		/**
+		 * Returns the number of successful operations per second.
+		 */
+		double getThroughput() {
+			return (this.operations - this.failures) * 1e9 / this.elapsedNanos;
+		}
+
+		/**
+		 * Returns the latency in milliseconds below which the given fraction
+		 * of operations completed.
+		 */
+		double getPercentile(double fraction) {
+			if (this.latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(fraction * this.latencies.length) - 1;
+			return this.latencies[Math.max(0, index)] / 1e6;
+		}
+
+		/**
+		 * Returns the number of requests that the server received in excess
+		 * of one request per operation, which are mostly retries.
+		 */
+		long getExtraRequests() {
+			return Math.max(0, this.serverRequests - this.operations);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%-28s %8.1f ops/s  p50 %7.1f ms  p99 %7.1f ms  max %7.1f ms  failures %d  extra requests %d",
+					this.name, getThroughput(), getPercentile(0.5),
+					getPercentile(0.99), getPercentile(1.0), this.failures,
+					getExtraRequests());
+		}
+	}
+
+	/**
+	 * An operation whose latency is measured.
+	 */
+	interface Operation {
+		void run(int number) throws Exception;
+	}
+
+	/**
+	 * Runs the given number of operations on the given number of threads and
+	 * measures their latency. Failed operations are counted but not
+	 * measured.
+	 */
+	static Measurement measure(String name, MockWikibaseApiServer server,
+			String action, int threads, int operations, Operation operation)
+			throws InterruptedException {
+		long requestsBefore = server.getRequestCount(action);
+		long[] latencies = new long[operations];
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger measured = new AtomicInteger();
+		AtomicInteger failures = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				int number;
+				while ((number = next.getAndIncrement()) < operations) {
+					long operationStart = System.nanoTime();
+					try {
+						operation.run(number);
+						latencies[measured.getAndIncrement()] = System.nanoTime()
+								- operationStart;
+					} catch (Exception e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.HOURS);
+		long elapsed = System.nanoTime() - start;
+		return new Measurement(name, operations, failures.get(), elapsed,
+				Arrays.copyOf(latencies, measured.get()),
+				server.getRequestCount(action) - requestsBefore);
+	}
+
+	/**
+	 * Fetches random batches of the given entities.
+	 */
+	static Measurement benchmarkFetching(String name,
+			MockWikibaseApiServer server, List<String> entityIds,
+			int threads, int operations, int idsPerOperation)
+			throws InterruptedException {
+		WikibaseDataFetcher fetcher = new WikibaseDataFetcher(
+				new BasicApiConnection(server.getApiUrl()),
+				Datamodel.SITE_WIKIDATA);
+		return measure(name, server, "wbgetentities", threads, operations,
+				number -> {
+					List<String> ids = new ArrayList<>();
+					for (int i = 0; i < idsPerOperation; i++) {
+						ids.add(entityIds.get(ThreadLocalRandom.current()
+								.nextInt(entityIds.size())));
+					}
+					fetcher.getEntityDocuments(ids);
+				});
+	}
+
+	/**
+	 * Changes the English labels and descriptions of the given entities, one
+	 * edit per operation, without limiting the edit rate.
+	 */
+	static Measurement benchmarkEditing(String name,
+			MockWikibaseApiServer server, List<String> entityIds,
+			int threads, int operations) throws InterruptedException {
+		WikibaseDataEditor editor = new WikibaseDataEditor(
+				new BasicApiConnection(server.getApiUrl()),
+				Datamodel.SITE_WIKIDATA);
+		editor.setAverageTimePerEdit(0);
+		editor.setMaxLagFirstWaitTime(10);
+		return measure(name, server, "wbeditentity", threads, operations,
+				number -> {
+					ItemUpdate update = ItemUpdateBuilder
+							.forEntityId(Datamodel.makeWikidataItemIdValue(
+									entityIds.get(number % entityIds.size())))
+							.updateLabels(TermUpdateBuilder.create()
+									.put(Datamodel.makeMonolingualTextValue(
+											"label " + number, "en"))
+									.build())
+							.updateDescriptions(TermUpdateBuilder.create()
+									.put(Datamodel.makeMonolingualTextValue(
+											"description " + number, "en"))
+									.build())
+							.build();
+					editor.editEntityDocument(update, false, "benchmark", null);
+				});
+	}
+
+	/**
+	 * Creates the given number of items on the server.
+	 */
+	static List<String> addItems(MockWikibaseApiServer server, int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ids.add(server.addItem("item " + i));
+		}
+		return ids;
+	}
+
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int operations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		long latency = args.length > 2 ? Long.parseLong(args[2]) : 20;
+
+		try (MockWikibaseApiServer server = new MockWikibaseApiServer()) {
+			server.start();
+			server.setLatency(latency, latency / 2);
+			List<String> ids = addItems(server, 10000);
+
+			System.out.println(benchmarkFetching("fetch 1 id", server, ids,
+					threads, operations, 1));
+			System.out.println(benchmarkFetching("fetch 50 ids", server, ids,
+					threads, operations, 50));
+			System.out.println(benchmarkFetching("fetch 200 ids", server, ids,
+					threads, operations / 4, 200));
+			System.out.println(benchmarkEditing("edit", server, ids, threads,
+					operations));
+
+			server.setMaxlagInterval(20, 3);
+			System.out.println(benchmarkEditing("edit, maxlag every 20", server,
+					ids, threads, operations));
+			server.setMaxlagInterval(0, 0);
+
+			server.setRateLimitInterval(50, 0);
+			System.out.println(benchmarkFetching("fetch 50 ids, 429 every 50",
+					server, ids, threads, operations, 50));
+			System.out.println(benchmarkEditing("edit, 429 every 50", server,
+					ids, threads, operations));
+		}
+	}
+
+}
@@ -74,6 +74,7 @@ import org.wikidata.wdtk.datamodel.interfaces.SenseDocument;
 import org.wikidata.wdtk.datamodel.interfaces.SenseUpdate;
 import org.wikidata.wdtk.datamodel.interfaces.Statement;
 import org.wikidata.wdtk.testing.MockStringContentFactory;
+import org.wikidata.wdtk.testing.MockWikibaseApiServer;
 import org.wikidata.wdtk.util.CompressionType;
 import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
 import org.wikidata.wdtk.wikibaseapi.apierrors.TagsApplyNotAllowedException;
@@ -138,6 +139,35 @@ public class WikibaseDataEditorTest {
 		assertEquals(78, wde.getMaxLagMaxRetries());
 	}
 
+	@Test
+	public void testEditsAreRetriedAfterMaxlag() throws IOException,
+			MediaWikiApiErrorException {
+		try (MockWikibaseApiServer server = new MockWikibaseApiServer()) {
+			server.start();
+			String id = server.addItem("item");
+			server.setMaxlagInterval(2, 1);
+			WikibaseDataEditor wde = new WikibaseDataEditor(
+					new BasicApiConnection(server.getApiUrl()),
+					Datamodel.SITE_WIKIDATA);
+			wde.setAverageTimePerEdit(0);
+			wde.setMaxLagFirstWaitTime(10);
+
+			for (int i = 0; i < 5; i++) {
+				wde.editEntityDocument(ItemUpdateBuilder
+						.forEntityId(makeWikidataItemIdValue(id))
+						.updateLabels(TermUpdateBuilder.create()
+								.put(Datamodel.makeMonolingualTextValue(
+										"label " + i, "en"))
+								.build())
+						.build(), false, "test", null);
+			}
+
+			assertTrue(server.getMaxlagCount() > 0);
+			assertEquals(5 + server.getMaxlagCount(),
+					server.getRequestCount("wbsetlabel"));
+		}
+	}
+
 	@Test
 	public void testSetAverageTimePerEdit() {
 		WikibaseDataEditor wde = new WikibaseDataEditor(this.con,
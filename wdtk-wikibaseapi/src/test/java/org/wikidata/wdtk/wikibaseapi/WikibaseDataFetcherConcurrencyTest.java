@@ -0,0 +1,270 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.wikibaseapi.apierrors.MediaWikiApiErrorException;
+import org.wikidata.wdtk.wikibaseapi.apierrors.NoSuchEntityErrorException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class WikibaseDataFetcherConcurrencyTest {
+
+	MockWebServer server;
+	WikibaseDataFetcher wdf;
+
+	final AtomicInteger inFlight = new AtomicInteger();
+	final AtomicInteger maxInFlight = new AtomicInteger();
+	final AtomicInteger requestCount = new AtomicInteger();
+	final List<Long> requestTimes = Collections
+			.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Number of the request that is rejected with HTTP status 429, or 0 if no
+	 * request is rejected, or -1 if all requests are rejected.
+	 */
+	volatile int rateLimitedRequest = 0;
+	volatile String retryAfter = "0";
+	volatile long rateLimitedTime;
+
+	/**
+	 * Answers wbgetentities requests with minimal item documents for all
+	 * requested ids, except for "Q0" which yields an error. The request
+	 * given by {@link #rateLimitedRequest} is rejected with HTTP status 429.
+	 */
+	class EntitiesDispatcher extends Dispatcher {
+		@Override
+		public MockResponse dispatch(RecordedRequest request)
+				throws InterruptedException {
+			int number = requestCount.incrementAndGet();
+			long now = System.nanoTime();
+			requestTimes.add(now);
+			if (number == rateLimitedRequest || rateLimitedRequest == -1) {
+				rateLimitedTime = now;
+				return new MockResponse().setResponseCode(429).setHeader(
+						"Retry-After", retryAfter);
+			}
+			int current = inFlight.incrementAndGet();
+			maxInFlight.accumulateAndGet(current, Math::max);
+			try {
+				Thread.sleep(50);
+				String ids = null;
+				for (String parameter : request.getBody().readUtf8().split("&")) {
+					if (parameter.startsWith("ids=")) {
+						ids = URLDecoder.decode(parameter.substring(4),
+								StandardCharsets.UTF_8);
+					}
+				}
+				StringBuilder body = new StringBuilder("{\"entities\":{");
+				boolean first = true;
+				for (String id : ids.split("\\|")) {
+					if ("Q0".equals(id)) {
+						return jsonResponse("{\"error\":{\"code\":\"no-such-entity\",\"info\":\"Could not find an entity with the ID \\\"Q0\\\".\"}}");
+					}
+					if (!first) {
+						body.append(',');
+					}
+					first = false;
+					body.append('"').append(id).append("\":{\"type\":\"item\",\"id\":\"")
+							.append(id).append("\",\"lastrevid\":1}");
+				}
+				body.append("},\"success\":1}");
+				return jsonResponse(body.toString());
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	static MockResponse jsonResponse(String body) {
+		return new MockResponse().setHeader("Content-Type",
+				"application/json; charset=utf-8").setBody(body);
+	}
+
+	static List<String> makeIds(int count) {
+		List<String> ids = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			ids.add("Q" + i);
+		}
+		return ids;
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = new MockWebServer();
+		server.setDispatcher(new EntitiesDispatcher());
+		server.start();
+		BasicApiConnection connection = new BasicApiConnection(server.url(
+				"/w/api.php").toString());
+		wdf = new WikibaseDataFetcher(connection, Datamodel.SITE_WIKIDATA);
+		wdf.maxListSize = 10;
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void testSequentialByDefault() throws IOException,
+			MediaWikiApiErrorException {
+		Map<String, EntityDocument> results = wdf.getEntityDocuments(makeIds(35));
+		assertEquals(35, results.size());
+		assertEquals(4, requestCount.get());
+		assertEquals(1, maxInFlight.get());
+	}
+
+	@Test
+	public void testConcurrentFetching() throws IOException,
+			MediaWikiApiErrorException {
+		wdf.setMaxConcurrentRequests(3);
+		Map<String, EntityDocument> results = wdf.getEntityDocuments(makeIds(95));
+
+		assertEquals(95, results.size());
+		assertEquals("Q57", results.get("Q57").getEntityId().getId());
+		assertEquals(10, requestCount.get());
+		assertTrue(maxInFlight.get() > 1);
+		assertTrue(maxInFlight.get() <= 3);
+	}
+
+	@Test(expected = NoSuchEntityErrorException.class)
+	public void testConcurrentFetchingError() throws IOException,
+			MediaWikiApiErrorException {
+		wdf.setMaxConcurrentRequests(4);
+		List<String> ids = makeIds(40);
+		ids.set(25, "Q0");
+		wdf.getEntityDocuments(ids);
+	}
+
+	@Test
+	public void testConcurrentFetchingRateLimited() throws IOException,
+			MediaWikiApiErrorException {
+		rateLimitedRequest = 3;
+		retryAfter = "1";
+		wdf.setMaxConcurrentRequests(3);
+		Map<String, EntityDocument> results = wdf.getEntityDocuments(makeIds(95));
+
+		assertEquals(95, results.size());
+		assertEquals(11, requestCount.get());
+		// the other workers paused as well until the retry was due
+		long pauseStart = rateLimitedTime + 100000000L;
+		long pauseEnd = rateLimitedTime + 900000000L;
+		synchronized (requestTimes) {
+			for (long time : requestTimes) {
+				assertTrue(time < pauseStart || time > pauseEnd);
+			}
+		}
+	}
+
+	@Test
+	public void testRateLimitedRetriesAreBounded() throws MediaWikiApiErrorException {
+		rateLimitedRequest = -1;
+		wdf.setMaxRetries(2);
+		try {
+			wdf.getEntityDocuments("Q1");
+		} catch (IOException e) {
+			assertTrue(e instanceof RateLimitedException);
+			assertEquals(3, requestCount.get());
+			return;
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test
+	public void testAsyncRateLimited() {
+		rateLimitedRequest = 2;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Map<String, EntityDocument> results = wdf.getEntityDocumentsAsync(
+					makeIds(42), executor).join();
+			assertEquals(42, results.size());
+			assertEquals(6, requestCount.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAsyncStreaming() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Map<String, EntityDocument> consumed = new ConcurrentHashMap<>();
+			wdf.getEntityDocumentsAsync(makeIds(42), executor, consumed::put)
+					.join();
+			assertEquals(42, consumed.size());
+			assertTrue(maxInFlight.get() <= 2);
+
+			Map<String, EntityDocument> results = wdf.getEntityDocumentsAsync(
+					makeIds(7), executor).join();
+			assertEquals(7, results.size());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAsyncError() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			wdf.getEntityDocumentsAsync(List.of("Q1", "Q0"), executor).join();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof NoSuchEntityErrorException);
+			return;
+		} finally {
+			executor.shutdown();
+		}
+		throw new AssertionError("Expected an exception");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrency() {
+		wdf.setMaxConcurrentRequests(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRetries() {
+		wdf.setMaxRetries(-1);
+	}
+
+}